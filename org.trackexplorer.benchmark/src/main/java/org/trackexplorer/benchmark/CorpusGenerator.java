@@ -0,0 +1,287 @@
+package org.trackexplorer.benchmark;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Writes a synthetic archive of GPX files for load and scale testing.
+ *
+ * The files contain random walks with elevation and time, some of them
+ * split into several track segments, some of them written as routes
+ * without time. The number of points is distributed log-uniformly
+ * between {@link Options#minPoints} and {@link Options#maxPoints}, so
+ * most tracks are short but some are very long.
+ *
+ * The files are spread over nested folders, {@link Options#fanOut}
+ * folders per level and {@link Options#depth} levels.
+ *
+ * Every file only depends on the seed and its number, so the same
+ * options always produce the same archive.
+ *
+ * The files are written with a {@link XMLStreamWriter}, no document
+ * is built in memory.
+ */
+public class CorpusGenerator {
+	/**
+	 * The options of the generator, see {@link CorpusGenerator#main}
+	 * for the corresponding command line arguments.
+	 */
+	public static class Options {
+		public Path output = Paths.get("corpus");
+		public int tracks = 1000;
+		public int minPoints = 100;
+		public int maxPoints = 100000;
+		public int fanOut = 10;
+		public int depth = 2;
+		public int maxSegments = 3;
+		public double routeFraction = 0.1;
+		public long seed = 42;
+
+		/**
+		 * The area the tracks start in.
+		 */
+		public double minLatitude = 45.8;
+		public double minLongitude = 5.9;
+		public double maxLatitude = 47.8;
+		public double maxLongitude = 10.5;
+	}
+
+	/**
+	 * Routes only have a fraction of the points of a recorded track.
+	 */
+	private static final int ROUTE_POINT_RATIO = 20;
+
+	private final Options options;
+	private final XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+
+	private long pointCount;
+	private long byteCount;
+
+	public CorpusGenerator(final Options options) {
+		this.options = options;
+	}
+
+	/**
+	 * Writes all files.
+	 *
+	 * @return The paths of the files, in the order of their numbers.
+	 */
+	public List<Path> generate() throws IOException {
+		List<Path> files = new ArrayList<>(options.tracks);
+		for(int idx = 0; idx < options.tracks; idx++) {
+			files.add(generate(idx));
+		}
+		return files;
+	}
+
+	/**
+	 * Writes the file with the given number.
+	 */
+	public Path generate(final int number) throws IOException {
+		Random random = new Random(options.seed * 1_000_003L + number);
+
+		Path folder = options.output;
+		for(int level = 0; level < options.depth; level++) {
+			folder = folder.resolve(String.format("%02d", random.nextInt(options.fanOut)));
+		}
+		Files.createDirectories(folder);
+
+		boolean route = random.nextDouble() < options.routeFraction;
+		Path file = folder.resolve(String.format("%s-%06d.gpx", route ? "route" : "track", number));
+		try(OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)) {
+			XMLStreamWriter writer = outputFactory.createXMLStreamWriter(out, "UTF-8");
+			try {
+				write(writer, random, route, "Synthetic " + number);
+			} finally {
+				writer.close();
+			}
+		} catch (XMLStreamException e) {
+			throw new IOException("Could not write " + file, e);
+		}
+		byteCount += Files.size(file);
+		return file;
+	}
+
+	/**
+	 * @return The number of points written so far.
+	 */
+	public long getPointCount() {
+		return pointCount;
+	}
+
+	/**
+	 * @return The number of bytes written so far.
+	 */
+	public long getByteCount() {
+		return byteCount;
+	}
+
+	private void write(final XMLStreamWriter writer, final Random random, final boolean route, final String name)
+			throws XMLStreamException {
+		// Log-uniform between the minimum and maximum number of points
+		double logMin = Math.log(Math.max(1, options.minPoints));
+		double logMax = Math.log(Math.max(options.minPoints, options.maxPoints));
+		int points = (int) Math.round(Math.exp(logMin + random.nextDouble() * (logMax - logMin)));
+		if(route) {
+			points = Math.max(2, points / ROUTE_POINT_RATIO);
+		}
+
+		writer.writeStartDocument("UTF-8", "1.0");
+		writer.writeCharacters("\n");
+		writer.writeStartElement("gpx");
+		writer.writeDefaultNamespace("http://www.topografix.com/GPX/1/1");
+		writer.writeAttribute("version", "1.1");
+		writer.writeAttribute("creator", "trackexplorer-corpus-generator");
+		writer.writeCharacters("\n");
+
+		Walk walk = new Walk(random);
+		if(route) {
+			writer.writeStartElement("rte");
+			writeName(writer, name);
+			// Planned routes have longer steps and no time
+			for(int idx = 0; idx < points; idx++) {
+				writePoint(writer, "rtept", walk, false);
+				walk.step(random, ROUTE_POINT_RATIO);
+			}
+			writer.writeEndElement();
+		}
+		else {
+			writer.writeStartElement("trk");
+			writeName(writer, name);
+			int segments = 1 + random.nextInt(Math.max(1, options.maxSegments));
+			int written = 0;
+			for(int segment = 0; segment < segments; segment++) {
+				int end = (segment == segments - 1) ? points : written + points / segments;
+				writer.writeStartElement("trkseg");
+				writer.writeCharacters("\n");
+				for(; written < end; written++) {
+					writePoint(writer, "trkpt", walk, true);
+					walk.step(random, 1);
+				}
+				writer.writeEndElement();
+				writer.writeCharacters("\n");
+				// A break between the segments
+				walk.time += (5 + random.nextInt(60)) * 60_000L;
+			}
+			writer.writeEndElement();
+		}
+		writer.writeCharacters("\n");
+		writer.writeEndElement();
+		writer.writeEndDocument();
+		pointCount += points;
+	}
+
+	private void writeName(final XMLStreamWriter writer, final String name) throws XMLStreamException {
+		writer.writeStartElement("name");
+		writer.writeCharacters(name);
+		writer.writeEndElement();
+		writer.writeCharacters("\n");
+	}
+
+	private void writePoint(final XMLStreamWriter writer, final String element, final Walk walk, final boolean time)
+			throws XMLStreamException {
+		writer.writeStartElement(element);
+		writer.writeAttribute("lat", Double.toString(round(walk.latitude, 1e7)));
+		writer.writeAttribute("lon", Double.toString(round(walk.longitude, 1e7)));
+		writer.writeStartElement("ele");
+		writer.writeCharacters(Double.toString(round(walk.elevation, 10)));
+		writer.writeEndElement();
+		if(time) {
+			writer.writeStartElement("time");
+			writer.writeCharacters(Instant.ofEpochMilli(walk.time).toString());
+			writer.writeEndElement();
+		}
+		writer.writeEndElement();
+		writer.writeCharacters("\n");
+	}
+
+	private static double round(final double value, final double factor) {
+		return Math.round(value * factor) / factor;
+	}
+
+	/**
+	 * The current position of a random walk, one step per second.
+	 */
+	private class Walk {
+		double latitude;
+		double longitude;
+		double elevation;
+		double heading;
+		double speed;
+		long time;
+
+		Walk(final Random random) {
+			latitude = options.minLatitude + random.nextDouble() * (options.maxLatitude - options.minLatitude);
+			longitude = options.minLongitude + random.nextDouble() * (options.maxLongitude - options.minLongitude);
+			elevation = 200 + random.nextDouble() * 2000;
+			heading = random.nextDouble() * 2 * Math.PI;
+			// Between walking and cycling, in meters per second
+			speed = 1 + random.nextDouble() * 8;
+			// Somewhere between 2010 and 2020
+			time = 1262304000000L + (long) (random.nextDouble() * 315_360_000_000L);
+		}
+
+		void step(final Random random, final int seconds) {
+			heading += (random.nextDouble() - 0.5) * 0.4;
+			double meters = speed * seconds * (0.5 + random.nextDouble());
+			latitude += Math.cos(heading) * meters / 111_320.0;
+			longitude += Math.sin(heading) * meters / (111_320.0 * Math.cos(Math.toRadians(latitude)));
+			elevation = Math.max(0, elevation + (random.nextDouble() - 0.5 - Math.cos(heading) * 0.1) * seconds);
+			time += seconds * 1000L;
+		}
+	}
+
+	/**
+	 * Writes an archive according to the command line arguments.
+	 *
+	 * Arguments are given as {@code --name=value}, e.g.
+	 * {@code --output=/tmp/corpus --tracks=20000 --max-points=200000}.
+	 * Available names: {@code output}, {@code tracks}, {@code min-points},
+	 * {@code max-points}, {@code fan-out}, {@code depth}, {@code max-segments},
+	 * {@code route-fraction} and {@code seed}.
+	 */
+	public static void main(final String[] args) throws IOException {
+		Options options = new Options();
+		for(String arg : args) {
+			int separator = arg.indexOf('=');
+			if(!arg.startsWith("--") || separator < 0) {
+				throw new IllegalArgumentException("Invalid argument: " + arg);
+			}
+			String name = arg.substring(2, separator);
+			String value = arg.substring(separator + 1);
+			switch(name) {
+			case "output":			options.output = Paths.get(value); break;
+			case "tracks":			options.tracks = Integer.parseInt(value); break;
+			case "min-points":		options.minPoints = Integer.parseInt(value); break;
+			case "max-points":		options.maxPoints = Integer.parseInt(value); break;
+			case "fan-out":			options.fanOut = Integer.parseInt(value); break;
+			case "depth":			options.depth = Integer.parseInt(value); break;
+			case "max-segments":	options.maxSegments = Integer.parseInt(value); break;
+			case "route-fraction":	options.routeFraction = Double.parseDouble(value); break;
+			case "seed":			options.seed = Long.parseLong(value); break;
+			default:
+				throw new IllegalArgumentException("Unknown argument: " + arg);
+			}
+		}
+
+		long start = System.nanoTime();
+		CorpusGenerator generator = new CorpusGenerator(options);
+		List<Path> files = generator.generate();
+		long millis = (System.nanoTime() - start) / 1_000_000;
+		System.out.println(String.format("Wrote %d files with %d points (%d MB) to %s in %d ms",
+				files.size(), generator.getPointCount(), generator.getByteCount() / (1024 * 1024),
+				options.output.toAbsolutePath(), millis));
+	}
+}
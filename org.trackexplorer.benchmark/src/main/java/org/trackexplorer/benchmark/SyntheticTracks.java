@@ -0,0 +1,94 @@
+package org.trackexplorer.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.trackexplorer.model.TrackGeometry;
+import org.trackexplorer.model.TrackMetaInfo;
+
+/**
+ * Creates reproducible inputs for the benchmarks.
+ *
+ * All functions are deterministic for a given seed, so the
+ * results of different runs can be compared. Whole archives
+ * of GPX files are written by the {@link CorpusGenerator}.
+ */
+public class SyntheticTracks {
+	/**
+	 * The start of all generated tracks, the area is about 100 km wide.
+	 */
+	public static final double START_LATITUDE = 47.0;
+	public static final double START_LONGITUDE = 8.0;
+	public static final double AREA_SIZE = 1.0;
+
+	private SyntheticTracks() {
+	}
+
+	/**
+	 * Creates a random walk with elevation and one point per second.
+	 *
+	 * The steps are about 5 m long, the track starts at a random
+	 * position within the area.
+	 */
+	public static TrackGeometry randomWalk(final int points, final long seed) {
+		Random random = new Random(seed);
+		TrackGeometry.Builder builder = new TrackGeometry.Builder(points);
+		double latitude = START_LATITUDE + random.nextDouble() * AREA_SIZE;
+		double longitude = START_LONGITUDE + random.nextDouble() * AREA_SIZE;
+		double elevation = 400 + random.nextDouble() * 1000;
+		double heading = random.nextDouble() * 2 * Math.PI;
+		long time = 1420070400000L + random.nextInt(365 * 24 * 3600) * 1000L;
+		for(int idx = 0; idx < points; idx++) {
+			builder.add(latitude, longitude, (float) elevation, time);
+			heading += (random.nextDouble() - 0.5) * 0.3;
+			latitude += Math.cos(heading) * 0.00005;
+			longitude += Math.sin(heading) * 0.00007;
+			elevation = Math.max(0, elevation + (random.nextDouble() - 0.5) * 2);
+			time += 1000;
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Writes the given track as GPX 1.1 document with a single track segment.
+	 */
+	public static byte[] toGpx(final TrackGeometry geometry) {
+		StringBuilder builder = new StringBuilder(geometry.size() * 110 + 200);
+		builder.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+			.append("<gpx version=\"1.1\" creator=\"trackexplorer-benchmark\" xmlns=\"http://www.topografix.com/GPX/1/1\">\n")
+			.append("<trk><name>Synthetic</name><trkseg>\n");
+		for(int idx = 0; idx < geometry.size(); idx++) {
+			builder.append("<trkpt lat=\"").append(geometry.getLatitude(idx))
+				.append("\" lon=\"").append(geometry.getLongitude(idx)).append("\">");
+			if(geometry.hasElevation(idx)) {
+				builder.append("<ele>").append(geometry.getElevation(idx)).append("</ele>");
+			}
+			if(geometry.hasTime(idx)) {
+				builder.append("<time>").append(Instant.ofEpochMilli(geometry.getTime(idx))).append("</time>");
+			}
+			builder.append("</trkpt>\n");
+		}
+		builder.append("</trkseg></trk>\n</gpx>\n");
+		return builder.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Creates track descriptions spread over the given number of folders.
+	 * No files are created.
+	 */
+	public static List<TrackMetaInfo> trackMetaInfos(final int count, final int folders, final long seed) {
+		Random random = new Random(seed);
+		List<TrackMetaInfo> tracks = new ArrayList<>(count);
+		for(int idx = 0; idx < count; idx++) {
+			String folder = "folder-" + random.nextInt(folders);
+			String name = "track-" + idx;
+			tracks.add(new TrackMetaInfo(Long.toHexString(random.nextLong()), name,
+					Paths.get("/archive", folder, name + ".gpx")));
+		}
+		return tracks;
+	}
+}
@@ -0,0 +1,61 @@
+package org.trackexplorer.parts;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.trackexplorer.benchmark.SyntheticTracks;
+import org.trackexplorer.model.LatLng;
+import org.trackexplorer.model.TrackGeometry;
+
+/**
+ * Measures the creation of the JavaScript which passes a track
+ * to the map in {@link TrackViewerPart}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+	@Param({"1000", "86400"})
+	public int points;
+
+	private TrackGeometry geometry;
+
+	@Setup
+	public void setUp() {
+		geometry = SyntheticTracks.randomWalk(points, 42);
+	}
+
+	/**
+	 * The format used before the encoded polyline: an array of
+	 * {@code [lat,lng]} built from {@link LatLng#toString()}.
+	 */
+	@Benchmark
+	public String latLngArray() {
+		StringBuilder builder = new StringBuilder("[");
+		for(LatLng latLng : geometry.asLatLngList()) {
+			if(builder.length() > 1) {
+				builder.append(',');
+			}
+			builder.append(latLng.toString());
+		}
+		return builder.append(']').toString();
+	}
+
+	@Benchmark
+	public String encodedPolyline() {
+		return TrackScripts.updatePath("#0000ff", geometry);
+	}
+}
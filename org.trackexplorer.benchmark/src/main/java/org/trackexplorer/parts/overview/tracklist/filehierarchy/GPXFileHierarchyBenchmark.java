@@ -0,0 +1,47 @@
+package org.trackexplorer.parts.overview.tracklist.filehierarchy;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.trackexplorer.benchmark.SyntheticTracks;
+import org.trackexplorer.model.TrackMetaInfo;
+
+/**
+ * Measures the creation of the tree shown in the track list.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GPXFileHierarchyBenchmark {
+	@Param({"100000"})
+	public int tracks;
+
+	@Param({"1000"})
+	public int folders;
+
+	private List<TrackMetaInfo> trackInfos;
+
+	@Setup
+	public void setUp() {
+		trackInfos = SyntheticTracks.trackMetaInfos(tracks, folders, 42);
+	}
+
+	@Benchmark
+	public Tree<TrackMetaInfo> create() {
+		return GPXFileHierarchy.Create(trackInfos);
+	}
+}
@@ -0,0 +1,180 @@
+package org.trackexplorer.service.search;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.trackexplorer.benchmark.CorpusGenerator;
+import org.trackexplorer.benchmark.SyntheticTracks;
+import org.trackexplorer.model.Bounds;
+import org.trackexplorer.model.Circle;
+import org.trackexplorer.model.GeoCandidates;
+import org.trackexplorer.model.GeoSearchMode;
+import org.trackexplorer.model.LatLng;
+import org.trackexplorer.model.Polygon;
+import org.trackexplorer.model.TrackGeometry;
+import org.trackexplorer.model.TrackMetaInfo;
+import org.trackexplorer.service.track.TrackService;
+
+/**
+ * Measures a geo search over a synthetic corpus.
+ *
+ * All tracks are loaded during the setup, so only the search
+ * itself is measured, not the parser.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeoSearchBenchmark {
+	@Param({"1000"})
+	public int tracks;
+
+	@Param({"2000"})
+	public int points;
+
+	private Path directory;
+	private TrackService trackService;
+	private List<TrackGeometry> geometries;
+	private Bounds bounds;
+	private Circle circle;
+	private Polygon polygon;
+
+	@Setup
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("geosearch-benchmark");
+		CorpusGenerator.Options options = new CorpusGenerator.Options();
+		options.output = directory.resolve("tracks");
+		options.tracks = tracks;
+		options.minPoints = points;
+		options.maxPoints = points;
+		options.minLatitude = SyntheticTracks.START_LATITUDE;
+		options.minLongitude = SyntheticTracks.START_LONGITUDE;
+		options.maxLatitude = SyntheticTracks.START_LATITUDE + SyntheticTracks.AREA_SIZE;
+		options.maxLongitude = SyntheticTracks.START_LONGITUDE + SyntheticTracks.AREA_SIZE;
+		new CorpusGenerator(options).generate();
+
+		trackService = new TrackService();
+		trackService.setIndexDirectory(directory.resolve("index"));
+		trackService.setLocations(Collections.singletonList(directory.resolve("tracks").toString()));
+
+		geometries = new ArrayList<>();
+		for(TrackMetaInfo trackInfo : trackService.getAvailabeTracks()) {
+			geometries.add(trackService.getTrackGeometry(trackInfo.getId()));
+		}
+
+		// A tenth of the area in the middle of the corpus
+		double latitude = SyntheticTracks.START_LATITUDE + SyntheticTracks.AREA_SIZE * 0.45;
+		double longitude = SyntheticTracks.START_LONGITUDE + SyntheticTracks.AREA_SIZE * 0.45;
+		bounds = new Bounds(new LatLng(latitude, longitude),
+				new LatLng(latitude + SyntheticTracks.AREA_SIZE * 0.1, longitude + SyntheticTracks.AREA_SIZE * 0.1));
+
+		// Within 200 m of the middle, e.g. a summit
+		LatLng middle = new LatLng(latitude + SyntheticTracks.AREA_SIZE * 0.05, longitude + SyntheticTracks.AREA_SIZE * 0.05);
+		circle = new Circle(middle, 200.0);
+
+		// A triangle within the bounds
+		polygon = new Polygon(Arrays.asList(bounds.getSouthWest(),
+				new LatLng(latitude, longitude + SyntheticTracks.AREA_SIZE * 0.1), bounds.getNorthEast()));
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		try(Stream<Path> paths = Files.walk(directory)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	@Benchmark
+	public Set<TrackMetaInfo> search() {
+		return new ParallelGeoSearchService().search(bounds, GeoSearchMode.POINTS, trackService, count -> {}, () -> false);
+	}
+
+	/**
+	 * Same as {@link search}, but also finds the tracks crossing
+	 * the bounds between two points, see {@link GeoSearchMode#SEGMENTS}.
+	 */
+	@Benchmark
+	public Set<TrackMetaInfo> searchSegments() {
+		return new ParallelGeoSearchService().search(bounds, GeoSearchMode.SEGMENTS, trackService, count -> {}, () -> false);
+	}
+
+	/**
+	 * Searches the tracks which passed within 200 m of a point.
+	 */
+	@Benchmark
+	public Set<TrackMetaInfo> searchCircle() {
+		return new ParallelGeoSearchService().search(circle, GeoSearchMode.POINTS, trackService, count -> {}, () -> false);
+	}
+
+	/**
+	 * Searches the tracks with points inside a triangle as large as half of the {@link search} bounds.
+	 */
+	@Benchmark
+	public Set<TrackMetaInfo> searchPolygon() {
+		return new ParallelGeoSearchService().search(polygon, GeoSearchMode.POINTS, trackService, count -> {}, () -> false);
+	}
+
+	/**
+	 * Only determines which tracks need to be checked point by point,
+	 * see {@link TrackService#getGeoCandidates}.
+	 */
+	@Benchmark
+	public GeoCandidates geoCandidates() {
+		return trackService.getGeoCandidates(bounds, GeoSearchMode.POINTS);
+	}
+
+	/**
+	 * Checks every point of every track with {@link Bounds#isInside(LatLng)}.
+	 */
+	@Benchmark
+	public int isInsideLatLng() {
+		int count = 0;
+		for(TrackGeometry geometry : geometries) {
+			for(LatLng latLng : geometry.asLatLngList()) {
+				if(bounds.isInside(latLng)) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Checks every point of every track with {@link Bounds#isInside(double, double)}.
+	 */
+	@Benchmark
+	public int isInsidePrimitive() {
+		int count = 0;
+		for(TrackGeometry geometry : geometries) {
+			for(int idx = 0; idx < geometry.size(); idx++) {
+				if(bounds.isInside(geometry.getLatitude(idx), geometry.getLongitude(idx))) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+}
@@ -0,0 +1,84 @@
+package org.trackexplorer.service.track;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.alternativevision.gpx.GPXParser;
+import org.alternativevision.gpx.StreamingGPXParser;
+import org.alternativevision.gpx.beans.GPX;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.trackexplorer.benchmark.SyntheticTracks;
+import org.trackexplorer.model.TrackGeometry;
+
+/**
+ * Compares the parsers available for loading a track,
+ * and reading the parsed track from the {@link TrackStore}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+	/**
+	 * A short walk and a 24 hour recording with one point per second.
+	 */
+	@Param({"1000", "86400"})
+	public int points;
+
+	private byte[] gpx;
+	private Path directory;
+	private TrackStore store;
+
+	@Setup
+	public void setUp() throws IOException {
+		gpx = SyntheticTracks.toGpx(SyntheticTracks.randomWalk(points, 42));
+
+		TrackGeometry geometry = GPXGeometryReader.read(new ByteArrayInputStream(gpx));
+		directory = Files.createTempDirectory("trackstore");
+		store = new TrackStore(directory);
+		store.write("track", 0L, TrackInfo.compute(geometry), geometry);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		store.retainAll(Collections.emptySet());
+		Files.delete(directory);
+	}
+
+	@Benchmark
+	public GPX domParser() throws Exception {
+		return new GPXParser().parseGPX(new ByteArrayInputStream(gpx));
+	}
+
+	@Benchmark
+	public GPX streamingParser() throws Exception {
+		return new StreamingGPXParser().parseGPX(new ByteArrayInputStream(gpx));
+	}
+
+	@Benchmark
+	public TrackGeometry geometryReader() throws Exception {
+		return GPXGeometryReader.read(new ByteArrayInputStream(gpx));
+	}
+
+	@Benchmark
+	public TrackGeometry trackStore() {
+		return store.read("track").getGeometry();
+	}
+}
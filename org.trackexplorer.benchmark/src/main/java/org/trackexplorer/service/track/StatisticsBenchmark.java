@@ -0,0 +1,78 @@
+package org.trackexplorer.service.track;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.alternativevision.gpx.beans.Waypoint;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.trackexplorer.benchmark.SyntheticTracks;
+import org.trackexplorer.model.TrackGeometry;
+
+/**
+ * Measures the computation of distance, elevation and the other
+ * values of a {@link TrackInfo}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatisticsBenchmark {
+	@Param({"1000", "86400"})
+	public int points;
+
+	private TrackGeometry geometry;
+	private List<Waypoint> waypoints;
+
+	@Setup
+	public void setUp() {
+		geometry = SyntheticTracks.randomWalk(points, 42);
+		waypoints = new ArrayList<>(geometry.size());
+		for(int idx = 0; idx < geometry.size(); idx++) {
+			Waypoint waypoint = new Waypoint();
+			waypoint.setLatitude(geometry.getLatitude(idx));
+			waypoint.setLongitude(geometry.getLongitude(idx));
+			waypoint.setElevation((double) geometry.getElevation(idx));
+			waypoint.setTime(new Date(geometry.getTime(idx)));
+			waypoints.add(waypoint);
+		}
+	}
+
+	@Benchmark
+	public double distanceWaypoints() {
+		return GPXHelperFunctions.ComputeTotalDistance(waypoints);
+	}
+
+	@Benchmark
+	public double distanceGeometry() {
+		return GPXHelperFunctions.ComputeTotalDistance(geometry);
+	}
+
+	@Benchmark
+	public double elevationWaypoints() {
+		return GPXHelperFunctions.ComputeTotalElevation(waypoints);
+	}
+
+	@Benchmark
+	public double elevationGeometry() {
+		return GPXHelperFunctions.ComputeTotalElevation(geometry);
+	}
+
+	@Benchmark
+	public TrackInfo allStatistics() {
+		return TrackStatistics.compute(geometry);
+	}
+}
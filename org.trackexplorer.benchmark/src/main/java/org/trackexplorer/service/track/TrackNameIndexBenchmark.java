@@ -0,0 +1,83 @@
+package org.trackexplorer.service.track;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.trackexplorer.model.NameMatch;
+
+/**
+ * Measures searching the tracks by name with a {@link TrackNameIndex}
+ * compared to lower casing and comparing every name, as the track list did.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrackNameIndexBenchmark {
+	private static final String[] WORDS = {"Alps", "Lake", "Forest", "Ridge", "Valley",
+			"Tour", "Hike", "Ride", "Loop", "Summit", "River", "Pass"};
+
+	@Param({"100000"})
+	public int tracks;
+
+	@Param({"summit 12", "lake", "sumit"})
+	public String query;
+
+	private TrackNameIndex index;
+	private String[] names;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(42);
+		index = new TrackNameIndex();
+		names = new String[tracks];
+		for(int idx = 0; idx < tracks; idx++) {
+			String folder = WORDS[random.nextInt(WORDS.length)] + " " + (2000 + random.nextInt(20));
+			names[idx] = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]
+					+ " " + random.nextInt(1000) + ".gpx";
+			index.add("track" + idx, Arrays.asList(folder, names[idx]));
+		}
+	}
+
+	@Benchmark
+	public int scanNames() {
+		String search = query.toLowerCase();
+		int found = 0;
+		for(String name : names) {
+			if(name.toLowerCase().contains(search)) {
+				found++;
+			}
+		}
+		return found;
+	}
+
+	@Benchmark
+	public List<String> substring() {
+		return index.find(query, NameMatch.SUBSTRING);
+	}
+
+	@Benchmark
+	public List<String> prefix() {
+		return index.find(query, NameMatch.PREFIX);
+	}
+
+	@Benchmark
+	public List<String> fuzzy() {
+		return index.find(query, NameMatch.FUZZY);
+	}
+}
@@ -0,0 +1,98 @@
+package org.trackexplorer.service.track;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.trackexplorer.benchmark.CorpusGenerator;
+
+/**
+ * Measures how long the {@link TrackService} needs to discover
+ * and to index a whole archive written by the {@link CorpusGenerator}.
+ *
+ * Every iteration starts without a persisted index, the files
+ * themselves are probably in the page cache of the operating system.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TrackServiceBenchmark {
+	@Param({"2000"})
+	public int tracks;
+
+	@Param({"20000"})
+	public int maxPoints;
+
+	private Path directory;
+	private Path corpus;
+	private Path indexDirectory;
+
+	@Setup(Level.Trial)
+	public void createCorpus() throws IOException {
+		directory = Files.createTempDirectory("trackservice-benchmark");
+		corpus = directory.resolve("corpus");
+		CorpusGenerator.Options options = new CorpusGenerator.Options();
+		options.output = corpus;
+		options.tracks = tracks;
+		options.maxPoints = maxPoints;
+		new CorpusGenerator(options).generate();
+	}
+
+	@Setup(Level.Iteration)
+	public void createIndexDirectory() throws IOException {
+		indexDirectory = Files.createTempDirectory(directory, "index");
+	}
+
+	@TearDown(Level.Trial)
+	public void deleteCorpus() throws IOException {
+		try(Stream<Path> paths = Files.walk(directory)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	private TrackService createService() {
+		TrackService service = new TrackService();
+		service.setIndexDirectory(indexDirectory);
+		service.setLocations(Collections.singletonList(corpus.toString()));
+		return service;
+	}
+
+	@Benchmark
+	public int discoverTracks() {
+		return createService().getAvailabeTracks().size();
+	}
+
+	@Benchmark
+	public TrackService indexAllTracks() throws InterruptedException {
+		TrackService service = createService();
+		CountDownLatch finished = new CountDownLatch(1);
+		service.startIndexing(progress -> {
+			if(progress.isFinished()) {
+				finished.countDown();
+			}
+		});
+		finished.await();
+		return service;
+	}
+}
@@ -5,7 +5,7 @@ import java.util.List;
 /**
  * A class which represents geographical bounds.
  */
-public class Bounds {
+public class Bounds implements GeoArea {
 	private LatLng southWest;
 	private LatLng northEast;
 	
@@ -51,6 +51,14 @@ public class Bounds {
 		return northEast;
 	}	
 	
+	/**
+	 * @return The bound itself.
+	 */
+	@Override
+	public Bounds getBounds() {
+		return this;
+	}
+	
 	/**
 	 * Creates a new bound, extended by the given point.
 	 */
@@ -68,6 +76,95 @@ public class Bounds {
 		return isInsideSoutWest(latLng) && isInsideNorthWest(latLng);
 	}
 	
+	/**
+	 * Tests whether the given point is inside the bound.
+	 * 
+	 * Same as {@link isInside(LatLng)}, but without
+	 * the need to create a {@link LatLng}.
+	 */
+	@Override
+	public boolean isInside(final double latitude, final double longitude) {
+		return (latitude > this.southWest.getLatitude()) &&
+				(longitude > this.southWest.getLongitude()) &&
+				(latitude < this.northEast.getLatitude()) &&
+				(longitude < this.northEast.getLongitude());
+	}
+	
+	/**
+	 * Tests whether a point of the segment between the two given
+	 * points is inside the bound, like {@link isInside(double, double)}.
+	 *
+	 * A segment which only touches the border does not cross the bound.
+	 * The segment is clipped against the four sides of the bound
+	 * (Liang-Barsky), it crosses the bound if some part of it is left.
+	 */
+	@Override
+	public boolean isCrossedBy(final double latitude0, final double longitude0,
+			final double latitude1, final double longitude1) {
+		double deltaLatitude = latitude1 - latitude0;
+		double deltaLongitude = longitude1 - longitude0;
+		// The part of the segment inside the bound, from 0.0 at the first point to 1.0 at the second one
+		double enter = 0.0;
+		double leave = 1.0;
+		for(int side = 0; side < 4; side++) {
+			double direction;
+			double distance;
+			if(side == 0) {
+				direction = -deltaLatitude;
+				distance = latitude0 - this.southWest.getLatitude();
+			}
+			else if(side == 1) {
+				direction = deltaLatitude;
+				distance = this.northEast.getLatitude() - latitude0;
+			}
+			else if(side == 2) {
+				direction = -deltaLongitude;
+				distance = longitude0 - this.southWest.getLongitude();
+			}
+			else {
+				direction = deltaLongitude;
+				distance = this.northEast.getLongitude() - longitude0;
+			}
+
+			if(direction == 0.0) {
+				// Parallel to the side, on it or beyond
+				if(distance <= 0.0) {
+					return false;
+				}
+			}
+			else if(direction < 0.0) {
+				enter = Math.max(enter, distance / direction);
+			}
+			else {
+				leave = Math.min(leave, distance / direction);
+			}
+		}
+		return enter < leave;
+	}
+
+	/**
+	 * Tests whether the given bounds are inside the bound,
+	 * like {@link isInside(double, double)}.
+	 */
+	@Override
+	public boolean contains(final Bounds bounds) {
+		return isInside(bounds.getSouthWest().getLatitude(), bounds.getSouthWest().getLongitude()) &&
+				isInside(bounds.getNorthEast().getLatitude(), bounds.getNorthEast().getLongitude());
+	}
+
+	/**
+	 * Tests whether the two bounds have at least one point in common.
+	 * 
+	 * Bounds which only touch each other intersect.
+	 */
+	@Override
+	public boolean intersects(final Bounds bounds) {
+		return (bounds.getSouthWest().getLatitude() <= this.northEast.getLatitude()) &&
+				(bounds.getSouthWest().getLongitude() <= this.northEast.getLongitude()) &&
+				(bounds.getNorthEast().getLatitude() >= this.southWest.getLatitude()) &&
+				(bounds.getNorthEast().getLongitude() >= this.southWest.getLongitude());
+	}
+	
 	private LatLng extendSoutWest(final LatLng latLng) {
 		return new LatLng(
 				Math.min(latLng.getLatitude(), this.southWest.getLatitude()),
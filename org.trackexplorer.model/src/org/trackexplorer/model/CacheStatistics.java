@@ -0,0 +1,65 @@
+package org.trackexplorer.model;
+
+/**
+ * A snapshot of the counters of a cache.
+ *
+ * The weight is given in bytes.
+ */
+public class CacheStatistics {
+	private final long hitCount;
+	private final long missCount;
+	private final long evictionCount;
+	private final int entryCount;
+	private final long weight;
+	private final long maximumWeight;
+	
+	public CacheStatistics(long hitCount, long missCount, long evictionCount,
+			int entryCount, long weight, long maximumWeight) {
+		super();
+		this.hitCount = hitCount;
+		this.missCount = missCount;
+		this.evictionCount = evictionCount;
+		this.entryCount = entryCount;
+		this.weight = weight;
+		this.maximumWeight = maximumWeight;
+	}
+
+	public long getHitCount() {
+		return hitCount;
+	}
+
+	public long getMissCount() {
+		return missCount;
+	}
+
+	public long getEvictionCount() {
+		return evictionCount;
+	}
+
+	public int getEntryCount() {
+		return entryCount;
+	}
+
+	public long getWeight() {
+		return weight;
+	}
+
+	public long getMaximumWeight() {
+		return maximumWeight;
+	}
+	
+	/**
+	 * @return The ratio of hits to all requests or 1 if there were no requests.
+	 */
+	public double getHitRate() {
+		long requests = hitCount + missCount;
+		return (requests == 0) ? 1.0 : (double) hitCount / requests;
+	}
+
+	@Override
+	public String toString() {
+		return "CacheStatistics [hits=" + hitCount + ", misses=" + missCount
+				+ ", evictions=" + evictionCount + ", entries=" + entryCount
+				+ ", weight=" + weight + ", maximumWeight=" + maximumWeight + "]";
+	}
+}
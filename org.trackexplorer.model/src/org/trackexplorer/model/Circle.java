@@ -0,0 +1,135 @@
+package org.trackexplorer.model;
+
+/**
+ * The area within some distance around a point, e.g. to find the
+ * tracks which passed a summit.
+ *
+ * Points are tested by their distance on the sphere (haversine formula).
+ * Only the segments between two points outside the circle are treated as
+ * straight lines on a plane around the center, see {@link LocalProjection}.
+ */
+public class Circle implements GeoArea {
+	private final LatLng center;
+	private final double radius;
+	private final Bounds bounds;
+
+	/**
+	 * A point is inside if the haversine of its angular distance
+	 * to the center is smaller, saves the square root and arc sine.
+	 */
+	private final double maxHaversine;
+	private final double cosCenterLatitude;
+	private final double metersPerDegreeLongitude;
+
+	/**
+	 * @param center The center of the circle.
+	 * @param radius The radius in meters.
+	 */
+	public Circle(final LatLng center, final double radius) {
+		super();
+		this.center = center;
+		this.radius = radius;
+
+		double angle = Math.min(radius / LocalProjection.EARTH_RADIUS, Math.PI);
+		double halfAngle = Math.sin(angle / 2.0);
+		this.maxHaversine = halfAngle * halfAngle;
+		this.cosCenterLatitude = Math.cos(Math.toRadians(center.getLatitude()));
+		this.metersPerDegreeLongitude = LocalProjection.metersPerDegreeLongitude(center.getLatitude());
+		this.bounds = computeBounds(center, angle);
+	}
+
+	/**
+	 * The longitudes of the circle are widest where a meridian touches it, not at
+	 * the latitude of the center. If the circle contains a pole, all longitudes are inside.
+	 */
+	private static Bounds computeBounds(final LatLng center, final double angle) {
+		double south = center.getLatitude() - Math.toDegrees(angle);
+		double north = center.getLatitude() + Math.toDegrees(angle);
+		double west = -180.0;
+		double east = 180.0;
+		if(south > -90.0 && north < 90.0) {
+			double sinDelta = Math.sin(angle) / Math.cos(Math.toRadians(center.getLatitude()));
+			if(sinDelta < 1.0) {
+				double delta = Math.toDegrees(Math.asin(sinDelta));
+				west = Math.max(west, center.getLongitude() - delta);
+				east = Math.min(east, center.getLongitude() + delta);
+			}
+		}
+		return new Bounds(new LatLng(Math.max(south, -90.0), west), new LatLng(Math.min(north, 90.0), east));
+	}
+
+	public LatLng getCenter() {
+		return center;
+	}
+
+	/**
+	 * @return The radius in meters.
+	 */
+	public double getRadius() {
+		return radius;
+	}
+
+	@Override
+	public Bounds getBounds() {
+		return bounds;
+	}
+
+	@Override
+	public boolean isInside(final double latitude, final double longitude) {
+		if(latitude < bounds.getSouthWest().getLatitude() || latitude > bounds.getNorthEast().getLatitude() ||
+				longitude < bounds.getSouthWest().getLongitude() || longitude > bounds.getNorthEast().getLongitude()) {
+			return false;
+		}
+		double sinLatitude = Math.sin(Math.toRadians(latitude - center.getLatitude()) / 2.0);
+		double sinLongitude = Math.sin(Math.toRadians(longitude - center.getLongitude()) / 2.0);
+		double haversine = sinLatitude * sinLatitude +
+				cosCenterLatitude * Math.cos(Math.toRadians(latitude)) * sinLongitude * sinLongitude;
+		return haversine < maxHaversine;
+	}
+
+	@Override
+	public boolean isCrossedBy(final double latitude0, final double longitude0,
+			final double latitude1, final double longitude1) {
+		if(Math.max(latitude0, latitude1) < bounds.getSouthWest().getLatitude() ||
+				Math.min(latitude0, latitude1) > bounds.getNorthEast().getLatitude() ||
+				Math.max(longitude0, longitude1) < bounds.getSouthWest().getLongitude() ||
+				Math.min(longitude0, longitude1) > bounds.getNorthEast().getLongitude()) {
+			return false;
+		}
+		if(isInside(latitude0, longitude0) || isInside(latitude1, longitude1)) {
+			return true;
+		}
+		double distanceSquared = LocalProjection.distanceSquared(0.0, 0.0,
+				(longitude0 - center.getLongitude()) * metersPerDegreeLongitude,
+				(latitude0 - center.getLatitude()) * LocalProjection.METERS_PER_DEGREE,
+				(longitude1 - center.getLongitude()) * metersPerDegreeLongitude,
+				(latitude1 - center.getLatitude()) * LocalProjection.METERS_PER_DEGREE);
+		return distanceSquared < radius * radius;
+	}
+
+	/**
+	 * Along a meridian or a parallel the points inside the circle are
+	 * not interrupted, so the bounds are inside if all corners are.
+	 */
+	@Override
+	public boolean contains(final Bounds other) {
+		double south = other.getSouthWest().getLatitude();
+		double west = other.getSouthWest().getLongitude();
+		double north = other.getNorthEast().getLatitude();
+		double east = other.getNorthEast().getLongitude();
+		return isInside(south, west) && isInside(south, east) && isInside(north, west) && isInside(north, east);
+	}
+
+	/**
+	 * Only compares the bounds of the circle.
+	 */
+	@Override
+	public boolean intersects(final Bounds other) {
+		return bounds.intersects(other);
+	}
+
+	@Override
+	public String toString() {
+		return "Circle [center=" + center + ", radius=" + radius + "]";
+	}
+}
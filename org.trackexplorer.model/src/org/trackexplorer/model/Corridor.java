@@ -0,0 +1,198 @@
+package org.trackexplorer.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The area within some distance along a polyline, e.g. to find the
+ * tracks which followed a planned route.
+ *
+ * The distances to each segment of the polyline are measured on a plane
+ * around its first point, see {@link LocalProjection}. So the segments should
+ * not be much longer than some kilometers, like the ones drawn on a map.
+ *
+ * The bounds of each segment, extended by the distance, are kept to
+ * skip the segments which are too far away from a point.
+ */
+public class Corridor implements GeoArea {
+	private final double[] latitudes;
+	private final double[] longitudes;
+	private final double distance;
+	private final Bounds bounds;
+
+	/**
+	 * The extended bounds and the length of a degree of longitude of each segment.
+	 */
+	private final double[] souths;
+	private final double[] wests;
+	private final double[] norths;
+	private final double[] easts;
+	private final double[] metersPerDegreeLongitude;
+
+	/**
+	 * @param points At least one point, a single point is a circle.
+	 * @param distance The distance to the polyline in meters.
+	 */
+	public Corridor(final List<LatLng> points, final double distance) {
+		super();
+		if(points.isEmpty()) {
+			throw new IllegalArgumentException("At least one point is needed");
+		}
+		this.distance = distance;
+		this.latitudes = new double[points.size()];
+		this.longitudes = new double[points.size()];
+		for(int idx = 0; idx < points.size(); idx++) {
+			this.latitudes[idx] = points.get(idx).getLatitude();
+			this.longitudes[idx] = points.get(idx).getLongitude();
+		}
+
+		int segments = Math.max(1, points.size() - 1);
+		this.souths = new double[segments];
+		this.wests = new double[segments];
+		this.norths = new double[segments];
+		this.easts = new double[segments];
+		this.metersPerDegreeLongitude = new double[segments];
+		double deltaLatitude = distance / LocalProjection.METERS_PER_DEGREE;
+		Bounds union = new Bounds();
+		for(int segment = 0; segment < segments; segment++) {
+			int end = Math.min(segment + 1, points.size() - 1);
+			souths[segment] = Math.max(-90.0, Math.min(latitudes[segment], latitudes[end]) - deltaLatitude);
+			norths[segment] = Math.min(90.0, Math.max(latitudes[segment], latitudes[end]) + deltaLatitude);
+			// The degrees of longitude are shortest on the side closer to the pole
+			double metersPerDegree = LocalProjection.metersPerDegreeLongitude(
+					Math.max(Math.abs(souths[segment]), Math.abs(norths[segment])));
+			double deltaLongitude = (metersPerDegree > 0.0) ? distance / metersPerDegree : 180.0;
+			wests[segment] = Math.max(-180.0, Math.min(longitudes[segment], longitudes[end]) - deltaLongitude);
+			easts[segment] = Math.min(180.0, Math.max(longitudes[segment], longitudes[end]) + deltaLongitude);
+			metersPerDegreeLongitude[segment] = LocalProjection.metersPerDegreeLongitude(
+					(latitudes[segment] + latitudes[end]) / 2.0);
+			union = union.extend(new LatLng(souths[segment], wests[segment]))
+					.extend(new LatLng(norths[segment], easts[segment]));
+		}
+		this.bounds = union;
+	}
+
+	public List<LatLng> getPoints() {
+		List<LatLng> points = new ArrayList<>(latitudes.length);
+		for(int idx = 0; idx < latitudes.length; idx++) {
+			points.add(new LatLng(latitudes[idx], longitudes[idx]));
+		}
+		return Collections.unmodifiableList(points);
+	}
+
+	/**
+	 * @return The distance to the polyline in meters.
+	 */
+	public double getDistance() {
+		return distance;
+	}
+
+	@Override
+	public Bounds getBounds() {
+		return bounds;
+	}
+
+	@Override
+	public boolean isInside(final double latitude, final double longitude) {
+		for(int segment = 0; segment < souths.length; segment++) {
+			if(latitude >= souths[segment] && latitude <= norths[segment] &&
+					longitude >= wests[segment] && longitude <= easts[segment] &&
+					distanceSquared(segment, latitude, longitude) < distance * distance) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public boolean isCrossedBy(final double latitude0, final double longitude0,
+			final double latitude1, final double longitude1) {
+		double south = Math.min(latitude0, latitude1);
+		double north = Math.max(latitude0, latitude1);
+		double west = Math.min(longitude0, longitude1);
+		double east = Math.max(longitude0, longitude1);
+		for(int segment = 0; segment < souths.length; segment++) {
+			if(north < souths[segment] || south > norths[segment] || east < wests[segment] || west > easts[segment]) {
+				continue;
+			}
+			double scale = metersPerDegreeLongitude[segment];
+			double distanceSquared = LocalProjection.distanceSquared(
+					(longitude0 - longitudes[segment]) * scale,
+					(latitude0 - latitudes[segment]) * LocalProjection.METERS_PER_DEGREE,
+					(longitude1 - longitudes[segment]) * scale,
+					(latitude1 - latitudes[segment]) * LocalProjection.METERS_PER_DEGREE,
+					0.0, 0.0,
+					(longitudes[end(segment)] - longitudes[segment]) * scale,
+					(latitudes[end(segment)] - latitudes[segment]) * LocalProjection.METERS_PER_DEGREE);
+			if(distanceSquared < distance * distance) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * The area around a single segment has no dents, so the bounds are
+	 * inside if all corners are close to the same segment.
+	 */
+	@Override
+	public boolean contains(final Bounds other) {
+		double south = other.getSouthWest().getLatitude();
+		double west = other.getSouthWest().getLongitude();
+		double north = other.getNorthEast().getLatitude();
+		double east = other.getNorthEast().getLongitude();
+		double maxDistanceSquared = distance * distance;
+		for(int segment = 0; segment < souths.length; segment++) {
+			if(distanceSquared(segment, south, west) < maxDistanceSquared &&
+					distanceSquared(segment, south, east) < maxDistanceSquared &&
+					distanceSquared(segment, north, west) < maxDistanceSquared &&
+					distanceSquared(segment, north, east) < maxDistanceSquared) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Only compares the extended bounds of the segments.
+	 */
+	@Override
+	public boolean intersects(final Bounds other) {
+		double south = other.getSouthWest().getLatitude();
+		double west = other.getSouthWest().getLongitude();
+		double north = other.getNorthEast().getLatitude();
+		double east = other.getNorthEast().getLongitude();
+		for(int segment = 0; segment < souths.length; segment++) {
+			if(north >= souths[segment] && south <= norths[segment] && east >= wests[segment] && west <= easts[segment]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return The squared distance in meters from the point to the segment.
+	 */
+	private double distanceSquared(final int segment, final double latitude, final double longitude) {
+		double scale = metersPerDegreeLongitude[segment];
+		return LocalProjection.distanceSquared(
+				(longitude - longitudes[segment]) * scale,
+				(latitude - latitudes[segment]) * LocalProjection.METERS_PER_DEGREE,
+				0.0, 0.0,
+				(longitudes[end(segment)] - longitudes[segment]) * scale,
+				(latitudes[end(segment)] - latitudes[segment]) * LocalProjection.METERS_PER_DEGREE);
+	}
+
+	/**
+	 * @return The index of the last point of the segment, the same as the first for a single point.
+	 */
+	private int end(final int segment) {
+		return Math.min(segment + 1, latitudes.length - 1);
+	}
+
+	@Override
+	public String toString() {
+		return "Corridor [points=" + latitudes.length + ", distance=" + distance + "]";
+	}
+}
@@ -0,0 +1,91 @@
+package org.trackexplorer.model;
+
+/**
+ * Reports the progress of searching the locations for tracks,
+ * see {@link ITrackService#setLocations(java.util.List, java.util.function.Consumer)}.
+ * 
+ * Each report contains the tracks found since the previous report.
+ */
+public class DiscoveryProgress {
+	private final TrackChanges changes;
+	private final int folders;
+	private final int tracks;
+	private final long elapsedMillis;
+	private final boolean finished;
+	private final boolean cancelled;
+	
+	public DiscoveryProgress(TrackChanges changes, int folders, int tracks, long elapsedMillis,
+			boolean finished, boolean cancelled) {
+		super();
+		this.changes = changes;
+		this.folders = folders;
+		this.tracks = tracks;
+		this.elapsedMillis = elapsedMillis;
+		this.finished = finished;
+		this.cancelled = cancelled;
+	}
+
+	/**
+	 * The first report also contains the tracks of removed locations.
+	 * 
+	 * @return The changes since the previous report.
+	 */
+	public TrackChanges getChanges() {
+		return changes;
+	}
+
+	/**
+	 * @return The number of folders searched so far.
+	 */
+	public int getFolders() {
+		return folders;
+	}
+
+	/**
+	 * @return The number of tracks found so far.
+	 */
+	public int getTracks() {
+		return tracks;
+	}
+
+	/**
+	 * @return The time since searching was started in milliseconds.
+	 */
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	/**
+	 * @return The number of tracks found per second so far.
+	 */
+	public double getTracksPerSecond() {
+		return (elapsedMillis > 0) ? tracks * 1000.0 / elapsedMillis : 0.0;
+	}
+
+	/**
+	 * @return The number of folders searched per second so far.
+	 */
+	public double getFoldersPerSecond() {
+		return (elapsedMillis > 0) ? folders * 1000.0 / elapsedMillis : 0.0;
+	}
+
+	/**
+	 * @return True if searching has completed or was cancelled.
+	 */
+	public boolean isFinished() {
+		return finished;
+	}
+
+	/**
+	 * @return True if searching was cancelled, because the locations were set again.
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	@Override
+	public String toString() {
+		return "DiscoveryProgress [folders=" + folders + ", tracks=" + tracks + ", elapsedMillis=" + elapsedMillis
+				+ ", finished=" + finished + ", cancelled=" + cancelled + "]";
+	}
+}
@@ -0,0 +1,90 @@
+package org.trackexplorer.model;
+
+/**
+ * Converts tracks to and from the encoded polyline format of Google Maps.
+ *
+ * Each coordinate is rounded to five decimal places (about one meter)
+ * and stored as the difference to the previous point in a variable
+ * number of printable ASCII characters. A typical track point needs
+ * about six to eight characters instead of about forty for
+ * {@code [lat,lng]} with full precision.
+ *
+ * Elevation and time are not encoded.
+ *
+ * See https://developers.google.com/maps/documentation/utilities/polylinealgorithm
+ */
+public final class EncodedPolyline {
+	/**
+	 * Coordinates are multiplied by this factor and rounded.
+	 */
+	private static final double FACTOR = 1e5;
+
+	private EncodedPolyline() {
+	}
+
+	/**
+	 * Encodes the latitudes and longitudes of the given track.
+	 *
+	 * The result only contains the characters from {@code ?} to {@code ~}.
+	 */
+	public static String encode(final TrackGeometry geometry) {
+		// Most differences between neighbouring points need three characters each
+		StringBuilder builder = new StringBuilder(geometry.size() * 6);
+		long previousLatitude = 0;
+		long previousLongitude = 0;
+		for(int idx = 0; idx < geometry.size(); idx++) {
+			long latitude = Math.round(geometry.getLatitude(idx) * FACTOR);
+			long longitude = Math.round(geometry.getLongitude(idx) * FACTOR);
+			encodeValue(latitude - previousLatitude, builder);
+			encodeValue(longitude - previousLongitude, builder);
+			previousLatitude = latitude;
+			previousLongitude = longitude;
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Decodes a polyline created by {@link encode}.
+	 *
+	 * The points of the result have neither elevation nor time.
+	 *
+	 * @throws IllegalArgumentException If the string ends within a value.
+	 */
+	public static TrackGeometry decode(final String encoded) {
+		TrackGeometry.Builder builder = new TrackGeometry.Builder(encoded.length() / 6 + 1);
+		int[] position = new int[1];
+		long latitude = 0;
+		long longitude = 0;
+		while(position[0] < encoded.length()) {
+			latitude += decodeValue(encoded, position);
+			longitude += decodeValue(encoded, position);
+			builder.add(latitude / FACTOR, longitude / FACTOR);
+		}
+		return builder.build();
+	}
+
+	private static void encodeValue(final long value, final StringBuilder builder) {
+		// Move the sign to the lowest bit, such that small negative values stay small
+		long remaining = (value < 0) ? ~(value << 1) : (value << 1);
+		while(remaining >= 0x20) {
+			builder.append((char) ((0x20 | (remaining & 0x1f)) + 63));
+			remaining >>= 5;
+		}
+		builder.append((char) (remaining + 63));
+	}
+
+	private static long decodeValue(final String encoded, final int[] position) {
+		long result = 0;
+		int shift = 0;
+		int chunk;
+		do {
+			if(position[0] >= encoded.length()) {
+				throw new IllegalArgumentException("Incomplete polyline: " + encoded);
+			}
+			chunk = encoded.charAt(position[0]++) - 63;
+			result |= (long) (chunk & 0x1f) << shift;
+			shift += 5;
+		} while(chunk >= 0x20);
+		return ((result & 1) != 0) ? ~(result >> 1) : (result >> 1);
+	}
+}
@@ -0,0 +1,43 @@
+package org.trackexplorer.model;
+
+/**
+ * An area on the map to search for tracks in, see {@link IGeoSearchService}.
+ * 
+ * The enclosing {@link Bounds} of the area are used to find the candidates
+ * in the spatial indices, only their points are tested against the area itself.
+ * Points on the border of the area may or may not be inside it.
+ * 
+ * Implementations are immutable, e.g. {@link Bounds}, {@link Polygon},
+ * {@link Circle} and {@link Corridor}.
+ */
+public interface GeoArea {
+	/**
+	 * @return The tightest bounds around the area.
+	 */
+	public Bounds getBounds();
+	
+	/**
+	 * Tests whether the given point is inside the area.
+	 */
+	public boolean isInside(double latitude, double longitude);
+	
+	/**
+	 * Tests whether a point of the segment between the two given
+	 * points is inside the area.
+	 */
+	public boolean isCrossedBy(double latitude0, double longitude0, double latitude1, double longitude1);
+	
+	/**
+	 * Tests whether all points of the given bounds are inside the area.
+	 * 
+	 * May return false if the area cannot tell cheaply.
+	 */
+	public boolean contains(Bounds bounds);
+	
+	/**
+	 * Tests whether the given bounds and the area might have a point in common.
+	 * 
+	 * May return true if the area cannot tell cheaply.
+	 */
+	public boolean intersects(Bounds bounds);
+}
@@ -0,0 +1,47 @@
+package org.trackexplorer.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The tracks which might pass through some area,
+ * see {@link ITrackService#getGeoCandidates}.
+ *
+ * Each track is contained in at most one of the lists.
+ */
+public class GeoCandidates {
+	private final List<TrackMetaInfo> matches;
+	private final List<TrackMetaInfo> candidates;
+
+	public GeoCandidates(List<TrackMetaInfo> matches, List<TrackMetaInfo> candidates) {
+		super();
+		this.matches = Collections.unmodifiableList(matches);
+		this.candidates = Collections.unmodifiableList(candidates);
+	}
+
+	/**
+	 * @return The tracks which are known to have a point inside the area.
+	 */
+	public List<TrackMetaInfo> getMatches() {
+		return matches;
+	}
+
+	/**
+	 * @return The tracks whose points need to be checked.
+	 */
+	public List<TrackMetaInfo> getCandidates() {
+		return candidates;
+	}
+
+	/**
+	 * @return The number of tracks in both lists.
+	 */
+	public int size() {
+		return matches.size() + candidates.size();
+	}
+
+	@Override
+	public String toString() {
+		return "GeoCandidates [matches=" + matches.size() + ", candidates=" + candidates.size() + "]";
+	}
+}
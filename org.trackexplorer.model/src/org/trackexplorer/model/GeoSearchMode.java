@@ -0,0 +1,19 @@
+package org.trackexplorer.model;
+
+/**
+ * How the tracks are matched by a geo search,
+ * see {@link IGeoSearchService#search}.
+ */
+public enum GeoSearchMode {
+	/**
+	 * One of the points of the track is inside the bounds.
+	 * Tracks which only cross the bounds between two points are missed.
+	 */
+	POINTS,
+
+	/**
+	 * One of the segments between the points of the track crosses
+	 * the bounds, also if none of its points is inside them.
+	 */
+	SEGMENTS
+}
@@ -6,25 +6,32 @@ import java.util.function.Consumer;
 
 /**
  * An interface to represent the functionality
- * to locate tracks which pass through the given bounds.
+ * to locate tracks which pass through the given area.
  * 
- * It shall only be checked if one of the track points
- * is inside the given bounds. If only the edge
- * between two track points intersects the bounds, the
- * track can be ignored.
+ * The area is a {@link GeoArea}, e.g. the {@link Bounds} of a rectangle,
+ * a {@link Polygon}, a {@link Circle} or a {@link Corridor}.
+ * 
+ * How a track passes through the area is given by the
+ * {@link GeoSearchMode}. With {@link GeoSearchMode#POINTS} it shall
+ * only be checked if one of the track points is inside the given area.
+ * If only the edge between two track points intersects the area, the
+ * track can be ignored. With {@link GeoSearchMode#SEGMENTS} such
+ * a track shall be found as well.
  */
 public interface IGeoSearchService {
 	/**
 	 * Searches for a set of tracks which pass through
-	 * the given bounds.
+	 * the given area.
 	 * 
-	 * @param bounds The bounds to check 
+	 * @param area The area to check 
+	 * @param mode How the tracks are matched
 	 * @param trackSerive All tracks provided by this service are to be included in the search 
 	 * @param progressCallback A feedback to call whenever a track has been checked
 	 * @param stopFeedback A function to indicate whether the search has to stop. It shall be evaluated periodically.
-	 * @return A set of tracks which pass through the given bounds.
+	 * @return A set of tracks which pass through the given area.
 	 */
-	Set<TrackMetaInfo> search(final Bounds bounds,
+	Set<TrackMetaInfo> search(final GeoArea area,
+			final GeoSearchMode mode,
 			final ITrackService trackSerive,
 			final Consumer<Integer> progressCallback,
 			final BooleanSupplier stopFeedback);
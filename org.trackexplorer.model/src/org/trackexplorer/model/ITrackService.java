@@ -1,6 +1,8 @@
 package org.trackexplorer.model;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * A service which shall provide access to the available tracks.
@@ -11,16 +13,73 @@ import java.util.List;
  * 
  * The implementation if free to choose when the actual content of the files is loaded.
  * 
- * The content of the tracks may be cached locally, there is no need to check for
- * changes of a track on disk.
+ * The content of the tracks may be cached locally. Changes of the files on disk
+ * only need to be detected while the locations are watched, see {@link startWatching}.
+ * 
+ * Methods which might read a track from disk block until it is loaded. They
+ * have asynchronous variants, e.g. {@link getTrackGeometryAsync}, which
+ * shall be used from the UI thread. The returned futures are completed
+ * from a background thread.
  */
 public interface ITrackService {
 	/**
 	 * Sets the locations where the service shall search for available tracks.
 	 * 
+	 * Only locations which were not set before are searched. Tracks of
+	 * locations which are kept, keep their ids and cached content.
+	 * 
 	 * @param locations List of strings containing path information.
+	 * @return The tracks added and removed compared to the previous locations.
+	 */
+	public TrackChanges setLocations(List<String> locations);	
+	
+	/**
+	 * Same as {@link setLocations(List)}, but returns immediately.
+	 * 
+	 * The added locations are searched in the background and the tracks
+	 * are reported as they are found, they are available right away.
+	 * Searching is cancelled when the locations are set again.
+	 * 
+	 * @param locations List of strings containing path information.
+	 * @param progressCallback Called from a background thread whenever
+	 * some tracks have been found and when searching has finished.
+	 */
+	public void setLocations(List<String> locations, Consumer<DiscoveryProgress> progressCallback);
+	
+	/**
+	 * Starts to watch the locations for new, modified and deleted tracks.
+	 * 
+	 * The locations stay watched when they are set again,
+	 * added locations are watched as well.
+	 * 
+	 * @param changeCallback Called from a background thread whenever
+	 * tracks have been added, removed or updated.
+	 */
+	public void startWatching(Consumer<TrackChanges> changeCallback);
+	
+	/**
+	 * Stops watching the locations, if running.
+	 */
+	public void stopWatching();
+	
+	/**
+	 * Starts to index all available tracks in the background.
+	 * 
+	 * Indexing loads the tracks in advance, such that later requests
+	 * do not have to wait for the files to be read. Requests for single
+	 * tracks take precedence over indexing.
+	 * 
+	 * Indexing is stopped when the locations are set again.
+	 * 
+	 * @param progressCallback Called from a background thread whenever
+	 * some tracks have been indexed and when indexing has finished.
+	 */
+	public void startIndexing(Consumer<IndexingProgress> progressCallback);
+	
+	/**
+	 * Stops indexing in the background, if running.
 	 */
-	public void setLocations(List<String> locations);	
+	public void stopIndexing();
 	
 	/**
 	 * Creates a list of the available tracks.
@@ -29,16 +88,116 @@ public interface ITrackService {
 	 */
 	public List<TrackMetaInfo> getAvailabeTracks();
 	
+	/**
+	 * Returns the number of available tracks without copying them.
+	 *
+	 * @return The size of {@link getAvailabeTracks}.
+	 */
+	public int getTrackCount();
+	
 	/**
 	 * Returns a list of the track points of the given track.
 	 * The id attribute of a {@link TrackMetaInfo} shall be used
 	 * to identify the track.  
+	 * 
+	 * Prefer {@link getTrackGeometry}, which does not need
+	 * an object per point.
 	 *
 	 * @param id The id stored in {@link TrackMetaInfo}
 	 * @return List of all points of the track.
 	 */
 	public List<LatLng> getTrackPoints(String id);
 	
+	/**
+	 * Returns the points of the given track, stored in primitive arrays.
+	 * 
+	 * The returned geometry is immutable and may be shared
+	 * between callers.
+	 *
+	 * @param id The id stored in {@link TrackMetaInfo}
+	 * @return All points of the track, never null.
+	 */
+	public TrackGeometry getTrackGeometry(String id);
+	
+	/**
+	 * Same as {@link getTrackPoints}, but returns immediately.
+	 * 
+	 * @param id The id stored in {@link TrackMetaInfo}
+	 * @return Completed with all points of the track once it is loaded.
+	 */
+	public CompletableFuture<List<LatLng>> getTrackPointsAsync(String id);
+	
+	/**
+	 * Same as {@link getTrackGeometry}, but returns immediately.
+	 * 
+	 * Concurrent requests for the same track share a single load.
+	 * 
+	 * @param id The id stored in {@link TrackMetaInfo}
+	 * @return Completed with all points of the track once it is loaded.
+	 */
+	public CompletableFuture<TrackGeometry> getTrackGeometryAsync(String id);
+	
+	/**
+	 * Returns the points of the given track, simplified for
+	 * display on a map at the given zoom level.
+	 * 
+	 * The zoom levels are the ones of web maps like Google Maps,
+	 * at zoom level {@code z} the whole world is {@code 256 * 2^z} pixels wide.
+	 * Points which are not needed to draw the track with a precision of
+	 * about one pixel may be left out. The first and last point are always kept.
+	 * 
+	 * Neighbouring zoom levels may return the same instance.
+	 *
+	 * @param id The id stored in {@link TrackMetaInfo}
+	 * @param zoom The zoom level of the map.
+	 * @return A subset of the points of {@link getTrackGeometry}, never null.
+	 */
+	public TrackGeometry getSimplifiedTrackGeometry(String id, int zoom);
+	
+	/**
+	 * Returns the tracks which might have points inside the given bounds.
+	 * 
+	 * All tracks which are not returned definitely have no point
+	 * inside the bounds, so a geo search only needs to check the
+	 * points of the returned tracks.
+	 *
+	 * @param bounds The area to search in.
+	 * @return A subset of {@link getAvailabeTracks}.
+	 */
+	public List<TrackMetaInfo> getCandidateTracks(Bounds bounds);
+	
+	/**
+	 * Same as {@link getCandidateTracks}, but separates the tracks
+	 * which are known to pass through the given area.
+	 * 
+	 * A geo search only needs to check the points of the candidates,
+	 * the matches are part of the result right away. The area may be
+	 * any {@link GeoArea}, e.g. {@link Bounds} or a {@link Circle}.
+	 *
+	 * With {@link GeoSearchMode#SEGMENTS} tracks whose points are all outside
+	 * the area are candidates as well, as long as their bounds intersect.
+	 * 
+	 * @param area The area to search in.
+	 * @param mode How the tracks are matched.
+	 * @return With {@link GeoSearchMode#POINTS} the same tracks
+	 * as {@link getCandidateTracks}, or fewer.
+	 */
+	public GeoCandidates getGeoCandidates(GeoArea area, GeoSearchMode mode);
+	
+	/**
+	 * Returns the tracks whose name or the name of one of the folders
+	 * they are located in matches the given query, ignoring case.
+	 *
+	 * Only folders inside the locations are considered. The tracks
+	 * are matched in memory, the search is fast enough to be
+	 * repeated while the user types.
+	 *
+	 * @param query The string entered by the user.
+	 * @param match How the names are matched.
+	 * @return A subset of {@link getAvailabeTracks}, all tracks if the query is empty.
+	 */
+	public List<TrackMetaInfo> findTracksByName(String query, NameMatch match);
+	
 	/**
 	 * Computes the total distance of a track in meters.
 	 *
@@ -64,4 +223,53 @@ public interface ITrackService {
 	 * @return Total elevation of a track
 	 */
 	public double getTotalElevation(String id);
+	
+	/**
+	 * Returns the tightest bounds around all points of a track, e.g. to fit
+	 * the map to the track.
+	 * 
+	 * The bounds are computed once when the track is loaded and kept
+	 * with the other values of the track, later calls do not need its points.
+	 * 
+	 * @param id The id stored in {@link TrackMetaInfo}
+	 * @return The bounds of the track, null if the track has no points.
+	 */
+	public Bounds getBounds(String id);
+	
+	/**
+	 * Computes the total distance, total elevation and bounds of a track in the background,
+	 * see {@link getTotalDistanceInMeter}, {@link getTotalElevation} and {@link getBounds}.
+	 * 
+	 * Concurrent requests for the same track share a single computation.
+	 * 
+	 * @param id The id stored in {@link TrackMetaInfo}
+	 * @return Completed with the values of the track once they are known.
+	 */
+	public CompletableFuture<TrackStats> getStatsAsync(String id);
+	
+	/**
+	 * Keeps the content of the given track in memory until
+	 * {@link unpinTrack} is called, e.g. while the track is displayed.
+	 * 
+	 * Pinning a track does not load it. If the file of the track is modified
+	 * while the locations are watched, the track stays pinned under its new id,
+	 * see {@link TrackChanges#getUpdated}.
+	 *
+	 * @param id The id stored in {@link TrackMetaInfo}
+	 */
+	public void pinTrack(String id);
+	
+	/**
+	 * Allows the content of the given track to be removed from memory again.
+	 *
+	 * @param id The id stored in {@link TrackMetaInfo}
+	 */
+	public void unpinTrack(String id);
+	
+	/**
+	 * Returns the counters of the cache holding the content of the tracks.
+	 * 
+	 * @return A snapshot of the current values.
+	 */
+	public CacheStatistics getCacheStatistics();
 }
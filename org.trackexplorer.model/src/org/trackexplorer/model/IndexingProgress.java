@@ -0,0 +1,44 @@
+package org.trackexplorer.model;
+
+/**
+ * Reports the progress of indexing the available tracks in the background,
+ * see {@link ITrackService#startIndexing}.
+ */
+public class IndexingProgress {
+	private final int indexed;
+	private final int total;
+	private final boolean finished;
+	
+	public IndexingProgress(int indexed, int total, boolean finished) {
+		super();
+		this.indexed = indexed;
+		this.total = total;
+		this.finished = finished;
+	}
+
+	/**
+	 * @return The number of tracks indexed so far.
+	 */
+	public int getIndexed() {
+		return indexed;
+	}
+
+	/**
+	 * @return The number of tracks to index.
+	 */
+	public int getTotal() {
+		return total;
+	}
+
+	/**
+	 * @return True if indexing has completed or was stopped.
+	 */
+	public boolean isFinished() {
+		return finished;
+	}
+
+	@Override
+	public String toString() {
+		return "IndexingProgress [indexed=" + indexed + ", total=" + total + ", finished=" + finished + "]";
+	}
+}
@@ -0,0 +1,81 @@
+package org.trackexplorer.model;
+
+/**
+ * Helpers for the areas which measure distances on a plane instead of the sphere.
+ *
+ * Around a point, one degree of latitude is {@link METERS_PER_DEGREE} long and one
+ * degree of longitude is shorter by the cosine of the latitude. Within some kilometers
+ * the distances on this plane differ from the ones on the sphere by far less than a meter.
+ */
+final class LocalProjection {
+	/**
+	 * The mean radius of the earth in meters, like for the distances of the tracks.
+	 */
+	static final double EARTH_RADIUS = 6371000.0;
+
+	static final double METERS_PER_DEGREE = Math.toRadians(1.0) * EARTH_RADIUS;
+
+	private LocalProjection() {
+	}
+
+	/**
+	 * @return The length of a degree of longitude in meters at the given latitude.
+	 */
+	static double metersPerDegreeLongitude(final double latitude) {
+		return METERS_PER_DEGREE * Math.cos(Math.toRadians(latitude));
+	}
+
+	/**
+	 * @return The squared distance on the plane from the point
+	 * (x, y) to the segment from (x0, y0) to (x1, y1).
+	 */
+	static double distanceSquared(final double x, final double y,
+			final double x0, final double y0, final double x1, final double y1) {
+		double dx = x1 - x0;
+		double dy = y1 - y0;
+		double lengthSquared = dx * dx + dy * dy;
+		// The closest point as a fraction of the segment
+		double t = (lengthSquared > 0.0) ? ((x - x0) * dx + (y - y0) * dy) / lengthSquared : 0.0;
+		t = Math.max(0.0, Math.min(1.0, t));
+		double ex = x0 + t * dx - x;
+		double ey = y0 + t * dy - y;
+		return ex * ex + ey * ey;
+	}
+
+	/**
+	 * @return The squared distance on the plane between the segment from
+	 * (ax0, ay0) to (ax1, ay1) and the segment from (bx0, by0) to (bx1, by1).
+	 */
+	static double distanceSquared(final double ax0, final double ay0, final double ax1, final double ay1,
+			final double bx0, final double by0, final double bx1, final double by1) {
+		if(crosses(ax0, ay0, ax1, ay1, bx0, by0, bx1, by1)) {
+			return 0.0;
+		}
+		// Otherwise the closest points include an end of one of the segments
+		return Math.min(
+				Math.min(distanceSquared(ax0, ay0, bx0, by0, bx1, by1), distanceSquared(ax1, ay1, bx0, by0, bx1, by1)),
+				Math.min(distanceSquared(bx0, by0, ax0, ay0, ax1, ay1), distanceSquared(bx1, by1, ax0, ay0, ax1, ay1)));
+	}
+
+	/**
+	 * Tests whether the segments from a to b and from c to d cross each other,
+	 * i.e. c and d lie on different sides of the line through a and b and vice versa.
+	 * Segments which only touch each other may or may not cross.
+	 */
+	static boolean crosses(final double xa, final double ya, final double xb, final double yb,
+			final double xc, final double yc, final double xd, final double yd) {
+		double sideC = side(xa, ya, xb, yb, xc, yc);
+		double sideD = side(xa, ya, xb, yb, xd, yd);
+		double sideA = side(xc, yc, xd, yd, xa, ya);
+		double sideB = side(xc, yc, xd, yd, xb, yb);
+		return ((sideC > 0.0) != (sideD > 0.0)) && ((sideA > 0.0) != (sideB > 0.0));
+	}
+
+	/**
+	 * @return Positive if the point (x, y) lies to the left of the line from (x0, y0) to (x1, y1).
+	 */
+	private static double side(final double x0, final double y0, final double x1, final double y1,
+			final double x, final double y) {
+		return (x1 - x0) * (y - y0) - (y1 - y0) * (x - x0);
+	}
+}
@@ -0,0 +1,26 @@
+package org.trackexplorer.model;
+
+/**
+ * How the tracks are matched when searching by name,
+ * see {@link ITrackService#findTracksByName}.
+ *
+ * A track is matched by its name and the names of the folders
+ * it is located in, ignoring case.
+ */
+public enum NameMatch {
+	/**
+	 * The query is contained in the name.
+	 */
+	SUBSTRING,
+
+	/**
+	 * The name starts with the query.
+	 */
+	PREFIX,
+
+	/**
+	 * The name contains the query with at most one
+	 * character inserted, removed or replaced.
+	 */
+	FUZZY
+}
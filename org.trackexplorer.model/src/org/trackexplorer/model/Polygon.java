@@ -0,0 +1,142 @@
+package org.trackexplorer.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An area enclosed by a polygon, e.g. drawn on the map.
+ *
+ * The last vertex is connected to the first one. The edges are straight
+ * lines in latitude and longitude, like the polygons on a web map.
+ * The edges may cross each other, a point is inside if a ray from it
+ * crosses the edges an odd number of times.
+ */
+public class Polygon implements GeoArea {
+	private final double[] latitudes;
+	private final double[] longitudes;
+	private final Bounds bounds;
+
+	/**
+	 * @param vertices At least three points.
+	 */
+	public Polygon(final List<LatLng> vertices) {
+		super();
+		if(vertices.size() < 3) {
+			throw new IllegalArgumentException("At least three vertices are needed: " + vertices.size());
+		}
+		this.latitudes = new double[vertices.size()];
+		this.longitudes = new double[vertices.size()];
+		for(int idx = 0; idx < vertices.size(); idx++) {
+			this.latitudes[idx] = vertices.get(idx).getLatitude();
+			this.longitudes[idx] = vertices.get(idx).getLongitude();
+		}
+		this.bounds = new Bounds(vertices);
+	}
+
+	public List<LatLng> getVertices() {
+		List<LatLng> vertices = new ArrayList<>(latitudes.length);
+		for(int idx = 0; idx < latitudes.length; idx++) {
+			vertices.add(new LatLng(latitudes[idx], longitudes[idx]));
+		}
+		return Collections.unmodifiableList(vertices);
+	}
+
+	@Override
+	public Bounds getBounds() {
+		return bounds;
+	}
+
+	/**
+	 * Counts the edges crossed by a ray from the point to the east.
+	 */
+	@Override
+	public boolean isInside(final double latitude, final double longitude) {
+		if(latitude < bounds.getSouthWest().getLatitude() || latitude > bounds.getNorthEast().getLatitude() ||
+				longitude < bounds.getSouthWest().getLongitude() || longitude > bounds.getNorthEast().getLongitude()) {
+			return false;
+		}
+		boolean inside = false;
+		for(int idx = 0, previous = latitudes.length - 1; idx < latitudes.length; previous = idx++) {
+			double latitude0 = latitudes[previous];
+			double latitude1 = latitudes[idx];
+			if((latitude0 > latitude) != (latitude1 > latitude)) {
+				double crossing = longitudes[previous] +
+						(latitude - latitude0) / (latitude1 - latitude0) * (longitudes[idx] - longitudes[previous]);
+				if(longitude < crossing) {
+					inside = !inside;
+				}
+			}
+		}
+		return inside;
+	}
+
+	@Override
+	public boolean isCrossedBy(final double latitude0, final double longitude0,
+			final double latitude1, final double longitude1) {
+		if(Math.max(latitude0, latitude1) < bounds.getSouthWest().getLatitude() ||
+				Math.min(latitude0, latitude1) > bounds.getNorthEast().getLatitude() ||
+				Math.max(longitude0, longitude1) < bounds.getSouthWest().getLongitude() ||
+				Math.min(longitude0, longitude1) > bounds.getNorthEast().getLongitude()) {
+			return false;
+		}
+		if(isInside(latitude0, longitude0) || isInside(latitude1, longitude1)) {
+			return true;
+		}
+		// Both points are outside, so the segment enters the polygon through an edge
+		for(int idx = 0, previous = latitudes.length - 1; idx < latitudes.length; previous = idx++) {
+			if(LocalProjection.crosses(longitude0, latitude0, longitude1, latitude1,
+					longitudes[previous], latitudes[previous], longitudes[idx], latitudes[idx])) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Tests whether all corners are inside and no edge enters the bounds.
+	 */
+	@Override
+	public boolean contains(final Bounds other) {
+		double south = other.getSouthWest().getLatitude();
+		double west = other.getSouthWest().getLongitude();
+		double north = other.getNorthEast().getLatitude();
+		double east = other.getNorthEast().getLongitude();
+		if(!isInside(south, west) || !isInside(south, east) || !isInside(north, west) || !isInside(north, east)) {
+			return false;
+		}
+		return !isEdgeCrossing(other);
+	}
+
+	/**
+	 * Tests whether a corner of the bounds is inside or an edge enters them.
+	 */
+	@Override
+	public boolean intersects(final Bounds other) {
+		if(!bounds.intersects(other)) {
+			return false;
+		}
+		double south = other.getSouthWest().getLatitude();
+		double west = other.getSouthWest().getLongitude();
+		double north = other.getNorthEast().getLatitude();
+		double east = other.getNorthEast().getLongitude();
+		if(isInside(south, west) || isInside(south, east) || isInside(north, west) || isInside(north, east)) {
+			return true;
+		}
+		return isEdgeCrossing(other);
+	}
+
+	private boolean isEdgeCrossing(final Bounds other) {
+		for(int idx = 0, previous = latitudes.length - 1; idx < latitudes.length; previous = idx++) {
+			if(other.isCrossedBy(latitudes[previous], longitudes[previous], latitudes[idx], longitudes[idx])) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return "Polygon [vertices=" + latitudes.length + ", bounds=" + bounds + "]";
+	}
+}
@@ -0,0 +1,115 @@
+package org.trackexplorer.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The tracks which were added, removed or updated since the last report,
+ * see {@link ITrackService#setLocations} and {@link ITrackService#startWatching}.
+ *
+ * Each track is contained in at most one of the lists.
+ */
+public class TrackChanges {
+	public static final TrackChanges NONE = new TrackChanges(
+			Collections.emptyList(), Collections.emptyList(), Collections.emptyList());
+
+	private final List<TrackMetaInfo> added;
+	private final List<TrackMetaInfo> removed;
+	private final List<TrackMetaInfo> updated;
+
+	public TrackChanges(List<TrackMetaInfo> added, List<TrackMetaInfo> removed, List<TrackMetaInfo> updated) {
+		super();
+		this.added = Collections.unmodifiableList(added);
+		this.removed = Collections.unmodifiableList(removed);
+		this.updated = Collections.unmodifiableList(updated);
+	}
+
+	/**
+	 * @return The tracks which are available now.
+	 */
+	public List<TrackMetaInfo> getAdded() {
+		return added;
+	}
+
+	/**
+	 * @return The tracks which are no longer available.
+	 */
+	public List<TrackMetaInfo> getRemoved() {
+		return removed;
+	}
+
+	/**
+	 * The file of an updated track was modified. As the id of a track
+	 * changes with its file, the track replaces the previous track with
+	 * the same path, which is no longer available.
+	 *
+	 * @return The tracks whose file was modified.
+	 */
+	public List<TrackMetaInfo> getUpdated() {
+		return updated;
+	}
+
+	/**
+	 * @return True if nothing has changed.
+	 */
+	public boolean isEmpty() {
+		return added.isEmpty() && removed.isEmpty() && updated.isEmpty();
+	}
+
+	@Override
+	public String toString() {
+		return "TrackChanges [added=" + added.size() + ", removed=" + removed.size() + ", updated=" + updated.size() + "]";
+	}
+
+	/**
+	 * Collects the changes of several files, a track which is
+	 * changed several times is only reported once.
+	 */
+	public static class Builder {
+		private final Map<String, TrackMetaInfo> added = new LinkedHashMap<>();
+		private final Map<String, TrackMetaInfo> removed = new LinkedHashMap<>();
+		private final Map<String, TrackMetaInfo> updated = new LinkedHashMap<>();
+
+		public Builder add(final TrackMetaInfo track) {
+			if(removed.remove(track.getId()) == null) {
+				added.put(track.getId(), track);
+			}
+			return this;
+		}
+
+		public Builder remove(final TrackMetaInfo track) {
+			if(added.remove(track.getId()) == null) {
+				updated.remove(track.getId());
+				removed.put(track.getId(), track);
+			}
+			return this;
+		}
+
+		/**
+		 * @param track The track which replaces the previous one.
+		 * @param previousId The id of the previous track with the same path.
+		 */
+		public Builder update(final TrackMetaInfo track, final String previousId) {
+			if(added.remove(previousId) != null) {
+				added.put(track.getId(), track);
+			}
+			else {
+				updated.remove(previousId);
+				updated.put(track.getId(), track);
+			}
+			return this;
+		}
+
+		public TrackChanges build() {
+			if(added.isEmpty() && removed.isEmpty() && updated.isEmpty()) {
+				return NONE;
+			}
+			return new TrackChanges(new ArrayList<>(added.values()),
+					new ArrayList<>(removed.values()),
+					new ArrayList<>(updated.values()));
+		}
+	}
+}
@@ -0,0 +1,266 @@
+package org.trackexplorer.model;
+
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.LongBuffer;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A compact, immutable representation of the points of a track.
+ *
+ * The points are stored column wise in primitive arrays:
+ * latitude and longitude as {@code double}, the elevation as
+ * {@code float} and the time as milliseconds since the epoch.
+ * This needs {@link BYTES_PER_POINT} bytes per point and no objects per point at all.
+ *
+ * A missing elevation is stored as {@code NaN}, a missing
+ * time as {@link NO_TIME}.
+ *
+ * Instances are created with a {@link Builder}, or with {@link wrap}
+ * from columns which have been filled already. The columns can
+ * be accessed without copying via the read-only views returned
+ * by {@link getLatitudes}, {@link getLongitudes},
+ * {@link getElevations} and {@link getTimes}.
+ */
+public final class TrackGeometry {
+	/**
+	 * Marks a point without time information.
+	 */
+	public static final long NO_TIME = Long.MIN_VALUE;
+	
+	/**
+	 * The memory needed for the columns of a single point.
+	 */
+	public static final int BYTES_PER_POINT = 2 * Double.BYTES + Float.BYTES + Long.BYTES;
+
+	/**
+	 * A geometry without any points.
+	 */
+	public static final TrackGeometry EMPTY = new TrackGeometry(new double[0], new double[0], new float[0], new long[0]);
+
+	private final double[] latitudes;
+	private final double[] longitudes;
+	private final float[] elevations;
+	private final long[] times;
+
+	private TrackGeometry(final double[] latitudes, final double[] longitudes, final float[] elevations, final long[] times) {
+		this.latitudes = latitudes;
+		this.longitudes = longitudes;
+		this.elevations = elevations;
+		this.times = times;
+	}
+
+	/**
+	 * Creates a geometry which takes ownership of the given columns, nothing is copied.
+	 *
+	 * Used to decode stored tracks without a {@link Builder}. The arrays must
+	 * not be modified afterwards, as the geometry is immutable.
+	 *
+	 * @param elevations The elevations, {@code NaN} for points without elevation.
+	 * @param times The times, {@link NO_TIME} for points without time.
+	 * @throws IllegalArgumentException If the columns differ in length.
+	 */
+	public static TrackGeometry wrap(final double[] latitudes, final double[] longitudes,
+			final float[] elevations, final long[] times) {
+		if(longitudes.length != latitudes.length || elevations.length != latitudes.length ||
+				times.length != latitudes.length) {
+			throw new IllegalArgumentException("All columns need the same length: " + latitudes.length);
+		}
+		if(latitudes.length == 0) {
+			return EMPTY;
+		}
+		return new TrackGeometry(latitudes, longitudes, elevations, times);
+	}
+
+	/**
+	 * @return The number of points.
+	 */
+	public int size() {
+		return latitudes.length;
+	}
+
+	public boolean isEmpty() {
+		return latitudes.length == 0;
+	}
+
+	public double getLatitude(final int index) {
+		return latitudes[index];
+	}
+
+	public double getLongitude(final int index) {
+		return longitudes[index];
+	}
+
+	/**
+	 * @return The elevation or {@code NaN} if the point has no elevation.
+	 */
+	public float getElevation(final int index) {
+		return elevations[index];
+	}
+
+	public boolean hasElevation(final int index) {
+		return !Float.isNaN(elevations[index]);
+	}
+
+	/**
+	 * @return The time in milliseconds since the epoch or {@link NO_TIME}.
+	 */
+	public long getTime(final int index) {
+		return times[index];
+	}
+
+	public boolean hasTime(final int index) {
+		return times[index] != NO_TIME;
+	}
+
+	/**
+	 * @return A read-only view of the latitudes, nothing is copied.
+	 */
+	public DoubleBuffer getLatitudes() {
+		return DoubleBuffer.wrap(latitudes).asReadOnlyBuffer();
+	}
+
+	/**
+	 * @return A read-only view of the longitudes, nothing is copied.
+	 */
+	public DoubleBuffer getLongitudes() {
+		return DoubleBuffer.wrap(longitudes).asReadOnlyBuffer();
+	}
+
+	/**
+	 * @return A read-only view of the elevations, nothing is copied.
+	 */
+	public FloatBuffer getElevations() {
+		return FloatBuffer.wrap(elevations).asReadOnlyBuffer();
+	}
+
+	/**
+	 * @return A read-only view of the times, nothing is copied.
+	 */
+	public LongBuffer getTimes() {
+		return LongBuffer.wrap(times).asReadOnlyBuffer();
+	}
+
+	/**
+	 * Returns a read-only list view of the points.
+	 *
+	 * Nothing is copied, the {@link LatLng} objects are
+	 * only created when an element is accessed.
+	 */
+	public List<LatLng> asLatLngList() {
+		return new LatLngListView();
+	}
+
+	/**
+	 * Computes the tightest bounds around all points.
+	 */
+	public Bounds computeBounds() {
+		double minLatitude = Double.POSITIVE_INFINITY;
+		double minLongitude = Double.POSITIVE_INFINITY;
+		double maxLatitude = Double.NEGATIVE_INFINITY;
+		double maxLongitude = Double.NEGATIVE_INFINITY;
+
+		for(int idx = 0; idx < latitudes.length; idx++) {
+			minLatitude = Math.min(minLatitude, latitudes[idx]);
+			maxLatitude = Math.max(maxLatitude, latitudes[idx]);
+			minLongitude = Math.min(minLongitude, longitudes[idx]);
+			maxLongitude = Math.max(maxLongitude, longitudes[idx]);
+		}
+
+		return new Bounds(new LatLng(minLatitude, minLongitude), new LatLng(maxLatitude, maxLongitude));
+	}
+
+	@Override
+	public String toString() {
+		return "TrackGeometry [size=" + size() + "]";
+	}
+
+	private class LatLngListView extends AbstractList<LatLng> implements RandomAccess {
+		@Override
+		public LatLng get(int index) {
+			return new LatLng(latitudes[index], longitudes[index]);
+		}
+
+		@Override
+		public int size() {
+			return latitudes.length;
+		}
+	}
+
+	/**
+	 * Collects points and creates a {@link TrackGeometry} out of them.
+	 *
+	 * A builder is not thread safe.
+	 */
+	public static class Builder {
+		private double[] latitudes;
+		private double[] longitudes;
+		private float[] elevations;
+		private long[] times;
+		private int size;
+
+		public Builder() {
+			this(256);
+		}
+
+		public Builder(final int initialCapacity) {
+			int capacity = Math.max(initialCapacity, 1);
+			this.latitudes = new double[capacity];
+			this.longitudes = new double[capacity];
+			this.elevations = new float[capacity];
+			this.times = new long[capacity];
+			this.size = 0;
+		}
+
+		/**
+		 * Adds a point without elevation and time.
+		 */
+		public Builder add(final double latitude, final double longitude) {
+			return add(latitude, longitude, Float.NaN, NO_TIME);
+		}
+
+		/**
+		 * Adds a point.
+		 *
+		 * @param elevation The elevation or {@code NaN}
+		 * @param time The time in milliseconds since the epoch or {@link NO_TIME}
+		 */
+		public Builder add(final double latitude, final double longitude, final float elevation, final long time) {
+			if(size == latitudes.length) {
+				int capacity = size + (size >> 1) + 1;
+				latitudes = Arrays.copyOf(latitudes, capacity);
+				longitudes = Arrays.copyOf(longitudes, capacity);
+				elevations = Arrays.copyOf(elevations, capacity);
+				times = Arrays.copyOf(times, capacity);
+			}
+			latitudes[size] = latitude;
+			longitudes[size] = longitude;
+			elevations[size] = elevation;
+			times[size] = time;
+			size++;
+			return this;
+		}
+
+		public int size() {
+			return size;
+		}
+
+		/**
+		 * Creates the geometry. The builder can be used further
+		 * afterwards, the geometry is not affected by that.
+		 */
+		public TrackGeometry build() {
+			if(size == 0) {
+				return EMPTY;
+			}
+			return new TrackGeometry(
+					Arrays.copyOf(latitudes, size),
+					Arrays.copyOf(longitudes, size),
+					Arrays.copyOf(elevations, size),
+					Arrays.copyOf(times, size));
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package org.trackexplorer.model;
+
+/**
+ * The values of a track shown to the user, see {@link ITrackService#getStatsAsync}.
+ */
+public class TrackStats {
+	private final double totalDistance;
+	private final double totalElevation;
+	private final Bounds bounds;
+
+	/**
+	 * @param totalDistance The total distance in meters.
+	 * @param totalElevation The total elevation in meters.
+	 * @param bounds The bounds of all points, null if the track has no points.
+	 */
+	public TrackStats(double totalDistance, double totalElevation, Bounds bounds) {
+		super();
+		this.totalDistance = totalDistance;
+		this.totalElevation = totalElevation;
+		this.bounds = bounds;
+	}
+
+	/**
+	 * @return See {@link ITrackService#getTotalDistanceInMeter}.
+	 */
+	public double getTotalDistanceInMeter() {
+		return totalDistance;
+	}
+
+	/**
+	 * @return See {@link ITrackService#getTotalDistanceInKilometer}.
+	 */
+	public double getTotalDistanceInKilometer() {
+		return totalDistance / 1000.0;
+	}
+
+	/**
+	 * @return See {@link ITrackService#getTotalElevation}.
+	 */
+	public double getTotalElevation() {
+		return totalElevation;
+	}
+
+	/**
+	 * @return See {@link ITrackService#getBounds}.
+	 */
+	public Bounds getBounds() {
+		return bounds;
+	}
+
+	@Override
+	public String toString() {
+		return "TrackStats [totalDistance=" + totalDistance + ", totalElevation=" + totalElevation + ", bounds=" + bounds + "]";
+	}
+}
@@ -73,6 +73,40 @@ public class TestBounds {
 		assertFalse(b.isInside(new LatLng(-1.5,1.5)));
 	}
 	
+	@Test
+	public void testIsCrossedBy() {
+		Bounds b = new Bounds(new LatLng(-1.0,-1.0), new LatLng(1.0, 1.0));
+		// Both points outside, on opposite sides
+		assertTrue(b.isCrossedBy(-2.0, 0.0, 2.0, 0.0));
+		assertTrue(b.isCrossedBy(0.5, -3.0, 0.5, 3.0));
+		// Diagonal through a corner region
+		assertTrue(b.isCrossedBy(0.0, 1.5, 1.5, 0.0));
+		// One point inside
+		assertTrue(b.isCrossedBy(0.0, 0.0, 5.0, 5.0));
+		assertTrue(b.isCrossedBy(0.5, 0.5, 0.5, 0.5));
+
+		// Beyond a corner
+		assertFalse(b.isCrossedBy(0.0, 2.5, 2.5, 0.0));
+		// Both points on the same side
+		assertFalse(b.isCrossedBy(-2.0, -2.0, -2.0, 2.0));
+		// Touching the border only
+		assertFalse(b.isCrossedBy(1.0, -2.0, 1.0, 2.0));
+		assertFalse(b.isCrossedBy(0.0, 2.0, 2.0, 0.0));
+		assertFalse(b.isCrossedBy(2.0, 2.0, 2.0, 2.0));
+	}
+
+	@Test
+	public void testIntersects() {
+		Bounds b = new Bounds(new LatLng(-1.0,-1.0), new LatLng(1.0, 1.0));
+		assertTrue(b.intersects(new Bounds(new LatLng(0.5, 0.5), new LatLng(2.0, 2.0))));
+		assertTrue(b.intersects(new Bounds(new LatLng(-2.0, -2.0), new LatLng(2.0, 2.0))));
+		assertTrue(b.intersects(new Bounds(new LatLng(1.0, -3.0), new LatLng(2.0, -1.0))));
+		
+		assertFalse(b.intersects(new Bounds(new LatLng(1.5, 0.0), new LatLng(2.0, 0.5))));
+		assertFalse(b.intersects(new Bounds(new LatLng(0.0, -3.0), new LatLng(0.5, -1.5))));
+		assertFalse(b.intersects(new Bounds()));
+	}
+	
 	@Test
 	public void testBoundForWayPoints() {
 		List<LatLng> wayPoints = Arrays.asList(
@@ -0,0 +1,66 @@
+package org.trackexplorer.model;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Tests for the {@link Circle} class.
+ *
+ */
+public class TestCircle {
+	/**
+	 * About a thousandth of a degree of latitude.
+	 */
+	private static final double METERS = 111.2;
+
+	@Test
+	public void testIsInside() {
+		Circle c = new Circle(new LatLng(46.0, 7.0), 200.0);
+		assertTrue(c.isInside(46.0, 7.0));
+		assertTrue(c.isInside(46.0 + 190.0 / METERS / 1000.0, 7.0));
+		assertFalse(c.isInside(46.0 + 210.0 / METERS / 1000.0, 7.0));
+		
+		// A degree of longitude is about 77 km at this latitude
+		assertTrue(c.isInside(46.0, 7.0 + 190.0 / 77_250.0));
+		assertFalse(c.isInside(46.0, 7.0 + 210.0 / 77_250.0));
+	}
+	
+	@Test
+	public void testBounds() {
+		Circle c = new Circle(new LatLng(46.0, 7.0), 200.0);
+		Bounds bounds = c.getBounds();
+		assertEquals(46.0 - 0.0018, bounds.getSouthWest().getLatitude(), 1e-4);
+		assertEquals(46.0 + 0.0018, bounds.getNorthEast().getLatitude(), 1e-4);
+		assertEquals(7.0 - 0.0026, bounds.getSouthWest().getLongitude(), 1e-4);
+		assertEquals(7.0 + 0.0026, bounds.getNorthEast().getLongitude(), 1e-4);
+		
+		// Contains the pole
+		Circle polar = new Circle(new LatLng(89.0, 7.0), 200_000.0);
+		assertEquals(-180.0, polar.getBounds().getSouthWest().getLongitude(), 0.0);
+		assertEquals(90.0, polar.getBounds().getNorthEast().getLatitude(), 0.0);
+	}
+	
+	@Test
+	public void testIsCrossedBy() {
+		Circle c = new Circle(new LatLng(46.0, 7.0), 200.0);
+		// Passes the center at a distance of about 100 m, both points are far away
+		assertTrue(c.isCrossedBy(46.0009, 6.9, 46.0009, 7.1));
+		// About 300 m away
+		assertFalse(c.isCrossedBy(46.0027, 6.9, 46.0027, 7.1));
+	}
+	
+	@Test
+	public void testContainsAndIntersects() {
+		Circle c = new Circle(new LatLng(46.0, 7.0), 200.0);
+		Bounds small = new Bounds(new LatLng(45.9995, 6.9995), new LatLng(46.0005, 7.0005));
+		assertTrue(c.contains(small));
+		assertTrue(c.intersects(small));
+		
+		Bounds large = new Bounds(new LatLng(45.9, 6.9), new LatLng(46.1, 7.1));
+		assertFalse(c.contains(large));
+		assertTrue(c.intersects(large));
+		
+		assertFalse(c.intersects(new Bounds(new LatLng(46.1, 7.1), new LatLng(46.2, 7.2))));
+	}
+}
@@ -0,0 +1,66 @@
+package org.trackexplorer.model;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Tests for the {@link Corridor} class.
+ *
+ */
+public class TestCorridor {
+	/**
+	 * An L shape, about 1.1 km to the north, then about 0.8 km to the east.
+	 */
+	private static Corridor corridor() {
+		return new Corridor(Arrays.asList(
+				new LatLng(46.0, 7.0), new LatLng(46.01, 7.0), new LatLng(46.01, 7.01)), 100.0);
+	}
+
+	@Test
+	public void testIsInside() {
+		Corridor c = corridor();
+		assertTrue(c.isInside(46.005, 7.0));
+		// About 77 m to the east of the first segment
+		assertTrue(c.isInside(46.005, 7.001));
+		// About 154 m
+		assertFalse(c.isInside(46.005, 7.002));
+		
+		// About 56 m to the north of the second segment
+		assertTrue(c.isInside(46.0105, 7.005));
+		assertFalse(c.isInside(46.0115, 7.005));
+		
+		// Inside the corner, far from both segments
+		assertFalse(c.isInside(46.005, 7.005));
+	}
+	
+	@Test
+	public void testSinglePoint() {
+		Corridor c = new Corridor(Arrays.asList(new LatLng(46.0, 7.0)), 100.0);
+		assertTrue(c.isInside(46.0005, 7.0));
+		assertFalse(c.isInside(46.0015, 7.0));
+	}
+	
+	@Test
+	public void testIsCrossedBy() {
+		Corridor c = corridor();
+		// Crosses the first segment, both points far away
+		assertTrue(c.isCrossedBy(46.005, 6.9, 46.005, 7.1));
+		// Parallel to the second segment at about 222 m
+		assertFalse(c.isCrossedBy(46.012, 7.002, 46.012, 7.008));
+	}
+	
+	@Test
+	public void testContainsAndIntersects() {
+		Corridor c = corridor();
+		Bounds onFirst = new Bounds(new LatLng(46.004, 6.9995), new LatLng(46.006, 7.0005));
+		assertTrue(c.contains(onFirst));
+		assertTrue(c.intersects(onFirst));
+		
+		Bounds corner = new Bounds(new LatLng(46.004, 7.004), new LatLng(46.006, 7.006));
+		assertFalse(c.contains(corner));
+		assertFalse(c.intersects(corner));
+	}
+}
@@ -0,0 +1,60 @@
+package org.trackexplorer.model;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for the {@link EncodedPolyline} class.
+ *
+ */
+public class TestEncodedPolyline {
+
+	@Test
+	public void testEncode() {
+		// The example from the documentation of the format
+		TrackGeometry geometry = new TrackGeometry.Builder()
+				.add(38.5, -120.2)
+				.add(40.7, -120.95)
+				.add(43.252, -126.453)
+				.build();
+
+		assertEquals("_p~iF~ps|U_ulLnnqC_mqNvxq`@", EncodedPolyline.encode(geometry));
+		assertEquals("", EncodedPolyline.encode(TrackGeometry.EMPTY));
+	}
+
+	@Test
+	public void testRoundTrip() {
+		Random random = new Random(3);
+		TrackGeometry.Builder builder = new TrackGeometry.Builder();
+		double lat = -33.9;
+		double lng = 151.2;
+		for(int idx = 0; idx < 1000; idx++) {
+			builder.add(lat, lng);
+			lat += (random.nextDouble() - 0.5) * 0.01;
+			lng += (random.nextDouble() - 0.5) * 0.01;
+		}
+		builder.add(89.99999, -179.99999);
+		TrackGeometry geometry = builder.build();
+
+		String encoded = EncodedPolyline.encode(geometry);
+		TrackGeometry decoded = EncodedPolyline.decode(encoded);
+
+		assertEquals(geometry.size(), decoded.size());
+		for(int idx = 0; idx < geometry.size(); idx++) {
+			// Rounding errors must not add up
+			assertEquals(geometry.getLatitude(idx), decoded.getLatitude(idx), 0.5e-5 + 1e-9);
+			assertEquals(geometry.getLongitude(idx), decoded.getLongitude(idx), 0.5e-5 + 1e-9);
+		}
+		for(char c : encoded.toCharArray()) {
+			assertTrue(c >= '?' && c <= '~');
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIncomplete() {
+		EncodedPolyline.decode("_p~iF~ps|");
+	}
+}
@@ -0,0 +1,78 @@
+package org.trackexplorer.model;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Tests for the {@link Polygon} class.
+ *
+ */
+public class TestPolygon {
+	/**
+	 * A square with a notch from the north down to the center.
+	 */
+	private static Polygon notched() {
+		return new Polygon(Arrays.asList(
+				new LatLng(0.0, 0.0), new LatLng(0.0, 4.0), new LatLng(4.0, 4.0),
+				new LatLng(4.0, 3.0), new LatLng(2.0, 2.0), new LatLng(4.0, 1.0),
+				new LatLng(4.0, 0.0)));
+	}
+
+	@Test
+	public void testIsInside() {
+		Polygon p = notched();
+		assertTrue(p.isInside(1.0, 1.0));
+		assertTrue(p.isInside(3.5, 0.5));
+		assertTrue(p.isInside(3.5, 3.5));
+		
+		// In the notch
+		assertFalse(p.isInside(3.5, 2.0));
+		assertFalse(p.isInside(5.0, 2.0));
+		assertFalse(p.isInside(-1.0, 2.0));
+		
+		assertEquals(new Bounds(new LatLng(0.0, 0.0), new LatLng(4.0, 4.0)), p.getBounds());
+	}
+	
+	@Test
+	public void testIsCrossedBy() {
+		Polygon p = notched();
+		// Across the notch, through both prongs
+		assertTrue(p.isCrossedBy(3.5, -1.0, 3.5, 5.0));
+		assertTrue(p.isCrossedBy(-1.0, 2.0, 1.0, 2.0));
+		
+		// Within the notch
+		assertFalse(p.isCrossedBy(3.5, 1.8, 5.0, 2.2));
+		assertFalse(p.isCrossedBy(-1.0, -1.0, -1.0, 5.0));
+	}
+	
+	@Test
+	public void testContainsAndIntersects() {
+		Polygon p = notched();
+		Bounds corner = new Bounds(new LatLng(0.5, 0.5), new LatLng(1.5, 1.5));
+		assertTrue(p.contains(corner));
+		assertTrue(p.intersects(corner));
+		
+		// Spans the notch
+		Bounds top = new Bounds(new LatLng(3.0, 0.5), new LatLng(3.5, 3.5));
+		assertFalse(p.contains(top));
+		assertTrue(p.intersects(top));
+		
+		// Inside the notch
+		Bounds notch = new Bounds(new LatLng(3.5, 1.9), new LatLng(3.9, 2.1));
+		assertFalse(p.contains(notch));
+		assertFalse(p.intersects(notch));
+		
+		// Around the whole polygon
+		Bounds around = new Bounds(new LatLng(-1.0, -1.0), new LatLng(5.0, 5.0));
+		assertFalse(p.contains(around));
+		assertTrue(p.intersects(around));
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooFewVertices() {
+		new Polygon(Arrays.asList(new LatLng(0.0, 0.0), new LatLng(1.0, 1.0)));
+	}
+}
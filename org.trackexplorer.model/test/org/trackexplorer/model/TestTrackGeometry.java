@@ -0,0 +1,77 @@
+package org.trackexplorer.model;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Tests for the {@link TrackGeometry} class.
+ *
+ */
+public class TestTrackGeometry {
+
+	private TrackGeometry createGeometry() {
+		return new TrackGeometry.Builder(1)
+				.add(1.0, 2.0)
+				.add(-3.0, 4.5, 120.5f, 1000L)
+				.add(2.0, -1.0, Float.NaN, TrackGeometry.NO_TIME)
+				.build();
+	}
+
+	@Test
+	public void testBuilder() {
+		TrackGeometry geometry = createGeometry();
+
+		assertEquals(3, geometry.size());
+		assertEquals(-3.0, geometry.getLatitude(1), 0.0);
+		assertEquals(4.5, geometry.getLongitude(1), 0.0);
+		assertEquals(120.5f, geometry.getElevation(1), 0.0f);
+		assertEquals(1000L, geometry.getTime(1));
+		assertFalse(geometry.hasElevation(0));
+		assertFalse(geometry.hasTime(2));
+
+		assertSame(TrackGeometry.EMPTY, new TrackGeometry.Builder().build());
+		assertTrue(TrackGeometry.EMPTY.isEmpty());
+	}
+
+	@Test
+	public void testWrap() {
+		double[] latitudes = { 1.0, -3.0 };
+		TrackGeometry geometry = TrackGeometry.wrap(latitudes, new double[] { 2.0, 4.5 },
+				new float[] { Float.NaN, 120.5f }, new long[] { TrackGeometry.NO_TIME, 1000L });
+
+		assertEquals(2, geometry.size());
+		assertEquals(-3.0, geometry.getLatitude(1), 0.0);
+		assertEquals(120.5f, geometry.getElevation(1), 0.0f);
+		assertFalse(geometry.hasTime(0));
+		assertSame(TrackGeometry.EMPTY, TrackGeometry.wrap(new double[0], new double[0], new float[0], new long[0]));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testWrapDifferentLengths() {
+		TrackGeometry.wrap(new double[2], new double[2], new float[1], new long[2]);
+	}
+
+	@Test
+	public void testLatLngList() {
+		List<LatLng> expected = Arrays.asList(new LatLng(1.0, 2.0), new LatLng(-3.0, 4.5), new LatLng(2.0, -1.0));
+		assertEquals(expected, createGeometry().asLatLngList());
+	}
+
+	@Test
+	public void testComputeBounds() {
+		TrackGeometry geometry = createGeometry();
+		assertEquals(new Bounds(geometry.asLatLngList()), geometry.computeBounds());
+		assertEquals(new Bounds(new LatLng(-3.0, -1.0), new LatLng(2.0, 4.5)), geometry.computeBounds());
+	}
+
+	@Test(expected = java.nio.ReadOnlyBufferException.class)
+	public void testColumnsAreReadOnly() {
+		TrackGeometry geometry = createGeometry();
+		assertEquals(2.0, geometry.getLatitudes().get(2), 0.0);
+		geometry.getLatitudes().put(0, 5.0);
+	}
+}
@@ -1,5 +1,6 @@
 package org.trackexplorer.service.search;
 
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.function.BooleanSupplier;
@@ -7,42 +8,129 @@ import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import org.trackexplorer.model.Bounds;
+import org.trackexplorer.model.GeoArea;
+import org.trackexplorer.model.GeoCandidates;
+import org.trackexplorer.model.GeoSearchMode;
 import org.trackexplorer.model.IGeoSearchService;
 import org.trackexplorer.model.ITrackService;
-import org.trackexplorer.model.LatLng;
+import org.trackexplorer.model.TrackGeometry;
 import org.trackexplorer.model.TrackMetaInfo;
 
 /**
  * Provides an implementation of the {@link IGeoSearchService}.
  * 
- * The search is carried out in parallel.
+ * The search is carried out in parallel. Only the candidates
+ * returned by {@link ITrackService#getGeoCandidates} are checked,
+ * the tracks known to match are added without loading them.
+ * 
+ * The points are first compared to the enclosing bounds of the area, only
+ * the few points inside them are tested against the area itself.
+ * 
+ * With {@link GeoSearchMode#SEGMENTS} each point gets a code of the
+ * sides of the enclosing bounds it lies beyond (Cohen-Sutherland). A segment whose
+ * points both lie beyond the same side cannot cross the area, only the
+ * few remaining segments are tested, e.g. clipped against the bounds by {@link Bounds#isCrossedBy}.
  */
 public class ParallelGeoSearchService implements IGeoSearchService{
+	private static final int SOUTH = 1;
+	private static final int NORTH = 2;
+	private static final int WEST = 4;
+	private static final int EAST = 8;
+	
 	/*
 	 * See {@link IGeoSearchService}
 	 */
 	@Override
-	public Set<TrackMetaInfo> search(final Bounds bounds,
+	public Set<TrackMetaInfo> search(final GeoArea area,
+			final GeoSearchMode mode,
 			final ITrackService trackService,
 			final Consumer<Integer> progressCallback,
 			final BooleanSupplier stopFeedback) {
 		
-		return trackService.getAvailabeTracks().parallelStream()
+		// Only tracks which might pass through the search area need to be checked,
+		// all other tracks and the known matches are done immediately
+		GeoCandidates geoCandidates = trackService.getGeoCandidates(area, mode);
+		List<TrackMetaInfo> candidates = geoCandidates.getCandidates();
+		int skipped = trackService.getTrackCount() - candidates.size();
+		if(skipped > 0) {
+			progressCallback.accept(skipped);
+		}
+		
+		Set<TrackMetaInfo> found = candidates.parallelStream()
 				.filter(trackMetaInfo -> {
 					boolean result = false;
 					if(!stopFeedback.getAsBoolean()) {
-						result = match(bounds, trackService.getTrackPoints(trackMetaInfo.getId()));
+						TrackGeometry geometry = trackService.getTrackGeometry(trackMetaInfo.getId());
+						result = (mode == GeoSearchMode.SEGMENTS) ? matchSegments(area, geometry) : match(area, geometry);
 						progressCallback.accept(1);
 					}																
 					return result;
 				})																
-				.collect(Collectors.toSet());
+				.collect(Collectors.toCollection(HashSet::new));
+		found.addAll(geoCandidates.getMatches());
+		return found;
+	}
+	
+	/**
+	 * Checks whether any of the points of track is inside the given area.
+	 */
+	private boolean match(final GeoArea area, final TrackGeometry geometry) {
+		Bounds bounds = area.getBounds();
+		double south = bounds.getSouthWest().getLatitude();
+		double west = bounds.getSouthWest().getLongitude();
+		double north = bounds.getNorthEast().getLatitude();
+		double east = bounds.getNorthEast().getLongitude();
+		
+		for(int idx = 0; idx < geometry.size(); idx++) {
+			double latitude = geometry.getLatitude(idx);
+			double longitude = geometry.getLongitude(idx);
+			if(latitude > south && latitude < north && longitude > west && longitude < east &&
+					area.isInside(latitude, longitude)) {
+				return true;
+			}
+		}
+		return false;
 	}
 	
 	/**
-	 * Checks whether any of the points of track is inside the given bounds.
+	 * Checks whether any of the segments between the points of the track crosses the given area.
+	 * A single point is checked like by {@link match}.
 	 */
-	private boolean match(final Bounds bounds, final List<LatLng> trackPoints) {
-		return trackPoints.stream().anyMatch(point -> bounds.isInside(point));
+	private boolean matchSegments(final GeoArea area, final TrackGeometry geometry) {
+		Bounds bounds = area.getBounds();
+		double south = bounds.getSouthWest().getLatitude();
+		double west = bounds.getSouthWest().getLongitude();
+		double north = bounds.getNorthEast().getLatitude();
+		double east = bounds.getNorthEast().getLongitude();
+		
+		int previousCode = 0;
+		for(int idx = 0; idx < geometry.size(); idx++) {
+			double latitude = geometry.getLatitude(idx);
+			double longitude = geometry.getLongitude(idx);
+			// A point on a side is beyond it, like for Bounds.isInside
+			int code = 0;
+			if(latitude <= south) {
+				code |= SOUTH;
+			}
+			else if(latitude >= north) {
+				code |= NORTH;
+			}
+			if(longitude <= west) {
+				code |= WEST;
+			}
+			else if(longitude >= east) {
+				code |= EAST;
+			}
+			
+			if(code == 0 && area.isInside(latitude, longitude)) {
+				return true;
+			}
+			if(idx > 0 && (code & previousCode) == 0 &&
+					area.isCrossedBy(geometry.getLatitude(idx - 1), geometry.getLongitude(idx - 1), latitude, longitude)) {
+				return true;
+			}
+			previousCode = code;
+		}
+		return false;
 	}
 }
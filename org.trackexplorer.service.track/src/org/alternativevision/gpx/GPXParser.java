@@ -25,9 +25,14 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.text.SimpleDateFormat;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.ChronoField;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.TimeZone;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -68,10 +73,31 @@ import org.xml.sax.SAXException;
  * p.writeGPX(gpx, out);<br>
  * out.close();<br>
  * </code>
+ * <br>
+ * <p>This parser builds a complete DOM of the document before walking it.
+ * {@link StreamingGPXParser} provides the same functionality without doing so.</p>
  */
 public class GPXParser {
 	
-	private ArrayList<IExtensionParser> extensionParsers = new ArrayList<IExtensionParser>();
+	/**
+	 * Format of the time stamps, e.g. 2012-02-25T09:28:45.123+01:00. Fractions of a second
+	 * and the time zone are optional, without a time zone UTC is assumed.
+	 */
+	private static final DateTimeFormatter TIME_FORMAT = new DateTimeFormatterBuilder()
+			.append(DateTimeFormatter.ISO_LOCAL_DATE)
+			.optionalStart().appendLiteral('T').optionalEnd()
+			.optionalStart().appendLiteral(' ').optionalEnd()
+			.appendValue(ChronoField.HOUR_OF_DAY, 2).appendLiteral(':')
+			.appendValue(ChronoField.MINUTE_OF_HOUR, 2).appendLiteral(':')
+			.appendValue(ChronoField.SECOND_OF_MINUTE, 2)
+			.optionalStart().appendFraction(ChronoField.NANO_OF_SECOND, 0, 9, true).optionalEnd()
+			.optionalStart().appendOffset("+HH:MM", "Z").optionalEnd()
+			.optionalStart().appendOffset("+HHMM", "Z").optionalEnd()
+			.optionalStart().appendOffset("+HH", "Z").optionalEnd()
+			.parseDefaulting(ChronoField.OFFSET_SECONDS, 0)
+			.toFormatter();
+	
+	protected ArrayList<IExtensionParser> extensionParsers = new ArrayList<IExtensionParser>();
 	
 	/**
 	 * Adds a new extension parser to be used when parsing a gpx steam
@@ -91,7 +117,7 @@ public class GPXParser {
 		extensionParsers.remove(parser);
 	}
 	
-	private Logger logger = Logger.getLogger(this.getClass().getName()); 
+	protected Logger logger = Logger.getLogger(this.getClass().getName()); 
 	
 	/**
 	 * Parses a stream containing GPX data
@@ -311,7 +337,13 @@ public class GPXParser {
 					trk.setType(getNodeValueAsString(currentNode));
 				} else if(GPXConstants.TRKSEG_NODE.equals(currentNode.getNodeName())) {
 					logger.debug("node trkseg found");
-					trk.setTrackPoints(parseTrackSeg(currentNode));
+					// The points of all segments are joined
+					ArrayList<Waypoint> points = parseTrackSeg(currentNode);
+					if(trk.getTrackPoints() == null) {
+						trk.setTrackPoints(points);
+					} else {
+						trk.getTrackPoints().addAll(points);
+					}
 				} else if(GPXConstants.EXTENSIONS_NODE.equals(currentNode.getNodeName())) {
 					Iterator<IExtensionParser> it = extensionParsers.iterator();
 					while(it.hasNext()) {
@@ -432,14 +464,20 @@ public class GPXParser {
 		//2012-02-25T09:28:45Z
 		Date val = null;
 		try {
-			SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd'T'kk:mm:ss");
-			val = sdf.parse(node.getFirstChild().getNodeValue());
+			val = parseTime(node.getFirstChild().getNodeValue());
 		} catch (Exception ex) {
 			logger.error("error parsing Date value form node. val=" + node.getNodeName(), ex);
 		}
 		return val;
 	}
 	
+	/**
+	 * Parses a time stamp in the format of {@link #TIME_FORMAT}.
+	 */
+	protected static Date parseTime(String text) {
+		return Date.from(OffsetDateTime.parse(text.trim(), TIME_FORMAT).toInstant());
+	}
+	
 	private String getNodeValueAsString(Node node) {
 		String val = null;
 		try {
@@ -526,6 +564,7 @@ public class GPXParser {
 		if(wpt.getTime() != null) {
 			Node node = doc.createElement(GPXConstants.TIME_NODE);
 			SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd'T'kk:mm:ss'Z'");
+			sdf.setTimeZone(TimeZone.getTimeZone("UTC"));
 			node.appendChild(doc.createTextNode(sdf.format(wpt.getTime())));
 			wptNode.appendChild(node);
 		}
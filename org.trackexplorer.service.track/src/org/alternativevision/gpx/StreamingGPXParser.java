@@ -0,0 +1,486 @@
+/*
+ * StreamingGPXParser.java
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston,
+ * MA 02110-1301  USA
+ */
+
+package org.alternativevision.gpx;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.alternativevision.gpx.beans.GPX;
+import org.alternativevision.gpx.beans.Route;
+import org.alternativevision.gpx.beans.Track;
+import org.alternativevision.gpx.beans.Waypoint;
+import org.alternativevision.gpx.extensions.IExtensionParser;
+import org.alternativevision.gpx.types.FixType;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+/**
+ * <p>A {@link GPXParser} which reads the gpx stream with a StAX pull parser
+ * instead of building a DOM of the whole document first.</p>
+ * <br>
+ * <p>The {@link GPX}, {@link Track}, {@link Route} and {@link Waypoint} beans are
+ * created directly while the elements are encountered. Therefore the memory needed
+ * for parsing is proportional to the resulting beans and not to the size of the document.</p>
+ * <br>
+ * <p>The beans are filled exactly like {@link GPXParser} does. Registered
+ * {@link IExtensionParser}s are still called with a DOM {@link Node}, but only the
+ * &lt;extensions&gt; element is converted into a DOM, and only if at least one
+ * extension parser is registered.</p>
+ * <br>
+ * Usage is the same as for {@link GPXParser}:<br>
+ * <code>
+ * GPXParser p = new StreamingGPXParser();<br>
+ * FileInputStream in = new FileInputStream("inFile.gpx");<br>
+ * GPX gpx = p.parseGPX(in);<br>
+ * </code>
+ */
+public class StreamingGPXParser extends GPXParser {
+
+	private final XMLInputFactory inputFactory;
+
+	/**
+	 * Only needed to convert &lt;extensions&gt; elements, created on first use.
+	 */
+	private DocumentBuilder extensionDocumentBuilder;
+
+	public StreamingGPXParser() {
+		inputFactory = XMLInputFactory.newInstance();
+		inputFactory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+		inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+		inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+	}
+
+	/**
+	 * Parses a stream containing GPX data without building a DOM.
+	 *
+	 * @param in the input stream
+	 * @return {@link GPX} object containing parsed data, or null if no gpx data was found in the stream
+	 * @throws ParserConfigurationException
+	 * @throws SAXException if the stream does not contain well formed xml
+	 * @throws IOException
+	 */
+	@Override
+	public GPX parseGPX(InputStream in) throws ParserConfigurationException, SAXException, IOException {
+		try {
+			XMLStreamReader reader = inputFactory.createXMLStreamReader(in);
+			try {
+				return parseDocument(reader);
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException ex) {
+			throw new SAXException(ex);
+		}
+	}
+
+	private GPX parseDocument(XMLStreamReader reader) throws XMLStreamException, ParserConfigurationException {
+		// Move to the root element
+		while(reader.hasNext() && reader.next() != XMLStreamConstants.START_ELEMENT) {
+		}
+		if(!reader.isStartElement() || !GPXConstants.GPX_NODE.equals(reader.getLocalName())) {
+			logger.error("FATAL!! - Root node is not gpx.");
+			return null;
+		}
+
+		GPX gpx = new GPX();
+		gpx.setVersion(reader.getAttributeValue(null, GPXConstants.VERSION_ATTR));
+		gpx.setCreator(reader.getAttributeValue(null, GPXConstants.CREATOR_ATTR));
+
+		logger.debug("Found gpx node. Start parsing ...");
+		while(nextChild(reader)) {
+			String name = reader.getLocalName();
+			if(GPXConstants.WPT_NODE.equals(name)) {
+				logger.debug("Found waypoint node. Start parsing...");
+				gpx.addWaypoint(parseWaypoint(reader));
+			} else if(GPXConstants.TRK_NODE.equals(name)) {
+				logger.debug("Found track node. Start parsing...");
+				gpx.addTrack(parseTrack(reader));
+			} else if(GPXConstants.EXTENSIONS_NODE.equals(name)) {
+				logger.debug("Found extensions node. Start parsing...");
+				Node node = readExtensions(reader);
+				if(node != null) {
+					Iterator<IExtensionParser> it = extensionParsers.iterator();
+					while(it.hasNext()) {
+						IExtensionParser parser = it.next();
+						Object data = parser.parseGPXExtension(node);
+						gpx.addExtensionData(parser.getId(), data);
+					}
+				}
+			} else if(GPXConstants.RTE_NODE.equals(name)) {
+				logger.debug("Found route node. Start parsing...");
+				gpx.addRoute(parseRoute(reader));
+			} else {
+				skipElement(reader);
+			}
+		}
+		return gpx;
+	}
+
+	/**
+	 * Parses a wpt, trkpt or rtept element into a Waypoint object.
+	 *
+	 * The reader has to be positioned on the start of the element and
+	 * is positioned on its end afterwards.
+	 */
+	private Waypoint parseWaypoint(XMLStreamReader reader) throws XMLStreamException, ParserConfigurationException {
+		Waypoint w = new Waypoint();
+		//check for lat attribute
+		String lat = reader.getAttributeValue(null, GPXConstants.LAT_ATTR);
+		if(lat != null) {
+			Double latVal = null;
+			try {
+				latVal = Double.parseDouble(lat);
+			} catch(NumberFormatException ex) {
+				logger.error("bad lat value in waypoint data: " + lat);
+			}
+			w.setLatitude(latVal);
+		} else {
+			logger.warn("no lat value in waypoint data.");
+		}
+		//check for lon attribute
+		String lon = reader.getAttributeValue(null, GPXConstants.LON_ATTR);
+		if(lon != null) {
+			Double lonVal = null;
+			try {
+				lonVal = Double.parseDouble(lon);
+			} catch(NumberFormatException ex) {
+				logger.error("bad lon value in waypoint data: " + lon);
+			}
+			w.setLongitude(lonVal);
+		} else {
+			logger.warn("no lon value in waypoint data.");
+		}
+
+		while(nextChild(reader)) {
+			String name = reader.getLocalName();
+			if(GPXConstants.ELE_NODE.equals(name)) {
+				w.setElevation(readDouble(reader));
+			} else if(GPXConstants.TIME_NODE.equals(name)) {
+				w.setTime(readDate(reader));
+			} else if(GPXConstants.NAME_NODE.equals(name)) {
+				w.setName(readString(reader));
+			} else if(GPXConstants.CMT_NODE.equals(name)) {
+				w.setComment(readString(reader));
+			} else if(GPXConstants.DESC_NODE.equals(name)) {
+				w.setDescription(readString(reader));
+			} else if(GPXConstants.SRC_NODE.equals(name)) {
+				w.setSrc(readString(reader));
+			} else if(GPXConstants.MAGVAR_NODE.equals(name)) {
+				w.setMagneticDeclination(readDouble(reader));
+			} else if(GPXConstants.GEOIDHEIGHT_NODE.equals(name)) {
+				w.setGeoidHeight(readDouble(reader));
+			} else if(GPXConstants.SYM_NODE.equals(name)) {
+				w.setSym(readString(reader));
+			} else if(GPXConstants.FIX_NODE.equals(name)) {
+				w.setFix(readFixType(reader));
+			} else if(GPXConstants.TYPE_NODE.equals(name)) {
+				w.setType(readString(reader));
+			} else if(GPXConstants.SAT_NODE.equals(name)) {
+				w.setSat(readInteger(reader));
+			} else if(GPXConstants.HDOP_NODE.equals(name)) {
+				w.setHdop(readDouble(reader));
+			} else if(GPXConstants.VDOP_NODE.equals(name)) {
+				w.setVdop(readDouble(reader));
+			} else if(GPXConstants.PDOP_NODE.equals(name)) {
+				w.setPdop(readDouble(reader));
+			} else if(GPXConstants.AGEOFGPSDATA_NODE.equals(name)) {
+				w.setAgeOfGPSData(readDouble(reader));
+			} else if(GPXConstants.DGPSID_NODE.equals(name)) {
+				w.setDgpsid(readInteger(reader));
+			} else if(GPXConstants.EXTENSIONS_NODE.equals(name)) {
+				Node node = readExtensions(reader);
+				if(node != null) {
+					Iterator<IExtensionParser> it = extensionParsers.iterator();
+					while(it.hasNext()) {
+						IExtensionParser parser = it.next();
+						Object data = parser.parseWaypointExtension(node);
+						w.addExtensionData(parser.getId(), data);
+					}
+				}
+			} else {
+				//TODO: parse link
+				skipElement(reader);
+			}
+		}
+
+		return w;
+	}
+
+	private Track parseTrack(XMLStreamReader reader) throws XMLStreamException, ParserConfigurationException {
+		Track trk = new Track();
+		while(nextChild(reader)) {
+			String name = reader.getLocalName();
+			if(GPXConstants.NAME_NODE.equals(name)) {
+				trk.setName(readString(reader));
+			} else if(GPXConstants.CMT_NODE.equals(name)) {
+				trk.setComment(readString(reader));
+			} else if(GPXConstants.DESC_NODE.equals(name)) {
+				trk.setDescription(readString(reader));
+			} else if(GPXConstants.SRC_NODE.equals(name)) {
+				trk.setSrc(readString(reader));
+			} else if(GPXConstants.NUMBER_NODE.equals(name)) {
+				trk.setNumber(readInteger(reader));
+			} else if(GPXConstants.TYPE_NODE.equals(name)) {
+				trk.setType(readString(reader));
+			} else if(GPXConstants.TRKSEG_NODE.equals(name)) {
+				// Same as GPXParser: the points of all segments are joined
+				ArrayList<Waypoint> points = parseTrackSeg(reader);
+				if(trk.getTrackPoints() == null) {
+					trk.setTrackPoints(points);
+				} else {
+					trk.getTrackPoints().addAll(points);
+				}
+			} else if(GPXConstants.EXTENSIONS_NODE.equals(name)) {
+				Node node = readExtensions(reader);
+				if(node != null) {
+					Iterator<IExtensionParser> it = extensionParsers.iterator();
+					while(it.hasNext()) {
+						IExtensionParser parser = it.next();
+						Object data = parser.parseTrackExtension(node);
+						trk.addExtensionData(parser.getId(), data);
+					}
+				}
+			} else {
+				//TODO: parse link
+				skipElement(reader);
+			}
+		}
+
+		return trk;
+	}
+
+	private Route parseRoute(XMLStreamReader reader) throws XMLStreamException, ParserConfigurationException {
+		Route rte = new Route();
+		while(nextChild(reader)) {
+			String name = reader.getLocalName();
+			if(GPXConstants.NAME_NODE.equals(name)) {
+				rte.setName(readString(reader));
+			} else if(GPXConstants.CMT_NODE.equals(name)) {
+				rte.setComment(readString(reader));
+			} else if(GPXConstants.DESC_NODE.equals(name)) {
+				rte.setDescription(readString(reader));
+			} else if(GPXConstants.SRC_NODE.equals(name)) {
+				rte.setSrc(readString(reader));
+			} else if(GPXConstants.NUMBER_NODE.equals(name)) {
+				rte.setNumber(readInteger(reader));
+			} else if(GPXConstants.TYPE_NODE.equals(name)) {
+				rte.setType(readString(reader));
+			} else if(GPXConstants.RTEPT_NODE.equals(name)) {
+				rte.addRoutePoint(parseWaypoint(reader));
+			} else if(GPXConstants.EXTENSIONS_NODE.equals(name)) {
+				Node node = readExtensions(reader);
+				if(node != null) {
+					Iterator<IExtensionParser> it = extensionParsers.iterator();
+					while(it.hasNext()) {
+						IExtensionParser parser = it.next();
+						Object data = parser.parseRouteExtension(node);
+						rte.addExtensionData(parser.getId(), data);
+					}
+				}
+			} else {
+				//TODO: parse link
+				skipElement(reader);
+			}
+		}
+
+		return rte;
+	}
+
+	private ArrayList<Waypoint> parseTrackSeg(XMLStreamReader reader) throws XMLStreamException, ParserConfigurationException {
+		ArrayList<Waypoint> trkpts = new ArrayList<Waypoint>();
+		while(nextChild(reader)) {
+			if(GPXConstants.TRKPT_NODE.equals(reader.getLocalName())) {
+				trkpts.add(parseWaypoint(reader));
+			} else {
+				// Extensions of a segment are ignored by GPXParser, too
+				skipElement(reader);
+			}
+		}
+		return trkpts;
+	}
+
+	/**
+	 * Advances the reader to the start of the next child element of the current element.
+	 *
+	 * @return false if the end of the current element has been reached instead
+	 */
+	private boolean nextChild(XMLStreamReader reader) throws XMLStreamException {
+		while(reader.hasNext()) {
+			int event = reader.next();
+			if(event == XMLStreamConstants.START_ELEMENT) {
+				return true;
+			} else if(event == XMLStreamConstants.END_ELEMENT) {
+				return false;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Skips the current element including all of its children.
+	 */
+	private void skipElement(XMLStreamReader reader) throws XMLStreamException {
+		int depth = 1;
+		while(depth > 0 && reader.hasNext()) {
+			int event = reader.next();
+			if(event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+			} else if(event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			}
+		}
+	}
+
+	/**
+	 * Reads the text of the current element and positions the reader on its end.
+	 * Text of nested elements is ignored.
+	 *
+	 * @return the text or null if the element does not contain any text
+	 */
+	private String readText(XMLStreamReader reader) throws XMLStreamException {
+		String text = null;
+		while(reader.hasNext()) {
+			int event = reader.next();
+			if(event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+					|| event == XMLStreamConstants.SPACE) {
+				text = (text == null) ? reader.getText() : text + reader.getText();
+			} else if(event == XMLStreamConstants.START_ELEMENT) {
+				skipElement(reader);
+			} else if(event == XMLStreamConstants.END_ELEMENT) {
+				break;
+			}
+		}
+		return text;
+	}
+
+	private Double readDouble(XMLStreamReader reader) throws XMLStreamException {
+		String text = readText(reader);
+		Double val = null;
+		try {
+			val = Double.parseDouble(text);
+		} catch (Exception ex) {
+			logger.error("error parsing Double value form node. val=" + text, ex);
+		}
+		return val;
+	}
+
+	private Date readDate(XMLStreamReader reader) throws XMLStreamException {
+		//2012-02-25T09:28:45Z
+		String text = readText(reader);
+		Date val = null;
+		try {
+			val = parseTime(text);
+		} catch (Exception ex) {
+			logger.error("error parsing Date value form node. val=" + text, ex);
+		}
+		return val;
+	}
+
+	private String readString(XMLStreamReader reader) throws XMLStreamException {
+		String val = readText(reader);
+		if(val == null) {
+			logger.error("error getting String value form node. val=" + reader.getLocalName());
+		}
+		return val;
+	}
+
+	private FixType readFixType(XMLStreamReader reader) throws XMLStreamException {
+		String text = readText(reader);
+		FixType val = null;
+		try {
+			val = FixType.returnType(text);
+		} catch (Exception ex) {
+			logger.error("error getting FixType value form node. val=" + text, ex);
+		}
+		return val;
+	}
+
+	private Integer readInteger(XMLStreamReader reader) throws XMLStreamException {
+		String text = readText(reader);
+		Integer val = null;
+		try {
+			val = Integer.parseInt(text);
+		} catch (Exception ex) {
+			logger.error("error parsing Integer value form node. val=" + text, ex);
+		}
+		return val;
+	}
+
+	/**
+	 * Converts the current &lt;extensions&gt; element into a DOM node
+	 * which can be handed to the registered extension parsers.
+	 *
+	 * @return null if no extension parser is registered, in this case the element is skipped
+	 */
+	private Node readExtensions(XMLStreamReader reader) throws XMLStreamException, ParserConfigurationException {
+		if(extensionParsers.isEmpty()) {
+			skipElement(reader);
+			return null;
+		}
+		if(extensionDocumentBuilder == null) {
+			DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+			factory.setNamespaceAware(true);
+			extensionDocumentBuilder = factory.newDocumentBuilder();
+		}
+		Document doc = extensionDocumentBuilder.newDocument();
+		Element element = readElement(reader, doc);
+		doc.appendChild(element);
+		return element;
+	}
+
+	/**
+	 * Recursively copies the current element into the given document.
+	 */
+	private Element readElement(XMLStreamReader reader, Document doc) throws XMLStreamException {
+		String prefix = reader.getPrefix();
+		String qualifiedName = (prefix == null || prefix.isEmpty()) ? reader.getLocalName() : prefix + ":" + reader.getLocalName();
+		Element element = doc.createElementNS(reader.getNamespaceURI(), qualifiedName);
+		for(int idx = 0; idx < reader.getAttributeCount(); idx++) {
+			String attrPrefix = reader.getAttributePrefix(idx);
+			String attrName = (attrPrefix == null || attrPrefix.isEmpty()) ? reader.getAttributeLocalName(idx) : attrPrefix + ":" + reader.getAttributeLocalName(idx);
+			element.setAttributeNS(reader.getAttributeNamespace(idx), attrName, reader.getAttributeValue(idx));
+		}
+		while(reader.hasNext()) {
+			int event = reader.next();
+			if(event == XMLStreamConstants.START_ELEMENT) {
+				element.appendChild(readElement(reader, doc));
+			} else if(event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+					|| event == XMLStreamConstants.SPACE) {
+				element.appendChild(doc.createTextNode(reader.getText()));
+			} else if(event == XMLStreamConstants.END_ELEMENT) {
+				break;
+			}
+		}
+		return element;
+	}
+}
@@ -0,0 +1,148 @@
+package org.trackexplorer.service.track;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import org.trackexplorer.model.IndexingProgress;
+
+/**
+ * Indexes a list of tracks on a pool of low priority daemon threads.
+ *
+ * Before a track is indexed, the workers wait as long as the
+ * {@code foregroundBusy} supplier reports that a request of the user
+ * is being served, such that the user does not have to wait for indexing.
+ *
+ * The progress is reported at most every {@link REPORT_INTERVAL_MS} and
+ * once when all tracks have been indexed or indexing was stopped.
+ */
+class BackgroundIndexer {
+	/**
+	 * Minimum time between two progress reports.
+	 */
+	static final long REPORT_INTERVAL_MS = 200;
+
+	/**
+	 * Time to wait before checking again whether the foreground is still busy.
+	 */
+	private static final long YIELD_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+	private static final AtomicInteger threadCount = new AtomicInteger();
+
+	private final List<String> ids;
+	private final Consumer<String> indexTrack;
+	private final BooleanSupplier foregroundBusy;
+	private final Consumer<IndexingProgress> progressCallback;
+	private final Runnable onCompletion;
+	private final ExecutorService executor;
+
+	private final AtomicInteger indexed;
+	private volatile boolean stopped;
+	private volatile boolean finished;
+	private volatile long lastReport;
+
+	/**
+	 * @param ids The ids of the tracks to index.
+	 * @param indexTrack Indexes a single track.
+	 * @param foregroundBusy True while requests of the user are served.
+	 * @param progressCallback Receives the progress.
+	 * @param onCompletion Called once all tracks have been indexed, not if indexing is stopped.
+	 */
+	BackgroundIndexer(final List<String> ids,
+			final Consumer<String> indexTrack,
+			final BooleanSupplier foregroundBusy,
+			final Consumer<IndexingProgress> progressCallback,
+			final Runnable onCompletion) {
+		this.ids = ids;
+		this.indexTrack = indexTrack;
+		this.foregroundBusy = foregroundBusy;
+		this.progressCallback = progressCallback;
+		this.onCompletion = onCompletion;
+		this.indexed = new AtomicInteger();
+
+		// Leave one core for the user interface
+		int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+		this.executor = Executors.newFixedThreadPool(threads, createThreadFactory());
+	}
+
+	private static ThreadFactory createThreadFactory() {
+		return runnable -> {
+			Thread thread = new Thread(runnable, "TrackIndexer-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MIN_PRIORITY);
+			return thread;
+		};
+	}
+
+	/**
+	 * Submits all tracks to the workers and returns immediately.
+	 */
+	void start() {
+		if(ids.isEmpty()) {
+			complete();
+			return;
+		}
+		for(String id : ids) {
+			executor.execute(() -> run(id));
+		}
+		executor.shutdown();
+	}
+
+	/**
+	 * Stops indexing, tracks which are currently indexed are finished.
+	 *
+	 * The workers are not interrupted, as an interrupted read closes the
+	 * file and the track could not be loaded. The remaining tracks are
+	 * skipped as soon as they are taken from the queue.
+	 */
+	void stop() {
+		stopped = true;
+		executor.shutdown();
+		report(true);
+	}
+
+	private void run(final String id) {
+		while(!stopped && foregroundBusy.getAsBoolean()) {
+			LockSupport.parkNanos(YIELD_NANOS);
+		}
+		if(stopped) {
+			return;
+		}
+
+		try {
+			indexTrack.accept(id);
+		} catch (RuntimeException e) {
+			System.out.println("COULD NOT INDEX TRACK!");
+			e.printStackTrace();
+		}
+
+		if(indexed.incrementAndGet() == ids.size()) {
+			complete();
+		}
+		else if(System.currentTimeMillis() - lastReport >= REPORT_INTERVAL_MS) {
+			report(false);
+		}
+	}
+
+	private void complete() {
+		if(!stopped) {
+			onCompletion.run();
+		}
+		report(true);
+	}
+
+	private synchronized void report(final boolean last) {
+		if(finished) {
+			return;
+		}
+		finished = last;
+		lastReport = System.currentTimeMillis();
+		progressCallback.accept(new IndexingProgress(indexed.get(), ids.size(), last));
+	}
+}
@@ -0,0 +1,279 @@
+package org.trackexplorer.service.track;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Searches folders for GPX files on a work stealing {@link ForkJoinPool}.
+ *
+ * Every folder is listed by its own task, the tasks of the sub folders
+ * are forked, so idle threads take over folders from busy ones. As listing
+ * a folder mostly waits for the disk, more threads than cores are used,
+ * see {@link PARALLELISM}.
+ *
+ * The tracks are passed to the {@code trackFound} consumer as soon as they
+ * are found, from several threads at once. The progress is reported at most
+ * every {@link REPORT_INTERVAL_MS} and once when all folders have been
+ * searched or searching was cancelled.
+ *
+ * A root may also be a single GPX file. Symbolic links to files are followed,
+ * links to folders are not, such that no folder is searched twice.
+ */
+class DirectoryCrawler {
+	/**
+	 * Minimum time between two progress reports.
+	 */
+	static final long REPORT_INTERVAL_MS = 200;
+
+	/**
+	 * The number of threads listing folders at the same time.
+	 */
+	static final int PARALLELISM = Math.max(8, 2 * Runtime.getRuntime().availableProcessors());
+
+	private static final AtomicInteger threadCount = new AtomicInteger();
+
+	private final List<Path> roots;
+	private final BiConsumer<Path, BasicFileAttributes> trackFound;
+	private final Consumer<DirectoryCrawler> progressCallback;
+	private final PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:*.gpx");
+	private final ForkJoinPool pool;
+	private final CountDownLatch completion = new CountDownLatch(1);
+
+	private final AtomicInteger folderCount = new AtomicInteger();
+	private final AtomicInteger trackCount = new AtomicInteger();
+	private volatile long startTime;
+	private volatile long lastReport;
+	private volatile boolean cancelled;
+
+	/**
+	 * Held for reading while a track is reported, such that
+	 * {@link cancel} knows when no more tracks are reported.
+	 */
+	private final ReadWriteLock reporting = new ReentrantReadWriteLock();
+	private volatile boolean finished;
+
+	/**
+	 * @param roots The folders to search, or single files.
+	 * @param trackFound Receives every GPX file found, must be thread safe.
+	 * @param progressCallback Receives the crawler itself to read the counters.
+	 */
+	DirectoryCrawler(final List<Path> roots,
+			final BiConsumer<Path, BasicFileAttributes> trackFound,
+			final Consumer<DirectoryCrawler> progressCallback) {
+		this.roots = roots;
+		this.trackFound = trackFound;
+		this.progressCallback = progressCallback;
+		this.pool = new ForkJoinPool(PARALLELISM, DirectoryCrawler::createThread, null, false);
+	}
+
+	private static ForkJoinWorkerThread createThread(final ForkJoinPool pool) {
+		ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+		thread.setName("TrackCrawler-" + threadCount.incrementAndGet());
+		thread.setDaemon(true);
+		return thread;
+	}
+
+	/**
+	 * Starts to search all roots and returns immediately.
+	 */
+	void start() {
+		startTime = System.nanoTime();
+		lastReport = System.currentTimeMillis();
+		pool.execute(new RecursiveAction() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void compute() {
+				List<CrawlTask> tasks = new ArrayList<>(roots.size());
+				for(Path root : roots) {
+					BasicFileAttributes attributes;
+					try {
+						attributes = Files.readAttributes(root, BasicFileAttributes.class);
+					} catch (IOException e) {
+						// Counted as a folder which cannot be read
+						attributes = null;
+					}
+					if(attributes != null && !attributes.isDirectory()) {
+						visitFile(root, attributes);
+					}
+					else {
+						tasks.add(new CrawlTask(root));
+					}
+				}
+				invokeAll(tasks);
+				report(true);
+			}
+		});
+		pool.shutdown();
+	}
+
+	/**
+	 * Waits until all roots have been searched or searching was cancelled.
+	 */
+	void await() throws InterruptedException {
+		completion.await();
+	}
+
+	/**
+	 * Stops searching and returns without waiting for folders which
+	 * are currently listed. No tracks are reported afterwards.
+	 */
+	void cancel() {
+		reporting.writeLock().lock();
+		try {
+			cancelled = true;
+		} finally {
+			reporting.writeLock().unlock();
+		}
+		pool.shutdownNow();
+		report(true);
+	}
+
+	/**
+	 * @return True if searching was cancelled before all roots have been searched.
+	 */
+	boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * @return True once all roots have been searched or searching was cancelled.
+	 */
+	boolean isFinished() {
+		return finished;
+	}
+
+	/**
+	 * @return The number of folders listed so far.
+	 */
+	int getFolderCount() {
+		return folderCount.get();
+	}
+
+	/**
+	 * @return The number of tracks found so far.
+	 */
+	int getTrackCount() {
+		return trackCount.get();
+	}
+
+	/**
+	 * @return The time since searching was started.
+	 */
+	long getElapsedMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+	}
+
+	private void crawl(final Path folder, final List<CrawlTask> subFolders) {
+		try(DirectoryStream<Path> entries = Files.newDirectoryStream(folder)) {
+			for(Path entry : entries) {
+				if(cancelled) {
+					return;
+				}
+				BasicFileAttributes attributes;
+				try {
+					attributes = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+					if(attributes.isSymbolicLink()) {
+						attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+						if(attributes.isDirectory()) {
+							continue;
+						}
+					}
+				} catch (IOException e) {
+					continue;
+				}
+				if(attributes.isDirectory()) {
+					subFolders.add(new CrawlTask(entry));
+				}
+				else {
+					visitFile(entry, attributes);
+				}
+			}
+		} catch (IOException e) {
+			// Folders which cannot be read are skipped
+		}
+		folderCount.incrementAndGet();
+
+		if(System.currentTimeMillis() - lastReport >= REPORT_INTERVAL_MS) {
+			report(false);
+		}
+	}
+
+	/**
+	 * Reports the file if it is a GPX file.
+	 *
+	 * @param attributes The attributes of the file itself, not of a link to it.
+	 */
+	private void visitFile(final Path file, final BasicFileAttributes attributes) {
+		if(attributes.isRegularFile() && matcher.matches(file.getFileName())) {
+			reporting.readLock().lock();
+			try {
+				if(cancelled) {
+					return;
+				}
+				trackFound.accept(file, attributes);
+				trackCount.incrementAndGet();
+			} finally {
+				reporting.readLock().unlock();
+			}
+		}
+	}
+
+	private synchronized void report(final boolean last) {
+		if(finished) {
+			return;
+		}
+		finished = last;
+		lastReport = System.currentTimeMillis();
+		try {
+			progressCallback.accept(this);
+		} finally {
+			if(last) {
+				completion.countDown();
+			}
+		}
+	}
+
+	/**
+	 * Lists a single folder and forks the tasks of its sub folders.
+	 */
+	private class CrawlTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final Path folder;
+
+		CrawlTask(final Path folder) {
+			this.folder = folder;
+		}
+
+		@Override
+		protected void compute() {
+			if(cancelled) {
+				return;
+			}
+			List<CrawlTask> subFolders = new ArrayList<>();
+			crawl(folder, subFolders);
+			if(!cancelled) {
+				invokeAll(subFolders);
+			}
+		}
+	}
+}
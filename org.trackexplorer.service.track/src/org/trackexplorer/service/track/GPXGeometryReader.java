@@ -0,0 +1,572 @@
+package org.trackexplorer.service.track;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+
+import org.trackexplorer.model.TrackGeometry;
+
+/**
+ * Reads only the geometry of the track points from a GPX stream.
+ *
+ * Instead of parsing the XML, the raw bytes are scanned for {@code rtept} and
+ * {@code trkpt} elements. Only their {@code lat} and {@code lon} attributes and
+ * the content of their {@code ele} and {@code time} elements are parsed and written
+ * directly into a {@link TrackGeometry.Builder}. All other elements are skipped
+ * without creating any objects.
+ *
+ * The same points as by the GPX parsers are returned: If the file contains
+ * a route, the points of the first route are used. Otherwise the points of all segments
+ * of the first track are joined.
+ *
+ * Only encodings which are compatible with ASCII (e.g. UTF-8 or ISO-8859-1) are
+ * supported. For all other encodings an {@code UnsupportedEncodingException} is thrown,
+ * such files have to be parsed completely.
+ */
+class GPXGeometryReader {
+	private static final byte[] RTE = ascii("rte");
+	private static final byte[] RTEPT = ascii("rtept");
+	private static final byte[] TRK = ascii("trk");
+	private static final byte[] TRKPT = ascii("trkpt");
+	private static final byte[] ELE = ascii("ele");
+	private static final byte[] TIME = ascii("time");
+	private static final byte[] LAT = ascii("lat");
+	private static final byte[] LON = ascii("lon");
+
+	private static final byte[] COMMENT_START = ascii("!--");
+	private static final byte[] COMMENT_END = ascii("-->");
+	private static final byte[] CDATA_START = ascii("![CDATA[");
+	private static final byte[] CDATA_END = ascii("]]>");
+	private static final byte[] INSTRUCTION_END = ascii("?>");
+
+	/**
+	 * Powers of ten which can be represented exactly as a double.
+	 */
+	private static final double[] POWERS_OF_TEN = {
+			1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8,
+			1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15 };
+
+	/**
+	 * Maximum number of digits for which the fast path of {@link parseDouble} is exact.
+	 */
+	private static final int MAX_FAST_DIGITS = 15;
+
+	private final InputStream in;
+	private byte[] buffer;
+	private int position;
+	private int limit;
+	private boolean endOfStream;
+
+	private GPXGeometryReader(final InputStream in) {
+		this.in = in;
+		this.buffer = new byte[64 * 1024];
+		this.position = 0;
+		this.limit = 0;
+		this.endOfStream = false;
+	}
+
+	/**
+	 * Reads the track points from the given stream.
+	 * The stream is not closed.
+	 *
+	 * @return The points, possibly empty but never null.
+	 * @throws UnsupportedEncodingException If the stream uses an encoding which is not compatible with ASCII.
+	 * @throws IOException If the stream cannot be read.
+	 */
+	public static TrackGeometry read(final InputStream in) throws IOException {
+		return new GPXGeometryReader(in).scan();
+	}
+
+	private TrackGeometry scan() throws IOException {
+		checkEncoding();
+
+		TrackGeometry.Builder routePoints = new TrackGeometry.Builder();
+		TrackGeometry.Builder trackPoints = new TrackGeometry.Builder();
+		int routes = 0;
+		int tracks = 0;
+		boolean inFirstRoute = false;
+		boolean inFirstTrack = false;
+
+		// State of the point which is currently read
+		TrackGeometry.Builder target = null;
+		double latitude = 0.0;
+		double longitude = 0.0;
+		float elevation = Float.NaN;
+		long time = TrackGeometry.NO_TIME;
+
+		while(skipTo((byte) '<')) {
+			position++;
+			if(!ensure(1)) {
+				break;
+			}
+			byte first = buffer[position];
+			if(first == '!') {
+				if(startsWith(COMMENT_START)) {
+					skipPast(COMMENT_END);
+				}
+				else if(startsWith(CDATA_START)) {
+					skipPast(CDATA_END);
+				}
+				else {
+					skipTag();
+				}
+				continue;
+			}
+			if(first == '?') {
+				skipPast(INSTRUCTION_END);
+				continue;
+			}
+
+			int end = tagEnd();
+			if(end < 0) {
+				break;
+			}
+
+			boolean isEndTag = (first == '/');
+			int nameStart = isEndTag ? position + 1 : position;
+			int nameEnd = nameStart;
+			while(nameEnd < end && !isNameDelimiter(buffer[nameEnd])) {
+				nameEnd++;
+			}
+			nameStart = localNameStart(nameStart, nameEnd);
+			boolean isEmptyElement = !isEndTag && buffer[end - 1] == '/';
+
+			if(isEndTag) {
+				if(target != null && (nameEquals(nameStart, nameEnd, TRKPT) || nameEquals(nameStart, nameEnd, RTEPT))) {
+					target.add(latitude, longitude, elevation, time);
+					target = null;
+				}
+				else if(nameEquals(nameStart, nameEnd, RTE)) {
+					inFirstRoute = false;
+				}
+				else if(nameEquals(nameStart, nameEnd, TRK)) {
+					inFirstTrack = false;
+				}
+				position = end + 1;
+			}
+			else if((inFirstTrack && nameEquals(nameStart, nameEnd, TRKPT)) ||
+					(inFirstRoute && nameEquals(nameStart, nameEnd, RTEPT))) {
+				latitude = attributeAsDouble(nameEnd, end, LAT);
+				longitude = attributeAsDouble(nameEnd, end, LON);
+				elevation = Float.NaN;
+				time = TrackGeometry.NO_TIME;
+				position = end + 1;
+				// Points without valid coordinates are ignored
+				if(!Double.isNaN(latitude) && !Double.isNaN(longitude)) {
+					TrackGeometry.Builder points = inFirstTrack ? trackPoints : routePoints;
+					if(isEmptyElement) {
+						points.add(latitude, longitude, elevation, time);
+					}
+					else {
+						target = points;
+					}
+				}
+			}
+			else if(target != null && !isEmptyElement && nameEquals(nameStart, nameEnd, ELE)) {
+				position = end + 1;
+				int length = textLength();
+				elevation = (float) parseDouble(buffer, position, position + length);
+				position += length;
+			}
+			else if(target != null && !isEmptyElement && nameEquals(nameStart, nameEnd, TIME)) {
+				position = end + 1;
+				int length = textLength();
+				time = parseTime(buffer, position, position + length);
+				position += length;
+			}
+			else {
+				if(nameEquals(nameStart, nameEnd, RTE)) {
+					routes++;
+					inFirstRoute = (routes == 1) && !isEmptyElement;
+				}
+				else if(nameEquals(nameStart, nameEnd, TRK)) {
+					tracks++;
+					inFirstTrack = (tracks == 1) && !isEmptyElement;
+				}
+				position = end + 1;
+			}
+		}
+
+		return (routes > 0) ? routePoints.build() : trackPoints.build();
+	}
+
+	/**
+	 * Rejects byte order marks of encodings which are not compatible with ASCII.
+	 */
+	private void checkEncoding() throws IOException {
+		if(ensure(2)) {
+			int b0 = buffer[position] & 0xFF;
+			int b1 = buffer[position + 1] & 0xFF;
+			if((b0 == 0xFE && b1 == 0xFF) || (b0 == 0xFF && b1 == 0xFE) || b0 == 0 || b1 == 0) {
+				throw new UnsupportedEncodingException("Unsupported encoding, only ASCII compatible encodings can be read");
+			}
+		}
+	}
+
+	/**
+	 * Makes sure that at least {@code count} bytes are available starting at {@code position}.
+	 *
+	 * Already consumed bytes are discarded and the buffer is enlarged if necessary.
+	 * Attention: Indices into the buffer are invalidated!
+	 *
+	 * @return false if the stream ends before
+	 */
+	private boolean ensure(final int count) throws IOException {
+		while(limit - position < count) {
+			if(endOfStream) {
+				return false;
+			}
+			if(position > 0) {
+				System.arraycopy(buffer, position, buffer, 0, limit - position);
+				limit -= position;
+				position = 0;
+			}
+			if(limit == buffer.length) {
+				byte[] larger = new byte[buffer.length * 2];
+				System.arraycopy(buffer, 0, larger, 0, limit);
+				buffer = larger;
+			}
+			int read = in.read(buffer, limit, buffer.length - limit);
+			if(read < 0) {
+				endOfStream = true;
+			}
+			else {
+				limit += read;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Advances {@code position} to the next occurrence of the given byte.
+	 *
+	 * @return false if the stream ends before
+	 */
+	private boolean skipTo(final byte value) throws IOException {
+		while(true) {
+			for(int idx = position; idx < limit; idx++) {
+				if(buffer[idx] == value) {
+					position = idx;
+					return true;
+				}
+			}
+			position = limit;
+			if(!ensure(1)) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Advances {@code position} behind the next occurrence of the given sequence.
+	 */
+	private void skipPast(final byte[] sequence) throws IOException {
+		while(skipTo(sequence[0])) {
+			if(!ensure(sequence.length)) {
+				position = limit;
+				return;
+			}
+			if(startsWith(sequence)) {
+				position += sequence.length;
+				return;
+			}
+			position++;
+		}
+	}
+
+	/**
+	 * Advances {@code position} behind the end of the current tag.
+	 */
+	private void skipTag() throws IOException {
+		int end = tagEnd();
+		position = (end < 0) ? limit : end + 1;
+	}
+
+	private boolean startsWith(final byte[] sequence) throws IOException {
+		if(!ensure(sequence.length)) {
+			return false;
+		}
+		for(int idx = 0; idx < sequence.length; idx++) {
+			if(buffer[position + idx] != sequence[idx]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Finds the {@code '>'} which closes the tag starting at {@code position}.
+	 * Attribute values may contain {@code '>'}, they are skipped.
+	 *
+	 * @return The index of the {@code '>'} or -1 if the stream ends before.
+	 */
+	private int tagEnd() throws IOException {
+		int offset = 0;
+		byte quote = 0;
+		while(true) {
+			if(position + offset >= limit && !ensure(offset + 1)) {
+				return -1;
+			}
+			byte value = buffer[position + offset];
+			if(quote != 0) {
+				if(value == quote) {
+					quote = 0;
+				}
+			}
+			else if(value == '"' || value == '\'') {
+				quote = value;
+			}
+			else if(value == '>') {
+				return position + offset;
+			}
+			offset++;
+		}
+	}
+
+	/**
+	 * Makes sure the text up to the next tag is in the buffer.
+	 *
+	 * @return The length of the text starting at {@code position}.
+	 */
+	private int textLength() throws IOException {
+		int offset = 0;
+		while(true) {
+			if(position + offset >= limit && !ensure(offset + 1)) {
+				break;
+			}
+			if(buffer[position + offset] == '<') {
+				break;
+			}
+			offset++;
+		}
+		return offset;
+	}
+
+	/**
+	 * Searches the attributes between {@code from} and {@code to} for the given
+	 * attribute and parses its value as a double.
+	 *
+	 * @return The value or {@code NaN} if the attribute is missing or not a valid number.
+	 */
+	private double attributeAsDouble(final int from, final int to, final byte[] name) {
+		int idx = from;
+		while(idx < to) {
+			// Skip white space
+			while(idx < to && (buffer[idx] <= ' ' || buffer[idx] == '/')) {
+				idx++;
+			}
+			int nameStart = idx;
+			while(idx < to && buffer[idx] != '=' && buffer[idx] > ' ') {
+				idx++;
+			}
+			int nameEnd = idx;
+			while(idx < to && buffer[idx] != '"' && buffer[idx] != '\'') {
+				idx++;
+			}
+			if(idx >= to) {
+				break;
+			}
+			byte quote = buffer[idx++];
+			int valueStart = idx;
+			while(idx < to && buffer[idx] != quote) {
+				idx++;
+			}
+			int valueEnd = idx++;
+			if(nameEquals(localNameStart(nameStart, nameEnd), nameEnd, name)) {
+				return parseDouble(buffer, valueStart, valueEnd);
+			}
+		}
+		return Double.NaN;
+	}
+
+	private int localNameStart(final int from, final int to) {
+		for(int idx = to - 1; idx >= from; idx--) {
+			if(buffer[idx] == ':') {
+				return idx + 1;
+			}
+		}
+		return from;
+	}
+
+	private boolean nameEquals(final int from, final int to, final byte[] name) {
+		if(to - from != name.length) {
+			return false;
+		}
+		for(int idx = 0; idx < name.length; idx++) {
+			if(buffer[from + idx] != name[idx]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isNameDelimiter(final byte value) {
+		return value <= ' ' || value == '/' || value == '>';
+	}
+
+	/**
+	 * Parses a decimal number without creating any objects.
+	 *
+	 * Numbers with more than {@link MAX_FAST_DIGITS} digits or with an exponent
+	 * are handed to {@link Double#parseDouble}.
+	 *
+	 * @return The value or {@code NaN} if the text is not a valid number.
+	 */
+	static double parseDouble(final byte[] text, final int from, final int to) {
+		int start = from;
+		int end = to;
+		while(start < end && text[start] <= ' ') {
+			start++;
+		}
+		while(end > start && text[end - 1] <= ' ') {
+			end--;
+		}
+
+		int idx = start;
+		boolean negative = false;
+		if(idx < end && (text[idx] == '-' || text[idx] == '+')) {
+			negative = (text[idx] == '-');
+			idx++;
+		}
+
+		long mantissa = 0;
+		int digits = 0;
+		int fractionDigits = 0;
+		boolean fraction = false;
+		for(; idx < end; idx++) {
+			byte value = text[idx];
+			if(value >= '0' && value <= '9') {
+				mantissa = mantissa * 10 + (value - '0');
+				digits++;
+				if(fraction) {
+					fractionDigits++;
+				}
+			}
+			else if(value == '.' && !fraction) {
+				fraction = true;
+			}
+			else {
+				break;
+			}
+		}
+
+		if(idx == end && digits > 0 && digits <= MAX_FAST_DIGITS) {
+			// Both values are exactly representable, hence the division is correctly rounded
+			double result = mantissa / POWERS_OF_TEN[fractionDigits];
+			return negative ? -result : result;
+		}
+
+		try {
+			return Double.parseDouble(new String(text, start, end - start, StandardCharsets.ISO_8859_1));
+		} catch(NumberFormatException e) {
+			return Double.NaN;
+		}
+	}
+
+	/**
+	 * Parses a time stamp of the form {@code 2012-02-25T09:28:45.123+01:00} without
+	 * creating any objects. Fractions of a second and the time zone are optional,
+	 * without a time zone UTC is assumed.
+	 *
+	 * @return Milliseconds since the epoch or {@link TrackGeometry#NO_TIME} if the text is not a valid time stamp.
+	 */
+	static long parseTime(final byte[] text, final int from, final int to) {
+		int start = from;
+		int end = to;
+		while(start < end && text[start] <= ' ') {
+			start++;
+		}
+		while(end > start && text[end - 1] <= ' ') {
+			end--;
+		}
+		if(end - start < 19 || text[start + 4] != '-' || text[start + 7] != '-' ||
+				(text[start + 10] != 'T' && text[start + 10] != ' ') ||
+				text[start + 13] != ':' || text[start + 16] != ':') {
+			return TrackGeometry.NO_TIME;
+		}
+
+		int year = digits(text, start, 4);
+		int month = digits(text, start + 5, 2);
+		int day = digits(text, start + 8, 2);
+		int hour = digits(text, start + 11, 2);
+		int minute = digits(text, start + 14, 2);
+		int second = digits(text, start + 17, 2);
+		if(year < 0 || month < 1 || month > 12 || day < 1 || day > 31 ||
+				hour < 0 || hour > 24 || minute < 0 || minute > 59 || second < 0 || second > 60) {
+			return TrackGeometry.NO_TIME;
+		}
+
+		int idx = start + 19;
+		int millis = 0;
+		if(idx < end && text[idx] == '.') {
+			idx++;
+			int scale = 100;
+			while(idx < end && text[idx] >= '0' && text[idx] <= '9') {
+				millis += (text[idx] - '0') * scale;
+				scale /= 10;
+				idx++;
+			}
+		}
+
+		int offsetMinutes = 0;
+		if(idx < end) {
+			if(text[idx] == 'Z') {
+				idx++;
+			}
+			else if((text[idx] == '+' || text[idx] == '-') && end - idx >= 3) {
+				int sign = (text[idx] == '-') ? -1 : 1;
+				int offsetHours = digits(text, idx + 1, 2);
+				idx += 3;
+				if(idx < end && text[idx] == ':') {
+					idx++;
+				}
+				int offsetMinute = (end - idx >= 2) ? digits(text, idx, 2) : 0;
+				if(end - idx >= 2) {
+					idx += 2;
+				}
+				if(offsetHours < 0 || offsetMinute < 0) {
+					return TrackGeometry.NO_TIME;
+				}
+				offsetMinutes = sign * (offsetHours * 60 + offsetMinute);
+			}
+			if(idx != end) {
+				return TrackGeometry.NO_TIME;
+			}
+		}
+
+		long days = daysSinceEpoch(year, month, day);
+		long seconds = ((days * 24 + hour) * 60 + minute - offsetMinutes) * 60 + second;
+		return seconds * 1000 + millis;
+	}
+
+	/**
+	 * @return The value of the given number of decimal digits or -1 if there is any other character.
+	 */
+	private static int digits(final byte[] text, final int from, final int count) {
+		int value = 0;
+		for(int idx = from; idx < from + count; idx++) {
+			if(text[idx] < '0' || text[idx] > '9') {
+				return -1;
+			}
+			value = value * 10 + (text[idx] - '0');
+		}
+		return value;
+	}
+
+	/**
+	 * Number of days between 1970-01-01 and the given date of the proleptic Gregorian calendar.
+	 */
+	private static long daysSinceEpoch(final long year, final int month, final int day) {
+		long y = (month <= 2) ? year - 1 : year;
+		long era = (y >= 0 ? y : y - 399) / 400;
+		long yearOfEra = y - era * 400;
+		long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+		long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097 + dayOfEra - 719468;
+	}
+
+	private static byte[] ascii(final String value) {
+		return value.getBytes(StandardCharsets.US_ASCII);
+	}
+}
@@ -1,9 +1,9 @@
 package org.trackexplorer.service.track;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 import org.alternativevision.gpx.beans.Waypoint;
+import org.trackexplorer.model.TrackGeometry;
 
 /**
  * Helper functions for computing various properties (e.g. total distance) of a track.
@@ -14,11 +14,16 @@ public class GPXHelperFunctions {
 	public static double Km = 1.0 / 1000.0;
 	
 	public static double DistanceInMeter(final Waypoint p1, final Waypoint p2) {
+		return DistanceInMeter(p1.getLatitude(), p1.getLongitude(), p2.getLatitude(), p2.getLongitude());
+	}
+	
+	public static double DistanceInMeter(final double latitude1, final double longitude1,
+			final double latitude2, final double longitude2) {
 		final double R = 6371000;
-		double phi1 = Math.toRadians(p1.getLatitude());
-		double phi2 = Math.toRadians(p2.getLatitude());
-		double delta_phi = Math.toRadians(p2.getLatitude()-p1.getLatitude());
-		double delta_lambda = Math.toRadians(p2.getLongitude()-p1.getLongitude());
+		double phi1 = Math.toRadians(latitude1);
+		double phi2 = Math.toRadians(latitude2);
+		double delta_phi = Math.toRadians(latitude2-latitude1);
+		double delta_lambda = Math.toRadians(longitude2-longitude1);
 
 		double a = Math.sin(delta_phi/2) * Math.sin(delta_phi/2) +
 		        Math.cos(phi1) * Math.cos(phi2) *
@@ -35,39 +40,109 @@ public class GPXHelperFunctions {
 	}	
 	
 	public static double ComputeTotalDistance(final List<Waypoint> waypoints) {
-		if(waypoints.size() > 1) {
-			return MSF.Join(waypoints, waypoints.subList(1, waypoints.size()), GPXHelperFunctions::DistanceInMeter).stream()
-					.reduce(0.0,Double::sum);
-		}
-		else {
-			return 0.0;
+		double total = 0.0;
+		Waypoint previous = null;
+		for(Waypoint waypoint : waypoints) {
+			if(previous != null) {
+				total += DistanceInMeter(previous, waypoint);
+			}
+			previous = waypoint;
 		}
+		return total;
 	}
 
 	public static double ComputeTotalElevation(final List<Waypoint> waypoints) {
-		if(waypoints.size() > 1) {
-			// Remove all waypoints for which no elevation is given
-			List<Waypoint> points = waypoints.stream()
-					.filter(p -> (p.getElevation() != null))
-					.collect(Collectors.toList());
-
-			// If there are no points, return immediately
-			if(points.size() == 0) {
-				return 0.0;
+		if(waypoints.size() <= 1) {
+			return 0.0;
+		}
+		
+		// Compute average elevation threshold over all points with elevation
+		double sum = 0.0;
+		int count = 0;
+		for(Waypoint waypoint : waypoints) {
+			if(waypoint.getElevation() != null) {
+				sum += waypoint.getElevation();
+				count++;
+			}
+		}
+		
+		// If there are no points, return immediately
+		if(count == 0) {
+			return 0.0;
+		}
+		double averageElevationThreshold = (sum / count) * 0.25;
+		
+		// Filter elevation deltas between consecutive points with elevation and compute total
+		double total = 0.0;
+		Waypoint previous = null;
+		for(Waypoint waypoint : waypoints) {
+			if(waypoint.getElevation() == null) {
+				continue;
+			}
+			if(previous != null) {
+				double delta = Elevation(waypoint, previous);
+				if(delta < averageElevationThreshold) {
+					total += delta;
+				}
+			}
+			previous = waypoint;
+		}
+		return total;
+	}
+	
+	/**
+	 * Same as {@link ComputeTotalDistance(List)} but works directly
+	 * on the primitive columns, no objects are created.
+	 */
+	public static double ComputeTotalDistance(final TrackGeometry geometry) {
+		double total = 0.0;
+		for(int idx = 1; idx < geometry.size(); idx++) {
+			total += DistanceInMeter(geometry.getLatitude(idx - 1), geometry.getLongitude(idx - 1),
+					geometry.getLatitude(idx), geometry.getLongitude(idx));
+		}
+		return total;
+	}
+	
+	/**
+	 * Same as {@link ComputeTotalElevation(List)} but works directly
+	 * on the primitive columns, no objects are created.
+	 */
+	public static double ComputeTotalElevation(final TrackGeometry geometry) {
+		if(geometry.size() <= 1) {
+			return 0.0;
+		}
+		
+		// Compute average elevation threshold over all points with elevation
+		double sum = 0.0;
+		int count = 0;
+		for(int idx = 0; idx < geometry.size(); idx++) {
+			if(geometry.hasElevation(idx)) {
+				sum += geometry.getElevation(idx);
+				count++;
 			}
-
-			// Compute average elevation threshold
-			double averageElevationThreshold = points.stream()
-					.mapToDouble(Waypoint::getElevation)
-					.average().orElse(0.0) * 0.25;
-
-			// Filter elevation deltas and compute total
-			return MSF.Join(points.subList(1, points.size()), points, GPXHelperFunctions::Elevation).stream()
-					.filter(delta -> delta < averageElevationThreshold)
-					.reduce(0.0,Double::sum);
 		}
-		else {
+		if(count == 0) {
 			return 0.0;
 		}
+		double averageElevationThreshold = (sum / count) * 0.25;
+		
+		// Sum up the positive elevation deltas between consecutive points with elevation
+		double total = 0.0;
+		double previous = Double.NaN;
+		for(int idx = 0; idx < geometry.size(); idx++) {
+			if(!geometry.hasElevation(idx)) {
+				continue;
+			}
+			double current = geometry.getElevation(idx);
+			if(!Double.isNaN(previous)) {
+				double delta = current - previous;
+				delta = (delta > 0 ? delta : 0.0);
+				if(delta < averageElevationThreshold) {
+					total += delta;
+				}
+			}
+			previous = current;
+		}
+		return total;
 	}
 }
@@ -0,0 +1,308 @@
+package org.trackexplorer.service.track;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Watches the folders of some locations for changes with a {@link WatchService}.
+ *
+ * A {@link WatchService} only reports changes of the direct children of a
+ * folder, so every folder below the locations is registered. Folders which
+ * are created later are registered as soon as they are reported.
+ *
+ * The changes are collected on a daemon thread until there were no new
+ * changes for {@link QUIET_PERIOD_MS}, such that a file which is written
+ * in several steps is only reported once. Changes which keep coming, e.g.
+ * of a file which is continuously appended, are reported anyway once the
+ * first of them is {@link MAX_BATCH_AGE_MS} old. The changed paths are reported
+ * as they are, they might be files or folders, existing or deleted. If
+ * changes were lost, the locations themselves are reported.
+ *
+ * Walking the folders of a location may take a while, so the locations are
+ * added and removed in the background by a {@link registration} thread.
+ * Changes are reported as soon as the folders of a location are registered.
+ */
+class LocationWatcher {
+	/**
+	 * Changes are reported once no new changes occurred for this time.
+	 */
+	static final long QUIET_PERIOD_MS = 300;
+
+	/**
+	 * Changes are reported at the latest after this time, even if new changes keep occurring.
+	 */
+	static final long MAX_BATCH_AGE_MS = 5000;
+
+	/**
+	 * The idle {@link registration} thread is ended after this time.
+	 */
+	private static final long REGISTRATION_KEEP_ALIVE_MS = 10000;
+
+	private static final AtomicInteger threadCount = new AtomicInteger();
+
+	private final WatchService watchService;
+	private final Consumer<Set<Path>> changeCallback;
+	private final Thread thread;
+
+	/**
+	 * Adds and removes the locations one after the other.
+	 */
+	private final ThreadPoolExecutor registration;
+
+	/**
+	 * The registered folders.
+	 */
+	private final Map<WatchKey, Path> folders = new ConcurrentHashMap<>();
+
+	/**
+	 * The watched locations, only replaced by the {@link registration} thread.
+	 */
+	private volatile List<Path> locations = new ArrayList<>();
+
+	/**
+	 * @param changeCallback Receives the changed paths, called from the thread of the watcher.
+	 * @throws IOException If the file system cannot be watched.
+	 */
+	LocationWatcher(final Consumer<Set<Path>> changeCallback) throws IOException {
+		this.watchService = FileSystems.getDefault().newWatchService();
+		this.changeCallback = changeCallback;
+		this.thread = new Thread(this::run, "TrackWatcher-" + threadCount.incrementAndGet());
+		this.thread.setDaemon(true);
+		this.registration = createRegistration();
+	}
+
+	private static ThreadPoolExecutor createRegistration() {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1,
+				REGISTRATION_KEEP_ALIVE_MS, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+					Thread thread = new Thread(runnable, "TrackWatcherRegistration-" + threadCount.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	/**
+	 * Watches the given locations as well, returns immediately.
+	 *
+	 * Locations which are already watched are skipped.
+	 */
+	void addLocations(final Collection<Path> added) {
+		List<Path> copy = new ArrayList<>(added);
+		execute(() -> {
+			List<Path> locations = new ArrayList<>(this.locations);
+			List<Path> registered = new ArrayList<>();
+			for(Path location : copy) {
+				if(!locations.contains(location)) {
+					locations.add(location);
+					registered.add(location);
+				}
+			}
+			this.locations = locations;
+			for(Path location : registered) {
+				register(location, null);
+			}
+		});
+	}
+
+	/**
+	 * No longer watches the given locations, returns immediately.
+	 *
+	 * Folders which belong to one of the other locations stay watched.
+	 */
+	void removeLocations(final Collection<Path> removed) {
+		List<Path> copy = new ArrayList<>(removed);
+		execute(() -> {
+			List<Path> locations = new ArrayList<>(this.locations);
+			locations.removeAll(copy);
+			this.locations = locations;
+
+			folders.entrySet().removeIf(folder -> {
+				if(locationOf(folder.getValue()) == null) {
+					folder.getKey().cancel();
+					return true;
+				}
+				return false;
+			});
+		});
+	}
+
+	/**
+	 * Waits until all locations added or removed before are registered.
+	 */
+	void await() throws InterruptedException {
+		try {
+			registration.submit(() -> {}).get();
+		} catch (ExecutionException | RejectedExecutionException e) {
+			// Stopped
+		}
+	}
+
+	private void execute(final Runnable task) {
+		try {
+			registration.execute(task);
+		} catch (RejectedExecutionException e) {
+			// Stopped
+		}
+	}
+
+	void start() {
+		thread.start();
+	}
+
+	/**
+	 * Stops watching, changes which are not reported yet are dropped.
+	 */
+	void stop() {
+		registration.shutdownNow();
+		try {
+			watchService.close();
+		} catch (IOException e) {
+			// Closed anyway
+		}
+		thread.interrupt();
+	}
+
+	private void run() {
+		try {
+			while(true) {
+				WatchKey key = watchService.take();
+				long start = System.nanoTime();
+				Set<Path> changes = new LinkedHashSet<>();
+				boolean overflow = false;
+				while(key != null) {
+					overflow |= collect(key, changes);
+					long remaining = TimeUnit.MILLISECONDS.toNanos(MAX_BATCH_AGE_MS) - (System.nanoTime() - start);
+					if(remaining <= 0) {
+						// Further changes are collected for the next batch
+						break;
+					}
+					key = watchService.poll(Math.min(TimeUnit.MILLISECONDS.toNanos(QUIET_PERIOD_MS), remaining), TimeUnit.NANOSECONDS);
+				}
+
+				if(overflow) {
+					changes.clear();
+					changes.addAll(this.locations);
+				}
+				if(!changes.isEmpty()) {
+					report(changes);
+				}
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			// Stopped
+		}
+	}
+
+	/**
+	 * Adds the paths of all events of the given key to the changes.
+	 *
+	 * @return True if events were lost.
+	 */
+	private boolean collect(final WatchKey key, final Set<Path> changes) {
+		Path folder = folders.get(key);
+		boolean overflow = false;
+		for(WatchEvent<?> event : key.pollEvents()) {
+			if(event.kind() == StandardWatchEventKinds.OVERFLOW) {
+				overflow = true;
+			}
+			else if(folder != null) {
+				Path path = folder.resolve((Path) event.context());
+				changes.add(path);
+				if(event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+					// Files created before the folder was registered are found when the folder is searched
+					register(path, changes);
+				}
+			}
+		}
+
+		if(!key.reset()) {
+			// The folder was deleted
+			folders.remove(key);
+			if(folder != null) {
+				changes.add(folder);
+			}
+		}
+		return overflow;
+	}
+
+	/**
+	 * Registers the given folder and all folders below it.
+	 * Folders which cannot be registered are skipped.
+	 *
+	 * @param changes Receives the registered folders, may be null.
+	 */
+	private void register(final Path root, final Set<Path> changes) {
+		try {
+			Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult preVisitDirectory(Path folder, BasicFileAttributes attributes) {
+					try {
+						WatchKey key = folder.register(watchService,
+								StandardWatchEventKinds.ENTRY_CREATE,
+								StandardWatchEventKinds.ENTRY_DELETE,
+								StandardWatchEventKinds.ENTRY_MODIFY);
+						folders.put(key, folder);
+						if(changes != null) {
+							changes.add(folder);
+						}
+					} catch (IOException | ClosedWatchServiceException e) {
+						return FileVisitResult.SKIP_SUBTREE;
+					}
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFileFailed(Path file, IOException e) {
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} catch (IOException e) {
+			// The location does not exist (yet)
+		}
+	}
+
+	/**
+	 * @return The location the path belongs to or null.
+	 */
+	private Path locationOf(final Path path) {
+		for(Path location : this.locations) {
+			if(path.startsWith(location)) {
+				return location;
+			}
+		}
+		return null;
+	}
+
+	private void report(final Set<Path> changes) {
+		try {
+			changeCallback.accept(changes);
+		} catch (RuntimeException e) {
+			System.out.println("COULD NOT UPDATE TRACKS!");
+			e.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,168 @@
+package org.trackexplorer.service.track;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A sorted list of track numbers, used by the inverted indices
+ * {@link TrackNameIndex} and {@link TrackCellIndex}.
+ *
+ * Numbers are only appended in ascending order. Each number is stored as
+ * the difference to its predecessor in as few bytes as possible, seven bits
+ * per byte like the varints of the {@link TrackStore}. Tracks added at about
+ * the same time are close to each other, so most numbers take a single byte.
+ *
+ * As the numbers can only be read in order, every {@link SKIP_INTERVAL} numbers
+ * a checkpoint is kept, which allows {@link Cursor#skipTo} to jump ahead
+ * when intersecting a short list with a long one.
+ *
+ * Not thread safe, the indices synchronize the access.
+ */
+class PostingList {
+	static final int SKIP_INTERVAL = 64;
+
+	private byte[] bytes = new byte[4];
+	private int length;
+	private int size;
+	private int last = -1;
+
+	/**
+	 * The number before each checkpoint and the position of the following number.
+	 */
+	private int[] checkpointNumbers;
+	private int[] checkpointPositions;
+	private int checkpoints;
+
+	/**
+	 * Appends a number which is not smaller than the numbers added before.
+	 * A number equal to the last one is ignored.
+	 */
+	void add(final int number) {
+		if(number == last) {
+			return;
+		}
+		if(length + 5 > bytes.length) {
+			bytes = Arrays.copyOf(bytes, Math.max(length + 5, bytes.length * 2));
+		}
+		if(size > 0 && size % SKIP_INTERVAL == 0) {
+			addCheckpoint();
+		}
+		int delta = number - last;
+		while((delta & ~0x7F) != 0) {
+			bytes[length++] = (byte) ((delta & 0x7F) | 0x80);
+			delta >>>= 7;
+		}
+		bytes[length++] = (byte) delta;
+		last = number;
+		size++;
+	}
+
+	private void addCheckpoint() {
+		if(checkpointNumbers == null) {
+			checkpointNumbers = new int[4];
+			checkpointPositions = new int[4];
+		}
+		else if(checkpoints == checkpointNumbers.length) {
+			checkpointNumbers = Arrays.copyOf(checkpointNumbers, checkpoints * 2);
+			checkpointPositions = Arrays.copyOf(checkpointPositions, checkpoints * 2);
+		}
+		checkpointNumbers[checkpoints] = last;
+		checkpointPositions[checkpoints] = length;
+		checkpoints++;
+	}
+
+	/**
+	 * @return The number of numbers in the list.
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Sets the bits of all numbers in the list.
+	 */
+	void addTo(final BitSet numbers) {
+		Cursor cursor = cursor();
+		for(int number = cursor.next(); number >= 0; number = cursor.next()) {
+			numbers.set(number);
+		}
+	}
+
+	/**
+	 * Creates a list with the numbers replaced, e.g. after the tracks have been numbered again.
+	 *
+	 * @param replacements The new number for each number, negative to leave it out.
+	 * The new numbers have to be in the same order as the old ones.
+	 * @return The new list, null if it is empty.
+	 */
+	PostingList replace(final int[] replacements) {
+		PostingList list = new PostingList();
+		Cursor cursor = cursor();
+		for(int number = cursor.next(); number >= 0; number = cursor.next()) {
+			if(replacements[number] >= 0) {
+				list.add(replacements[number]);
+			}
+		}
+		return (list.size > 0) ? list : null;
+	}
+
+	/**
+	 * @return A cursor positioned before the first number.
+	 */
+	Cursor cursor() {
+		return new Cursor();
+	}
+
+	/**
+	 * Reads the numbers of the list in ascending order.
+	 */
+	class Cursor {
+		private int position;
+		private int current = -1;
+		private int nextCheckpoint;
+
+		/**
+		 * @return The next number, -1 if there is none.
+		 */
+		int next() {
+			if(position >= length) {
+				current = Integer.MAX_VALUE;
+				return -1;
+			}
+			int delta = 0;
+			int shift = 0;
+			byte value;
+			do {
+				value = bytes[position++];
+				delta |= (value & 0x7F) << shift;
+				shift += 7;
+			} while(value < 0);
+			current += delta;
+			return current;
+		}
+
+		/**
+		 * Moves forward to the first number which is not smaller than the given one.
+		 * The cursor stays if the current number is large enough already.
+		 *
+		 * @return That number, -1 if there is none.
+		 */
+		int skipTo(final int number) {
+			// The last checkpoint before the number, if ahead of the cursor
+			int checkpoint = nextCheckpoint;
+			while(nextCheckpoint < checkpoints && checkpointNumbers[nextCheckpoint] < number) {
+				nextCheckpoint++;
+			}
+			if(nextCheckpoint > checkpoint && checkpointPositions[nextCheckpoint - 1] > position) {
+				position = checkpointPositions[nextCheckpoint - 1];
+				current = checkpointNumbers[nextCheckpoint - 1];
+			}
+			while(current < number) {
+				if(next() < 0) {
+					return -1;
+				}
+			}
+			return (current != Integer.MAX_VALUE) ? current : -1;
+		}
+	}
+}
@@ -0,0 +1,209 @@
+package org.trackexplorer.service.track;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A static R-tree over bounding boxes, packed with the
+ * Sort-Tile-Recursive (STR) algorithm.
+ *
+ * The boxes are grouped into nodes of at most {@link NODE_CAPACITY}
+ * entries. On each level the entries are sorted by the longitude of their
+ * center into vertical slices, within a slice by the latitude of their center
+ * and are then packed into nodes. This results in nodes with small and hardly
+ * overlapping boxes, such that a query only needs to visit few nodes.
+ *
+ * The tree is immutable, changes require to build a new tree.
+ * All boxes and child ranges are stored in primitive arrays.
+ *
+ * @param <T> The type of the values stored along with the boxes.
+ */
+class STRTree<T> {
+	/**
+	 * Maximum number of entries per node.
+	 */
+	static final int NODE_CAPACITY = 16;
+
+	/**
+	 * The values, in the order of the leaf level.
+	 */
+	private final Object[] values;
+
+	/**
+	 * {@code boxes[0]} holds the boxes of the values, {@code boxes[level]} the
+	 * boxes of the nodes of the given level. Four doubles per box:
+	 * minimum latitude, minimum longitude, maximum latitude, maximum longitude.
+	 */
+	private final double[][] boxes;
+
+	/**
+	 * {@code children[level]} holds for each node of the given level the
+	 * first and the last (exclusive) index of its entries in {@code boxes[level - 1]}.
+	 * {@code children[0]} is unused.
+	 */
+	private final int[][] children;
+
+	/**
+	 * Builds the tree.
+	 *
+	 * @param values The values.
+	 * @param valueBoxes The boxes of the values, four doubles per value, see {@link boxes}.
+	 */
+	STRTree(final List<T> values, final double[] valueBoxes) {
+		if(valueBoxes.length != values.size() * 4) {
+			throw new IllegalArgumentException("Four coordinates per value are needed");
+		}
+
+		List<double[]> levelBoxes = new ArrayList<>();
+		List<int[]> levelChildren = new ArrayList<>();
+
+		// Leaf level: reorder the values themselves
+		int[] order = sortTileRecursive(valueBoxes, values.size());
+		this.values = new Object[values.size()];
+		double[] sortedBoxes = new double[valueBoxes.length];
+		for(int idx = 0; idx < order.length; idx++) {
+			this.values[idx] = values.get(order[idx]);
+			System.arraycopy(valueBoxes, order[idx] * 4, sortedBoxes, idx * 4, 4);
+		}
+		levelBoxes.add(sortedBoxes);
+		levelChildren.add(new int[0]);
+
+		// Build the levels above until there is a single root node
+		int count = values.size();
+		int[] ranges = null;
+		while(count > 1 || levelBoxes.size() == 1) {
+			double[] lower = levelBoxes.get(levelBoxes.size() - 1);
+			if(ranges != null) {
+				// Reorder the nodes of the lower level, their children move with them
+				order = sortTileRecursive(lower, count);
+				double[] sortedLower = new double[lower.length];
+				int[] sortedRanges = new int[ranges.length];
+				for(int idx = 0; idx < order.length; idx++) {
+					System.arraycopy(lower, order[idx] * 4, sortedLower, idx * 4, 4);
+					System.arraycopy(ranges, order[idx] * 2, sortedRanges, idx * 2, 2);
+				}
+				lower = sortedLower;
+				levelBoxes.set(levelBoxes.size() - 1, sortedLower);
+				levelChildren.set(levelChildren.size() - 1, sortedRanges);
+			}
+
+			int nodes = Math.max((count + NODE_CAPACITY - 1) / NODE_CAPACITY, 1);
+			double[] upper = new double[nodes * 4];
+			ranges = new int[nodes * 2];
+			for(int node = 0; node < nodes; node++) {
+				int start = node * NODE_CAPACITY;
+				int end = Math.min(start + NODE_CAPACITY, count);
+				ranges[node * 2] = start;
+				ranges[node * 2 + 1] = end;
+				upper[node * 4] = Double.POSITIVE_INFINITY;
+				upper[node * 4 + 1] = Double.POSITIVE_INFINITY;
+				upper[node * 4 + 2] = Double.NEGATIVE_INFINITY;
+				upper[node * 4 + 3] = Double.NEGATIVE_INFINITY;
+				for(int idx = start; idx < end; idx++) {
+					upper[node * 4] = Math.min(upper[node * 4], lower[idx * 4]);
+					upper[node * 4 + 1] = Math.min(upper[node * 4 + 1], lower[idx * 4 + 1]);
+					upper[node * 4 + 2] = Math.max(upper[node * 4 + 2], lower[idx * 4 + 2]);
+					upper[node * 4 + 3] = Math.max(upper[node * 4 + 3], lower[idx * 4 + 3]);
+				}
+			}
+			levelBoxes.add(upper);
+			levelChildren.add(ranges);
+			count = nodes;
+		}
+
+		this.boxes = levelBoxes.toArray(new double[levelBoxes.size()][]);
+		this.children = levelChildren.toArray(new int[levelChildren.size()][]);
+	}
+
+	/**
+	 * @return The number of values.
+	 */
+	int size() {
+		return values.length;
+	}
+
+	/**
+	 * Returns all values whose box intersects the given box.
+	 * Boxes which only touch the given box are included.
+	 */
+	@SuppressWarnings("unchecked")
+	List<T> query(final double minLatitude, final double minLongitude,
+			final double maxLatitude, final double maxLongitude) {
+		List<T> result = new ArrayList<>();
+		if(values.length == 0) {
+			return result;
+		}
+
+		// Stack of (level, node) pairs which still have to be visited
+		int[] stack = new int[64];
+		int top = 0;
+		stack[top++] = boxes.length - 1;
+		stack[top++] = 0;
+		while(top > 0) {
+			int node = stack[--top];
+			int level = stack[--top];
+			double[] box = boxes[level];
+			if(!intersects(box, node, minLatitude, minLongitude, maxLatitude, maxLongitude)) {
+				continue;
+			}
+			int start = children[level][node * 2];
+			int end = children[level][node * 2 + 1];
+			if(level == 1) {
+				for(int idx = start; idx < end; idx++) {
+					if(intersects(boxes[0], idx, minLatitude, minLongitude, maxLatitude, maxLongitude)) {
+						result.add((T) values[idx]);
+					}
+				}
+			}
+			else {
+				if(top + 2 * (end - start) > stack.length) {
+					stack = Arrays.copyOf(stack, Math.max(stack.length * 2, top + 2 * (end - start)));
+				}
+				for(int idx = start; idx < end; idx++) {
+					stack[top++] = level - 1;
+					stack[top++] = idx;
+				}
+			}
+		}
+		return result;
+	}
+
+	private static boolean intersects(final double[] box, final int index,
+			final double minLatitude, final double minLongitude,
+			final double maxLatitude, final double maxLongitude) {
+		return box[index * 4] <= maxLatitude && box[index * 4 + 2] >= minLatitude &&
+				box[index * 4 + 1] <= maxLongitude && box[index * 4 + 3] >= minLongitude;
+	}
+
+	/**
+	 * Computes the order of the boxes according to the STR algorithm.
+	 *
+	 * @return The indices of the boxes in their new order.
+	 */
+	private static int[] sortTileRecursive(final double[] boxes, final int count) {
+		Integer[] order = new Integer[count];
+		for(int idx = 0; idx < count; idx++) {
+			order[idx] = idx;
+		}
+
+		Comparator<Integer> byLongitude = Comparator.comparingDouble(idx -> boxes[idx * 4 + 1] + boxes[idx * 4 + 3]);
+		Comparator<Integer> byLatitude = Comparator.comparingDouble(idx -> boxes[idx * 4] + boxes[idx * 4 + 2]);
+
+		int nodes = (count + NODE_CAPACITY - 1) / NODE_CAPACITY;
+		int slices = (int) Math.ceil(Math.sqrt(nodes));
+		int sliceSize = Math.max(slices * NODE_CAPACITY, 1);
+
+		Arrays.sort(order, byLongitude);
+		for(int start = 0; start < count; start += sliceSize) {
+			Arrays.sort(order, start, Math.min(start + sliceSize, count), byLatitude);
+		}
+
+		int[] result = new int[count];
+		for(int idx = 0; idx < count; idx++) {
+			result[idx] = order[idx];
+		}
+		return result;
+	}
+}
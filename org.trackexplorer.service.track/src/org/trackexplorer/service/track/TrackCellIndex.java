@@ -0,0 +1,255 @@
+package org.trackexplorer.service.track;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.trackexplorer.model.Bounds;
+import org.trackexplorer.model.GeoArea;
+import org.trackexplorer.model.LatLng;
+import org.trackexplorer.model.TrackGeometry;
+
+/**
+ * An inverted index from the cells of a grid to the tracks with
+ * points inside them, see {@link ITrackService#getGeoCandidates}.
+ *
+ * At level {@code l} the grid divides the latitudes and the longitudes
+ * into {@code 2^l} equal parts. The cells of a track are kept at each of the
+ * {@link LEVELS}, a search uses the finest level at which the bounds cover
+ * at most {@link MAX_SEARCH_CELLS} cells.
+ *
+ * A search covers the cells of the enclosing bounds of a {@link GeoArea}.
+ * Tracks with a point in a cell which lies completely inside the area
+ * definitely match. Only tracks with points in the cells on the border of
+ * the area need to be checked point by point, all other tracks have no
+ * point inside the area.
+ *
+ * The tracks of each cell are kept in a {@link PostingList}. The tracks
+ * are numbered in the order they are added, removed tracks keep their
+ * number until more than half of the numbers are unused.
+ *
+ * Thread safe.
+ */
+class TrackCellIndex {
+	/**
+	 * How a track relates to the area of a search, see {@link classify}.
+	 */
+	enum Match {
+		/**
+		 * The track has a point inside the area.
+		 */
+		INSIDE,
+
+		/**
+		 * The track has points close to the area, they need to be checked.
+		 */
+		BORDER,
+
+		/**
+		 * The track has no point inside the area.
+		 */
+		OUTSIDE,
+
+		/**
+		 * The track is not in the index.
+		 */
+		UNKNOWN
+	}
+
+	/**
+	 * At level 14 a cell is about a kilometer high.
+	 */
+	static final int[] LEVELS = {6, 10, 14};
+
+	private static final int FINEST_LEVEL = LEVELS[LEVELS.length - 1];
+
+	private static final int MAX_SEARCH_CELLS = 1024;
+
+	/**
+	 * The cells are extended by this distance in degrees before they are compared
+	 * to the area, such that rounding errors never turn a border cell into an inner one.
+	 */
+	private static final double MARGIN = 1e-9;
+
+	private final Map<Long, PostingList> postings = new HashMap<>();
+	private final Map<String, Integer> numberById = new HashMap<>();
+	private String[] ids = new String[16];
+	private int count;
+	private int removed;
+
+	/**
+	 * Adds a track or replaces its cells.
+	 */
+	synchronized void add(final String id, final TrackGeometry geometry) {
+		remove(id);
+		if(count == ids.length) {
+			ids = Arrays.copyOf(ids, count * 2);
+		}
+		int number = count++;
+		ids[number] = id;
+		numberById.put(id, number);
+
+		int[] rows = new int[geometry.size()];
+		int[] columns = new int[geometry.size()];
+		for(int idx = 0; idx < geometry.size(); idx++) {
+			rows[idx] = row(FINEST_LEVEL, geometry.getLatitude(idx));
+			columns[idx] = column(FINEST_LEVEL, geometry.getLongitude(idx));
+		}
+		long[] cells = new long[geometry.size()];
+		for(int level : LEVELS) {
+			int shift = FINEST_LEVEL - level;
+			for(int idx = 0; idx < cells.length; idx++) {
+				cells[idx] = cell(level, rows[idx] >> shift, columns[idx] >> shift);
+			}
+			// Each cell only once, a track stays in most cells for many points
+			Arrays.sort(cells);
+			for(int idx = 0; idx < cells.length; idx++) {
+				if(idx == 0 || cells[idx] != cells[idx - 1]) {
+					postings.computeIfAbsent(cells[idx], key -> new PostingList()).add(number);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes a track, unknown tracks are ignored.
+	 */
+	synchronized void remove(final String id) {
+		Integer number = numberById.remove(id);
+		if(number == null) {
+			return;
+		}
+		ids[number] = null;
+		removed++;
+		if(removed > count / 2) {
+			compact();
+		}
+	}
+
+	/**
+	 * @return True if the cells of the track are known.
+	 */
+	synchronized boolean contains(final String id) {
+		return numberById.containsKey(id);
+	}
+
+	/**
+	 * @return The number of tracks in the index.
+	 */
+	synchronized int size() {
+		return numberById.size();
+	}
+
+	/**
+	 * Determines which of the given tracks have a point inside the area,
+	 * as far as possible without their points.
+	 *
+	 * Cells which are inside the area according to {@link GeoArea#contains} are
+	 * inner cells, cells which do not intersect it according to {@link GeoArea#intersects}
+	 * are skipped. For {@link Bounds} a point on the border is not inside, like
+	 * {@link Bounds#isInside}.
+	 *
+	 * @return The match of each of the given tracks.
+	 */
+	synchronized List<Match> classify(final GeoArea area, final List<String> trackIds) {
+		Bounds bounds = area.getBounds();
+		double south = bounds.getSouthWest().getLatitude();
+		double west = bounds.getSouthWest().getLongitude();
+		double north = bounds.getNorthEast().getLatitude();
+		double east = bounds.getNorthEast().getLongitude();
+
+		int level = LEVELS[0];
+		for(int candidate : LEVELS) {
+			long cells = (long) (row(candidate, north) - row(candidate, south) + 1) *
+					(column(candidate, east) - column(candidate, west) + 1);
+			if(cells <= MAX_SEARCH_CELLS) {
+				level = candidate;
+			}
+		}
+
+		BitSet inside = new BitSet(count);
+		BitSet border = new BitSet(count);
+		double height = 180.0 / (1 << level);
+		double width = 360.0 / (1 << level);
+		for(int row = row(level, south); row <= row(level, north); row++) {
+			double minLatitude = row * height - 90.0;
+			for(int column = column(level, west); column <= column(level, east); column++) {
+				PostingList list = postings.get(cell(level, row, column));
+				if(list == null) {
+					continue;
+				}
+				double minLongitude = column * width - 180.0;
+				Bounds cell = new Bounds(new LatLng(minLatitude - MARGIN, minLongitude - MARGIN),
+						new LatLng(minLatitude + height + MARGIN, minLongitude + width + MARGIN));
+				if(area.contains(cell)) {
+					list.addTo(inside);
+				}
+				else if(area.intersects(cell)) {
+					list.addTo(border);
+				}
+			}
+		}
+
+		List<Match> result = new ArrayList<>(trackIds.size());
+		for(String id : trackIds) {
+			Integer number = numberById.get(id);
+			if(number == null) {
+				result.add(Match.UNKNOWN);
+			}
+			else if(inside.get(number)) {
+				result.add(Match.INSIDE);
+			}
+			else if(border.get(number)) {
+				result.add(Match.BORDER);
+			}
+			else {
+				result.add(Match.OUTSIDE);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Numbers the tracks again without gaps.
+	 */
+	private void compact() {
+		int[] replacements = new int[count];
+		String[] previousIds = ids;
+		ids = new String[Math.max(16, count - removed)];
+		int previousCount = count;
+		count = 0;
+		removed = 0;
+		for(int number = 0; number < previousCount; number++) {
+			if(previousIds[number] != null) {
+				replacements[number] = count;
+				ids[count] = previousIds[number];
+				numberById.put(ids[count], count);
+				count++;
+			}
+			else {
+				replacements[number] = -1;
+			}
+		}
+		postings.replaceAll((cell, list) -> list.replace(replacements));
+		postings.values().removeIf(list -> list == null);
+	}
+
+	private static long cell(final int level, final int row, final int column) {
+		return ((long) level << 48) | ((long) row << 24) | column;
+	}
+
+	private static int row(final int level, final double latitude) {
+		return clamp(level, (int) Math.floor((latitude + 90.0) / 180.0 * (1 << level)));
+	}
+
+	private static int column(final int level, final double longitude) {
+		return clamp(level, (int) Math.floor((longitude + 180.0) / 360.0 * (1 << level)));
+	}
+
+	private static int clamp(final int level, final int index) {
+		return Math.max(0, Math.min((1 << level) - 1, index));
+	}
+}
@@ -0,0 +1,257 @@
+package org.trackexplorer.service.track;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+/**
+ * A persistent index holding the {@link TrackInfo} of the tracks found at one location.
+ * 
+ * Each entry is stored together with the size, the modification time and
+ * a {@link XXHash64} of the content of its file. An entry is only used as long as size
+ * and modification time of the file are unchanged, so the GPX files do not
+ * need to be read to validate the index.
+ * 
+ * The index is stored in a binary file starting with {@link MAGIC} and
+ * {@link VERSION}. Files with a different version are ignored.
+ * 
+ * The index is thread safe.
+ */
+class TrackIndex {
+	/**
+	 * Identifies an index file.
+	 */
+	static final int MAGIC = 0x54584958;
+	
+	/**
+	 * Has to be increased whenever the format of the file or the hash changes.
+	 */
+	static final int VERSION = 3;
+	
+	/**
+	 * An entry of the index.
+	 */
+	static class Entry {
+		private final long size;
+		private final long lastModified;
+		private final long hash;
+		private final TrackInfo trackInfo;
+		
+		Entry(final long size, final long lastModified, final long hash, final TrackInfo trackInfo) {
+			this.size = size;
+			this.lastModified = lastModified;
+			this.hash = hash;
+			this.trackInfo = trackInfo;
+		}
+
+		long getSize() {
+			return size;
+		}
+
+		/**
+		 * @return The modification time of the file in milliseconds since the epoch.
+		 */
+		long getLastModified() {
+			return lastModified;
+		}
+
+		/**
+		 * @return The hash of the content of the file.
+		 */
+		long getHash() {
+			return hash;
+		}
+
+		TrackInfo getTrackInfo() {
+			return trackInfo;
+		}
+		
+		/**
+		 * Checks whether the file is unchanged since the entry was created.
+		 */
+		boolean matches(final BasicFileAttributes attributes) {
+			return (size == attributes.size()) &&
+					(lastModified == attributes.lastModifiedTime().toMillis());
+		}
+	}
+	
+	private final Path file;
+	
+	/**
+	 * The {@code toString()} of the absolute path of a track is used as a key.
+	 */
+	private final ConcurrentMap<String, Entry> entries;
+	
+	/**
+	 * Set whenever the entries differ from the file.
+	 */
+	private volatile boolean modified;
+	
+	private TrackIndex(final Path file) {
+		this.file = file;
+		this.entries = new ConcurrentHashMap<>();
+		this.modified = false;
+	}
+	
+	/**
+	 * Returns the file of the index for the given location.
+	 * 
+	 * @param directory The directory where all indices are stored.
+	 * @param location A location as passed to {@code ITrackService.setLocations}.
+	 */
+	static Path fileFor(final Path directory, final String location) {
+		String key = Paths.get(location).toAbsolutePath().normalize().toString();
+		CRC32 crc = new CRC32();
+		crc.update(key.getBytes(StandardCharsets.UTF_8));
+		return directory.resolve(String.format("%08x.idx", crc.getValue()));
+	}
+	
+	/**
+	 * Loads the index from the given file.
+	 * 
+	 * If the file does not exist, cannot be read or has a different
+	 * version, an empty index is returned.
+	 */
+	static TrackIndex load(final Path file) {
+		TrackIndex index = new TrackIndex(file);
+		try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if(in.readInt() != MAGIC || in.readInt() != VERSION) {
+				return index;
+			}
+			int count = in.readInt();
+			for(int idx = 0; idx < count; idx++) {
+				String path = in.readUTF();
+				long size = in.readLong();
+				long lastModified = in.readLong();
+				long hash = in.readLong();
+				TrackInfo trackInfo = TrackInfo.read(in);
+				index.entries.put(path, new Entry(size, lastModified, hash, trackInfo));
+			}
+		} catch (NoSuchFileException e) {
+			// No index yet
+		} catch (IOException e) {
+			System.out.println("COULD NOT LOAD TRACK INDEX " + file);
+			e.printStackTrace();
+			index.entries.clear();
+		}
+		return index;
+	}
+	
+	/**
+	 * Writes the index to its file if it was modified.
+	 * 
+	 * The file is replaced atomically if supported by the file system.
+	 */
+	synchronized void save() throws IOException {
+		if(!modified) {
+			return;
+		}
+		modified = false;
+		
+		Files.createDirectories(file.getParent());
+		Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+			// Take a snapshot, entries might be added concurrently
+			Map<String, Entry> snapshot = new HashMap<>(entries);
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(snapshot.size());
+			for(Map.Entry<String, Entry> pair : snapshot.entrySet()) {
+				Entry entry = pair.getValue();
+				out.writeUTF(pair.getKey());
+				out.writeLong(entry.getSize());
+				out.writeLong(entry.getLastModified());
+				out.writeLong(entry.getHash());
+				entry.getTrackInfo().write(out);
+			}
+		} catch (IOException e) {
+			modified = true;
+			throw e;
+		}
+		
+		try {
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+	
+	/**
+	 * Returns the entry for the given track if the file is unchanged.
+	 * 
+	 * Only the attributes of the file are read, not its content.
+	 * 
+	 * @return The entry or null if there is none or it is outdated.
+	 */
+	Entry get(final Path track) {
+		Entry entry = entries.get(key(track));
+		if(entry == null) {
+			return null;
+		}
+		try {
+			BasicFileAttributes attributes = Files.readAttributes(track, BasicFileAttributes.class);
+			return entry.matches(attributes) ? entry : null;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Same as {@link get(Path)}, but uses the given attributes
+	 * instead of reading them again.
+	 */
+	Entry get(final Path track, final BasicFileAttributes attributes) {
+		Entry entry = entries.get(key(track));
+		return (entry != null && entry.matches(attributes)) ? entry : null;
+	}
+	
+	void put(final Path track, final Entry entry) {
+		entries.put(key(track), entry);
+		modified = true;
+	}
+	
+	/**
+	 * Removes the entry of a track which no longer exists.
+	 */
+	void remove(final Path track) {
+		if(entries.remove(key(track)) != null) {
+			modified = true;
+		}
+	}
+	
+	/**
+	 * Removes the entries of all tracks which are not in the given collection.
+	 */
+	void retainAll(final Collection<Path> tracks) {
+		Set<String> keys = tracks.stream().map(TrackIndex::key).collect(Collectors.toSet());
+		if(entries.keySet().retainAll(keys)) {
+			modified = true;
+		}
+	}
+	
+	int size() {
+		return entries.size();
+	}
+	
+	private static String key(final Path track) {
+		return track.toAbsolutePath().normalize().toString();
+	}
+}
@@ -0,0 +1,169 @@
+package org.trackexplorer.service.track;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.trackexplorer.model.Bounds;
+import org.trackexplorer.model.LatLng;
+import org.trackexplorer.model.TrackGeometry;
+
+/**
+ * A class to store track information which is
+ * computed when a GPX file is loaded.
+ * 
+ * This class should store information which might
+ * not be available in all GPX files like totalDistance
+ * or totalElevation and needs to calculated on demand.
+ * 
+ * The information is persisted in the {@link TrackIndex} and the
+ * {@link TrackStore} with {@link write}, so it is only computed
+ * once per file.
+ * 
+ * Elevations are in meters, NaN if the track has no elevation
+ * information. The moving time is in milliseconds, the maximum
+ * speed in meters per second. Both are 0 if the track has no time
+ * information.
+ */
+class TrackInfo {
+	/**
+	 * Number of bytes written by {@link write}.
+	 */
+	static final int BYTES = 11 * Double.BYTES + Integer.BYTES + Long.BYTES;
+	
+	private final double totalDistance;
+	private final double totalElevation;
+	private final int pointCount;
+	private final double minLatitude;
+	private final double minLongitude;
+	private final double maxLatitude;
+	private final double maxLongitude;
+	private final double ascent;
+	private final double descent;
+	private final double minElevation;
+	private final double maxElevation;
+	private final long movingTime;
+	private final double maxSpeed;
+	
+	TrackInfo(final double totalDistance, final double totalElevation, final int pointCount,
+			final double minLatitude, final double minLongitude, final double maxLatitude, final double maxLongitude,
+			final double ascent, final double descent, final double minElevation, final double maxElevation,
+			final long movingTime, final double maxSpeed) {
+		this.totalDistance = totalDistance;
+		this.totalElevation = totalElevation;
+		this.pointCount = pointCount;
+		this.minLatitude = minLatitude;
+		this.minLongitude = minLongitude;
+		this.maxLatitude = maxLatitude;
+		this.maxLongitude = maxLongitude;
+		this.ascent = ascent;
+		this.descent = descent;
+		this.minElevation = minElevation;
+		this.maxElevation = maxElevation;
+		this.movingTime = movingTime;
+		this.maxSpeed = maxSpeed;
+	}
+	
+	/**
+	 * Computes the information for the given track, see {@link TrackStatistics}.
+	 */
+	static TrackInfo compute(final TrackGeometry geometry) {
+		return TrackStatistics.compute(geometry);
+	}
+	
+	/**
+	 * Reads the information written by {@link write}.
+	 */
+	static TrackInfo read(final DataInput in) throws IOException {
+		return new TrackInfo(
+				in.readDouble(), in.readDouble(), in.readInt(),
+				in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble(),
+				in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble(),
+				in.readLong(), in.readDouble());
+	}
+	
+	/**
+	 * Writes the information in {@link BYTES} bytes.
+	 */
+	void write(final DataOutput out) throws IOException {
+		out.writeDouble(totalDistance);
+		out.writeDouble(totalElevation);
+		out.writeInt(pointCount);
+		out.writeDouble(minLatitude);
+		out.writeDouble(minLongitude);
+		out.writeDouble(maxLatitude);
+		out.writeDouble(maxLongitude);
+		out.writeDouble(ascent);
+		out.writeDouble(descent);
+		out.writeDouble(minElevation);
+		out.writeDouble(maxElevation);
+		out.writeLong(movingTime);
+		out.writeDouble(maxSpeed);
+	}
+	
+	double getTotalDistance() {
+		return this.totalDistance;
+	}
+	
+	double getTotalElevation() {
+		return this.totalElevation;
+	}
+	
+	int getPointCount() {
+		return this.pointCount;
+	}
+	
+	double getMinLatitude() {
+		return minLatitude;
+	}
+
+	double getMinLongitude() {
+		return minLongitude;
+	}
+
+	double getMaxLatitude() {
+		return maxLatitude;
+	}
+
+	double getMaxLongitude() {
+		return maxLongitude;
+	}
+	
+	/**
+	 * @return The sum of all positive elevation deltas, without
+	 * the filter applied for {@link getTotalElevation}.
+	 */
+	double getAscent() {
+		return ascent;
+	}
+	
+	/**
+	 * @return The sum of all negative elevation deltas as a positive value.
+	 */
+	double getDescent() {
+		return descent;
+	}
+	
+	double getMinElevation() {
+		return minElevation;
+	}
+	
+	double getMaxElevation() {
+		return maxElevation;
+	}
+	
+	long getMovingTime() {
+		return movingTime;
+	}
+	
+	double getMaxSpeed() {
+		return maxSpeed;
+	}
+	
+	/**
+	 * @return The tightest bounds around all points of the track.
+	 */
+	Bounds getBounds() {
+		return new Bounds(new LatLng(minLatitude, minLongitude), new LatLng(maxLatitude, maxLongitude));
+	}
+}
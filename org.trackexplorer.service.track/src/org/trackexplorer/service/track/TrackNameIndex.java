@@ -0,0 +1,276 @@
+package org.trackexplorer.service.track;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.trackexplorer.model.NameMatch;
+
+/**
+ * An index of the names of the tracks for searching while the
+ * user types, see {@link ITrackService#findTracksByName}.
+ *
+ * Every track is found by some terms, its name and the folders it is
+ * located in. The terms are lower cased and joined into a single text, each
+ * term preceded by {@link SEPARATOR}. So a prefix of a term is a substring
+ * of the text starting with the separator.
+ *
+ * For every trigram of the texts, the index keeps the numbers of the
+ * tracks containing it in a {@link PostingList}. A query intersects the lists of its trigrams, only
+ * the texts of the remaining tracks are compared. Queries which are too short
+ * to contain a trigram compare all texts.
+ *
+ * The tracks are numbered in the order they are added, so the lists
+ * stay sorted by appending. Removed tracks keep their number until more
+ * than half of the numbers are unused, then the lists are created again.
+ *
+ * Thread safe.
+ */
+class TrackNameIndex {
+	/**
+	 * Precedes every term in the texts, cannot be part of a file name.
+	 */
+	static final char SEPARATOR = '/';
+
+	private static final int GRAM_LENGTH = 3;
+
+	/**
+	 * The number of characters which may differ for {@link NameMatch#FUZZY}.
+	 */
+	private static final int MAX_EDITS = 1;
+
+	/**
+	 * Shorter queries match almost every track
+	 * when fuzzy, they are matched exactly instead.
+	 */
+	private static final int MIN_FUZZY_LENGTH = 4;
+
+	/**
+	 * The numbers of the tracks containing each trigram.
+	 */
+	private final Map<Long, PostingList> postings = new HashMap<>();
+	private final Map<String, Integer> numberById = new HashMap<>();
+	private String[] ids = new String[16];
+	private String[] texts = new String[16];
+	private int count;
+	private int removed;
+
+	/**
+	 * Adds a track or replaces its terms.
+	 *
+	 * @param terms The name of the track and its folders.
+	 */
+	synchronized void add(final String id, final List<String> terms) {
+		remove(id);
+		StringBuilder text = new StringBuilder();
+		for(String term : terms) {
+			text.append(SEPARATOR).append(term.toLowerCase(Locale.ROOT));
+		}
+		insert(id, text.toString());
+	}
+
+	/**
+	 * Removes a track, unknown tracks are ignored.
+	 */
+	synchronized void remove(final String id) {
+		Integer number = numberById.remove(id);
+		if(number == null) {
+			return;
+		}
+		ids[number] = null;
+		texts[number] = null;
+		removed++;
+		if(removed > count / 2) {
+			compact();
+		}
+	}
+
+	/**
+	 * @return The number of tracks in the index.
+	 */
+	synchronized int size() {
+		return numberById.size();
+	}
+
+	/**
+	 * @return The ids of the matching tracks in the order they were added,
+	 * all tracks if the query is empty.
+	 */
+	synchronized List<String> find(final String query, final NameMatch match) {
+		String pattern = query.trim().toLowerCase(Locale.ROOT);
+		if(match == NameMatch.PREFIX) {
+			pattern = SEPARATOR + pattern;
+		}
+		if(match == NameMatch.FUZZY && pattern.length() >= MIN_FUZZY_LENGTH) {
+			return findFuzzy(pattern);
+		}
+		return findExact(pattern);
+	}
+
+	private void insert(final String id, final String text) {
+		if(count == ids.length) {
+			ids = Arrays.copyOf(ids, count * 2);
+			texts = Arrays.copyOf(texts, count * 2);
+		}
+		int number = count++;
+		ids[number] = id;
+		texts[number] = text;
+		numberById.put(id, number);
+		for(int idx = 0; idx + GRAM_LENGTH <= text.length(); idx++) {
+			// The trigram might occur several times in the text, it is only added once
+			postings.computeIfAbsent(trigram(text, idx), key -> new PostingList()).add(number);
+		}
+	}
+
+	/**
+	 * Numbers the tracks again without gaps.
+	 */
+	private void compact() {
+		String[] previousIds = ids;
+		String[] previousTexts = texts;
+		int previousCount = count;
+		postings.clear();
+		numberById.clear();
+		ids = new String[Math.max(16, previousCount - removed)];
+		texts = new String[ids.length];
+		count = 0;
+		removed = 0;
+		for(int number = 0; number < previousCount; number++) {
+			if(previousIds[number] != null) {
+				insert(previousIds[number], previousTexts[number]);
+			}
+		}
+	}
+
+	private List<String> findExact(final String pattern) {
+		List<String> result = new ArrayList<>();
+		if(pattern.length() < GRAM_LENGTH) {
+			// Contained in every text if empty
+			for(int number = 0; number < count; number++) {
+				if(texts[number] != null && texts[number].contains(pattern)) {
+					result.add(ids[number]);
+				}
+			}
+			return result;
+		}
+
+		List<PostingList> lists = new ArrayList<>();
+		for(long trigram : trigrams(pattern)) {
+			PostingList list = postings.get(trigram);
+			if(list == null) {
+				return result;
+			}
+			lists.add(list);
+		}
+		// Few tracks contain the rarest trigram, the others are skipped forward
+		lists.sort(Comparator.comparingInt(PostingList::size));
+		List<PostingList.Cursor> cursors = new ArrayList<>(lists.size());
+		for(PostingList list : lists) {
+			cursors.add(list.cursor());
+		}
+		PostingList.Cursor rarest = cursors.get(0);
+		candidates:
+		for(int number = rarest.next(); number >= 0; number = rarest.next()) {
+			for(int other = 1; other < cursors.size(); other++) {
+				int found = cursors.get(other).skipTo(number);
+				if(found < 0) {
+					break candidates;
+				}
+				if(found != number) {
+					continue candidates;
+				}
+			}
+			// The trigrams might be in a different order
+			if(texts[number] != null && texts[number].contains(pattern)) {
+				result.add(ids[number]);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * A single edit changes at most {@link GRAM_LENGTH} trigrams of the pattern,
+	 * so a match contains all others. Only the texts of the tracks with enough
+	 * trigrams are compared, all texts if the pattern is too short.
+	 */
+	private List<String> findFuzzy(final String pattern) {
+		Set<Long> trigrams = trigrams(pattern);
+		int required = trigrams.size() - MAX_EDITS * GRAM_LENGTH;
+		List<String> result = new ArrayList<>();
+		if(required <= 0) {
+			for(int number = 0; number < count; number++) {
+				if(texts[number] != null && matchesApproximately(pattern, texts[number])) {
+					result.add(ids[number]);
+				}
+			}
+			return result;
+		}
+
+		int[] hits = new int[count];
+		for(long trigram : trigrams) {
+			PostingList list = postings.get(trigram);
+			if(list != null) {
+				PostingList.Cursor cursor = list.cursor();
+				for(int number = cursor.next(); number >= 0; number = cursor.next()) {
+					hits[number]++;
+				}
+			}
+		}
+		for(int number = 0; number < count; number++) {
+			if(hits[number] >= required && texts[number] != null && matchesApproximately(pattern, texts[number])) {
+				result.add(ids[number]);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Whether some substring of the text differs from the pattern
+	 * by at most {@link MAX_EDITS} characters inserted, removed or replaced.
+	 *
+	 * The edit distance is computed column by column, a match may start
+	 * at any character of the text (Sellers' algorithm).
+	 */
+	static boolean matchesApproximately(final String pattern, final String text) {
+		int length = pattern.length();
+		int[] distances = new int[length + 1];
+		for(int idx = 0; idx <= length; idx++) {
+			distances[idx] = idx;
+		}
+		if(distances[length] <= MAX_EDITS) {
+			return true;
+		}
+		for(int pos = 0; pos < text.length(); pos++) {
+			char character = text.charAt(pos);
+			int diagonal = 0;
+			for(int idx = 1; idx <= length; idx++) {
+				int above = distances[idx];
+				int cost = (pattern.charAt(idx - 1) == character) ? 0 : 1;
+				distances[idx] = Math.min(Math.min(distances[idx - 1], above) + 1, diagonal + cost);
+				diagonal = above;
+			}
+			if(distances[length] <= MAX_EDITS) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static Set<Long> trigrams(final String text) {
+		Set<Long> trigrams = new LinkedHashSet<>();
+		for(int idx = 0; idx + GRAM_LENGTH <= text.length(); idx++) {
+			trigrams.add(trigram(text, idx));
+		}
+		return trigrams;
+	}
+
+	private static long trigram(final String text, final int start) {
+		return ((long) text.charAt(start) << 32) | ((long) text.charAt(start + 1) << 16) | text.charAt(start + 2);
+	}
+}
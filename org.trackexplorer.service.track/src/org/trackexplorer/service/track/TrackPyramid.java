@@ -0,0 +1,208 @@
+package org.trackexplorer.service.track;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.trackexplorer.model.TrackGeometry;
+
+/**
+ * Simplified versions of a track for several zoom levels of a map.
+ *
+ * The zoom levels are the ones of web maps like Google Maps,
+ * at zoom level {@code z} the whole world is {@code 256 * 2^z} pixels wide.
+ * The level for a zoom level only keeps the points which are needed
+ * to draw the track with a precision of one pixel.
+ *
+ * The points are selected with the Douglas-Peucker algorithm.
+ * The algorithm is only run once per track: it records for each point
+ * the largest tolerance for which the point is still kept. Every level
+ * is then a simple selection of points.
+ */
+class TrackPyramid {
+	/**
+	 * The coarsest zoom level which has its own level.
+	 */
+	static final int MIN_ZOOM = 0;
+
+	/**
+	 * The finest zoom level which has its own level. Finer
+	 * zoom levels should use the original track.
+	 */
+	static final int MAX_ZOOM = 18;
+
+	/**
+	 * Levels are computed for every {@code ZOOM_STEP}-th zoom level.
+	 * Zoom levels in between get the next finer level.
+	 */
+	static final int ZOOM_STEP = 2;
+
+	/**
+	 * The levels, the coarsest first. Neighbouring levels with
+	 * the same points share the same instance, a level without
+	 * any simplification is the original track.
+	 */
+	private final TrackGeometry[] levels;
+
+	private TrackPyramid(final TrackGeometry[] levels) {
+		this.levels = levels;
+	}
+
+	/**
+	 * Computes all levels for the given track.
+	 */
+	static TrackPyramid compute(final TrackGeometry geometry) {
+		double cosLatitude = Math.cos(Math.toRadians(centerLatitude(geometry)));
+		double[] significance = computeSignificance(geometry, cosLatitude);
+
+		TrackGeometry[] levels = new TrackGeometry[(MAX_ZOOM - MIN_ZOOM) / ZOOM_STEP + 1];
+		TrackGeometry finer = geometry;
+		for(int level = levels.length - 1; level >= 0; level--) {
+			int zoom = MIN_ZOOM + level * ZOOM_STEP;
+			double tolerance = pixelSize(zoom) * cosLatitude;
+			TrackGeometry simplified = select(geometry, significance, tolerance);
+			// Avoid copies of identical levels
+			levels[level] = (simplified.size() == finer.size()) ? finer : simplified;
+			finer = levels[level];
+		}
+		return new TrackPyramid(levels);
+	}
+
+	/**
+	 * @return The simplified track for the given zoom level,
+	 * zoom levels finer than {@link MAX_ZOOM} get the finest level.
+	 */
+	TrackGeometry getLevel(final int zoom) {
+		int level = (Math.max(zoom, MIN_ZOOM) - MIN_ZOOM + ZOOM_STEP - 1) / ZOOM_STEP;
+		return levels[Math.min(level, levels.length - 1)];
+	}
+
+	/**
+	 * @return The number of points stored in all levels.
+	 */
+	int getPointCount() {
+		int pointCount = 0;
+		TrackGeometry previous = null;
+		for(int level = levels.length - 1; level >= 0; level--) {
+			if(levels[level] != previous) {
+				pointCount += levels[level].size();
+				previous = levels[level];
+			}
+		}
+		return pointCount;
+	}
+
+	/**
+	 * The width of a pixel in degrees of longitude at the given zoom level.
+	 */
+	static double pixelSize(final int zoom) {
+		return 360.0 / (256.0 * Math.pow(2, zoom));
+	}
+
+	/**
+	 * Computes for each point the largest tolerance for which the
+	 * Douglas-Peucker algorithm keeps the point. The first and last point
+	 * are always kept.
+	 *
+	 * Distances are measured in degrees of latitude, longitudes are
+	 * scaled by the given cosine of the latitude of the track.
+	 *
+	 * A point is kept if its distance to the simplified segment is larger
+	 * than the tolerance and if the point which split the segment
+	 * is kept as well. Therefore the significance of a point is limited by
+	 * the significance of the point which split its segment.
+	 */
+	static double[] computeSignificance(final TrackGeometry geometry, final double cosLatitude) {
+		int size = geometry.size();
+		double[] significance = new double[size];
+		if(size == 0) {
+			return significance;
+		}
+		significance[0] = Double.POSITIVE_INFINITY;
+		significance[size - 1] = Double.POSITIVE_INFINITY;
+
+		// Segments are processed with an explicit stack,
+		// recursion could overflow the stack for long tracks
+		Deque<int[]> segments = new ArrayDeque<>();
+		if(size > 2) {
+			segments.push(new int[] {0, size - 1});
+		}
+
+		while(!segments.isEmpty()) {
+			int[] segment = segments.pop();
+			int first = segment[0];
+			int last = segment[1];
+
+			int farthest = -1;
+			double maxDistance = -1;
+			for(int idx = first + 1; idx < last; idx++) {
+				double distance = distanceToSegment(geometry, idx, first, last, cosLatitude);
+				if(distance > maxDistance) {
+					maxDistance = distance;
+					farthest = idx;
+				}
+			}
+
+			double limit = Math.min(significance[first], significance[last]);
+			significance[farthest] = Math.min(maxDistance, limit);
+
+			if(farthest - first > 1) {
+				segments.push(new int[] {first, farthest});
+			}
+			if(last - farthest > 1) {
+				segments.push(new int[] {farthest, last});
+			}
+		}
+		return significance;
+	}
+
+	/**
+	 * Creates a track of all points whose significance is larger than the tolerance.
+	 */
+	static TrackGeometry select(final TrackGeometry geometry, final double[] significance, final double tolerance) {
+		TrackGeometry.Builder builder = new TrackGeometry.Builder();
+		for(int idx = 0; idx < geometry.size(); idx++) {
+			if(significance[idx] > tolerance) {
+				builder.add(
+						geometry.getLatitude(idx),
+						geometry.getLongitude(idx),
+						geometry.getElevation(idx),
+						geometry.getTime(idx));
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * The distance of the point {@code idx} to the segment from {@code first} to {@code last}.
+	 */
+	private static double distanceToSegment(final TrackGeometry geometry, final int idx, final int first, final int last,
+			final double cosLatitude) {
+		double x = geometry.getLongitude(idx) * cosLatitude;
+		double y = geometry.getLatitude(idx);
+		double x1 = geometry.getLongitude(first) * cosLatitude;
+		double y1 = geometry.getLatitude(first);
+		double dx = geometry.getLongitude(last) * cosLatitude - x1;
+		double dy = geometry.getLatitude(last) - y1;
+
+		double lengthSquared = dx * dx + dy * dy;
+		double t = 0;
+		if(lengthSquared > 0) {
+			t = ((x - x1) * dx + (y - y1) * dy) / lengthSquared;
+			t = Math.max(0, Math.min(1, t));
+		}
+		return Math.hypot(x - (x1 + t * dx), y - (y1 + t * dy));
+	}
+
+	private static double centerLatitude(final TrackGeometry geometry) {
+		if(geometry.isEmpty()) {
+			return 0;
+		}
+		double minLatitude = Double.POSITIVE_INFINITY;
+		double maxLatitude = Double.NEGATIVE_INFINITY;
+		for(int idx = 0; idx < geometry.size(); idx++) {
+			minLatitude = Math.min(minLatitude, geometry.getLatitude(idx));
+			maxLatitude = Math.max(maxLatitude, geometry.getLatitude(idx));
+		}
+		return (minLatitude + maxLatitude) / 2;
+	}
+}
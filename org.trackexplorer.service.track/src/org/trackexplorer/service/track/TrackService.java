@@ -2,264 +2,1487 @@ package org.trackexplorer.service.track;
 
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
 import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.zip.CheckedInputStream;
 
 import org.alternativevision.gpx.GPXParser;
+import org.alternativevision.gpx.StreamingGPXParser;
 import org.alternativevision.gpx.beans.GPX;
 import org.alternativevision.gpx.beans.Route;
 import org.alternativevision.gpx.beans.Track;
 import org.alternativevision.gpx.beans.Waypoint;
+import org.trackexplorer.model.Bounds;
+import org.trackexplorer.model.CacheStatistics;
+import org.trackexplorer.model.DiscoveryProgress;
+import org.trackexplorer.model.GeoArea;
+import org.trackexplorer.model.GeoCandidates;
+import org.trackexplorer.model.GeoSearchMode;
 import org.trackexplorer.model.ITrackService;
+import org.trackexplorer.model.IndexingProgress;
 import org.trackexplorer.model.LatLng;
+import org.trackexplorer.model.NameMatch;
+import org.trackexplorer.model.TrackChanges;
+import org.trackexplorer.model.TrackGeometry;
 import org.trackexplorer.model.TrackMetaInfo;
+import org.trackexplorer.model.TrackStats;
 
 
 /**
  * A simple, thread safe, implementation of the {@code ITrackService} interface.
  * 
  * The contents of the tracks are only loaded from disk when
- * they are asked for via {@code getTrackPoints}.
- * Once loaded, the track points are stored locally and are
- * not read from disk again.
+ * they are asked for via {@code getTrackGeometry} or {@code getTrackPoints}.
+ * Once loaded, the track points are stored locally as {@link TrackGeometry}.
+ * The memory used for this is limited, see {@link PROPERTY_CACHE_SIZE}. If
+ * the limit is exceeded, the least recently used tracks are removed
+ * and read from disk again when needed. Pinned tracks are never removed.
+ * 
+ * Only the geometry of the points is read from disk, see {@link GPXGeometryReader}.
+ * The complete GPX file is only parsed if the reader cannot handle the file.
  * 
  * The same holds true for track information like distance or
  * total elevation. Both values are only computed on demand
- * and are cached locally, too.
+ * and are cached locally, too. Furthermore they are stored in a
+ * {@link TrackIndex} per location, such that they are available
+ * after a restart without reading the GPX files again.
+ * The indices are saved when the locations change and when the
+ * service is deactivated, see {@link PROPERTY_INDEX_DIRECTORY}.
+ * 
+ * The parsed tracks are kept in a binary {@link TrackStore} next to the
+ * indices, such that a track is parsed only once, see {@link PROPERTY_TRACK_STORE}.
+ * 
+ * The bounds of all tracks known from the index are kept in an
+ * {@link STRTree}, which is used to find the candidates of a geo search.
+ * It is rebuilt in the background of the searches once enough tracks
+ * changed, see {@link getSpatialIndex}.
+ * 
+ * Optionally all tracks are indexed in advance by a {@link BackgroundIndexer},
+ * see {@link startIndexing}.
+ * 
+ * The locations are searched for tracks in the background by a {@link DirectoryCrawler},
+ * the tracks are reported as they are found, see {@link setLocations(List, Consumer)}.
+ * 
+ * Concurrent requests for the same track share a single load, see {@link singleFlight}.
+ * No lock is held while a track is loaded, so loads of different tracks never block
+ * each other. Tracks which cannot be read are not cached, they are read again
+ * on the next request. The asynchronous methods, e.g. {@link getTrackGeometryAsync},
+ * load the tracks on the threads of the {@link loader}.
+ * 
+ * The locations can be watched for changes by a {@link LocationWatcher},
+ * see {@link startWatching}. Only the changed files are searched again,
+ * all other tracks keep their ids and cached content.
+ * 
+ * The service can be configured with the component properties
+ * defined in {@code OSGI-INF/component.xml}, see {@link activate}.
  */
 public class TrackService implements ITrackService{
 	/**
-	 * A class to store track information which is
-	 * computed when a GPX file is loaded.
+	 * Component property which selects the parser used for loading tracks.
+	 * Either {@link PARSER_STREAMING} or {@link PARSER_DOM}.
+	 */
+	public static final String PROPERTY_PARSER = "parser";
+	
+	/**
+	 * Uses {@link StreamingGPXParser}, the file is read without building a DOM.
+	 */
+	public static final String PARSER_STREAMING = "streaming";
+
+	/**
+	 * Uses {@link GPXParser}, the whole file is loaded into a DOM first.
+	 */
+	public static final String PARSER_DOM = "dom";
+	
+	/**
+	 * Component property which limits the memory used for the
+	 * content of the tracks, in megabytes.
+	 */
+	public static final String PROPERTY_CACHE_SIZE = "cacheSize";
+	
+	/**
+	 * Default for {@link PROPERTY_CACHE_SIZE}.
+	 */
+	public static final int DEFAULT_CACHE_SIZE = 256;
+	
+	/**
+	 * Component property which sets the directory where the
+	 * track indices are stored. If empty, the directory
+	 * {@code .trackexplorer/index} inside the instance area is used
+	 * or inside the home directory if there is no instance area.
+	 */
+	public static final String PROPERTY_INDEX_DIRECTORY = "indexDirectory";
+	
+	/**
+	 * Component property which enables the {@link TrackStore}. If true,
+	 * the parsed tracks are stored in the directory {@code store}
+	 * next to the directory of the indices.
+	 */
+	public static final String PROPERTY_TRACK_STORE = "trackStore";
+	
+	/**
+	 * Estimated memory needed for a {@link TrackGeometry} besides the points.
+	 */
+	private static final long GEOMETRY_OVERHEAD = 128;
+	
+	/**
+	 * The simplified tracks may use this fraction of the memory
+	 * available for the content of the tracks, see {@link trackPyramidCache}.
+	 */
+	private static final int PYRAMID_CACHE_FRACTION = 4;
+	
+	/**
+	 * The number of threads loading tracks for the asynchronous methods.
+	 * Loading mostly waits for the disk, so all cores are used.
+	 */
+	private static final int LOADER_THREADS = Runtime.getRuntime().availableProcessors();
+	
+	/**
+	 * Idle threads of the {@link loader} are ended after this time.
+	 */
+	private static final long LOADER_KEEP_ALIVE_MS = 10000;
+	
+	private static final AtomicInteger loaderThreadCount = new AtomicInteger();
+	
+	/**
+	 * The idle thread of the {@link discoverer} is ended after this time.
+	 */
+	private static final long DISCOVERER_KEEP_ALIVE_MS = 10000;
+	
+	private static final AtomicInteger discovererThreadCount = new AtomicInteger();
+	
+	/**
+	 * The {@link spatialIndex} is rebuilt once this many tracks changed,
+	 * but at least a quarter of the tracks in it.
+	 */
+	private static final int SPATIAL_INDEX_BATCH = 1000;
+	
+	/**
+	 * The {@link STRTree} over the bounds of the tracks whose {@link TrackInfo}
+	 * was known when it was built, and the tracks whose bounds were unknown.
+	 */
+	private static class SpatialIndex {
+		private final STRTree<String> tree;
+		
+		/**
+		 * Tracks whose bounds are unknown, they are candidates of every search.
+		 */
+		private final List<String> unindexedTracks;
+		
+		SpatialIndex(final STRTree<String> tree, final List<String> unindexedTracks) {
+			this.tree = tree;
+			this.unindexedTracks = unindexedTracks;
+		}
+		
+		int size() {
+			return this.tree.size() + this.unindexedTracks.size();
+		}
+	}
+	
+	/**
+	 * Contains a map of GPX files found on disk along
+	 * with some basic information like name and path.
+	 * 
+	 * The {@code id} of {@link TrackMetaInfo} is used as a key to uniquely
+	 * identify each track, see {@link createId}.
+	 */
+	private final Map<String, TrackMetaInfo> trackMetaInfoList = new ConcurrentHashMap<>();
+	
+	/**
+	 * The {@code id} of the track found at a path.
+	 */
+	private final Map<Path, String> idByPath = new ConcurrentHashMap<>();
+	
+	/**
+	 * Tracks whose content is identical to the content of another track
+	 * according to the index. Only the other track is loaded and cached,
+	 * see {@link cacheKey}. The {@code id} of the duplicate is used as a key,
+	 * the value is the {@code id} of the other track.
+	 */
+	private final Map<String, String> duplicateOf = new ConcurrentHashMap<>();
+	
+	/**
+	 * The hash of the content of the tracks known from the index,
+	 * used to find duplicates.
+	 */
+	private final Map<String, Long> contentHashById = new ConcurrentHashMap<>();
+	
+	/**
+	 * The first track found for a content hash, which is the one
+	 * loaded for all duplicates.
+	 */
+	private final Map<Long, String> originalByContentHash = new ConcurrentHashMap<>();
+	
+	/**
+	 * The tracks pinned by {@link pinTrack}. Kept when the locations
+	 * change, as the ids of unchanged files stay the same.
+	 */
+	private final Set<String> pinnedTracks = ConcurrentHashMap.newKeySet();
+	
+	
+	/**
+	 * Serves as a cache such that the information stored in 
+	 * {@link TrackInfo} needs to be computed only once.
+	 * The {@code id} from {@link TrackMetaInfo}
+	 * is used as a key.
+	 */
+	private final ConcurrentMap<String, TrackInfo> trackInfoCache = new ConcurrentHashMap<>();
+	
+	/**
+	 * The index of the location where a track was found.
+	 * The {@code id} from {@link TrackMetaInfo}
+	 * is used as a key.
+	 */
+	private final Map<String, TrackIndex> trackIndexById = new ConcurrentHashMap<>();
+	
+	/**
+	 * The index of each location, in the order of the locations.
+	 * Replaced as a whole when the locations change.
+	 */
+	private volatile Map<Path, TrackIndex> trackIndices = new LinkedHashMap<>();
+	
+	/**
+	 * The locations which have been searched completely.
+	 */
+	private final Set<Path> discoveredLocations = ConcurrentHashMap.newKeySet();
+	
+	/**
+	 * Spatial index over the bounds of the tracks, null until the first
+	 * search, see {@link getSpatialIndex}.
+	 */
+	private volatile SpatialIndex spatialIndex;
+	
+	/**
+	 * Tracks which were added or removed or whose {@link TrackInfo}
+	 * became known since the {@link spatialIndex} was built.
+	 */
+	private final Set<String> spatialIndexChanges = ConcurrentHashMap.newKeySet();
+	
+	/**
+	 * Held while the {@link spatialIndex} is rebuilt.
+	 */
+	private final ReentrantLock spatialIndexLock = new ReentrantLock();
+	
+	/**
+	 * The cells of a grid containing the points of the tracks which have
+	 * been loaded, see {@link getGeoCandidates}.
+	 */
+	private final TrackCellIndex cellIndex = new TrackCellIndex();
+	
+	/**
+	 * The names of all tracks and their folders, see {@link findTracksByName}.
+	 */
+	private final TrackNameIndex nameIndex = new TrackNameIndex();
+	
+	/**
+	 * Indexes the tracks in the background, null if not running.
+	 */
+	private BackgroundIndexer indexer;
+	
+	/**
+	 * Watches the locations for changes, created when watching is started
+	 * for the first time and kept until the service is deactivated.
+	 */
+	private LocationWatcher watcher;
+	
+	/**
+	 * Receives the changes found by the {@link watcher}, null if not watching.
+	 */
+	private volatile Consumer<TrackChanges> watchCallback;
+	
+	/**
+	 * Searches the locations for tracks, null if not running.
+	 */
+	private DirectoryCrawler crawler;
+	
+	/**
+	 * The number of tracks currently loaded on request of the user.
+	 * The {@link indexer} waits while there are any.
+	 */
+	private final AtomicInteger foregroundLoads = new AtomicInteger();
+	
+	/**
+	 * Loads the tracks requested by the asynchronous methods.
+	 * The threads end when idle, so the executor never needs to be shut down.
+	 */
+	private final ThreadPoolExecutor loader = createLoader();
+	
+	/**
+	 * Sets the locations one after the other, see {@link discover}, such that
+	 * saving and loading the indices does not block the caller.
+	 * The thread ends when idle, so the executor never needs to be shut down.
+	 */
+	private final ThreadPoolExecutor discoverer = createDiscoverer();
+	
+	/**
+	 * The tracks which are currently loaded into the {@link trackGeometryCache}
+	 * on request of the user, the key of the cache is used as a key, see {@link cacheKey}.
+	 * The {@link indexer} does not share these loads, see {@link preloadTrack}.
+	 */
+	private final ConcurrentMap<String, CompletableFuture<TrackGeometry>> pendingTracks = new ConcurrentHashMap<>();
+	
+	/**
+	 * The simplified tracks which are currently computed for the {@link trackPyramidCache}.
+	 */
+	private final ConcurrentMap<String, CompletableFuture<TrackPyramid>> pendingPyramids = new ConcurrentHashMap<>();
+	
+	/**
+	 * The computations of {@link getStatsAsync} which are not completed yet.
+	 */
+	private final ConcurrentMap<String, CompletableFuture<TrackStats>> pendingStats = new ConcurrentHashMap<>();
+	
+	/**
+	 * The directory where the indices are stored,
+	 * see {@link PROPERTY_INDEX_DIRECTORY}.
+	 */
+	private Path indexDirectory = defaultIndexDirectory();
+	
+	/**
+	 * Stores the parsed tracks, null if disabled,
+	 * see {@link PROPERTY_TRACK_STORE}.
+	 */
+	private volatile TrackStore trackStore = new TrackStore(storeDirectory(indexDirectory));
+	
+	/**
+	 * Serves as a cache such that the track files need
+	 * only to be loaded once as long as there is enough memory.
+	 * The {@code id} from {@link TrackMetaInfo}
+	 * is used as a key.
+	 */	
+	private final WeightedLruCache<String, TrackGeometry> trackGeometryCache =
+			new WeightedLruCache<>(DEFAULT_CACHE_SIZE * 1024L * 1024L, TrackService::weigh);
+	
+	/**
+	 * Caches the simplified tracks returned by {@link getSimplifiedTrackGeometry}.
+	 * Pinned together with the {@link trackGeometryCache}.
+	 */
+	private final WeightedLruCache<String, TrackPyramid> trackPyramidCache =
+			new WeightedLruCache<>(DEFAULT_CACHE_SIZE * 1024L * 1024L / PYRAMID_CACHE_FRACTION, TrackService::weigh);
+	
+	/**
+	 * The parser used by {@link loadTrack} for files which cannot be
+	 * handled by {@link GPXGeometryReader}, see {@link PROPERTY_PARSER}.
+	 */
+	private String parser = PARSER_STREAMING;
+
+	public TrackService() {
+	}
+	
+	/**
+	 * Called by the service component runtime with the
+	 * properties defined in {@code OSGI-INF/component.xml}.
+	 */
+	protected void activate(final Map<String, Object> properties) {
+		Object value = properties.get(PROPERTY_PARSER);
+		if(value != null) {
+			setParser(value.toString());
+		}
+		value = properties.get(PROPERTY_CACHE_SIZE);
+		if(value != null) {
+			setCacheSize(Integer.parseInt(value.toString().trim()));
+		}
+		value = properties.get(PROPERTY_INDEX_DIRECTORY);
+		if(value != null && !value.toString().trim().isEmpty()) {
+			setIndexDirectory(Paths.get(value.toString().trim()));
+		}
+		value = properties.get(PROPERTY_TRACK_STORE);
+		if(value != null) {
+			setTrackStoreEnabled(Boolean.parseBoolean(value.toString().trim()));
+		}
+	}
+	
+	/**
+	 * Called by the service component runtime when the
+	 * service is no longer used.
+	 */
+	protected void deactivate() {
+		stopDiscovery();
+		stopWatching();
+		stopIndexing();
+		saveIndices();
+		synchronized(this) {
+			if(this.watcher != null) {
+				this.watcher.stop();
+				this.watcher = null;
+			}
+		}
+		
+		// Only if all locations have been searched completely, all other tracks are gone
+		TrackStore store = this.trackStore;
+		if(store != null && this.discoveredLocations.containsAll(this.trackIndices.keySet())) {
+			store.retainAll(this.trackMetaInfoList.keySet());
+		}
+	}
+	
+	/**
+	 * Selects the parser used for loading tracks.
+	 * 
+	 * @param parser Either {@link PARSER_STREAMING} or {@link PARSER_DOM}
+	 */
+	public void setParser(final String parser) {
+		if(!PARSER_STREAMING.equals(parser) && !PARSER_DOM.equals(parser)) {
+			throw new IllegalArgumentException("Unknown parser: " + parser);
+		}
+		this.parser = parser;
+	}
+	
+	/**
+	 * Limits the memory used for the content of the tracks.
+	 * 
+	 * @param megabytes The limit in megabytes, at least 1.
+	 */
+	public void setCacheSize(final int megabytes) {
+		if(megabytes < 1) {
+			throw new IllegalArgumentException("Invalid cache size: " + megabytes);
+		}
+		this.trackGeometryCache.setMaximumWeight(megabytes * 1024L * 1024L);
+		this.trackPyramidCache.setMaximumWeight(megabytes * 1024L * 1024L / PYRAMID_CACHE_FRACTION);
+	}
+	
+	/**
+	 * Sets the directory where the track indices are stored.
+	 * 
+	 * Only affects locations which are set afterwards.
+	 */
+	public void setIndexDirectory(final Path indexDirectory) {
+		this.indexDirectory = indexDirectory;
+		if(this.trackStore != null) {
+			this.trackStore = new TrackStore(storeDirectory(indexDirectory));
+		}
+	}
+	
+	/**
+	 * Enables or disables the {@link TrackStore}.
+	 */
+	public void setTrackStoreEnabled(final boolean enabled) {
+		this.trackStore = enabled ? new TrackStore(storeDirectory(this.indexDirectory)) : null;
+	}
+	
+	/**
+	 * See {@link ITrackService}.
+	 * 
+	 * Waits until the added locations have been searched,
+	 * see {@link setLocations(List, Consumer)}.
+	 */
+	@Override
+	public TrackChanges setLocations(final List<String> locations) {
+		TrackChanges.Builder changes = new TrackChanges.Builder();
+		List<String> copy = new ArrayList<>(locations);
+		Future<DirectoryCrawler> discovery = this.discoverer.submit(() -> discover(copy, progress -> {
+			progress.getChanges().getRemoved().forEach(changes::remove);
+			progress.getChanges().getAdded().forEach(changes::add);
+		}));
+		try {
+			discovery.get().await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			System.out.println("COULD NOT SET LOCATIONS!");
+			e.getCause().printStackTrace();
+		}
+		return changes.build();
+	}
+
+	/**
+	 * See {@link ITrackService}.
+	 * 
+	 * Returns immediately, the previous search is cancelled and
+	 * the indices are saved and loaded in the background.
+	 */
+	@Override
+	public void setLocations(final List<String> locations, final Consumer<DiscoveryProgress> progressCallback) {
+		List<String> copy = new ArrayList<>(locations);
+		this.discoverer.execute(() -> {
+			try {
+				discover(copy, progressCallback);
+			} catch (RuntimeException e) {
+				System.out.println("COULD NOT SET LOCATIONS!");
+				e.printStackTrace();
+			}
+		});
+	}
+	
+	/**
+	 * Sets the locations and starts to search the added ones.
+	 * 
+	 * The indices of the previous locations are saved. Locations which
+	 * have been searched completely before are not searched again.
+	 * A search which is still running is cancelled.
+	 * 
+	 * Only called by the {@link discoverer}, so the indices are saved and
+	 * loaded without holding the lock of the service.
+	 */
+	private DirectoryCrawler discover(final List<String> locations,
+			final Consumer<DiscoveryProgress> progressCallback) {
+		stopDiscovery();
+		stopIndexing();
+		saveIndices();
+		
+		Map<Path, TrackIndex> previous = this.trackIndices;
+		Map<Path, TrackIndex> current = new LinkedHashMap<>();
+		for(String location : locations) {
+			Path root = toLocation(location);
+			if(root != null && !current.containsKey(root)) {
+				TrackIndex index = previous.get(root);
+				current.put(root, (index != null) ? index : TrackIndex.load(TrackIndex.fileFor(indexDirectory, location)));
+			}
+		}
+		return startDiscovery(previous, current, progressCallback);
+	}
+	
+	/**
+	 * Replaces the {@link trackIndices} and starts to search the locations
+	 * which have not been searched completely before.
+	 */
+	private synchronized DirectoryCrawler startDiscovery(final Map<Path, TrackIndex> previous,
+			final Map<Path, TrackIndex> current, final Consumer<DiscoveryProgress> progressCallback) {
+		// Indexing might have been started by the previous search meanwhile
+		stopIndexing();
+		this.trackIndices = current;
+		if(this.watchCallback != null) {
+			// Before searching, such that no change is missed
+			List<Path> added = new ArrayList<>(current.keySet());
+			added.removeAll(previous.keySet());
+			List<Path> removedRoots = new ArrayList<>(previous.keySet());
+			removedRoots.removeAll(current.keySet());
+			this.watcher.removeLocations(removedRoots);
+			this.watcher.addLocations(added);
+		}
+		
+		TrackChanges.Builder removed = new TrackChanges.Builder();
+		for(Map.Entry<Path, TrackIndex> location : previous.entrySet()) {
+			if(!current.containsKey(location.getKey())) {
+				this.discoveredLocations.remove(location.getKey());
+				removeLocation(location.getValue(), removed);
+			}
+		}
+		
+		List<Path> roots = new ArrayList<>();
+		for(Path root : current.keySet()) {
+			if(!this.discoveredLocations.contains(root)) {
+				roots.add(root);
+			}
+		}
+		
+		List<TrackMetaInfo> found = new ArrayList<>();
+		List<TrackMetaInfo> firstChanges = new ArrayList<>(removed.build().getRemoved());
+		this.crawler = new DirectoryCrawler(roots,
+				(path, attributes) -> {
+					TrackIndex index = indexOf(path);
+					TrackMetaInfo trackInfo = (index != null) ? addTrack(path, attributes, index) : null;
+					if(trackInfo != null) {
+						synchronized(found) {
+							found.add(trackInfo);
+						}
+					}
+				},
+				discovery -> {
+					TrackChanges changes;
+					synchronized(found) {
+						changes = new TrackChanges(new ArrayList<>(found), new ArrayList<>(firstChanges),
+								Collections.emptyList());
+						found.clear();
+						firstChanges.clear();
+					}
+					if(discovery.isFinished() && !discovery.isCancelled()) {
+						for(Path root : roots) {
+							// Entries of tracks which no longer exist
+							current.get(root).retainAll(this.idByPath.keySet());
+							this.discoveredLocations.add(root);
+						}
+					}
+					progressCallback.accept(new DiscoveryProgress(changes,
+							discovery.getFolderCount(), discovery.getTrackCount(), discovery.getElapsedMillis(),
+							discovery.isFinished(), discovery.isCancelled()));
+				});
+		this.crawler.start();
+		return this.crawler;
+	}
+	
+	/**
+	 * Cancels the search for tracks, if running.
+	 */
+	private synchronized void stopDiscovery() {
+		if(this.crawler != null) {
+			this.crawler.cancel();
+			this.crawler = null;
+		}
+	}
+
+	/**
+	 * See {@link ITrackService}.
+	 * 
+	 * The tracks are indexed by a pool of low priority threads.
+	 * Tracks are loaded into the cache as long as there is room
+	 * without evicting other tracks. The indices are saved when
+	 * all tracks have been indexed.
+	 */
+	@Override
+	public synchronized void startIndexing(final Consumer<IndexingProgress> progressCallback) {
+		stopIndexing();
+		this.indexer = new BackgroundIndexer(new ArrayList<>(this.trackMetaInfoList.keySet()),
+				this::preloadTrack,
+				() -> this.foregroundLoads.get() > 0,
+				progressCallback,
+				this::saveIndices);
+		this.indexer.start();
+	}
+
+	/**
+	 * See {@link ITrackService}.
+	 */
+	@Override
+	public synchronized void stopIndexing() {
+		if(this.indexer != null) {
+			this.indexer.stop();
+			this.indexer = null;
+		}
+	}
+
+	/**
+	 * See {@link ITrackService}.
+	 * 
+	 * The changes of the files are collected for a short time,
+	 * see {@link LocationWatcher}, and applied all at once.
+	 * Modified tracks are not loaded again until they are needed.
+	 * 
+	 * Returns immediately, the folders of the locations are registered in the background.
+	 * If watching is running already, only the callback is replaced.
+	 */
+	@Override
+	public synchronized void startWatching(final Consumer<TrackChanges> changeCallback) {
+		if(this.watcher == null) {
+			try {
+				this.watcher = new LocationWatcher(paths -> {
+					Consumer<TrackChanges> callback = this.watchCallback;
+					if(callback == null) {
+						return;
+					}
+					TrackChanges changes = applyChanges(paths);
+					if(!changes.isEmpty()) {
+						callback.accept(changes);
+					}
+				});
+			} catch (IOException e) {
+				System.out.println("COULD NOT WATCH LOCATIONS!");
+				e.printStackTrace();
+				return;
+			}
+			this.watcher.start();
+		}
+		if(this.watchCallback == null) {
+			this.watcher.addLocations(this.trackIndices.keySet());
+		}
+		this.watchCallback = changeCallback;
+	}
+
+	/**
+	 * See {@link ITrackService}.
+	 * 
+	 * The {@link watcher} is kept, only its locations are removed.
+	 */
+	@Override
+	public synchronized void stopWatching() {
+		if(this.watchCallback != null) {
+			this.watcher.removeLocations(this.trackIndices.keySet());
+			this.watchCallback = null;
+		}
+	}
+	
+	/**
+	 * Waits until the folders of all locations are watched, such that
+	 * every following change is reported.
+	 */
+	void awaitWatching() throws InterruptedException {
+		LocationWatcher watcher;
+		synchronized(this) {
+			watcher = this.watcher;
+		}
+		if(watcher != null) {
+			watcher.await();
+		}
+	}
+
+	/**
+	 * See {@link ITrackService}.
+	 */
+	@Override
+	public List<TrackMetaInfo> getAvailabeTracks() {
+		return trackMetaInfoList.entrySet().stream()
+			.map(pair -> pair.getValue().copy())
+			.collect(Collectors.toList());	
+	}
+
+	/**
+	 * See {@link ITrackService}.
+	 */
+	@Override
+	public int getTrackCount() {
+		return trackMetaInfoList.size();
+	}
+
+	/**
+	 * See {@link ITrackService}.
+	 * 
+	 * Attention! Only the first route or track is used.
+	 * No merging is done for several routes or tracks.
+	 * See {@link getGPXWaypoints}.
+	 * 
+	 * If no track points are present, this function returns
+	 * an empty list.
+	 */
+	@Override
+	public List<LatLng> getTrackPoints(final String id) {
+		return getCachedTrack(id).asLatLngList();
+	}
+
+	/**
+	 * See {@link ITrackService}.
+	 * 
+	 * Attention! Only the first route or track is used.
+	 * No merging is done for several routes or tracks.
+	 * See {@link getGPXWaypoints}.
+	 */
+	@Override
+	public TrackGeometry getTrackGeometry(final String id) {
+		return getCachedTrack(id);
+	}
+
+	/**
+	 * See {@link ITrackService}.
+	 */
+	@Override
+	public CompletableFuture<List<LatLng>> getTrackPointsAsync(final String id) {
+		return getTrackGeometryAsync(id).thenApply(TrackGeometry::asLatLngList);
+	}
+
+	/**
+	 * See {@link ITrackService}.
+	 * 
+	 * Tracks in the cache are returned right away, duplicates
+	 * share the load of the track they are a duplicate of.
+	 */
+	@Override
+	public CompletableFuture<TrackGeometry> getTrackGeometryAsync(final String id) {
+		String key = cacheKey(id);
+		TrackGeometry geometry = this.trackGeometryCache.getIfPresent(key);
+		if(geometry != null) {
+			return CompletableFuture.completedFuture(geometry);
+		}
+		return singleFlight(this.pendingTracks, key, this::loadIntoCache, this.loader);
+	}
+
+	/**
+	 * See {@link ITrackService}.
+	 * 
+	 * All levels of a track are computed at once, see {@link TrackPyramid}.
+	 */
+	@Override
+	public TrackGeometry getSimplifiedTrackGeometry(final String id, final int zoom) {
+		if(zoom > TrackPyramid.MAX_ZOOM) {
+			return getCachedTrack(id);
+		}
+		
+		String key = cacheKey(id);
+		TrackPyramid pyramid = this.trackPyramidCache.get(key);
+		if(pyramid == null) {
+			pyramid = singleFlight(this.pendingPyramids, key, this::computePyramid, Runnable::run).join();
+		}
+		return pyramid.getLevel(zoom);
+	}
+
+	/**
+	 * See {@link ITrackService}.
+	 * 
+	 * The candidates are found with a spatial index over the bounds of the tracks.
+	 * Tracks which were never loaded before are always candidates.
+	 */
+	@Override
+	public List<TrackMetaInfo> getCandidateTracks(final Bounds bounds) {
+		GeoCandidates candidates = getGeoCandidates(bounds, GeoSearchMode.POINTS);
+		List<TrackMetaInfo> result = new ArrayList<>(candidates.size());
+		result.addAll(candidates.getMatches());
+		result.addAll(candidates.getCandidates());
+		return result;
+	}
+
+	/**
+	 * See {@link ITrackService}.
+	 * 
+	 * The tracks whose bounds intersect the bounds of the area are taken from the
+	 * {@link spatialIndex} and the {@link spatialIndexChanges}. Tracks which have been loaded are further
+	 * classified by the cells of their points, see {@link TrackCellIndex}.
+	 * Only tracks with points in the cells on the border of the area
+	 * and tracks which have not been loaded yet are candidates.
+	 * 
+	 * The cells only tell about the points, a segment may cross the area
+	 * without a point in any of their cells. So with {@link GeoSearchMode#SEGMENTS}
+	 * the tracks without points in the cells are candidates, too.
+	 */
+	@Override
+	public GeoCandidates getGeoCandidates(final GeoArea area, final GeoSearchMode mode) {
+		Bounds bounds = area.getBounds();
+		double minLatitude = bounds.getSouthWest().getLatitude();
+		double minLongitude = bounds.getSouthWest().getLongitude();
+		double maxLatitude = bounds.getNorthEast().getLatitude();
+		double maxLongitude = bounds.getNorthEast().getLongitude();
+		SpatialIndex index = getSpatialIndex();
+		Set<String> found = new LinkedHashSet<>(index.tree.query(minLatitude, minLongitude, maxLatitude, maxLongitude));
+		// Their bounds might be known meanwhile
+		for(Collection<String> tracks : Arrays.asList(index.unindexedTracks, this.spatialIndexChanges)) {
+			for(String id : tracks) {
+				TrackInfo trackInfo = this.trackInfoCache.get(id);
+				if(trackInfo == null) {
+					found.add(id);
+				}
+				else if(trackInfo.getPointCount() > 0
+						&& trackInfo.getMinLatitude() <= maxLatitude && trackInfo.getMaxLatitude() >= minLatitude
+						&& trackInfo.getMinLongitude() <= maxLongitude && trackInfo.getMaxLongitude() >= minLongitude) {
+					found.add(id);
+				}
+			}
+		}
+		List<String> ids = new ArrayList<>(found);
+		
+		List<TrackCellIndex.Match> matches = this.cellIndex.classify(area, ids);
+		List<TrackMetaInfo> inside = new ArrayList<>();
+		List<TrackMetaInfo> candidates = new ArrayList<>();
+		for(int idx = 0; idx < ids.size(); idx++) {
+			TrackMetaInfo trackInfo = this.trackMetaInfoList.get(ids.get(idx));
+			if(trackInfo == null) {
+				continue;
+			}
+			if(matches.get(idx) == TrackCellIndex.Match.INSIDE) {
+				inside.add(trackInfo.copy());
+			}
+			else if(matches.get(idx) != TrackCellIndex.Match.OUTSIDE || mode == GeoSearchMode.SEGMENTS) {
+				candidates.add(trackInfo.copy());
+			}
+		}
+		return new GeoCandidates(inside, candidates);
+	}
+
+	/**
+	 * See {@link ITrackService}.
+	 * 
+	 * The names are kept in a {@link TrackNameIndex}, which is updated
+	 * whenever tracks are found, removed or modified.
+	 */
+	@Override
+	public List<TrackMetaInfo> findTracksByName(final String query, final NameMatch match) {
+		List<String> ids = this.nameIndex.find(query, match);
+		List<TrackMetaInfo> result = new ArrayList<>(ids.size());
+		for(String id : ids) {
+			TrackMetaInfo trackInfo = this.trackMetaInfoList.get(id);
+			if(trackInfo != null) {
+				result.add(trackInfo.copy());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * See {@link ITrackService}.
+	 */
+	@Override
+	public double getTotalDistanceInMeter(final String id) {
+		TrackInfo trackInfo = this.getCachedTrackInfo(id);
+		return trackInfo.getTotalDistance();
+	}
+	
+	/**
+	 * See {@link ITrackService}.
+	 */
+	@Override
+	public double getTotalDistanceInKilometer(final String id) {		
+		return getTotalDistanceInMeter(id) / 1000.0;
+	}
+
+	/**
+	 * See {@link ITrackService}.
+	 */
+	@Override
+	public double getTotalElevation(final String id) {
+		TrackInfo trackInfo = this.getCachedTrackInfo(id);
+		return trackInfo.getTotalElevation();
+	}
+	
+	/**
+	 * See {@link ITrackService}.
+	 * 
+	 * The bounds are part of the {@link TrackInfo}, which is persisted
+	 * in the {@link TrackIndex}.
+	 */
+	@Override
+	public Bounds getBounds(final String id) {
+		return toBounds(this.getCachedTrackInfo(id));
+	}
+	
+	/**
+	 * See {@link ITrackService}.
+	 * 
+	 * Values which are cached or known from the index are returned right away.
+	 */
+	@Override
+	public CompletableFuture<TrackStats> getStatsAsync(final String id) {
+		TrackInfo trackInfo = this.trackInfoCache.get(id);
+		if(trackInfo != null) {
+			return CompletableFuture.completedFuture(toStats(trackInfo));
+		}
+		return singleFlight(this.pendingStats, id, key -> toStats(getCachedTrackInfo(key)), this.loader);
+	}
+	
+	/**
+	 * See {@link ITrackService}.
+	 */
+	@Override
+	public void pinTrack(final String id) {
+		this.pinnedTracks.add(id);
+		this.trackGeometryCache.pin(cacheKey(id));
+		this.trackPyramidCache.pin(cacheKey(id));
+	}
+
+	/**
+	 * See {@link ITrackService}.
+	 * 
+	 * Duplicates share their cache entry, it stays pinned
+	 * as long as any of them is pinned.
+	 */
+	@Override
+	public void unpinTrack(final String id) {
+		this.pinnedTracks.remove(id);
+		String key = cacheKey(id);
+		for(String pinned : this.pinnedTracks) {
+			if(key.equals(cacheKey(pinned))) {
+				return;
+			}
+		}
+		this.trackGeometryCache.unpin(key);
+		this.trackPyramidCache.unpin(key);
+	}
+
+	/**
+	 * See {@link ITrackService}.
+	 * 
+	 * The counters are not reset by {@link setLocations}.
+	 */
+	@Override
+	public CacheStatistics getCacheStatistics() {
+		return this.trackGeometryCache.getStatistics();
+	}
+	
+	/**
+	 * Writes all modified indices to disk.
+	 */
+	public void saveIndices() {
+		for(TrackIndex index : trackIndices.values()) {
+			try {
+				index.save();
+			} catch (IOException e) {
+				System.out.println("COULD NOT SAVE TRACK INDEX!");
+				e.printStackTrace();
+			}
+		}
+	}
+	
+	/**
+	 * Removes the tracks of a location which is no longer set.
+	 * 
+	 * Tracks which are also inside one of the current locations are kept.
+	 */
+	private void removeLocation(final TrackIndex index, final TrackChanges.Builder changes) {
+		for(Map.Entry<Path, String> track : this.idByPath.entrySet()) {
+			String id = track.getValue();
+			if(this.trackIndexById.get(id) == index) {
+				TrackIndex other = indexOf(track.getKey());
+				if(other != null) {
+					this.trackIndexById.put(id, other);
+					this.nameIndex.add(id, nameTerms(track.getKey()));
+				}
+				else {
+					changes.remove(removeTrack(id));
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Applies the changes reported by the {@link watcher}.
+	 * 
+	 * Every path is searched again, tracks which are no longer found
+	 * are removed. Modified tracks get a new id, pinned tracks are
+	 * pinned under the new id instead.
+	 */
+	private synchronized TrackChanges applyChanges(final Set<Path> paths) {
+		TrackChanges.Builder changes = new TrackChanges.Builder();
+		for(Path path : paths) {
+			Map<Path, BasicFileAttributes> files = this.findGPXFiles(path);
+			
+			// Tracks which were deleted
+			List<Path> known = new ArrayList<>();
+			if(this.idByPath.containsKey(path)) {
+				known.add(path);
+			}
+			else if(!files.containsKey(path)) {
+				// A folder, single files are checked above
+				for(Path track : this.idByPath.keySet()) {
+					if(track.startsWith(path)) {
+						known.add(track);
+					}
+				}
+			}
+			for(Path track : known) {
+				if(!files.containsKey(track)) {
+					TrackIndex index = this.trackIndexById.get(this.idByPath.get(track));
+					index.remove(track);
+					changes.remove(removeTrack(this.idByPath.get(track)));
+				}
+			}
+			
+			// Tracks which were created or modified
+			for(Map.Entry<Path, BasicFileAttributes> file : files.entrySet()) {
+				TrackIndex index = indexOf(file.getKey());
+				if(index == null) {
+					continue;
+				}
+				String previousId = this.idByPath.get(file.getKey());
+				if(previousId == null) {
+					TrackMetaInfo trackInfo = addTrack(file.getKey(), file.getValue(), index);
+					if(trackInfo != null) {
+						changes.add(trackInfo);
+					}
+				}
+				else if(!previousId.equals(createId(file.getKey(), file.getValue()))) {
+					// A displayed track stays pinned under its new id
+					boolean pinned = this.pinnedTracks.contains(previousId);
+					if(pinned) {
+						unpinTrack(previousId);
+					}
+					removeTrack(previousId);
+					TrackMetaInfo trackInfo = addTrack(file.getKey(), file.getValue(), index);
+					if(trackInfo != null) {
+						if(pinned) {
+							pinTrack(trackInfo.getId());
+						}
+						changes.update(trackInfo, previousId);
+					}
+				}
+			}
+		}
+		return changes.build();
+	}
+	
+	/**
+	 * Adds a track which was found on disk.
+	 * 
+	 * If the index has an up to date entry with the same content
+	 * hash as another track, the track is recorded in {@link duplicateOf}.
 	 * 
-	 * This class should store information which might
-	 * not be available in all GPX files like totalDistance
-	 * or totalElevation and needs to calculated on demand.
+	 * Thread safe, tracks are added by several threads of the {@link crawler}.
+	 * 
+	 * @param index The index of the location the track was found in.
+	 * @return The new track or null if the track is already known.
 	 */
-	private class TrackInfo {		
-		private double totalDistance;
-		private double totalElevation;
-		
-		public TrackInfo() {
-			this.totalDistance = 0;
-			this.totalElevation = 0;
+	private TrackMetaInfo addTrack(final Path path, final BasicFileAttributes attributes, final TrackIndex index) {
+		TrackMetaInfo trackInfo = new TrackMetaInfo(createId(path, attributes),
+				path.getFileName().toString(),
+				path);
+		String id = trackInfo.getId();
+		if(this.trackMetaInfoList.putIfAbsent(id, trackInfo) != null) {
+			// Found in an overlapping location or by the watcher before
+			return null;
 		}
+		this.idByPath.put(path, id);
+		this.trackIndexById.put(id, index);
+		this.nameIndex.add(id, nameTerms(path));
 		
-		public TrackInfo(double totalLength, double totalElevation) {
-			this.totalDistance = totalLength;
-			this.totalElevation = totalElevation;
-		}
-		
-		public double getTotalDistance() {
-			return this.totalDistance;
+		TrackIndex.Entry entry = index.get(path, attributes);
+		if(entry != null) {
+			// Known without accessing the file again when the spatial index is rebuilt
+			this.trackInfoCache.putIfAbsent(id, entry.getTrackInfo());
+			this.contentHashById.put(id, entry.getHash());
+			String original = this.originalByContentHash.putIfAbsent(entry.getHash(), id);
+			if(original != null && !original.equals(id)) {
+				this.duplicateOf.put(id, original);
+			}
 		}
 		
-		public double getTotalElevation() {
-			return this.totalElevation;
+		if(this.pinnedTracks.contains(id)) {
+			this.trackGeometryCache.pin(cacheKey(id));
+			this.trackPyramidCache.pin(cacheKey(id));
 		}
+		this.spatialIndexChanges.add(id);
+		return trackInfo;
 	}
 	
 	/**
-	 * Contains a map of GPX files found on disk along
-	 * with some basic information like name and path.
+	 * Removes a track whose file was deleted or modified, or whose location was removed.
 	 * 
-	 * The {@code id} of {@link TrackMetaInfo} is used as a key to uniquely
-	 * identify each track.
+	 * The content of the track is removed from the caches. If there are duplicates
+	 * of the track, the first of them takes over its cache entries.
+	 * The track stays pinned, as the file might be found again.
 	 */
-	private Map<String, TrackMetaInfo> trackMetaInfoList;
+	private TrackMetaInfo removeTrack(final String id) {
+		TrackMetaInfo trackInfo = this.trackMetaInfoList.remove(id);
+		this.idByPath.remove(trackInfo.getPath(), id);
+		this.trackIndexById.remove(id);
+		this.trackInfoCache.remove(id);
+		this.nameIndex.remove(id);
+		this.cellIndex.remove(id);
+		
+		Long hash = this.contentHashById.remove(id);
+		if(hash != null && this.duplicateOf.remove(id) == null) {
+			// Other tracks might be duplicates of this one
+			String successor = null;
+			for(Map.Entry<String, String> duplicate : this.duplicateOf.entrySet()) {
+				if(duplicate.getValue().equals(id)) {
+					if(successor == null) {
+						successor = duplicate.getKey();
+						this.duplicateOf.remove(successor);
+					}
+					else {
+						duplicate.setValue(successor);
+					}
+				}
+			}
+			
+			if(successor != null) {
+				this.originalByContentHash.put(hash, successor);
+				moveCacheEntry(this.trackGeometryCache, id, successor);
+				moveCacheEntry(this.trackPyramidCache, id, successor);
+				for(String pinned : this.pinnedTracks) {
+					if(successor.equals(cacheKey(pinned))) {
+						this.trackGeometryCache.pin(successor);
+						this.trackPyramidCache.pin(successor);
+					}
+				}
+			}
+			else {
+				this.originalByContentHash.remove(hash, id);
+			}
+		}
+		
+		this.trackGeometryCache.remove(id);
+		this.trackPyramidCache.remove(id);
+		this.spatialIndexChanges.add(id);
+		return trackInfo;
+	}
 	
+	private static <V> void moveCacheEntry(final WeightedLruCache<String, V> cache, final String from, final String to) {
+		V value = cache.remove(from);
+		if(value != null) {
+			cache.put(to, value);
+		}
+	}
 	
 	/**
-	 * Serves as a cache such that the information stored in 
-	 * {@link TrackInfo} needs to be computed only once.
-	 * The {@code id} from {@link TrackMetaInfo}
-	 * is used as a key.
+	 * @return The index of the first location containing the path or null.
 	 */
-	private ConcurrentMap<String, TrackInfo> trackInfoCache;
-	
-	/**
-	 * Serves as a cache such that the track files need
-	 * only to be loaded once. 
-	 * The {@code id} from {@link TrackMetaInfo}
-	 * is used as a key.
-	 */	
-	private ConcurrentMap<String, GPX> gpxFileCache;
-
-	public TrackService() {
-		init();
+	private TrackIndex indexOf(final Path path) {
+		for(Map.Entry<Path, TrackIndex> location : this.trackIndices.entrySet()) {
+			if(path.startsWith(location.getKey())) {
+				return location.getValue();
+			}
+		}
+		return null;
 	}
 	
-	private void init() {
-		trackMetaInfoList = new HashMap<>();
-		gpxFileCache = new ConcurrentHashMap<>();
-		trackInfoCache = new ConcurrentHashMap<>();
-	}
-
 	/**
-	 * See {@link ITrackService}.
+	 * @return The folders between the first location containing the path
+	 * and the track, followed by the name of the track.
 	 */
-	@Override
-	public void setLocations(final List<String> locations) {
-		init();
-		findAvailableTracks(locations);
+	private List<String> nameTerms(final Path path) {
+		List<String> terms = new ArrayList<>();
+		for(Path location : this.trackIndices.keySet()) {
+			if(path.startsWith(location)) {
+				for(Path component : location.relativize(path)) {
+					terms.add(component.toString());
+				}
+				return terms;
+			}
+		}
+		terms.add(path.getFileName().toString());
+		return terms;
 	}
-
+	
 	/**
-	 * See {@link ITrackService}.
+	 * Converts a location into an absolute path, such that it
+	 * matches the paths reported by the {@link watcher}.
+	 * 
+	 * @return The path or null if the location is not a valid path.
 	 */
-	@Override
-	public List<TrackMetaInfo> getAvailabeTracks() {
-		return trackMetaInfoList.entrySet().stream()
-			.map(pair -> pair.getValue().copy())
-			.collect(Collectors.toList());	
+	private static Path toLocation(final String location) {
+		try {
+			return Paths.get(location).toAbsolutePath().normalize();
+		} catch (InvalidPathException e) {
+			return null;
+		}
 	}
 
 	/**
-	 * See {@link ITrackService}.
+	 * Searches for tracks at the given location.
 	 * 
-	 * Attention! Only the first route or track is used.
-	 * No merging is done for several routes or tracks.
-	 * See {@link getGPXWaypoints}.
+	 * Folders which cannot be read are skipped. If the location
+	 * is a track itself, only the track is returned.
 	 * 
-	 * If no track points are present, this function returns
-	 * an empty list.
+	 * @return The tracks in the order they were found, together with their attributes.
 	 */
-	@Override
-	public List<LatLng> getTrackPoints(final String id) {
-		GPX gpx = getCachedTrack(id);
-		
-		List<LatLng> result = new LinkedList<>();
-		
-		Optional<List<Waypoint>> waypoints = getGPXWaypoints(gpx);
-		if(waypoints.isPresent()) {
-			result = waypoints.get().stream()
-					.map(p -> new LatLng(p.getLatitude(), p.getLongitude()))
-					.collect(Collectors.toList());
+	private Map<Path, BasicFileAttributes> findGPXFiles(final Path searchPathRoot) {
+		final Map<Path, BasicFileAttributes> results = new LinkedHashMap<>();
+		final PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:*.gpx");
+		try {
+			Files.walkFileTree(searchPathRoot, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+					BasicFileAttributes target = attributes;
+					if(attributes.isSymbolicLink()) {
+						// Links to files are followed like by the DirectoryCrawler
+						try {
+							target = Files.readAttributes(file, BasicFileAttributes.class);
+						} catch (IOException e) {
+							return FileVisitResult.CONTINUE;
+						}
+					}
+					if(target.isRegularFile() && matcher.matches(file.getFileName())) {
+						results.put(file, target);
+					}
+					return FileVisitResult.CONTINUE;
+				}
+				
+				@Override
+				public FileVisitResult visitFileFailed(Path file, IOException e) {
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} catch (IOException e) {
+			results.clear();
 		}
-		
-		return result;
-	}
 
+		return results;		
+	}
+	
 	/**
-	 * See {@link ITrackService}.
+	 * Creates the id of a track from its path, size and modification time.
+	 * 
+	 * The id stays the same across restarts as long as the file is
+	 * unchanged, so it can be used to store information about the track.
 	 */
-	@Override
-	public double getTotalDistanceInMeter(final String id) {
-		TrackInfo trackInfo = this.getCachedTrackInfo(id);
-		return trackInfo.getTotalDistance();
+	static String createId(final Path path, final BasicFileAttributes attributes) {
+		String key = path.toAbsolutePath().normalize().toString() + '\0' +
+				attributes.size() + '\0' +
+				attributes.lastModifiedTime().toMillis();
+		return String.format("%016x", XXHash64.hash(key));
 	}
 	
 	/**
-	 * See {@link ITrackService}.
+	 * The key of a track in the caches of the geometry.
+	 * 
+	 * Duplicates use the key of the track they are a duplicate of.
 	 */
-	@Override
-	public double getTotalDistanceInKilometer(final String id) {		
-		return getTotalDistanceInMeter(id) / 1000.0;
+	private String cacheKey(final String id) {
+		String original = this.duplicateOf.get(id);
+		return (original != null) ? original : id;
 	}
-
+	
 	/**
-	 * See {@link ITrackService}.
+	 * Loads the geometry of a track from disk.
+	 * 
+	 * If the encoding of the file cannot be handled by the {@link GPXGeometryReader},
+	 * the complete file is parsed instead, see {@link parseTrack}.
+	 * 
+	 * The track is also stored in the index, see {@link indexTrack},
+	 * and its points are added to the {@link cellIndex}.
+	 * 
+	 * If the track is found in the {@link trackStore}, the GPX file is
+	 * not read at all. Otherwise the parsed track is added to the store.
+	 * 
+	 * @return The track or null if the file cannot be read.
 	 */
-	@Override
-	public double getTotalElevation(final String id) {
-		TrackInfo trackInfo = this.getCachedTrackInfo(id);
-		return trackInfo.getTotalElevation();
+	private TrackGeometry loadTrack(final TrackMetaInfo trackInfo) {
+		BasicFileAttributes attributes = null;
+		TrackGeometry geometry;
+		TrackInfo info;
+		long hash;
+		try {
+			// Read the attributes first, such that a concurrent modification invalidates the entry
+			attributes = Files.readAttributes(trackInfo.getPath(), BasicFileAttributes.class);
+		} catch (IOException e) {
+			// Not indexed
+		}
+		
+		TrackStore store = this.trackStore;
+		TrackStore.Entry stored = (store != null) ? store.read(trackInfo.getId()) : null;
+		if(stored != null) {
+			geometry = stored.getGeometry();
+			info = stored.getTrackInfo();
+			hash = stored.getHash();
+		}
+		else {
+			XXHash64 checksum = new XXHash64();
+			try(InputStream in = new CheckedInputStream(Files.newInputStream(trackInfo.getPath()), checksum)) {
+				geometry = GPXGeometryReader.read(in);
+				hash = checksum.getValue();
+			} catch (UnsupportedEncodingException e) {
+				GPX gpx = parseTrack(trackInfo);
+				if(gpx == null) {
+					// Neither cached nor indexed, the file is read again next time
+					return null;
+				}
+				geometry = toGeometry(gpx);
+				hash = computeHash(trackInfo.getPath());
+			} catch (IOException e) {
+				System.out.println("COULD NOT LOAD TRACK!");
+				e.printStackTrace();
+				return null;
+			}
+			info = TrackInfo.compute(geometry);
+			
+			if(store != null && !geometry.isEmpty()) {
+				try {
+					store.write(trackInfo.getId(), hash, info, geometry);
+				} catch (IOException e) {
+					System.out.println("COULD NOT STORE TRACK!");
+					e.printStackTrace();
+				}
+			}
+		}
+		
+		if(attributes != null) {
+			indexTrack(trackInfo, attributes, hash, info);
+		}
+		if(!this.cellIndex.contains(trackInfo.getId()) && this.trackMetaInfoList.containsKey(trackInfo.getId())) {
+			this.cellIndex.add(trackInfo.getId(), geometry);
+		}
+		return geometry;
 	}
 	
 	/**
-	 * Searches for available tracks on disk and 
-	 * gathers some meta information about them.
-	 * 
-	 * No tracks are actually loaded!
+	 * Stores the {@code TrackInfo} of a track in the index of its location.
 	 */
-	private void findAvailableTracks(final List<String> locations) {
-		trackMetaInfoList = locations.stream()
-				.flatMap(path -> (this.findGPXFiles(path)).stream())
-				.map(name -> { 
-					return new TrackMetaInfo(UUID.randomUUID().toString().substring(0, 6),
-							name.getFileName().toString(),
-							name);	
-				})
-				.collect(Collectors.toMap(TrackMetaInfo::getId, Function.identity()));
+	private void indexTrack(final TrackMetaInfo trackInfo, final BasicFileAttributes attributes,
+			final long hash, final TrackInfo info) {
+		TrackIndex index = this.trackIndexById.get(trackInfo.getId());
+		if(index != null) {
+			index.put(trackInfo.getPath(), new TrackIndex.Entry(attributes.size(),
+					attributes.lastModifiedTime().toMillis(), hash, info));
+			putTrackInfo(trackInfo.getId(), info);
+		}
 	}
-
+	
 	/**
-	 * Searches for tracks at the given location.
+	 * Computes the hash of the content of a file as stored in the {@link TrackIndex}.
+	 * 
+	 * @return The hash or 0 if the file cannot be read.
 	 */
-	private List<Path> findGPXFiles(final String searchPathRoot) {
-		List<Path> results;
-		final PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:*.gpx");
-		try {
-			results = Files.walk(Paths.get(searchPathRoot))
-					.filter(path -> matcher.matches(path.getFileName()))
-					.collect(Collectors.toList());
-		} catch (IOException e) {		
-			results = new ArrayList<>();
+	private static long computeHash(final Path path) {
+		XXHash64 checksum = new XXHash64();
+		byte[] buffer = new byte[64 * 1024];
+		try(InputStream in = Files.newInputStream(path)) {
+			int read;
+			while((read = in.read(buffer)) >= 0) {
+				checksum.update(buffer, 0, read);
+			}
+		} catch (IOException e) {
+			return 0;
 		}
-
-		return results;		
+		return checksum.getValue();
 	}
 	
 	/**
-	 * Loads a track from disk.
+	 * Parses the complete GPX file with the selected parser.
 	 * 
-	 * The track is also stored in the cache {@link gpxFileCache}
+	 * @return The parsed file or null if it cannot be read.
 	 */
-	private GPX loadTrack(final TrackMetaInfo trackInfo) {
-		GPXParser p = new GPXParser();
-		FileInputStream in = null;
-		GPX gpx = null;
-		try {
-			in = new FileInputStream(trackInfo.getPath().toString());
-			gpx = p.parseGPX(in);
+	private GPX parseTrack(final TrackMetaInfo trackInfo) {
+		GPXParser p = PARSER_DOM.equals(this.parser) ? new GPXParser() : new StreamingGPXParser();
+		try(FileInputStream in = new FileInputStream(trackInfo.getPath().toString())) {
+			return p.parseGPX(in);
 		} catch (Exception e) {
 			System.out.println("COULD NOT LOAD TRACK!");
 			e.printStackTrace();
-			
-			// Create dummy gpx file such that the rest of 
-			// the functions in this class do not constantly have to 
-			// check for null pointers
-			gpx = new GPX();
+			return null;
+		}
+	}
+	
+	/**
+	 * Converts the waypoints of the first route or track into a {@code TrackGeometry}.
+	 */
+	private TrackGeometry toGeometry(final GPX gpx) {
+		Optional<List<Waypoint>> waypoints = getGPXWaypoints(gpx);
+		if(!waypoints.isPresent()) {
+			return TrackGeometry.EMPTY;
 		}
-				
-		// Store the file in the cache
-		this.gpxFileCache.put(trackInfo.getId(), gpx);
 		
-		return gpx;
+		TrackGeometry.Builder builder = new TrackGeometry.Builder(waypoints.get().size());
+		for(Waypoint p : waypoints.get()) {
+			builder.add(p.getLatitude(), p.getLongitude(),
+					(p.getElevation() != null) ? p.getElevation().floatValue() : Float.NaN,
+					(p.getTime() != null) ? p.getTime().getTime() : TrackGeometry.NO_TIME);
+		}
+		return builder.build();
 	}
 	
 	/**
 	 * Computes the {@code TrackInfo} for the given track.
 	 * 
+	 * If the index contains an up to date entry, the file is not read at all.
+	 * Otherwise the track is loaded, which updates the index.
+	 * 
 	 * Attention! Only the first route or track is used.
 	 * No merging is done for several routes or tracks.
 	 */
 	private TrackInfo computeTrackInfo(final String id) {
-		GPX gpx = this.getCachedTrack(id);
-		TrackInfo result = new TrackInfo();
+		TrackMetaInfo trackInfo = this.trackMetaInfoList.get(id);
+		TrackIndex index = this.trackIndexById.get(id);
+		if(trackInfo == null || index == null) {
+			// Removed meanwhile
+			return TrackInfo.compute(TrackGeometry.EMPTY);
+		}
 		
-		Optional<List<Waypoint>> waypoints = getGPXWaypoints(gpx);
-		if(waypoints.isPresent()) {			
-			double totalDistance = GPXHelperFunctions.ComputeTotalDistance(waypoints.get());
-			double totalElevation = GPXHelperFunctions.ComputeTotalElevation(waypoints.get());		
-			result = new TrackInfo(totalDistance, totalElevation);
+		TrackIndex.Entry entry = index.get(trackInfo.getPath());
+		if(entry != null) {
+			return entry.getTrackInfo();
 		}
 		
-		return result;
+		// Loading the track also computes the TrackInfo, see indexTrack
+		TrackGeometry geometry = this.getCachedTrack(id);
+		TrackInfo result = this.trackInfoCache.get(id);
+		return (result != null) ? result : TrackInfo.compute(geometry);
 	}
 	
 	/**
@@ -297,15 +1520,227 @@ public class TrackService implements ITrackService{
 	 * 
 	 * If the track is not in the cache,
 	 * load it and store it in the cache.
+	 * If the track is being loaded already, waits for that load.
+	 * 
+	 * For duplicates, the track with the same content is loaded instead.
+	 */
+	private TrackGeometry getCachedTrack(final String id) {
+		String key = cacheKey(id);
+		TrackGeometry geometry = this.trackGeometryCache.getIfPresent(key);
+		if(geometry != null) {
+			return geometry;
+		}
+		return singleFlight(this.pendingTracks, key, this::loadIntoCache, Runnable::run).join();
+	}
+	
+	/**
+	 * Loads a track and stores it in the cache, called by {@link singleFlight}.
+	 * Only counts a miss of the cache if the track is actually loaded,
+	 * requests waiting for the load are not counted.
+	 * 
+	 * @return The track or an empty geometry if it cannot be read,
+	 * which is not cached.
+	 */
+	private TrackGeometry loadIntoCache(final String key) {
+		TrackMetaInfo trackInfo = this.trackMetaInfoList.get(key);
+		if(trackInfo == null) {
+			// Removed meanwhile
+			return TrackGeometry.EMPTY;
+		}
+		
+		// Another load might have completed between the lookup and the start of this one
+		TrackGeometry geometry = this.trackGeometryCache.get(key);
+		if(geometry != null) {
+			return geometry;
+		}
+		
+		this.foregroundLoads.incrementAndGet();
+		try {
+			geometry = loadTrack(trackInfo);
+		} finally {
+			this.foregroundLoads.decrementAndGet();
+		}
+		if(geometry == null) {
+			return TrackGeometry.EMPTY;
+		}
+		this.trackGeometryCache.put(key, geometry);
+		return geometry;
+	}
+	
+	/**
+	 * Computes all levels of a track and stores them in the cache, called by {@link singleFlight}.
+	 */
+	private TrackPyramid computePyramid(final String key) {
+		TrackPyramid pyramid = TrackPyramid.compute(getCachedTrack(key));
+		if(pyramid.getPointCount() > 0) {
+			// Empty tracks might be tracks which could not be read
+			this.trackPyramidCache.put(key, pyramid);
+		}
+		return pyramid;
+	}
+	
+	/**
+	 * Runs the given computation on the executor, unless a computation
+	 * for the same key is running already, then its future is returned.
+	 * 
+	 * Callers only wait for the future, no lock is held, so computations for
+	 * different keys never block each other. The future is removed once it is
+	 * completed, the result has to be cached by the computation itself.
+	 * Failures are therefore not kept.
+	 * 
+	 * @param executor {@code Runnable::run} computes on the calling thread,
+	 * the returned future is completed then.
+	 */
+	private static <T> CompletableFuture<T> singleFlight(final ConcurrentMap<String, CompletableFuture<T>> pending,
+			final String key, final Function<String, T> compute, final Executor executor) {
+		CompletableFuture<T> future = new CompletableFuture<>();
+		CompletableFuture<T> running = pending.putIfAbsent(key, future);
+		if(running != null) {
+			return running;
+		}
+		
+		executor.execute(() -> {
+			try {
+				future.complete(compute.apply(key));
+			} catch (RuntimeException | Error e) {
+				future.completeExceptionally(e);
+			} finally {
+				pending.remove(key, future);
+			}
+		});
+		return future;
+	}
+	
+	private static ThreadPoolExecutor createDiscoverer() {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1,
+				DISCOVERER_KEEP_ALIVE_MS, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+					Thread thread = new Thread(runnable, "TrackDiscoverer-" + discovererThreadCount.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+	
+	private static ThreadPoolExecutor createLoader() {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(LOADER_THREADS, LOADER_THREADS,
+				LOADER_KEEP_ALIVE_MS, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+					Thread thread = new Thread(runnable, "TrackLoader-" + loaderThreadCount.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+	
+	private static TrackStats toStats(final TrackInfo trackInfo) {
+		return new TrackStats(trackInfo.getTotalDistance(), trackInfo.getTotalElevation(), toBounds(trackInfo));
+	}
+	
+	/**
+	 * @return The bounds of the track, null if it has no points.
+	 */
+	private static Bounds toBounds(final TrackInfo trackInfo) {
+		return (trackInfo.getPointCount() > 0) ? trackInfo.getBounds() : null;
+	}
+	
+	/**
+	 * Indexes a single track in the background.
+	 * 
+	 * If the index has an up to date entry, the file is only read
+	 * if the track fits into the cache without evicting other tracks.
+	 * Otherwise the points are only read from the {@link trackStore}
+	 * to add them to the {@link cellIndex}, if not known yet.
 	 */
-	private GPX getCachedTrack(final String id) {
-		synchronized(this.trackMetaInfoList.get(id)) {			
-			if(! this.gpxFileCache.containsKey(id)) {
-				GPX trackData = loadTrack(trackMetaInfoList.get(id));
-				this.gpxFileCache.put(id, trackData);			
+	private void preloadTrack(final String id) {
+		TrackMetaInfo trackInfo = this.trackMetaInfoList.get(id);
+		TrackIndex index = this.trackIndexById.get(id);
+		if(trackInfo == null || index == null) {
+			// The track was removed meanwhile
+			return;
+		}
+		
+		TrackIndex.Entry entry = index.get(trackInfo.getPath());
+		if(entry != null) {
+			if(this.trackInfoCache.putIfAbsent(id, entry.getTrackInfo()) == null) {
+				this.spatialIndexChanges.add(id);
+			}
+			if(this.duplicateOf.containsKey(id)) {
+				// The content is loaded for the original track
+				return;
+			}
+			if(!this.trackGeometryCache.hasRoomFor(weigh(entry.getTrackInfo().getPointCount()))) {
+				TrackStore store = this.trackStore;
+				TrackStore.Entry stored = (store != null && !this.cellIndex.contains(id)) ? store.read(id) : null;
+				if(stored != null) {
+					this.cellIndex.add(id, stored.getGeometry());
+				}
+				return;
+			}
+		}
+		
+		// A request of the user must not wait for a low priority thread, so its load
+		// is not shared. If it starts meanwhile, the track is simply loaded twice.
+		if(!this.trackGeometryCache.contains(id) && !this.pendingTracks.containsKey(id)) {
+			preloadIntoCache(id);
+		}
+	}
+	
+	/**
+	 * Loads a track and stores it in the cache if there is room for it.
+	 */
+	private void preloadIntoCache(final String key) {
+		TrackMetaInfo trackInfo = this.trackMetaInfoList.get(key);
+		if(trackInfo == null) {
+			return;
+		}
+		TrackGeometry geometry = loadTrack(trackInfo);
+		if(geometry != null) {
+			this.trackGeometryCache.putIfRoom(key, geometry);
+		}
+	}
+	
+	/**
+	 * The default for {@link PROPERTY_INDEX_DIRECTORY}.
+	 */
+	private static Path defaultIndexDirectory() {
+		String instanceArea = System.getProperty("osgi.instance.area");
+		if(instanceArea != null) {
+			try {
+				return Paths.get(new URL(instanceArea).toURI()).resolve(".trackexplorer").resolve("index");
+			} catch (MalformedURLException | URISyntaxException | IllegalArgumentException e) {
+				// Use the home directory instead
 			}
-			return this.gpxFileCache.get(id);
 		}
+		return Paths.get(System.getProperty("user.home"), ".trackexplorer", "index");
+	}
+	
+	/**
+	 * The directory of the {@link TrackStore}, next to the given index directory.
+	 */
+	private static Path storeDirectory(final Path indexDirectory) {
+		return indexDirectory.resolveSibling("store");
+	}
+	
+	/**
+	 * Estimates the memory needed for the given geometry in bytes.
+	 */
+	private static long weigh(final TrackGeometry geometry) {
+		return weigh(geometry.size());
+	}
+	
+	/**
+	 * Estimates the memory needed for all levels of the given pyramid in bytes.
+	 */
+	private static long weigh(final TrackPyramid pyramid) {
+		return weigh(pyramid.getPointCount());
+	}
+	
+	/**
+	 * Estimates the memory needed for a geometry with the given number of points in bytes.
+	 */
+	private static long weigh(final int pointCount) {
+		return GEOMETRY_OVERHEAD + (long) pointCount * TrackGeometry.BYTES_PER_POINT;
 	}
 	
 	/**
@@ -315,8 +1750,103 @@ public class TrackService implements ITrackService{
 	 * compute it and store it in the cache.
 	 */
 	private TrackInfo getCachedTrackInfo(final String id) {		
-		return this.trackInfoCache.
-				computeIfAbsent(id, trackId -> computeTrackInfo(trackId));
+		TrackInfo trackInfo = this.trackInfoCache.get(id);
+		if(trackInfo == null) {
+			// Not computed within computeIfAbsent, computing might load
+			// the track which adds its TrackInfo to the cache, too
+			trackInfo = computeTrackInfo(id);
+			if(trackInfo.getPointCount() == 0) {
+				// Might be a track which could not be read, readable
+				// empty tracks are cached when they are loaded
+				return trackInfo;
+			}
+			TrackInfo previous = this.trackInfoCache.putIfAbsent(id, trackInfo);
+			if(previous != null) {
+				trackInfo = previous;
+			}
+			else {
+				this.spatialIndexChanges.add(id);
+			}
+		}
+		return trackInfo;
+	}
+	
+	/**
+	 * Stores a new {@code TrackInfo} in the cache.
+	 */
+	private void putTrackInfo(final String id, final TrackInfo trackInfo) {
+		this.trackInfoCache.put(id, trackInfo);
+		this.spatialIndexChanges.add(id);
+	}
+	
+	/**
+	 * Returns the spatial index, rebuilds it once enough tracks changed since
+	 * it was built, see {@link SPATIAL_INDEX_BATCH}. Until then the changed
+	 * tracks are checked one by one, see {@link getGeoCandidates}.
+	 * 
+	 * Only the first build is waited for. While the index is rebuilt, other
+	 * searches use the previous one. No monitor of the service is held.
+	 * 
+	 * The bounds are taken from the cached {@link TrackInfo}, which is known
+	 * for all tracks found with an up to date entry of the {@link TrackIndex}
+	 * and all tracks which have been loaded. Neither the tracks nor their files
+	 * are read. Empty tracks are neither in the spatial index nor in the
+	 * unindexed tracks, as they never match.
+	 */
+	private SpatialIndex getSpatialIndex() {
+		SpatialIndex index = this.spatialIndex;
+		if(index != null && !needsRebuild(index)) {
+			return index;
+		}
 		
+		if(index == null) {
+			this.spatialIndexLock.lock();
+		}
+		else if(!this.spatialIndexLock.tryLock()) {
+			// Rebuilt by another search
+			return index;
+		}
+		try {
+			index = this.spatialIndex;
+			if(index != null && !needsRebuild(index)) {
+				return index;
+			}
+			
+			// Tracks changed meanwhile stay in the changes
+			List<String> changes = new ArrayList<>(this.spatialIndexChanges);
+			List<String> ids = new ArrayList<>();
+			List<TrackInfo> infos = new ArrayList<>();
+			List<String> unindexed = new ArrayList<>();
+			for(String id : this.trackMetaInfoList.keySet()) {
+				TrackInfo trackInfo = this.trackInfoCache.get(id);
+				if(trackInfo == null) {
+					unindexed.add(id);
+				}
+				else if(trackInfo.getPointCount() > 0) {
+					ids.add(id);
+					infos.add(trackInfo);
+				}
+			}
+			
+			double[] boxes = new double[ids.size() * 4];
+			for(int idx = 0; idx < infos.size(); idx++) {
+				TrackInfo trackInfo = infos.get(idx);
+				boxes[idx * 4] = trackInfo.getMinLatitude();
+				boxes[idx * 4 + 1] = trackInfo.getMinLongitude();
+				boxes[idx * 4 + 2] = trackInfo.getMaxLatitude();
+				boxes[idx * 4 + 3] = trackInfo.getMaxLongitude();
+			}
+			
+			index = new SpatialIndex(new STRTree<>(ids, boxes), unindexed);
+			this.spatialIndex = index;
+			this.spatialIndexChanges.removeAll(changes);
+			return index;
+		} finally {
+			this.spatialIndexLock.unlock();
+		}
+	}
+	
+	private boolean needsRebuild(final SpatialIndex index) {
+		return this.spatialIndexChanges.size() >= Math.max(SPATIAL_INDEX_BATCH, index.size() / 4);
 	}
 }
@@ -0,0 +1,122 @@
+package org.trackexplorer.service.track;
+
+import org.trackexplorer.model.TrackGeometry;
+
+/**
+ * Computes all values of a {@link TrackInfo} in a single pass over the
+ * primitive columns of a {@link TrackGeometry}.
+ *
+ * No objects are created besides the resulting {@code TrackInfo}.
+ *
+ * The total elevation keeps the semantics of
+ * {@link GPXHelperFunctions#ComputeTotalElevation(TrackGeometry)}: positive
+ * deltas of at least a quarter of the average elevation are ignored. The average
+ * is only known at the end, so the elevations are read a second time
+ * if such a delta was seen. For most tracks this is never the case.
+ */
+class TrackStatistics {
+	/**
+	 * Segments with a lower speed in meters per second
+	 * do not count towards the moving time.
+	 */
+	static final double MOVING_SPEED = 0.5;
+
+	private TrackStatistics() {
+	}
+
+	/**
+	 * Computes the information for the given track.
+	 */
+	static TrackInfo compute(final TrackGeometry geometry) {
+		int size = geometry.size();
+
+		double totalDistance = 0.0;
+		double minLatitude = Double.POSITIVE_INFINITY;
+		double minLongitude = Double.POSITIVE_INFINITY;
+		double maxLatitude = Double.NEGATIVE_INFINITY;
+		double maxLongitude = Double.NEGATIVE_INFINITY;
+
+		double elevationSum = 0.0;
+		int elevationCount = 0;
+		double minElevation = Double.NaN;
+		double maxElevation = Double.NaN;
+		double ascent = 0.0;
+		double descent = 0.0;
+		double maxAscentDelta = 0.0;
+		double previousElevation = Double.NaN;
+
+		long movingTime = 0;
+		double maxSpeed = 0.0;
+
+		double previousLatitude = 0.0;
+		double previousLongitude = 0.0;
+		long previousTime = TrackGeometry.NO_TIME;
+		for(int idx = 0; idx < size; idx++) {
+			double latitude = geometry.getLatitude(idx);
+			double longitude = geometry.getLongitude(idx);
+			minLatitude = Math.min(minLatitude, latitude);
+			minLongitude = Math.min(minLongitude, longitude);
+			maxLatitude = Math.max(maxLatitude, latitude);
+			maxLongitude = Math.max(maxLongitude, longitude);
+
+			long time = geometry.getTime(idx);
+			if(idx > 0) {
+				double distance = GPXHelperFunctions.DistanceInMeter(previousLatitude, previousLongitude, latitude, longitude);
+				totalDistance += distance;
+
+				if(time != TrackGeometry.NO_TIME && previousTime != TrackGeometry.NO_TIME && time > previousTime) {
+					long duration = time - previousTime;
+					double speed = distance * 1000.0 / duration;
+					if(speed >= MOVING_SPEED) {
+						movingTime += duration;
+					}
+					maxSpeed = Math.max(maxSpeed, speed);
+				}
+			}
+
+			// Deltas are taken between consecutive points with elevation
+			if(geometry.hasElevation(idx)) {
+				double elevation = geometry.getElevation(idx);
+				elevationSum += elevation;
+				elevationCount++;
+				if(Double.isNaN(previousElevation)) {
+					minElevation = elevation;
+					maxElevation = elevation;
+				}
+				else {
+					minElevation = Math.min(minElevation, elevation);
+					maxElevation = Math.max(maxElevation, elevation);
+					double delta = elevation - previousElevation;
+					if(delta > 0) {
+						ascent += delta;
+						maxAscentDelta = Math.max(maxAscentDelta, delta);
+					}
+					else {
+						descent -= delta;
+					}
+				}
+				previousElevation = elevation;
+			}
+
+			previousLatitude = latitude;
+			previousLongitude = longitude;
+			previousTime = time;
+		}
+
+		double totalElevation = 0.0;
+		if(size > 1 && elevationCount > 0) {
+			double averageElevationThreshold = (elevationSum / elevationCount) * 0.25;
+			if(maxAscentDelta < averageElevationThreshold) {
+				// No delta is filtered
+				totalElevation = ascent;
+			}
+			else {
+				totalElevation = GPXHelperFunctions.ComputeTotalElevation(geometry);
+			}
+		}
+
+		return new TrackInfo(totalDistance, totalElevation, size,
+				minLatitude, minLongitude, maxLatitude, maxLongitude,
+				ascent, descent, minElevation, maxElevation, movingTime, maxSpeed);
+	}
+}
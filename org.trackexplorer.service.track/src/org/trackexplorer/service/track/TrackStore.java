@@ -0,0 +1,363 @@
+package org.trackexplorer.service.track;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Set;
+
+import org.trackexplorer.model.TrackGeometry;
+
+/**
+ * Stores parsed tracks in a directory, one binary file per track, such
+ * that a track only has to be parsed once.
+ *
+ * The files are named after the id of the track. As the id changes whenever
+ * the GPX file is modified, a file is valid as long as it exists.
+ *
+ * A file starts with {@link MAGIC}, {@link VERSION}, the hash of the content
+ * of the GPX file, the number of points, some flags and the {@link TrackInfo},
+ * which contains the bounds. The columns follow one after the other:
+ * latitudes, longitudes, elevations and times. Coordinates are stored as
+ * multiples of {@link COORDINATE_SCALE} degrees, elevations as multiples of
+ * {@link ELEVATION_SCALE} meters, both as variable length differences to
+ * the previous point, as are the times. If a column cannot be represented
+ * exactly this way, its raw values are stored instead. Columns of tracks
+ * without elevation or time are left out.
+ *
+ * The files are read with {@link FileChannel#map}, the columns are decoded
+ * right from the mapped memory, so the operating system caches the files.
+ *
+ * The store is thread safe, files are replaced atomically.
+ */
+class TrackStore {
+	/**
+	 * Identifies a file of the store.
+	 */
+	static final int MAGIC = 0x54585453;
+
+	/**
+	 * Has to be increased whenever the format of the file changes.
+	 */
+	static final int VERSION = 1;
+
+	/**
+	 * Coordinates with up to 7 decimals, which is about 1 cm, are stored as integers.
+	 */
+	static final double COORDINATE_SCALE = 1e7;
+
+	/**
+	 * Elevations with up to 2 decimals are stored as integers.
+	 */
+	static final double ELEVATION_SCALE = 100;
+
+	private static final String SUFFIX = ".trk";
+
+	private static final int SCALED_COORDINATES = 1;
+	private static final int HAS_ELEVATION = 2;
+	private static final int SCALED_ELEVATIONS = 4;
+	private static final int HAS_TIME = 8;
+
+	/**
+	 * A track read from the store.
+	 */
+	static class Entry {
+		private final long hash;
+		private final TrackInfo trackInfo;
+		private final TrackGeometry geometry;
+
+		Entry(final long hash, final TrackInfo trackInfo, final TrackGeometry geometry) {
+			this.hash = hash;
+			this.trackInfo = trackInfo;
+			this.geometry = geometry;
+		}
+
+		/**
+		 * @return The hash of the content of the GPX file.
+		 */
+		long getHash() {
+			return hash;
+		}
+
+		TrackInfo getTrackInfo() {
+			return trackInfo;
+		}
+
+		TrackGeometry getGeometry() {
+			return geometry;
+		}
+	}
+
+	private final Path directory;
+
+	TrackStore(final Path directory) {
+		this.directory = directory;
+	}
+
+	Path getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Reads the given track.
+	 *
+	 * @return The track or null if it is not stored or the file cannot be read.
+	 */
+	Entry read(final String id) {
+		Path file = fileFor(id);
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return decode(buffer);
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+			System.out.println("COULD NOT READ STORED TRACK " + file);
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Stores the given track, an existing file is replaced.
+	 */
+	void write(final String id, final long hash, final TrackInfo trackInfo, final TrackGeometry geometry) throws IOException {
+		int size = geometry.size();
+		boolean hasElevation = false;
+		boolean hasTime = false;
+		for(int idx = 0; idx < size; idx++) {
+			hasElevation |= geometry.hasElevation(idx);
+			hasTime |= geometry.hasTime(idx);
+		}
+		boolean scaledCoordinates = hasScalableCoordinates(geometry);
+		boolean scaledElevations = hasElevation && hasScalableElevations(geometry);
+
+		Files.createDirectories(directory);
+		Path file = fileFor(id);
+		Path temp = Files.createTempFile(directory, id, ".tmp");
+		try {
+			try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeLong(hash);
+				out.writeInt(size);
+				out.writeByte((scaledCoordinates ? SCALED_COORDINATES : 0)
+						| (hasElevation ? HAS_ELEVATION : 0)
+						| (scaledElevations ? SCALED_ELEVATIONS : 0)
+						| (hasTime ? HAS_TIME : 0));
+				trackInfo.write(out);
+
+				if(scaledCoordinates) {
+					long previous = 0;
+					for(int idx = 0; idx < size; idx++) {
+						long value = Math.round(geometry.getLatitude(idx) * COORDINATE_SCALE);
+						writeVarLong(out, value - previous);
+						previous = value;
+					}
+					previous = 0;
+					for(int idx = 0; idx < size; idx++) {
+						long value = Math.round(geometry.getLongitude(idx) * COORDINATE_SCALE);
+						writeVarLong(out, value - previous);
+						previous = value;
+					}
+				}
+				else {
+					for(int idx = 0; idx < size; idx++) {
+						out.writeDouble(geometry.getLatitude(idx));
+					}
+					for(int idx = 0; idx < size; idx++) {
+						out.writeDouble(geometry.getLongitude(idx));
+					}
+				}
+
+				if(scaledElevations) {
+					long previous = 0;
+					for(int idx = 0; idx < size; idx++) {
+						long value = Math.round(geometry.getElevation(idx) * ELEVATION_SCALE);
+						writeVarLong(out, value - previous);
+						previous = value;
+					}
+				}
+				else if(hasElevation) {
+					for(int idx = 0; idx < size; idx++) {
+						out.writeFloat(geometry.getElevation(idx));
+					}
+				}
+
+				if(hasTime) {
+					// The differences might overflow if points without time are
+					// mixed with points with time, which is undone when reading
+					long previous = 0;
+					for(int idx = 0; idx < size; idx++) {
+						writeVarLong(out, geometry.getTime(idx) - previous);
+						previous = geometry.getTime(idx);
+					}
+				}
+			}
+
+			try {
+				Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * Deletes the files of all tracks which are not in the given set.
+	 */
+	void retainAll(final Set<String> ids) {
+		try(DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+			for(Path file : files) {
+				String name = file.getFileName().toString();
+				if(!ids.contains(name.substring(0, name.length() - SUFFIX.length()))) {
+					Files.deleteIfExists(file);
+				}
+			}
+		} catch (NoSuchFileException e) {
+			// Nothing stored yet
+		} catch (IOException e) {
+			System.out.println("COULD NOT CLEAN UP TRACK STORE!");
+			e.printStackTrace();
+		}
+	}
+
+	private Path fileFor(final String id) {
+		return directory.resolve(id + SUFFIX);
+	}
+
+	private static Entry decode(final MappedByteBuffer buffer) throws IOException {
+		if(buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+			throw new IOException("Unknown format");
+		}
+		long hash = buffer.getLong();
+		int size = buffer.getInt();
+		int flags = buffer.get();
+		byte[] info = new byte[TrackInfo.BYTES];
+		buffer.get(info);
+		TrackInfo trackInfo = TrackInfo.read(new DataInputStream(new ByteArrayInputStream(info)));
+		// Every point takes at least one byte per coordinate, a broken file must not allocate huge arrays
+		if(size < 0 || size > buffer.remaining() / 2) {
+			throw new IOException("Invalid number of points " + size);
+		}
+
+		double[] latitudes = new double[size];
+		double[] longitudes = new double[size];
+		if((flags & SCALED_COORDINATES) != 0) {
+			long value = 0;
+			for(int idx = 0; idx < size; idx++) {
+				value += readVarLong(buffer);
+				latitudes[idx] = value / COORDINATE_SCALE;
+			}
+			value = 0;
+			for(int idx = 0; idx < size; idx++) {
+				value += readVarLong(buffer);
+				longitudes[idx] = value / COORDINATE_SCALE;
+			}
+		}
+		else {
+			buffer.asDoubleBuffer().get(latitudes);
+			buffer.position(buffer.position() + size * Double.BYTES);
+			buffer.asDoubleBuffer().get(longitudes);
+			buffer.position(buffer.position() + size * Double.BYTES);
+		}
+
+		float[] elevations = new float[size];
+		if((flags & SCALED_ELEVATIONS) != 0) {
+			long value = 0;
+			for(int idx = 0; idx < size; idx++) {
+				value += readVarLong(buffer);
+				elevations[idx] = (float) (value / ELEVATION_SCALE);
+			}
+		}
+		else if((flags & HAS_ELEVATION) != 0) {
+			buffer.asFloatBuffer().get(elevations);
+			buffer.position(buffer.position() + size * Float.BYTES);
+		}
+		else {
+			Arrays.fill(elevations, Float.NaN);
+		}
+
+		long[] times = new long[size];
+		if((flags & HAS_TIME) != 0) {
+			long value = 0;
+			for(int idx = 0; idx < size; idx++) {
+				value += readVarLong(buffer);
+				times[idx] = value;
+			}
+		}
+		else {
+			Arrays.fill(times, TrackGeometry.NO_TIME);
+		}
+
+		// The arrays are not used afterwards, so they are not copied again
+		return new Entry(hash, trackInfo, TrackGeometry.wrap(latitudes, longitudes, elevations, times));
+	}
+
+	/**
+	 * Checks whether all coordinates can be restored exactly from their scaled values.
+	 */
+	private static boolean hasScalableCoordinates(final TrackGeometry geometry) {
+		for(int idx = 0; idx < geometry.size(); idx++) {
+			double latitude = geometry.getLatitude(idx);
+			double longitude = geometry.getLongitude(idx);
+			if(Math.round(latitude * COORDINATE_SCALE) / COORDINATE_SCALE != latitude
+					|| Math.round(longitude * COORDINATE_SCALE) / COORDINATE_SCALE != longitude) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Checks whether all elevations can be restored exactly from their scaled values.
+	 * Missing elevations cannot be scaled.
+	 */
+	private static boolean hasScalableElevations(final TrackGeometry geometry) {
+		for(int idx = 0; idx < geometry.size(); idx++) {
+			float elevation = geometry.getElevation(idx);
+			if((float) (Math.round(elevation * ELEVATION_SCALE) / ELEVATION_SCALE) != elevation) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Writes a zig-zag encoded variable length integer,
+	 * small absolute values need few bytes.
+	 */
+	private static void writeVarLong(final DataOutputStream out, final long value) throws IOException {
+		long bits = (value << 1) ^ (value >> 63);
+		while((bits & ~0x7FL) != 0) {
+			out.writeByte((int) ((bits & 0x7F) | 0x80));
+			bits >>>= 7;
+		}
+		out.writeByte((int) bits);
+	}
+
+	private static long readVarLong(final MappedByteBuffer buffer) {
+		long bits = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = buffer.get();
+			bits |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while((b & 0x80) != 0);
+		return (bits >>> 1) ^ -(bits & 1);
+	}
+}
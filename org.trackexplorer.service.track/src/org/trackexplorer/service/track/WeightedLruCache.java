@@ -0,0 +1,182 @@
+package org.trackexplorer.service.track;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+
+import org.trackexplorer.model.CacheStatistics;
+
+/**
+ * A thread safe cache which is bounded by the total weight of its values.
+ *
+ * Whenever the total weight exceeds the maximum weight, the least recently
+ * used entries are evicted. Keys can be pinned, values of pinned keys are never
+ * evicted, but still count towards the total weight. A key can be pinned before
+ * its value is in the cache.
+ *
+ * A value which is heavier than the maximum weight on its own is not retained
+ * unless its key is pinned.
+ */
+class WeightedLruCache<K, V> {
+	private final ToLongFunction<V> weigher;
+	
+	/**
+	 * The entries in access order, the least recently used entry comes first.
+	 */
+	private final LinkedHashMap<K, V> entries;
+	private final Set<K> pinned;
+	private long maximumWeight;
+	private long weight;
+	
+	private long hitCount;
+	private long missCount;
+	private long evictionCount;
+	
+	/**
+	 * @param maximumWeight The maximum total weight of all values.
+	 * @param weigher Computes the weight of a value, must not change for a given value.
+	 */
+	WeightedLruCache(final long maximumWeight, final ToLongFunction<V> weigher) {
+		this.weigher = weigher;
+		this.entries = new LinkedHashMap<>(16, 0.75f, true);
+		this.pinned = new HashSet<>();
+		this.maximumWeight = maximumWeight;
+	}
+	
+	/**
+	 * @return The value or null if the key is not in the cache.
+	 */
+	synchronized V get(final K key) {
+		V value = entries.get(key);
+		if(value != null) {
+			hitCount++;
+		}
+		else {
+			missCount++;
+		}
+		return value;
+	}
+	
+	/**
+	 * Stores the value and evicts other entries if necessary.
+	 */
+	synchronized void put(final K key, final V value) {
+		V previous = entries.put(key, value);
+		if(previous != null) {
+			weight -= weigher.applyAsLong(previous);
+		}
+		weight += weigher.applyAsLong(value);
+		evict();
+	}
+	
+	/**
+	 * Stores the value only if the key is not in the cache yet and the
+	 * value fits without evicting other entries.
+	 * 
+	 * @return True if the value was stored.
+	 */
+	synchronized boolean putIfRoom(final K key, final V value) {
+		long valueWeight = weigher.applyAsLong(value);
+		if(entries.containsKey(key) || weight + valueWeight > maximumWeight) {
+			return false;
+		}
+		entries.put(key, value);
+		weight += valueWeight;
+		return true;
+	}
+	
+	/**
+	 * Same as {@link get}, but a miss is not counted. Used when
+	 * the value is requested again with {@link get} on a miss.
+	 * 
+	 * @return The value or null if the key is not in the cache.
+	 */
+	synchronized V getIfPresent(final K key) {
+		V value = entries.get(key);
+		if(value != null) {
+			hitCount++;
+		}
+		return value;
+	}
+	
+	/**
+	 * Checks whether the key is in the cache. Neither the
+	 * counters nor the order of the entries are changed.
+	 */
+	synchronized boolean contains(final K key) {
+		return entries.containsKey(key);
+	}
+	
+	/**
+	 * Checks whether a value of the given weight fits into the
+	 * cache without evicting other entries.
+	 */
+	synchronized boolean hasRoomFor(final long valueWeight) {
+		return weight + valueWeight <= maximumWeight;
+	}
+	
+	/**
+	 * Removes the value and the pin of the key.
+	 * 
+	 * @return The value or null if the key was not in the cache.
+	 */
+	synchronized V remove(final K key) {
+		pinned.remove(key);
+		V value = entries.remove(key);
+		if(value != null) {
+			weight -= weigher.applyAsLong(value);
+		}
+		return value;
+	}
+	
+	synchronized void pin(final K key) {
+		pinned.add(key);
+	}
+	
+	/**
+	 * Allows the value to be evicted again, which might happen immediately.
+	 */
+	synchronized void unpin(final K key) {
+		if(pinned.remove(key)) {
+			evict();
+		}
+	}
+	
+	synchronized void setMaximumWeight(final long maximumWeight) {
+		this.maximumWeight = maximumWeight;
+		evict();
+	}
+	
+	/**
+	 * Removes all entries and pins. The counters are kept.
+	 */
+	synchronized void clear() {
+		entries.clear();
+		pinned.clear();
+		weight = 0;
+	}
+	
+	synchronized CacheStatistics getStatistics() {
+		return new CacheStatistics(hitCount, missCount, evictionCount,
+				entries.size(), weight, maximumWeight);
+	}
+	
+	/**
+	 * Removes the least recently used entries which are not pinned
+	 * until the total weight is within the limit.
+	 */
+	private void evict() {
+		Iterator<Map.Entry<K, V>> it = entries.entrySet().iterator();
+		while(weight > maximumWeight && it.hasNext()) {
+			Map.Entry<K, V> entry = it.next();
+			if(!pinned.contains(entry.getKey())) {
+				weight -= weigher.applyAsLong(entry.getValue());
+				it.remove();
+				evictionCount++;
+			}
+		}
+	}
+}
@@ -0,0 +1,182 @@
+package org.trackexplorer.service.track;
+
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Checksum;
+
+/**
+ * The 64 bit variant of the xxHash algorithm, see https://github.com/Cyan4973/xxHash.
+ *
+ * Used for the ids of the tracks and for the hash of the content of a
+ * file in the {@link TrackIndex}. It is much faster than a cryptographic
+ * hash, and unlike a CRC32 its 64 bits make collisions unlikely even
+ * for millions of files.
+ *
+ * Implements {@link Checksum}, such that it can be used with a
+ * {@link java.util.zip.CheckedInputStream}. {@link getValue} can be
+ * called at any time without affecting further updates.
+ */
+class XXHash64 implements Checksum {
+	private static final long PRIME1 = 0x9E3779B185EBCA87L;
+	private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+	private static final long PRIME3 = 0x165667B19E3779F9L;
+	private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+	private static final long PRIME5 = 0x27D4EB2F165667C5L;
+
+	private final long seed;
+	private long v1;
+	private long v2;
+	private long v3;
+	private long v4;
+
+	/**
+	 * Bytes which do not fill a complete stripe of 32 bytes yet.
+	 */
+	private final byte[] buffer = new byte[32];
+	private int buffered;
+	private long length;
+
+	XXHash64() {
+		this(0);
+	}
+
+	XXHash64(final long seed) {
+		this.seed = seed;
+		reset();
+	}
+
+	/**
+	 * @return The hash of the given bytes.
+	 */
+	static long hash(final byte[] data, final int offset, final int length, final long seed) {
+		XXHash64 hash = new XXHash64(seed);
+		hash.update(data, offset, length);
+		return hash.getValue();
+	}
+
+	/**
+	 * @return The hash of the UTF-8 representation of the given string.
+	 */
+	static long hash(final String value) {
+		byte[] data = value.getBytes(StandardCharsets.UTF_8);
+		return hash(data, 0, data.length, 0);
+	}
+
+	@Override
+	public void update(final int b) {
+		update(new byte[] {(byte) b}, 0, 1);
+	}
+
+	@Override
+	public void update(final byte[] data, final int offset, final int count) {
+		length += count;
+		int position = offset;
+		int end = offset + count;
+
+		// Complete a partially filled stripe first
+		if(buffered > 0) {
+			int missing = Math.min(32 - buffered, count);
+			System.arraycopy(data, position, buffer, buffered, missing);
+			buffered += missing;
+			position += missing;
+			if(buffered < 32) {
+				return;
+			}
+			processStripe(buffer, 0);
+			buffered = 0;
+		}
+
+		while(end - position >= 32) {
+			processStripe(data, position);
+			position += 32;
+		}
+
+		System.arraycopy(data, position, buffer, 0, end - position);
+		buffered = end - position;
+	}
+
+	@Override
+	public long getValue() {
+		long hash;
+		if(length >= 32) {
+			hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+			hash = mergeRound(hash, v1);
+			hash = mergeRound(hash, v2);
+			hash = mergeRound(hash, v3);
+			hash = mergeRound(hash, v4);
+		}
+		else {
+			hash = seed + PRIME5;
+		}
+		hash += length;
+
+		int position = 0;
+		while(buffered - position >= 8) {
+			hash ^= round(0, readLong(buffer, position));
+			hash = Long.rotateLeft(hash, 27) * PRIME1 + PRIME4;
+			position += 8;
+		}
+		if(buffered - position >= 4) {
+			hash ^= (readInt(buffer, position) & 0xFFFFFFFFL) * PRIME1;
+			hash = Long.rotateLeft(hash, 23) * PRIME2 + PRIME3;
+			position += 4;
+		}
+		while(position < buffered) {
+			hash ^= (buffer[position] & 0xFF) * PRIME5;
+			hash = Long.rotateLeft(hash, 11) * PRIME1;
+			position++;
+		}
+
+		hash ^= hash >>> 33;
+		hash *= PRIME2;
+		hash ^= hash >>> 29;
+		hash *= PRIME3;
+		hash ^= hash >>> 32;
+		return hash;
+	}
+
+	@Override
+	public void reset() {
+		v1 = seed + PRIME1 + PRIME2;
+		v2 = seed + PRIME2;
+		v3 = seed;
+		v4 = seed - PRIME1;
+		buffered = 0;
+		length = 0;
+	}
+
+	private void processStripe(final byte[] data, final int offset) {
+		v1 = round(v1, readLong(data, offset));
+		v2 = round(v2, readLong(data, offset + 8));
+		v3 = round(v3, readLong(data, offset + 16));
+		v4 = round(v4, readLong(data, offset + 24));
+	}
+
+	private static long round(long accumulator, final long input) {
+		accumulator += input * PRIME2;
+		accumulator = Long.rotateLeft(accumulator, 31);
+		return accumulator * PRIME1;
+	}
+
+	private static long mergeRound(long accumulator, final long value) {
+		accumulator ^= round(0, value);
+		return accumulator * PRIME1 + PRIME4;
+	}
+
+	private static long readLong(final byte[] data, final int offset) {
+		return (data[offset] & 0xFFL)
+				| (data[offset + 1] & 0xFFL) << 8
+				| (data[offset + 2] & 0xFFL) << 16
+				| (data[offset + 3] & 0xFFL) << 24
+				| (data[offset + 4] & 0xFFL) << 32
+				| (data[offset + 5] & 0xFFL) << 40
+				| (data[offset + 6] & 0xFFL) << 48
+				| (data[offset + 7] & 0xFFL) << 56;
+	}
+
+	private static int readInt(final byte[] data, final int offset) {
+		return (data[offset] & 0xFF)
+				| (data[offset + 1] & 0xFF) << 8
+				| (data[offset + 2] & 0xFF) << 16
+				| (data[offset + 3] & 0xFF) << 24;
+	}
+}
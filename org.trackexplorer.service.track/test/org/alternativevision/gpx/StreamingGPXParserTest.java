@@ -0,0 +1,124 @@
+package org.alternativevision.gpx;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.alternativevision.gpx.beans.GPX;
+import org.alternativevision.gpx.beans.Route;
+import org.alternativevision.gpx.beans.Track;
+import org.alternativevision.gpx.beans.Waypoint;
+import org.alternativevision.gpx.extensions.DummyExtensionParser;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link StreamingGPXParser} class.
+ *
+ * The results are compared to the ones of the DOM based {@link GPXParser}.
+ */
+public class StreamingGPXParserTest {
+	private static final String GPX_DATA =
+			"<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+			"<gpx version=\"1.1\" creator=\"test\" xmlns=\"http://www.topografix.com/GPX/1/1\">\n" +
+			"  <metadata><name>ignored</name></metadata>\n" +
+			"  <wpt lat=\"47.1\" lon=\"8.1\"><ele>410.5</ele><name>Summit</name><sat>7</sat><fix>3d</fix></wpt>\n" +
+			"  <trk>\n" +
+			"    <name>Track</name><number>3</number>\n" +
+			"    <extensions><speed>12</speed></extensions>\n" +
+			"    <trkseg>\n" +
+			"      <trkpt lat=\"1.0\" lon=\"2.0\"><ele>100</ele><time>2015-06-01T10:00:00Z</time></trkpt>\n" +
+			"    </trkseg>\n" +
+			"    <trkseg>\n" +
+			"      <trkpt lat=\"1.5\" lon=\"2.5\"><ele>110</ele><time>2015-06-01T10:00:05Z</time><extensions><hr>80</hr></extensions></trkpt>\n" +
+			"      <trkpt lat=\"1.6\" lon=\"2.6\"><hdop>1.5</hdop></trkpt>\n" +
+			"    </trkseg>\n" +
+			"  </trk>\n" +
+			"  <rte><name><![CDATA[Route & more]]></name>\n" +
+			"    <rtept lat=\"-3.0\" lon=\"-4.0\"/>\n" +
+			"    <rtept lat=\"-3.1\" lon=\"-4.1\"><desc>Turn left</desc></rtept>\n" +
+			"  </rte>\n" +
+			"</gpx>\n";
+
+	private GPX parse(GPXParser parser) throws Exception {
+		parser.addExtensionParser(new DummyExtensionParser());
+		try(InputStream in = new ByteArrayInputStream(GPX_DATA.getBytes(StandardCharsets.UTF_8))) {
+			return parser.parseGPX(in);
+		}
+	}
+
+	private void assertWaypointEquals(Waypoint expected, Waypoint actual) {
+		assertEquals(expected.getLatitude(), actual.getLatitude());
+		assertEquals(expected.getLongitude(), actual.getLongitude());
+		assertEquals(expected.getElevation(), actual.getElevation());
+		assertEquals(expected.getTime(), actual.getTime());
+		assertEquals(expected.getName(), actual.getName());
+		assertEquals(expected.getDescription(), actual.getDescription());
+		assertEquals(expected.getSat(), actual.getSat());
+		assertEquals(expected.getFix(), actual.getFix());
+		assertEquals(expected.getHdop(), actual.getHdop());
+		assertEquals(expected.getExtensionData(), actual.getExtensionData());
+	}
+
+	private void assertWaypointsEquals(List<Waypoint> expected, List<Waypoint> actual) {
+		assertEquals(expected.size(), actual.size());
+		for(int idx = 0; idx < expected.size(); idx++) {
+			assertWaypointEquals(expected.get(idx), actual.get(idx));
+		}
+	}
+
+	@Test
+	public void testSameResultAsDomParser() throws Exception {
+		GPX expected = parse(new GPXParser());
+		GPX actual = parse(new StreamingGPXParser());
+
+		assertEquals(expected.getVersion(), actual.getVersion());
+		assertEquals(expected.getCreator(), actual.getCreator());
+
+		assertEquals(1, actual.getWaypoints().size());
+		assertWaypointEquals(expected.getWaypoints().iterator().next(), actual.getWaypoints().iterator().next());
+
+		assertEquals(1, actual.getTracks().size());
+		Track expectedTrack = expected.getTracks().iterator().next();
+		Track actualTrack = actual.getTracks().iterator().next();
+		assertEquals(expectedTrack.getName(), actualTrack.getName());
+		assertEquals(expectedTrack.getNumber(), actualTrack.getNumber());
+		assertEquals(expectedTrack.getExtensionData(), actualTrack.getExtensionData());
+		assertWaypointsEquals(expectedTrack.getTrackPoints(), actualTrack.getTrackPoints());
+
+		assertEquals(1, actual.getRoutes().size());
+		Route expectedRoute = expected.getRoutes().iterator().next();
+		Route actualRoute = actual.getRoutes().iterator().next();
+		assertEquals("Route & more", actualRoute.getName());
+		assertEquals(expectedRoute.getName(), actualRoute.getName());
+		assertWaypointsEquals(expectedRoute.getRoutePoints(), actualRoute.getRoutePoints());
+	}
+
+	@Test
+	public void testTimeZones() throws Exception {
+		long expected = 1433152800000L; // 2015-06-01T10:00:00Z
+		String points =
+				"<trkpt lat=\"1.0\" lon=\"2.0\"><time>2015-06-01T10:00:00Z</time></trkpt>" +
+				"<trkpt lat=\"1.0\" lon=\"2.0\"><time>2015-06-01T10:00:00</time></trkpt>" +
+				"<trkpt lat=\"1.0\" lon=\"2.0\"><time>2015-06-01T12:00:00.000+02:00</time></trkpt>" +
+				"<trkpt lat=\"1.0\" lon=\"2.0\"><time>2015-06-01T08:30:00-0130</time></trkpt>";
+		String data = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><gpx version=\"1.1\"><trk><trkseg>" + points + "</trkseg></trk></gpx>";
+
+		for(GPXParser parser : new GPXParser[] { new GPXParser(), new StreamingGPXParser() }) {
+			GPX gpx = parser.parseGPX(new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)));
+			List<Waypoint> waypoints = gpx.getTracks().iterator().next().getTrackPoints();
+			assertEquals(4, waypoints.size());
+			for(Waypoint waypoint : waypoints) {
+				assertEquals(expected, waypoint.getTime().getTime());
+			}
+		}
+	}
+
+	@Test
+	public void testRootNodeIsNotGpx() throws Exception {
+		InputStream in = new ByteArrayInputStream("<kml><trk/></kml>".getBytes(StandardCharsets.UTF_8));
+		assertNull(new StreamingGPXParser().parseGPX(in));
+	}
+}
@@ -0,0 +1,109 @@
+package org.trackexplorer.service.track;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link DirectoryCrawler} class.
+ */
+public class DirectoryCrawlerTest {
+	private Path directory;
+	private Set<Path> tracks;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("crawler");
+		tracks = new HashSet<>();
+		for(int year = 2015; year < 2018; year++) {
+			for(int month = 1; month <= 12; month++) {
+				Path folder = Files.createDirectories(directory.resolve(Integer.toString(year)).resolve(Integer.toString(month)));
+				tracks.add(Files.createFile(folder.resolve("track.gpx")));
+				Files.createFile(folder.resolve("notes.txt"));
+			}
+		}
+		tracks.add(Files.createFile(directory.resolve("top.gpx")));
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		try(Stream<Path> paths = Files.walk(directory)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	@Test
+	public void testAllTracksAreFound() throws InterruptedException {
+		Set<Path> found = ConcurrentHashMap.newKeySet();
+		List<Boolean> reports = new CopyOnWriteArrayList<>();
+		DirectoryCrawler crawler = new DirectoryCrawler(Arrays.asList(directory, directory.resolve("missing")),
+				(path, attributes) -> assertTrue(found.add(path)),
+				progress -> reports.add(progress.isFinished()));
+		crawler.start();
+		crawler.await();
+
+		assertEquals(tracks, found);
+		assertEquals(tracks.size(), crawler.getTrackCount());
+		// The root, the years and the months, the missing root is counted, too
+		assertEquals(1 + 3 + 36 + 1, crawler.getFolderCount());
+		assertTrue(crawler.isFinished());
+		assertFalse(crawler.isCancelled());
+		assertEquals(Boolean.TRUE, reports.get(reports.size() - 1));
+		assertEquals(1, reports.stream().filter(finished -> finished).count());
+	}
+
+	@Test
+	public void testFilesAndLinks() throws IOException, InterruptedException {
+		Path links = Files.createDirectory(directory.resolve("links"));
+		Path linkedTrack = Files.createSymbolicLink(links.resolve("linked.gpx"), directory.resolve("top.gpx"));
+		// Not followed, the tracks of the folder are found once
+		Files.createSymbolicLink(links.resolve("folder"), directory.resolve("2015"));
+		Files.createSymbolicLink(links.resolve("broken.gpx"), directory.resolve("missing.gpx"));
+
+		Set<Path> found = ConcurrentHashMap.newKeySet();
+		DirectoryCrawler crawler = new DirectoryCrawler(Arrays.asList(links, directory.resolve("top.gpx")),
+				(path, attributes) -> {
+					assertTrue(attributes.isRegularFile());
+					assertTrue(found.add(path));
+				},
+				progress -> {});
+		crawler.start();
+		crawler.await();
+
+		assertEquals(new HashSet<>(Arrays.asList(linkedTrack, directory.resolve("top.gpx"))), found);
+		assertEquals(2, crawler.getTrackCount());
+		assertEquals(1, crawler.getFolderCount());
+	}
+
+	@Test
+	public void testCancel() throws InterruptedException {
+		Set<Path> found = ConcurrentHashMap.newKeySet();
+		DirectoryCrawler crawler = new DirectoryCrawler(Arrays.asList(directory),
+				(path, attributes) -> found.add(path),
+				progress -> {});
+		crawler.start();
+		crawler.cancel();
+		crawler.await();
+		int count = found.size();
+
+		assertTrue(crawler.isFinished());
+		assertTrue(crawler.isCancelled());
+		assertTrue(count <= tracks.size());
+		Thread.sleep(50);
+		assertEquals(count, found.size());
+	}
+}
@@ -0,0 +1,147 @@
+package org.trackexplorer.service.track;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.alternativevision.gpx.GPXParser;
+import org.alternativevision.gpx.StreamingGPXParser;
+import org.alternativevision.gpx.beans.GPX;
+import org.alternativevision.gpx.beans.Waypoint;
+import org.junit.Test;
+import org.trackexplorer.model.TrackGeometry;
+
+/**
+ * Tests for the {@link GPXGeometryReader} class.
+ */
+public class GPXGeometryReaderTest {
+
+	private TrackGeometry read(String gpx) throws IOException {
+		return GPXGeometryReader.read(new ByteArrayInputStream(gpx.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	@Test
+	public void testTrackPoints() throws IOException {
+		TrackGeometry points = read(
+				"<?xml version=\"1.0\"?>\n" +
+				"<!-- <trk><trkseg><trkpt lat=\"9\" lon=\"9\"/></trkseg></trk> -->\n" +
+				"<gpx creator=\"a > b\">\n" +
+				"<wpt lat=\"5.0\" lon=\"5.0\"><ele>5</ele></wpt>\n" +
+				"<trk><name><![CDATA[<trkpt lat=\"8\" lon=\"8\"/>]]></name>\n" +
+				"<trkseg><trkpt lat=\"1.5\" lon=\"-2.25\"><ele> 100.5 </ele><time>2015-06-01T10:00:00Z</time></trkpt>\n" +
+				"<trkpt lon='3' lat='-1e-1'/></trkseg>\n" +
+				"<trkseg><trkpt lat=\"2\" lon=\"4\"><extensions><hr>80</hr></extensions></trkpt></trkseg>\n" +
+				"</trk>\n" +
+				"<trk><trkseg><trkpt lat=\"7\" lon=\"7\"/></trkseg></trk>\n" +
+				"</gpx>");
+
+		assertEquals(3, points.size());
+		assertEquals(1.5, points.getLatitude(0), 0.0);
+		assertEquals(-2.25, points.getLongitude(0), 0.0);
+		assertEquals(100.5, points.getElevation(0), 0.0);
+		assertEquals(-0.1, points.getLatitude(1), 0.0);
+		assertEquals(3.0, points.getLongitude(1), 0.0);
+		assertFalse(points.hasElevation(1));
+		assertEquals(1433152800000L, points.getTime(0));
+		assertFalse(points.hasTime(1));
+		assertEquals(2.0, points.getLatitude(2), 0.0);
+		assertEquals(4.0, points.getLongitude(2), 0.0);
+	}
+
+	@Test
+	public void testRoutesArePreferred() throws IOException {
+		TrackGeometry points = read(
+				"<gpx:gpx xmlns:gpx=\"http://www.topografix.com/GPX/1/1\">" +
+				"<gpx:trk><gpx:trkseg><gpx:trkpt lat=\"1\" lon=\"1\"/></gpx:trkseg></gpx:trk>" +
+				"<gpx:rte><gpx:rtept lat=\"2\" lon=\"3\"><gpx:ele>4</gpx:ele></gpx:rtept></gpx:rte>" +
+				"<gpx:rte><gpx:rtept lat=\"5\" lon=\"6\"/></gpx:rte>" +
+				"</gpx:gpx>");
+
+		assertEquals(1, points.size());
+		assertEquals(2.0, points.getLatitude(0), 0.0);
+		assertEquals(3.0, points.getLongitude(0), 0.0);
+		assertEquals(4.0, points.getElevation(0), 0.0);
+	}
+
+	@Test
+	public void testLargeFile() throws IOException {
+		// Exceeds the internal buffer several times
+		StringBuilder gpx = new StringBuilder("<gpx><trk><trkseg>");
+		int count = 20000;
+		for(int idx = 0; idx < count; idx++) {
+			gpx.append("<trkpt lat=\"").append(idx * 0.001).append("\" lon=\"").append(-idx * 0.002)
+				.append("\"><ele>").append(idx).append("</ele><name>Point ").append(idx).append("</name></trkpt>\n");
+		}
+		gpx.append("</trkseg></trk></gpx>");
+
+		TrackGeometry points = read(gpx.toString());
+		assertEquals(count, points.size());
+		for(int idx = 0; idx < count; idx++) {
+			assertEquals(idx * 0.001, points.getLatitude(idx), 0.0);
+			assertEquals(-idx * 0.002, points.getLongitude(idx), 0.0);
+			assertEquals(idx, points.getElevation(idx), 0.0);
+		}
+	}
+
+	@Test
+	public void testSameAsParsers() throws Exception {
+		String gpx =
+				"<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+				"<gpx version=\"1.1\"><trk>\n" +
+				"<trkseg><trkpt lat=\"47.0\" lon=\"8.0\"><ele>400</ele><time>2015-06-01T10:00:00Z</time></trkpt></trkseg>\n" +
+				"<trkseg><trkpt lat=\"47.1\" lon=\"8.0\"><ele>450</ele><time>2015-06-01T12:00:05+02:00</time></trkpt>" +
+				"<trkpt lat=\"47.1\" lon=\"8.1\"><time>2015-06-01T10:00:10</time></trkpt></trkseg>\n" +
+				"</trk></gpx>";
+		TrackGeometry geometry = read(gpx);
+		assertEquals(3, geometry.size());
+
+		for(GPXParser parser : new GPXParser[] { new GPXParser(), new StreamingGPXParser() }) {
+			GPX parsed = parser.parseGPX(new ByteArrayInputStream(gpx.getBytes(StandardCharsets.UTF_8)));
+			List<Waypoint> waypoints = parsed.getTracks().iterator().next().getTrackPoints();
+			assertEquals(geometry.size(), waypoints.size());
+			for(int idx = 0; idx < geometry.size(); idx++) {
+				Waypoint waypoint = waypoints.get(idx);
+				assertEquals(waypoint.getLatitude(), geometry.getLatitude(idx), 0.0);
+				assertEquals(waypoint.getLongitude(), geometry.getLongitude(idx), 0.0);
+				float elevation = (waypoint.getElevation() != null) ? waypoint.getElevation().floatValue() : Float.NaN;
+				assertEquals(elevation, geometry.getElevation(idx), 0.0f);
+				assertEquals(1433152800000L + idx * 5000, waypoint.getTime().getTime());
+				assertEquals(waypoint.getTime().getTime(), geometry.getTime(idx));
+			}
+		}
+	}
+
+	@Test(expected = UnsupportedEncodingException.class)
+	public void testUnsupportedEncoding() throws IOException {
+		GPXGeometryReader.read(new ByteArrayInputStream("<gpx></gpx>".getBytes(StandardCharsets.UTF_16)));
+	}
+
+	@Test
+	public void testParseDouble() {
+		String[] values = { "0", "-0.5", "+12.75", "47.123456789012", "8.1234567890123456789", "1e3", "  3.5 ", "100." };
+		for(String value : values) {
+			byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+			assertEquals(Double.parseDouble(value), GPXGeometryReader.parseDouble(bytes, 0, bytes.length), 0.0);
+		}
+		byte[] invalid = "abc".getBytes(StandardCharsets.US_ASCII);
+		assertTrue(Double.isNaN(GPXGeometryReader.parseDouble(invalid, 0, invalid.length)));
+	}
+
+	@Test
+	public void testParseTime() {
+		String[] values = { "2015-06-01T10:00:00Z", "2015-06-01T10:00:00.5Z", "2015-06-01T12:00:00.123+02:00",
+				"1969-12-31T23:59:59Z", "2000-02-29T00:00:00", "2015-06-01T05:30:00-0430" };
+		long[] expected = { 1433152800000L, 1433152800500L, 1433152800123L,
+				-1000L, 951782400000L, 1433152800000L };
+		for(int idx = 0; idx < values.length; idx++) {
+			byte[] bytes = values[idx].getBytes(StandardCharsets.US_ASCII);
+			assertEquals(values[idx], expected[idx], GPXGeometryReader.parseTime(bytes, 0, bytes.length));
+		}
+		byte[] invalid = "2015-13-01T10:00:00Z".getBytes(StandardCharsets.US_ASCII);
+		assertEquals(TrackGeometry.NO_TIME, GPXGeometryReader.parseTime(invalid, 0, invalid.length));
+	}
+}
@@ -9,6 +9,7 @@ import java.util.stream.IntStream;
 
 import org.alternativevision.gpx.beans.Waypoint;
 import org.junit.Test;
+import org.trackexplorer.model.TrackGeometry;
 
 public class GPXHelperFunctionsTest {
 
@@ -65,4 +66,29 @@ public class GPXHelperFunctionsTest {
 				.collect(Collectors.toList());
 		assertEquals(250.0, GPXHelperFunctions.ComputeTotalElevation(points), 1.0);
 	}
+	
+	@Test
+	public void testGeometrySameAsWaypoints() {
+		double[] lats = { 47.0, 47.01, 47.03, 47.02 };
+		double[] longs = { 8.0, 8.02, 8.01, 8.05 };
+		Double[] heights = { 1000.0, 1100.0, null, 1050.0 };
+		
+		TrackGeometry.Builder builder = new TrackGeometry.Builder();
+		List<Waypoint> points = IntStream.range(0, lats.length)
+				.mapToObj(idx -> {
+					Waypoint p = new Waypoint();
+					p.setLatitude(lats[idx]);
+					p.setLongitude(longs[idx]);
+					p.setElevation(heights[idx]);
+					builder.add(lats[idx], longs[idx],
+							(heights[idx] != null) ? heights[idx].floatValue() : Float.NaN, TrackGeometry.NO_TIME);
+					return p;
+				})
+				.collect(Collectors.toList());
+		TrackGeometry geometry = builder.build();
+		
+		assertEquals(GPXHelperFunctions.ComputeTotalDistance(points), GPXHelperFunctions.ComputeTotalDistance(geometry), 1e-6);
+		assertEquals(100.0, GPXHelperFunctions.ComputeTotalElevation(geometry), 1e-6);
+		assertEquals(GPXHelperFunctions.ComputeTotalElevation(points), GPXHelperFunctions.ComputeTotalElevation(geometry), 1e-6);
+	}
 }
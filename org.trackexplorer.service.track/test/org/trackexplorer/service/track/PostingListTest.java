@@ -0,0 +1,78 @@
+package org.trackexplorer.service.track;
+
+import static org.junit.Assert.*;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for the {@link PostingList} class.
+ */
+public class PostingListTest {
+
+	private static PostingList createList(final int[] numbers) {
+		PostingList list = new PostingList();
+		for(int number : numbers) {
+			list.add(number);
+		}
+		return list;
+	}
+
+	@Test
+	public void testNumbersAreRead() {
+		int[] numbers = {0, 1, 127, 128, 16384, 16385, 2000000000};
+		PostingList list = createList(numbers);
+		list.add(2000000000);
+		assertEquals(numbers.length, list.size());
+
+		PostingList.Cursor cursor = list.cursor();
+		for(int number : numbers) {
+			assertEquals(number, cursor.next());
+		}
+		assertEquals(-1, cursor.next());
+	}
+
+	@Test
+	public void testSkipTo() {
+		Random random = new Random(7);
+		BitSet expected = new BitSet();
+		PostingList list = new PostingList();
+		for(int number = random.nextInt(5); number < 100000; number += 1 + random.nextInt(20)) {
+			list.add(number);
+			expected.set(number);
+		}
+		assertTrue(list.size() > 10 * PostingList.SKIP_INTERVAL);
+
+		PostingList.Cursor cursor = list.cursor();
+		int target = 0;
+		while(target < 100000) {
+			assertEquals(expected.nextSetBit(target), cursor.skipTo(target));
+			// Staying at the current number
+			assertEquals(expected.nextSetBit(target), cursor.skipTo(target));
+			target += random.nextInt(2000);
+		}
+		assertEquals(-1, cursor.skipTo(100000));
+		assertEquals(-1, cursor.skipTo(100001));
+
+		BitSet bits = new BitSet();
+		list.addTo(bits);
+		assertEquals(expected, bits);
+	}
+
+	@Test
+	public void testReplace() {
+		PostingList list = createList(new int[] {1, 3, 4, 6});
+		int[] replacements = {-1, 0, -1, 1, -1, -1, 2};
+		PostingList replaced = list.replace(replacements);
+		PostingList.Cursor cursor = replaced.cursor();
+		assertEquals(0, cursor.next());
+		assertEquals(1, cursor.next());
+		assertEquals(2, cursor.next());
+		assertEquals(-1, cursor.next());
+		assertEquals(3, replaced.size());
+
+		assertNull(createList(new int[] {0, 2}).replace(replacements));
+	}
+}
@@ -0,0 +1,69 @@
+package org.trackexplorer.service.track;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for the {@link STRTree} class.
+ */
+public class STRTreeTest {
+
+	@Test
+	public void testEmpty() {
+		STRTree<Integer> tree = new STRTree<>(new ArrayList<>(), new double[0]);
+		assertEquals(0, tree.size());
+		assertTrue(tree.query(-90, -180, 90, 180).isEmpty());
+	}
+
+	@Test
+	public void testSameResultAsLinearScan() {
+		Random random = new Random(42);
+		int count = 5000;
+		List<Integer> values = new ArrayList<>();
+		double[] boxes = new double[count * 4];
+		for(int idx = 0; idx < count; idx++) {
+			values.add(idx);
+			double lat = random.nextDouble() * 160 - 80;
+			double lng = random.nextDouble() * 340 - 170;
+			boxes[idx * 4] = lat;
+			boxes[idx * 4 + 1] = lng;
+			boxes[idx * 4 + 2] = lat + random.nextDouble() * 2;
+			boxes[idx * 4 + 3] = lng + random.nextDouble() * 2;
+		}
+		STRTree<Integer> tree = new STRTree<>(values, boxes);
+		assertEquals(count, tree.size());
+
+		for(int query = 0; query < 100; query++) {
+			double minLat = random.nextDouble() * 160 - 80;
+			double minLng = random.nextDouble() * 340 - 170;
+			double maxLat = minLat + random.nextDouble() * 20;
+			double maxLng = minLng + random.nextDouble() * 20;
+
+			List<Integer> expected = new ArrayList<>();
+			for(int idx = 0; idx < count; idx++) {
+				if(boxes[idx * 4] <= maxLat && boxes[idx * 4 + 2] >= minLat &&
+						boxes[idx * 4 + 1] <= maxLng && boxes[idx * 4 + 3] >= minLng) {
+					expected.add(idx);
+				}
+			}
+			List<Integer> actual = tree.query(minLat, minLng, maxLat, maxLng);
+			Collections.sort(actual);
+			assertEquals(expected, actual);
+		}
+	}
+
+	@Test
+	public void testTouchingBoxesAreFound() {
+		List<String> values = new ArrayList<>();
+		values.add("a");
+		STRTree<String> tree = new STRTree<>(values, new double[] { 1.0, 1.0, 2.0, 2.0 });
+		assertEquals(1, tree.query(2.0, 2.0, 3.0, 3.0).size());
+		assertEquals(0, tree.query(2.1, 2.0, 3.0, 3.0).size());
+	}
+}
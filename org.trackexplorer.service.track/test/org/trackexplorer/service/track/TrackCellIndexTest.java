@@ -0,0 +1,142 @@
+package org.trackexplorer.service.track;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.BiFunction;
+
+import org.junit.Test;
+import org.trackexplorer.model.Bounds;
+import org.trackexplorer.model.Circle;
+import org.trackexplorer.model.Corridor;
+import org.trackexplorer.model.GeoArea;
+import org.trackexplorer.model.LatLng;
+import org.trackexplorer.model.Polygon;
+import org.trackexplorer.model.TrackGeometry;
+
+/**
+ * Tests for the {@link TrackCellIndex} class.
+ */
+public class TrackCellIndexTest {
+
+	private static TrackGeometry randomWalk(final Random random, final int size) {
+		TrackGeometry.Builder builder = new TrackGeometry.Builder(size);
+		double latitude = 47.0 + random.nextDouble();
+		double longitude = 8.0 + random.nextDouble();
+		for(int idx = 0; idx < size; idx++) {
+			latitude += (random.nextDouble() - 0.5) * 1e-3;
+			longitude += (random.nextDouble() - 0.5) * 1e-3;
+			builder.add(latitude, longitude);
+		}
+		return builder.build();
+	}
+
+	private static boolean hasPointInside(final GeoArea area, final TrackGeometry geometry) {
+		for(int idx = 0; idx < geometry.size(); idx++) {
+			if(area.isInside(geometry.getLatitude(idx), geometry.getLongitude(idx))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Classifies random tracks for areas created at random positions with
+	 * growing sizes, the matches have to agree with the points of the tracks.
+	 */
+	private static void assertMatchesAgreeWithPoints(final BiFunction<LatLng, Double, GeoArea> createArea) {
+		Random random = new Random(11);
+		TrackCellIndex index = new TrackCellIndex();
+		List<String> ids = new ArrayList<>();
+		List<TrackGeometry> geometries = new ArrayList<>();
+		for(int idx = 0; idx < 200; idx++) {
+			TrackGeometry geometry = randomWalk(random, 1000);
+			ids.add("track" + idx);
+			geometries.add(geometry);
+			index.add("track" + idx, geometry);
+		}
+
+		int inside = 0;
+		int outside = 0;
+		for(double size : new double[] {0.005, 0.05, 0.5, 5.0}) {
+			for(int query = 0; query < 20; query++) {
+				double latitude = 47.0 + random.nextDouble();
+				double longitude = 8.0 + random.nextDouble();
+				GeoArea area = createArea.apply(new LatLng(latitude, longitude), size);
+				List<TrackCellIndex.Match> matches = index.classify(area, ids);
+				for(int idx = 0; idx < ids.size(); idx++) {
+					boolean expected = hasPointInside(area, geometries.get(idx));
+					TrackCellIndex.Match match = matches.get(idx);
+					assertNotEquals(TrackCellIndex.Match.UNKNOWN, match);
+					if(match == TrackCellIndex.Match.INSIDE) {
+						assertTrue(expected);
+						inside++;
+					}
+					else if(match == TrackCellIndex.Match.OUTSIDE) {
+						assertFalse(expected);
+						outside++;
+					}
+				}
+			}
+		}
+		// Most tracks are decided without their points
+		assertTrue(inside > 0);
+		assertTrue(outside > 0);
+	}
+
+	@Test
+	public void testMatchesAgreeWithPoints() {
+		assertMatchesAgreeWithPoints((corner, size) -> new Bounds(corner,
+				new LatLng(corner.getLatitude() + size, corner.getLongitude() + size)));
+	}
+
+	@Test
+	public void testMatchesAgreeWithPointsInPolygon() {
+		assertMatchesAgreeWithPoints((corner, size) -> new Polygon(Arrays.asList(corner,
+				new LatLng(corner.getLatitude() + size * 0.2, corner.getLongitude() + size),
+				new LatLng(corner.getLatitude() + size, corner.getLongitude() + size * 0.8),
+				new LatLng(corner.getLatitude() + size * 0.5, corner.getLongitude() + size * 0.4))));
+	}
+
+	@Test
+	public void testMatchesAgreeWithPointsInCircle() {
+		// A degree of latitude is about 111 km
+		assertMatchesAgreeWithPoints((center, size) -> new Circle(center, size * 50000.0));
+	}
+
+	@Test
+	public void testMatchesAgreeWithPointsInCorridor() {
+		assertMatchesAgreeWithPoints((start, size) -> new Corridor(Arrays.asList(start,
+				new LatLng(start.getLatitude() + size, start.getLongitude() + size * 0.5),
+				new LatLng(start.getLatitude() + size, start.getLongitude() + size)), size * 10000.0));
+	}
+
+	@Test
+	public void testRemove() {
+		TrackGeometry geometry = new TrackGeometry.Builder().add(47.5, 8.5).add(47.6, 8.6).build();
+		TrackCellIndex index = new TrackCellIndex();
+		index.add("a", geometry);
+		index.add("b", geometry);
+		index.add("c", new TrackGeometry.Builder().add(10.0, 10.0).build());
+		Bounds bounds = new Bounds(new LatLng(47.0, 8.0), new LatLng(48.0, 9.0));
+		List<String> ids = Arrays.asList("a", "b", "c", "d");
+		assertEquals(Arrays.asList(TrackCellIndex.Match.INSIDE, TrackCellIndex.Match.INSIDE,
+				TrackCellIndex.Match.OUTSIDE, TrackCellIndex.Match.UNKNOWN), index.classify(bounds, ids));
+
+		// Numbers the tracks again
+		index.remove("a");
+		index.remove("c");
+		assertFalse(index.contains("a"));
+		assertEquals(1, index.size());
+		assertEquals(Arrays.asList(TrackCellIndex.Match.UNKNOWN, TrackCellIndex.Match.INSIDE,
+				TrackCellIndex.Match.UNKNOWN, TrackCellIndex.Match.UNKNOWN), index.classify(bounds, ids));
+
+		index.add("d", geometry);
+		index.add("b", new TrackGeometry.Builder().add(10.0, 10.0).build());
+		assertEquals(Arrays.asList(TrackCellIndex.Match.UNKNOWN, TrackCellIndex.Match.OUTSIDE,
+				TrackCellIndex.Match.UNKNOWN, TrackCellIndex.Match.INSIDE), index.classify(bounds, ids));
+	}
+}
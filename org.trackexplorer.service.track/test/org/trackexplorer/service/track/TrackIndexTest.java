@@ -0,0 +1,106 @@
+package org.trackexplorer.service.track;
+
+import static org.junit.Assert.*;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link TrackIndex} class.
+ */
+public class TrackIndexTest {
+	private Path directory;
+	private Path track;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("trackindex");
+		track = directory.resolve("track.gpx");
+		Files.write(track, "<gpx></gpx>".getBytes(StandardCharsets.UTF_8));
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		try(Stream<Path> paths = Files.walk(directory)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	private TrackIndex.Entry createEntry() throws IOException {
+		BasicFileAttributes attributes = Files.readAttributes(track, BasicFileAttributes.class);
+		TrackInfo trackInfo = new TrackInfo(1234.5, 67.5, 42, 47.0, 8.0, 47.5, 8.5,
+				80.0, 70.0, 400.0, 480.0, 3600000L, 5.5);
+		return new TrackIndex.Entry(attributes.size(), attributes.lastModifiedTime().toMillis(), 99L, trackInfo);
+	}
+
+	@Test
+	public void testSaveAndLoad() throws IOException {
+		Path file = TrackIndex.fileFor(directory.resolve("index"), directory.toString());
+		TrackIndex index = TrackIndex.load(file);
+		assertEquals(0, index.size());
+		index.put(track, createEntry());
+		index.save();
+
+		TrackIndex.Entry entry = TrackIndex.load(file).get(track);
+		assertNotNull(entry);
+		assertEquals(99L, entry.getHash());
+		assertEquals(1234.5, entry.getTrackInfo().getTotalDistance(), 0.0);
+		assertEquals(67.5, entry.getTrackInfo().getTotalElevation(), 0.0);
+		assertEquals(42, entry.getTrackInfo().getPointCount());
+		assertEquals(47.0, entry.getTrackInfo().getMinLatitude(), 0.0);
+		assertEquals(8.5, entry.getTrackInfo().getMaxLongitude(), 0.0);
+		assertEquals(70.0, entry.getTrackInfo().getDescent(), 0.0);
+		assertEquals(480.0, entry.getTrackInfo().getMaxElevation(), 0.0);
+		assertEquals(3600000L, entry.getTrackInfo().getMovingTime());
+		assertEquals(5.5, entry.getTrackInfo().getMaxSpeed(), 0.0);
+	}
+
+	@Test
+	public void testModifiedFileIsNotUsed() throws IOException {
+		TrackIndex index = TrackIndex.load(directory.resolve("test.idx"));
+		index.put(track, createEntry());
+		assertNotNull(index.get(track));
+
+		Files.write(track, " ".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+		assertNull(index.get(track));
+
+		index.put(track, createEntry());
+		Files.setLastModifiedTime(track, FileTime.fromMillis(0));
+		assertNull(index.get(track));
+	}
+
+	@Test
+	public void testOtherVersionIsIgnored() throws IOException {
+		Path file = directory.resolve("test.idx");
+		try(DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+			out.writeInt(TrackIndex.MAGIC);
+			out.writeInt(TrackIndex.VERSION + 1);
+			out.writeInt(1);
+		}
+		assertEquals(0, TrackIndex.load(file).size());
+	}
+
+	@Test
+	public void testRetainAll() throws IOException {
+		TrackIndex index = TrackIndex.load(directory.resolve("test.idx"));
+		index.put(track, createEntry());
+		index.retainAll(Arrays.asList(track));
+		assertEquals(1, index.size());
+		index.retainAll(Collections.emptyList());
+		assertEquals(0, index.size());
+	}
+}
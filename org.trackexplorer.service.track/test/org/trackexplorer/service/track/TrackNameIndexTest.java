@@ -0,0 +1,97 @@
+package org.trackexplorer.service.track;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.trackexplorer.model.NameMatch;
+
+/**
+ * Tests for the {@link TrackNameIndex} class.
+ */
+public class TrackNameIndexTest {
+
+	private TrackNameIndex createIndex() {
+		TrackNameIndex index = new TrackNameIndex();
+		index.add("a", Arrays.asList("Alps", "Matterhorn.gpx"));
+		index.add("b", Arrays.asList("Alps", "Jungfrau.gpx"));
+		index.add("c", Arrays.asList("Black Forest", "Feldberg.gpx"));
+		return index;
+	}
+
+	@Test
+	public void testSubstring() {
+		TrackNameIndex index = createIndex();
+		assertEquals(Arrays.asList("a"), index.find("TERHO", NameMatch.SUBSTRING));
+		assertEquals(Arrays.asList("a", "b"), index.find("alps", NameMatch.SUBSTRING));
+		assertEquals(Arrays.asList("a", "b", "c"), index.find(".gpx", NameMatch.SUBSTRING));
+		assertEquals(Arrays.asList("a", "c"), index.find("er", NameMatch.SUBSTRING));
+		assertEquals(Arrays.asList("a", "b", "c"), index.find("", NameMatch.SUBSTRING));
+		// All trigrams are contained, but not in this order
+		assertEquals(Collections.emptyList(), index.find("hornmatter", NameMatch.SUBSTRING));
+		assertEquals(Collections.emptyList(), index.find("zugspitze", NameMatch.SUBSTRING));
+	}
+
+	@Test
+	public void testPrefix() {
+		TrackNameIndex index = createIndex();
+		assertEquals(Arrays.asList("b"), index.find("jung", NameMatch.PREFIX));
+		assertEquals(Arrays.asList("c"), index.find("b", NameMatch.PREFIX));
+		assertEquals(Collections.emptyList(), index.find("frau", NameMatch.PREFIX));
+	}
+
+	@Test
+	public void testFuzzy() {
+		TrackNameIndex index = createIndex();
+		assertEquals(Arrays.asList("a"), index.find("matterhorm", NameMatch.FUZZY));
+		assertEquals(Arrays.asList("a"), index.find("materhorn", NameMatch.FUZZY));
+		assertEquals(Arrays.asList("b"), index.find("jungfrao", NameMatch.FUZZY));
+		assertEquals(Arrays.asList("c"), index.find("feltb", NameMatch.FUZZY));
+		// Two edits
+		assertEquals(Collections.emptyList(), index.find("matterhron", NameMatch.FUZZY));
+		assertEquals(Collections.emptyList(), index.find("mttrhorn", NameMatch.FUZZY));
+		// Too short to be matched approximately
+		assertEquals(Collections.emptyList(), index.find("alpz", NameMatch.SUBSTRING));
+		assertEquals(Collections.emptyList(), index.find("alz", NameMatch.FUZZY));
+
+		assertTrue(TrackNameIndex.matchesApproximately("abc", "xxabdcxx"));
+		assertTrue(TrackNameIndex.matchesApproximately("abcd", "xxabdxx"));
+		assertFalse(TrackNameIndex.matchesApproximately("abcd", "xxbadcxx"));
+	}
+
+	@Test
+	public void testRemove() {
+		TrackNameIndex index = createIndex();
+		index.remove("a");
+		index.remove("unknown");
+		assertEquals(Arrays.asList("b"), index.find("alps", NameMatch.SUBSTRING));
+
+		// Numbers the tracks again
+		index.remove("b");
+		assertEquals(1, index.size());
+		assertEquals(Arrays.asList("c"), index.find("forest", NameMatch.SUBSTRING));
+
+		index.add("c", Arrays.asList("Vosges", "Feldberg.gpx"));
+		index.add("d", Arrays.asList("Alps", "Eiger.gpx"));
+		assertEquals(Collections.emptyList(), index.find("forest", NameMatch.SUBSTRING));
+		assertEquals(Arrays.asList("c"), index.find("vosges", NameMatch.PREFIX));
+		assertEquals(Arrays.asList("d"), index.find("alps", NameMatch.SUBSTRING));
+		assertEquals(2, index.size());
+	}
+
+	@Test
+	public void testManyTracks() {
+		TrackNameIndex index = new TrackNameIndex();
+		for(int idx = 0; idx < 100000; idx++) {
+			index.add("track" + idx, Arrays.asList("Folder " + (idx % 100), String.format("Tour %05d.gpx", idx)));
+		}
+		List<String> found = index.find("tour 1234", NameMatch.SUBSTRING);
+		assertEquals(Arrays.asList("track12340", "track12341", "track12342", "track12343", "track12344",
+				"track12345", "track12346", "track12347", "track12348", "track12349"), found);
+		assertEquals(1000, index.find("folder 42/", NameMatch.PREFIX).size());
+		assertEquals(Arrays.asList("track4711"), index.find("toor 04711", NameMatch.FUZZY));
+	}
+}
@@ -0,0 +1,125 @@
+package org.trackexplorer.service.track;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.trackexplorer.model.TrackGeometry;
+
+/**
+ * Tests for the {@link TrackPyramid} class.
+ */
+public class TrackPyramidTest {
+
+	private static TrackGeometry randomWalk(final int size, final long seed) {
+		Random random = new Random(seed);
+		TrackGeometry.Builder builder = new TrackGeometry.Builder();
+		double lat = 48.0;
+		double lng = 11.0;
+		for(int idx = 0; idx < size; idx++) {
+			builder.add(lat, lng, idx, 1000L * idx);
+			lat += (random.nextDouble() - 0.5) * 0.001;
+			lng += (random.nextDouble() - 0.3) * 0.001;
+		}
+		return builder.build();
+	}
+
+	/**
+	 * The textbook recursive Douglas-Peucker algorithm, marks the kept points.
+	 */
+	private static void douglasPeucker(final TrackGeometry geometry, final int first, final int last,
+			final double tolerance, final double cosLatitude, final boolean[] keep) {
+		double x1 = geometry.getLongitude(first) * cosLatitude;
+		double y1 = geometry.getLatitude(first);
+		double dx = geometry.getLongitude(last) * cosLatitude - x1;
+		double dy = geometry.getLatitude(last) - y1;
+		int farthest = -1;
+		double maxDistance = -1;
+		for(int idx = first + 1; idx < last; idx++) {
+			double x = geometry.getLongitude(idx) * cosLatitude;
+			double y = geometry.getLatitude(idx);
+			double t = ((x - x1) * dx + (y - y1) * dy) / (dx * dx + dy * dy);
+			t = Math.max(0, Math.min(1, t));
+			double distance = Math.hypot(x - (x1 + t * dx), y - (y1 + t * dy));
+			if(distance > maxDistance) {
+				maxDistance = distance;
+				farthest = idx;
+			}
+		}
+		if(farthest >= 0 && maxDistance > tolerance) {
+			keep[farthest] = true;
+			douglasPeucker(geometry, first, farthest, tolerance, cosLatitude, keep);
+			douglasPeucker(geometry, farthest, last, tolerance, cosLatitude, keep);
+		}
+	}
+
+	@Test
+	public void testSameResultAsRecursiveAlgorithm() {
+		TrackGeometry geometry = randomWalk(2000, 7);
+		double cosLatitude = Math.cos(Math.toRadians(48.0));
+		double[] significance = TrackPyramid.computeSignificance(geometry, cosLatitude);
+
+		for(double tolerance : new double[] {0.0, 0.00001, 0.0001, 0.001, 0.01}) {
+			boolean[] keep = new boolean[geometry.size()];
+			keep[0] = true;
+			keep[geometry.size() - 1] = true;
+			douglasPeucker(geometry, 0, geometry.size() - 1, tolerance, cosLatitude, keep);
+
+			TrackGeometry simplified = TrackPyramid.select(geometry, significance, tolerance);
+			int selected = 0;
+			for(int idx = 0; idx < geometry.size(); idx++) {
+				if(keep[idx]) {
+					assertEquals(geometry.getLatitude(idx), simplified.getLatitude(selected), 0.0);
+					assertEquals(geometry.getLongitude(idx), simplified.getLongitude(selected), 0.0);
+					assertEquals(geometry.getTime(idx), simplified.getTime(selected));
+					selected++;
+				}
+			}
+			assertEquals(selected, simplified.size());
+		}
+	}
+
+	@Test
+	public void testStraightLine() {
+		TrackGeometry.Builder builder = new TrackGeometry.Builder();
+		for(int idx = 0; idx < 100; idx++) {
+			builder.add(idx * 0.001, idx * 0.002);
+		}
+		TrackPyramid pyramid = TrackPyramid.compute(builder.build());
+
+		assertEquals(2, pyramid.getLevel(TrackPyramid.MAX_ZOOM).size());
+		assertEquals(0.0, pyramid.getLevel(0).getLatitude(0), 0.0);
+		assertEquals(0.099, pyramid.getLevel(0).getLatitude(1), 1e-12);
+	}
+
+	@Test
+	public void testLevels() {
+		TrackGeometry geometry = randomWalk(5000, 42);
+		TrackPyramid pyramid = TrackPyramid.compute(geometry);
+
+		int previousSize = 0;
+		for(int zoom = TrackPyramid.MIN_ZOOM; zoom <= TrackPyramid.MAX_ZOOM; zoom++) {
+			TrackGeometry level = pyramid.getLevel(zoom);
+			assertTrue(level.size() >= 2);
+			assertTrue(level.size() >= previousSize);
+			assertTrue(level.size() <= geometry.size());
+			previousSize = level.size();
+		}
+		assertTrue(pyramid.getLevel(8).size() < geometry.size() / 10);
+		// Zoom levels in between use the next finer level
+		assertSame(pyramid.getLevel(10), pyramid.getLevel(9));
+		assertSame(pyramid.getLevel(TrackPyramid.MAX_ZOOM), pyramid.getLevel(TrackPyramid.MAX_ZOOM + 3));
+	}
+
+	@Test
+	public void testEmptyAndSinglePoint() {
+		TrackPyramid pyramid = TrackPyramid.compute(TrackGeometry.EMPTY);
+		assertEquals(0, pyramid.getLevel(5).size());
+
+		TrackGeometry single = new TrackGeometry.Builder().add(1, 2).build();
+		pyramid = TrackPyramid.compute(single);
+		assertSame(single, pyramid.getLevel(0));
+		assertEquals(1, pyramid.getPointCount());
+	}
+}
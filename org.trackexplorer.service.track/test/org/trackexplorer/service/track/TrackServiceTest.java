@@ -0,0 +1,426 @@
+package org.trackexplorer.service.track;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.trackexplorer.model.Bounds;
+import org.trackexplorer.model.Circle;
+import org.trackexplorer.model.DiscoveryProgress;
+import org.trackexplorer.model.GeoCandidates;
+import org.trackexplorer.model.GeoSearchMode;
+import org.trackexplorer.model.IndexingProgress;
+import org.trackexplorer.model.LatLng;
+import org.trackexplorer.model.NameMatch;
+import org.trackexplorer.model.TrackChanges;
+import org.trackexplorer.model.TrackGeometry;
+import org.trackexplorer.model.TrackMetaInfo;
+import org.trackexplorer.model.TrackStats;
+
+/**
+ * Tests for the {@link TrackService} class.
+ */
+public class TrackServiceTest {
+	private static final String GPX_DATA =
+			"<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+			"<gpx version=\"1.1\" creator=\"test\">\n" +
+			"<trk><trkseg>\n" +
+			"<trkpt lat=\"47.0\" lon=\"8.0\"><ele>400</ele></trkpt>\n" +
+			"<trkpt lat=\"47.1\" lon=\"8.0\"><ele>450</ele></trkpt>\n" +
+			"<trkpt lat=\"47.1\" lon=\"8.1\"><ele>430</ele></trkpt>\n" +
+			"</trkseg></trk>\n" +
+			"</gpx>\n";
+
+	private Path directory;
+	private Path tracks;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("trackservice");
+		tracks = Files.createDirectory(directory.resolve("tracks"));
+		Files.write(tracks.resolve("track.gpx"), GPX_DATA.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		try(Stream<Path> paths = Files.walk(directory)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	private TrackService createService() {
+		TrackService service = new TrackService();
+		service.setIndexDirectory(directory.resolve("index"));
+		service.setLocations(Arrays.asList(tracks.toString()));
+		return service;
+	}
+
+	@Test
+	public void testTrackInfoIsReadFromIndex() {
+		TrackService service = createService();
+		String id = service.getAvailabeTracks().get(0).getId();
+		double distance = service.getTotalDistanceInMeter(id);
+		assertEquals(3, service.getTrackGeometry(id).size());
+		assertEquals(50.0, service.getTotalElevation(id), 1e-3);
+		service.saveIndices();
+
+		// A new service must not load the track again
+		TrackService restarted = createService();
+		String restartedId = restarted.getAvailabeTracks().get(0).getId();
+		assertEquals(distance, restarted.getTotalDistanceInMeter(restartedId), 0.0);
+		assertEquals(50.0, restarted.getTotalElevation(restartedId), 1e-3);
+		assertEquals(0, restarted.getCacheStatistics().getMissCount());
+	}
+
+	@Test
+	public void testCandidateTracks() throws IOException {
+		String other = GPX_DATA.replace("lat=\"47.", "lat=\"12.");
+		Files.write(tracks.resolve("other.gpx"), other.getBytes(StandardCharsets.UTF_8));
+		TrackService service = createService();
+		assertEquals(2, service.getTrackCount());
+		Bounds bounds = new Bounds(new LatLng(46.9, 7.9), new LatLng(47.05, 8.05));
+
+		// Nothing is known about the tracks yet
+		assertEquals(2, service.getCandidateTracks(bounds).size());
+
+		service.getAvailabeTracks().forEach(track -> service.getTotalDistanceInMeter(track.getId()));
+		assertEquals(1, service.getCandidateTracks(bounds).size());
+		assertEquals("track.gpx", service.getCandidateTracks(bounds).get(0).getName());
+		assertEquals(0, service.getCandidateTracks(new Bounds(new LatLng(0.0, 0.0), new LatLng(1.0, 1.0))).size());
+	}
+
+	@Test
+	public void testGeoCandidates() {
+		TrackService service = createService();
+		String id = service.getAvailabeTracks().get(0).getId();
+		Bounds around = new Bounds(new LatLng(46.0, 7.0), new LatLng(48.0, 9.0));
+		// Inside the bounds of the track, but between its points
+		Bounds between = new Bounds(new LatLng(47.02, 8.03), new LatLng(47.08, 8.07));
+
+		// The points are not known yet
+		GeoCandidates candidates = service.getGeoCandidates(around, GeoSearchMode.POINTS);
+		assertEquals(0, candidates.getMatches().size());
+		assertEquals(1, candidates.getCandidates().size());
+		assertEquals(1, service.getGeoCandidates(between, GeoSearchMode.POINTS).size());
+
+		service.getTrackGeometry(id);
+		candidates = service.getGeoCandidates(around, GeoSearchMode.POINTS);
+		assertEquals(id, candidates.getMatches().get(0).getId());
+		assertEquals(0, candidates.getCandidates().size());
+		assertEquals(0, service.getGeoCandidates(between, GeoSearchMode.POINTS).size());
+		assertEquals(0, service.getCandidateTracks(between).size());
+
+		// Crosses the first segment of the track
+		Bounds crossed = new Bounds(new LatLng(47.04, 7.99), new LatLng(47.06, 8.01));
+		assertEquals(0, service.getGeoCandidates(crossed, GeoSearchMode.POINTS).size());
+		candidates = service.getGeoCandidates(crossed, GeoSearchMode.SEGMENTS);
+		assertEquals(0, candidates.getMatches().size());
+		assertEquals(id, candidates.getCandidates().get(0).getId());
+		assertEquals(id, service.getGeoCandidates(around, GeoSearchMode.SEGMENTS).getMatches().get(0).getId());
+
+		// Around the last point of the track, smaller than a cell, and close to it without any point inside
+		Circle summit = new Circle(new LatLng(47.1, 8.1), 200.0);
+		assertEquals(id, service.getGeoCandidates(summit, GeoSearchMode.POINTS).getCandidates().get(0).getId());
+		assertEquals(0, service.getGeoCandidates(new Circle(new LatLng(47.105, 8.1), 200.0), GeoSearchMode.POINTS).size());
+	}
+
+	@Test
+	public void testBackgroundIndexing() throws Exception {
+		TrackService service = createService();
+		CountDownLatch finished = new CountDownLatch(1);
+		List<IndexingProgress> reports = new CopyOnWriteArrayList<>();
+		service.startIndexing(progress -> {
+			reports.add(progress);
+			if(progress.isFinished()) {
+				finished.countDown();
+			}
+		});
+		assertTrue(finished.await(10, TimeUnit.SECONDS));
+
+		IndexingProgress last = reports.get(reports.size() - 1);
+		assertEquals(1, last.getIndexed());
+		assertEquals(1, last.getTotal());
+
+		// The track is already in the cache and its bounds are known
+		Bounds bounds = new Bounds(new LatLng(0.0, 0.0), new LatLng(1.0, 1.0));
+		assertEquals(0, service.getCandidateTracks(bounds).size());
+		String id = service.getAvailabeTracks().get(0).getId();
+		assertEquals(3, service.getTrackGeometry(id).size());
+		assertEquals(0, service.getCacheStatistics().getMissCount());
+		assertTrue(Files.list(directory.resolve("index")).findAny().isPresent());
+	}
+
+	@Test
+	public void testParsedTracksAreStored() throws IOException {
+		TrackService service = createService();
+		String id = service.getAvailabeTracks().get(0).getId();
+		assertEquals(3, service.getTrackGeometry(id).size());
+
+		// Same size and modification time, so the id does not change, but the file cannot be parsed any more
+		Path file = tracks.resolve("track.gpx");
+		FileTime modified = Files.getLastModifiedTime(file);
+		byte[] garbage = new byte[(int) Files.size(file)];
+		Arrays.fill(garbage, (byte) 'x');
+		Files.write(file, garbage);
+		Files.setLastModifiedTime(file, modified);
+
+		TrackService restarted = createService();
+		assertEquals(id, restarted.getAvailabeTracks().get(0).getId());
+		TrackGeometry geometry = restarted.getTrackGeometry(id);
+		assertEquals(3, geometry.size());
+		assertEquals(450.0f, geometry.getElevation(1), 0.0f);
+	}
+
+	@Test
+	public void testAsyncLoading() throws Exception {
+		TrackService service = createService();
+		String id = service.getAvailabeTracks().get(0).getId();
+
+		// Concurrent requests share a single load
+		List<CompletableFuture<TrackGeometry>> futures = new ArrayList<>();
+		for(int i = 0; i < 10; i++) {
+			futures.add(service.getTrackGeometryAsync(id));
+		}
+		TrackGeometry geometry = futures.get(0).get(10, TimeUnit.SECONDS);
+		assertEquals(3, geometry.size());
+		for(CompletableFuture<TrackGeometry> future : futures) {
+			assertSame(geometry, future.get(10, TimeUnit.SECONDS));
+		}
+		assertEquals(1, service.getCacheStatistics().getMissCount());
+		assertEquals(3, service.getTrackPointsAsync(id).get(10, TimeUnit.SECONDS).size());
+
+		TrackStats stats = service.getStatsAsync(id).get(10, TimeUnit.SECONDS);
+		assertEquals(service.getTotalDistanceInMeter(id), stats.getTotalDistanceInMeter(), 0.0);
+		assertEquals(50.0, stats.getTotalElevation(), 1e-3);
+	}
+
+	@Test
+	public void testBoundsAreReadFromIndex() throws Exception {
+		TrackService service = createService();
+		String id = service.getAvailabeTracks().get(0).getId();
+		Bounds expected = new Bounds(new LatLng(47.0, 8.0), new LatLng(47.1, 8.1));
+		assertEquals(expected, service.getBounds(id));
+		assertEquals(expected, service.getStatsAsync(id).get(10, TimeUnit.SECONDS).getBounds());
+		service.saveIndices();
+
+		// A new service must not load the track again
+		TrackService restarted = createService();
+		assertEquals(expected, restarted.getBounds(restarted.getAvailabeTracks().get(0).getId()));
+		assertEquals(0, restarted.getCacheStatistics().getMissCount());
+	}
+
+	@Test
+	public void testConcurrentLoadsAreShared() throws Exception {
+		TrackService service = createService();
+		String id = service.getAvailabeTracks().get(0).getId();
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<TrackGeometry>> futures = new ArrayList<>();
+			for(int i = 0; i < 32; i++) {
+				futures.add(executor.submit(() -> service.getTrackGeometry(id)));
+			}
+			TrackGeometry geometry = futures.get(0).get(10, TimeUnit.SECONDS);
+			for(Future<TrackGeometry> future : futures) {
+				assertSame(geometry, future.get(10, TimeUnit.SECONDS));
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(1, service.getCacheStatistics().getMissCount());
+	}
+
+	@Test
+	public void testFailedLoadsAreNotCached() throws IOException {
+		// Same size and modification time as the valid file, so the id does not change.
+		// Starts with a byte order mark of UTF-16, so neither reader nor parser can read it.
+		Path file = tracks.resolve("track.gpx");
+		FileTime modified = Files.getLastModifiedTime(file);
+		byte[] garbage = new byte[(int) Files.size(file)];
+		Arrays.fill(garbage, (byte) 'x');
+		garbage[0] = (byte) 0xFE;
+		garbage[1] = (byte) 0xFF;
+		Files.write(file, garbage);
+		Files.setLastModifiedTime(file, modified);
+
+		TrackService service = createService();
+		String id = service.getAvailabeTracks().get(0).getId();
+		assertTrue(service.getTrackGeometry(id).isEmpty());
+		assertEquals(0.0, service.getTotalDistanceInMeter(id), 0.0);
+
+		Files.write(file, GPX_DATA.getBytes(StandardCharsets.UTF_8));
+		Files.setLastModifiedTime(file, modified);
+		assertEquals(3, service.getTrackGeometry(id).size());
+		assertEquals(50.0, service.getTotalElevation(id), 1e-3);
+	}
+
+	@Test
+	public void testIdsAreStable() {
+		String id = createService().getAvailabeTracks().get(0).getId();
+		assertEquals(id, createService().getAvailabeTracks().get(0).getId());
+	}
+
+	@Test
+	public void testDuplicatesShareGeometry() throws IOException {
+		Files.copy(tracks.resolve("track.gpx"), tracks.resolve("copy.gpx"));
+		TrackService service = createService();
+		service.getAvailabeTracks().forEach(track -> service.getTotalDistanceInMeter(track.getId()));
+		service.saveIndices();
+
+		// The duplicate is only known once the content hash is in the index
+		TrackService restarted = createService();
+		String first = restarted.getAvailabeTracks().get(0).getId();
+		String second = restarted.getAvailabeTracks().get(1).getId();
+		assertNotEquals(first, second);
+		assertSame(restarted.getTrackGeometry(first), restarted.getTrackGeometry(second));
+		assertEquals(1, restarted.getCacheStatistics().getMissCount());
+	}
+
+	@Test
+	public void testLocationChangesKeepTracks() throws IOException {
+		Path more = Files.createDirectory(directory.resolve("more"));
+		Files.write(more.resolve("more.gpx"), GPX_DATA.getBytes(StandardCharsets.UTF_8));
+		TrackService service = createService();
+		String id = service.getAvailabeTracks().get(0).getId();
+		TrackGeometry geometry = service.getTrackGeometry(id);
+
+		TrackChanges changes = service.setLocations(Arrays.asList(tracks.toString(), more.toString()));
+		assertEquals(1, changes.getAdded().size());
+		assertEquals("more.gpx", changes.getAdded().get(0).getName());
+		assertTrue(changes.getRemoved().isEmpty());
+		assertSame(geometry, service.getTrackGeometry(id));
+
+		changes = service.setLocations(Arrays.asList(more.toString()));
+		assertEquals(Arrays.asList(id), changes.getRemoved().stream().map(TrackMetaInfo::getId).collect(Collectors.toList()));
+		assertEquals(1, service.getAvailabeTracks().size());
+	}
+
+	@Test
+	public void testFindTracksByName() throws IOException {
+		Path alps = Files.createDirectories(tracks.resolve("Alps").resolve("2017"));
+		Files.write(alps.resolve("Matterhorn.gpx"), GPX_DATA.getBytes(StandardCharsets.UTF_8));
+		TrackService service = createService();
+
+		assertEquals(2, service.findTracksByName("", NameMatch.SUBSTRING).size());
+		assertEquals(2, service.findTracksByName(".gpx", NameMatch.SUBSTRING).size());
+		List<TrackMetaInfo> found = service.findTracksByName("ALPS", NameMatch.PREFIX);
+		assertEquals(1, found.size());
+		assertEquals("Matterhorn.gpx", found.get(0).getName());
+		assertEquals(1, service.findTracksByName("2017", NameMatch.SUBSTRING).size());
+		assertEquals(1, service.findTracksByName("materhorn", NameMatch.FUZZY).size());
+		// Folders above the location are not matched
+		assertEquals(0, service.findTracksByName("trackservice", NameMatch.SUBSTRING).size());
+
+		service.setLocations(Arrays.asList(alps.toString()));
+		assertEquals(0, service.findTracksByName("track.gpx", NameMatch.SUBSTRING).size());
+		assertEquals(0, service.findTracksByName("alps", NameMatch.SUBSTRING).size());
+		assertEquals(1, service.findTracksByName("matterhorn", NameMatch.SUBSTRING).size());
+	}
+
+	@Test
+	public void testWatching() throws Exception {
+		TrackService service = createService();
+		BlockingQueue<TrackChanges> reports = new LinkedBlockingQueue<>();
+		service.startWatching(reports::add);
+		service.awaitWatching();
+		try {
+			Path folder = Files.createDirectory(tracks.resolve("new"));
+			Files.write(folder.resolve("new.gpx"), GPX_DATA.getBytes(StandardCharsets.UTF_8));
+			TrackChanges changes = reports.poll(10, TimeUnit.SECONDS);
+			assertEquals("new.gpx", changes.getAdded().get(0).getName());
+			String id = changes.getAdded().get(0).getId();
+
+			Files.write(folder.resolve("new.gpx"), GPX_DATA.replace("400", "500").getBytes(StandardCharsets.UTF_8));
+			changes = reports.poll(10, TimeUnit.SECONDS);
+			assertEquals(1, changes.getUpdated().size());
+			assertNotEquals(id, changes.getUpdated().get(0).getId());
+			assertEquals(2, service.getAvailabeTracks().size());
+
+			Files.delete(tracks.resolve("track.gpx"));
+			changes = reports.poll(10, TimeUnit.SECONDS);
+			assertEquals("track.gpx", changes.getRemoved().get(0).getName());
+			assertEquals(1, service.getAvailabeTracks().size());
+		} finally {
+			service.stopWatching();
+		}
+	}
+
+	@Test
+	public void testContinuousChangesAreReported() throws Exception {
+		TrackService service = createService();
+		BlockingQueue<TrackChanges> reports = new LinkedBlockingQueue<>();
+		service.startWatching(reports::add);
+		service.awaitWatching();
+		Path track = tracks.resolve("track.gpx");
+		AtomicBoolean writing = new AtomicBoolean(true);
+		Thread writer = new Thread(() -> {
+			while(writing.get()) {
+				try {
+					Files.write(track, " ".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+					Thread.sleep(LocationWatcher.QUIET_PERIOD_MS / 3);
+				} catch (IOException | InterruptedException e) {
+					return;
+				}
+			}
+		});
+		writer.start();
+		try {
+			// Reported while the file is still written
+			TrackChanges changes = reports.poll(LocationWatcher.MAX_BATCH_AGE_MS * 2, TimeUnit.MILLISECONDS);
+			assertNotNull(changes);
+			assertTrue(writer.isAlive());
+			assertEquals(1, changes.getUpdated().size());
+		} finally {
+			writing.set(false);
+			writer.join();
+			service.stopWatching();
+		}
+	}
+
+	@Test
+	public void testDiscoveryInBackground() throws Exception {
+		Files.write(tracks.resolve("other.gpx"), GPX_DATA.getBytes(StandardCharsets.UTF_8));
+		TrackService service = new TrackService();
+		service.setIndexDirectory(directory.resolve("index"));
+		BlockingQueue<DiscoveryProgress> reports = new LinkedBlockingQueue<>();
+		service.setLocations(Arrays.asList(tracks.toString()), reports::add);
+
+		List<TrackMetaInfo> found = new ArrayList<>();
+		DiscoveryProgress progress;
+		do {
+			progress = reports.poll(10, TimeUnit.SECONDS);
+			found.addAll(progress.getChanges().getAdded());
+		} while(!progress.isFinished());
+
+		assertFalse(progress.isCancelled());
+		assertEquals(2, progress.getTracks());
+		assertEquals(2, found.size());
+		assertEquals(2, service.getAvailabeTracks().size());
+
+		// Known locations are not searched again
+		assertTrue(service.setLocations(Arrays.asList(tracks.toString())).isEmpty());
+	}
+}
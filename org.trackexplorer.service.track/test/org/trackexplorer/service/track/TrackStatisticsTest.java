@@ -0,0 +1,102 @@
+package org.trackexplorer.service.track;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.trackexplorer.model.TrackGeometry;
+
+/**
+ * Tests for the {@link TrackStatistics} class.
+ */
+public class TrackStatisticsTest {
+
+	@Test
+	public void testSameAsHelperFunctions() {
+		Random random = new Random(11);
+		TrackGeometry.Builder builder = new TrackGeometry.Builder();
+		double lat = 46.5;
+		double lng = 7.9;
+		float elevation = 1200;
+		for(int idx = 0; idx < 3000; idx++) {
+			boolean withElevation = random.nextInt(10) > 0;
+			builder.add(lat, lng, withElevation ? elevation : Float.NaN, 1000L * idx);
+			lat += (random.nextDouble() - 0.5) * 0.0005;
+			lng += (random.nextDouble() - 0.5) * 0.0005;
+			elevation += (float) ((random.nextDouble() - 0.45) * 5);
+		}
+		TrackGeometry geometry = builder.build();
+
+		TrackInfo trackInfo = TrackStatistics.compute(geometry);
+		assertEquals(GPXHelperFunctions.ComputeTotalDistance(geometry), trackInfo.getTotalDistance(), 1e-6);
+		assertEquals(GPXHelperFunctions.ComputeTotalElevation(geometry), trackInfo.getTotalElevation(), 1e-6);
+		assertEquals(geometry.computeBounds(), trackInfo.getBounds());
+		assertEquals(3000, trackInfo.getPointCount());
+		assertTrue(trackInfo.getMinElevation() < trackInfo.getMaxElevation());
+		assertEquals(trackInfo.getAscent() - trackInfo.getDescent(),
+				elevationAtEnd(geometry) - elevationAtStart(geometry), 1e-3);
+	}
+
+	@Test
+	public void testFilteredElevation() {
+		// Near sea level, the jump of 20m is ignored by the total elevation
+		TrackGeometry geometry = new TrackGeometry.Builder()
+				.add(0.0, 0.0, 10.0f, TrackGeometry.NO_TIME)
+				.add(0.0, 0.001, 12.0f, TrackGeometry.NO_TIME)
+				.add(0.0, 0.002, 32.0f, TrackGeometry.NO_TIME)
+				.add(0.0, 0.003, 20.0f, TrackGeometry.NO_TIME)
+				.build();
+
+		TrackInfo trackInfo = TrackStatistics.compute(geometry);
+		assertEquals(GPXHelperFunctions.ComputeTotalElevation(geometry), trackInfo.getTotalElevation(), 0.0);
+		assertEquals(2.0, trackInfo.getTotalElevation(), 1e-6);
+		assertEquals(22.0, trackInfo.getAscent(), 1e-6);
+		assertEquals(12.0, trackInfo.getDescent(), 1e-6);
+		assertEquals(10.0, trackInfo.getMinElevation(), 0.0);
+		assertEquals(32.0, trackInfo.getMaxElevation(), 0.0);
+		assertEquals(0, trackInfo.getMovingTime());
+		assertEquals(0.0, trackInfo.getMaxSpeed(), 0.0);
+	}
+
+	@Test
+	public void testMovingTimeAndSpeed() {
+		// About 111m per 0.001 degrees of latitude
+		TrackGeometry geometry = new TrackGeometry.Builder()
+				.add(0.000, 0.0, Float.NaN, 0L)
+				.add(0.001, 0.0, Float.NaN, 20000L)
+				.add(0.001, 0.0, Float.NaN, 80000L)
+				.add(0.002, 0.0, Float.NaN, 90000L)
+				.build();
+
+		TrackInfo trackInfo = TrackStatistics.compute(geometry);
+		assertEquals(30000L, trackInfo.getMovingTime());
+		assertEquals(11.1, trackInfo.getMaxSpeed(), 0.1);
+		assertTrue(Double.isNaN(trackInfo.getMinElevation()));
+		assertEquals(0.0, trackInfo.getTotalElevation(), 0.0);
+	}
+
+	@Test
+	public void testEmpty() {
+		TrackInfo trackInfo = TrackStatistics.compute(TrackGeometry.EMPTY);
+		assertEquals(0, trackInfo.getPointCount());
+		assertEquals(0.0, trackInfo.getTotalDistance(), 0.0);
+		assertEquals(TrackGeometry.EMPTY.computeBounds(), trackInfo.getBounds());
+	}
+
+	private static double elevationAtStart(final TrackGeometry geometry) {
+		int idx = 0;
+		while(!geometry.hasElevation(idx)) {
+			idx++;
+		}
+		return geometry.getElevation(idx);
+	}
+
+	private static double elevationAtEnd(final TrackGeometry geometry) {
+		int idx = geometry.size() - 1;
+		while(!geometry.hasElevation(idx)) {
+			idx--;
+		}
+		return geometry.getElevation(idx);
+	}
+}
@@ -0,0 +1,142 @@
+package org.trackexplorer.service.track;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.trackexplorer.model.TrackGeometry;
+
+/**
+ * Tests for the {@link TrackStore} class.
+ */
+public class TrackStoreTest {
+	private Path directory;
+	private TrackStore store;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("trackstore");
+		store = new TrackStore(directory.resolve("store"));
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		try(Stream<Path> paths = Files.walk(directory)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	/**
+	 * A track as recorded by a GPS device, rounded like in most GPX files.
+	 */
+	private static TrackGeometry randomWalk(final int size) {
+		Random random = new Random(3);
+		TrackGeometry.Builder builder = new TrackGeometry.Builder(size);
+		double latitude = 47.0;
+		double longitude = 8.0;
+		double elevation = 400.0;
+		long time = 1500000000000L;
+		for(int idx = 0; idx < size; idx++) {
+			latitude += (random.nextDouble() - 0.5) * 1e-4;
+			longitude += (random.nextDouble() - 0.5) * 1e-4;
+			elevation += random.nextDouble() - 0.5;
+			time += 1000;
+			builder.add(Math.round(latitude * 1e6) / 1e6, Math.round(longitude * 1e6) / 1e6,
+					(float) (Math.round(elevation * 10) / 10.0), time);
+		}
+		return builder.build();
+	}
+
+	private static void assertSameGeometry(final TrackGeometry expected, final TrackGeometry actual) {
+		assertEquals(expected.size(), actual.size());
+		for(int idx = 0; idx < expected.size(); idx++) {
+			assertEquals(expected.getLatitude(idx), actual.getLatitude(idx), 0.0);
+			assertEquals(expected.getLongitude(idx), actual.getLongitude(idx), 0.0);
+			assertEquals(expected.getElevation(idx), actual.getElevation(idx), 0.0f);
+			assertEquals(expected.getTime(idx), actual.getTime(idx));
+		}
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		TrackGeometry geometry = randomWalk(1000);
+		TrackInfo info = TrackInfo.compute(geometry);
+		store.write("track", 42L, info, geometry);
+
+		TrackStore.Entry entry = store.read("track");
+		assertNotNull(entry);
+		assertEquals(42L, entry.getHash());
+		assertSameGeometry(geometry, entry.getGeometry());
+		assertEquals(info.getTotalDistance(), entry.getTrackInfo().getTotalDistance(), 0.0);
+		assertEquals(info.getPointCount(), entry.getTrackInfo().getPointCount());
+		assertEquals(info.getMaxLatitude(), entry.getTrackInfo().getMaxLatitude(), 0.0);
+		assertEquals(info.getMovingTime(), entry.getTrackInfo().getMovingTime());
+
+		// Much smaller than the raw columns
+		long size = Files.size(directory.resolve("store").resolve("track.trk"));
+		assertTrue(size < geometry.size() * TrackGeometry.BYTES_PER_POINT / 3);
+	}
+
+	@Test
+	public void testMissingValues() throws IOException {
+		TrackGeometry geometry = new TrackGeometry.Builder()
+				.add(47.0, 8.0)
+				.add(47.1, 8.0, 450.25f, 1500000000000L)
+				.add(47.1, 8.1, Float.NaN, 1500000060000L)
+				.add(47.2, 8.1, 430.0f, TrackGeometry.NO_TIME)
+				.build();
+		store.write("track", 0L, TrackInfo.compute(geometry), geometry);
+		assertSameGeometry(geometry, store.read("track").getGeometry());
+
+		TrackGeometry flat = new TrackGeometry.Builder().add(47.0, 8.0).add(47.1, 8.0).build();
+		store.write("flat", 0L, TrackInfo.compute(flat), flat);
+		assertSameGeometry(flat, store.read("flat").getGeometry());
+	}
+
+	@Test
+	public void testExactValues() throws IOException {
+		// Cannot be stored as scaled integers
+		TrackGeometry geometry = new TrackGeometry.Builder()
+				.add(47.123456789012, 8.987654321098, 400.123f, 1500000000000L)
+				.add(-33.0000000001, 151.0000000001, 0.001f, 1500000000001L)
+				.build();
+		store.write("track", 0L, TrackInfo.compute(geometry), geometry);
+		assertSameGeometry(geometry, store.read("track").getGeometry());
+	}
+
+	@Test
+	public void testInvalidSize() throws IOException {
+		TrackGeometry geometry = randomWalk(10);
+		Path file = directory.resolve("store").resolve("track.trk");
+		for(int size : new int[] { -1, Integer.MAX_VALUE }) {
+			store.write("track", 0L, TrackInfo.compute(geometry), geometry);
+			byte[] data = Files.readAllBytes(file);
+			// After magic, version and hash
+			ByteBuffer.wrap(data).putInt(16, size);
+			Files.write(file, data);
+			assertNull(store.read("track"));
+		}
+	}
+
+	@Test
+	public void testMissingTrack() throws IOException {
+		assertNull(store.read("unknown"));
+
+		TrackGeometry geometry = randomWalk(10);
+		store.write("first", 0L, TrackInfo.compute(geometry), geometry);
+		store.write("second", 0L, TrackInfo.compute(geometry), geometry);
+		store.retainAll(Collections.singleton("second"));
+		assertNull(store.read("first"));
+		assertNotNull(store.read("second"));
+	}
+}
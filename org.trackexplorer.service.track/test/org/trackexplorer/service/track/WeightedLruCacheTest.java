@@ -0,0 +1,96 @@
+package org.trackexplorer.service.track;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.trackexplorer.model.CacheStatistics;
+
+/**
+ * Tests for the {@link WeightedLruCache} class.
+ */
+public class WeightedLruCacheTest {
+
+	private WeightedLruCache<String, String> createCache(long maximumWeight) {
+		// The weight of a value is its length
+		return new WeightedLruCache<>(maximumWeight, String::length);
+	}
+
+	@Test
+	public void testLeastRecentlyUsedIsEvicted() {
+		WeightedLruCache<String, String> cache = createCache(10);
+		cache.put("a", "aaaa");
+		cache.put("b", "bbbb");
+		assertEquals("aaaa", cache.get("a"));
+		cache.put("c", "cccc");
+
+		assertEquals("aaaa", cache.get("a"));
+		assertNull(cache.get("b"));
+		assertEquals("cccc", cache.get("c"));
+
+		CacheStatistics statistics = cache.getStatistics();
+		assertEquals(3, statistics.getHitCount());
+		assertEquals(1, statistics.getMissCount());
+		assertEquals(1, statistics.getEvictionCount());
+		assertEquals(2, statistics.getEntryCount());
+		assertEquals(8, statistics.getWeight());
+	}
+
+	@Test
+	public void testPinnedEntriesAreKept() {
+		WeightedLruCache<String, String> cache = createCache(10);
+		cache.pin("a");
+		cache.put("a", "aaaaaa");
+		cache.put("b", "bbbbbb");
+		cache.put("c", "cc");
+
+		assertEquals("aaaaaa", cache.get("a"));
+		assertNull(cache.get("b"));
+		assertEquals("cc", cache.get("c"));
+
+		// Values heavier than the limit are only kept while pinned
+		cache.pin("d");
+		cache.put("d", "dddddddddddd");
+		assertEquals("dddddddddddd", cache.get("d"));
+		cache.unpin("d");
+		assertNull(cache.get("d"));
+	}
+
+	@Test
+	public void testShrink() {
+		WeightedLruCache<String, String> cache = createCache(100);
+		cache.put("a", "aaaa");
+		cache.put("b", "bbbb");
+		cache.put("c", "cccc");
+		cache.setMaximumWeight(5);
+
+		assertEquals(1, cache.getStatistics().getEntryCount());
+		assertEquals("cccc", cache.get("c"));
+		assertEquals(2, cache.getStatistics().getEvictionCount());
+	}
+
+	@Test
+	public void testRemove() {
+		WeightedLruCache<String, String> cache = createCache(10);
+		cache.pin("a");
+		cache.put("a", "aaaa");
+		assertEquals("aaaa", cache.remove("a"));
+		assertNull(cache.remove("a"));
+		assertEquals(0, cache.getStatistics().getWeight());
+
+		// The pin is removed as well
+		cache.put("a", "aaaaaaaaaaaa");
+		assertNull(cache.get("a"));
+	}
+
+	@Test
+	public void testGetIfPresent() {
+		WeightedLruCache<String, String> cache = createCache(10);
+		assertNull(cache.getIfPresent("a"));
+		cache.put("a", "aaaa");
+		assertEquals("aaaa", cache.getIfPresent("a"));
+
+		CacheStatistics statistics = cache.getStatistics();
+		assertEquals(1, statistics.getHitCount());
+		assertEquals(0, statistics.getMissCount());
+	}
+}
@@ -0,0 +1,47 @@
+package org.trackexplorer.service.track;
+
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for the {@link XXHash64} class.
+ */
+public class XXHash64Test {
+
+	@Test
+	public void testReferenceValues() {
+		assertEquals(0xEF46DB3751D8E999L, XXHash64.hash(""));
+		assertEquals(0xD24EC4F1A98C6E5BL, XXHash64.hash("a"));
+		assertEquals(0x44BC2CF5AD770999L, XXHash64.hash("abc"));
+		assertEquals(0xFBCEA83C8A378BF1L, XXHash64.hash("Nobody inspects the spammish repetition"));
+	}
+
+	@Test
+	public void testUpdateInChunks() {
+		byte[] data = new byte[1000];
+		new Random(5).nextBytes(data);
+		long expected = XXHash64.hash(data, 0, data.length, 17);
+
+		for(int chunk : new int[] {1, 3, 31, 32, 33, 100}) {
+			XXHash64 hash = new XXHash64(17);
+			for(int offset = 0; offset < data.length; offset += chunk) {
+				hash.update(data, offset, Math.min(chunk, data.length - offset));
+			}
+			assertEquals(expected, hash.getValue());
+		}
+	}
+
+	@Test
+	public void testReset() {
+		byte[] data = "Nobody inspects the spammish repetition".getBytes(StandardCharsets.UTF_8);
+		XXHash64 hash = new XXHash64();
+		hash.update(data, 0, data.length);
+		hash.reset();
+		hash.update(data, 0, 3);
+		assertEquals(XXHash64.hash("Nob"), hash.getValue());
+	}
+}
@@ -25,9 +25,19 @@ package org.trackexplorer.events;
  * |-------------------------+-----------------------------+-----------------|
  * | REQUEST_GEO_SEARCH_AREA | GeoSearch                   | TrackViewerPart |
  * |-------------------------+-----------------------------+-----------------|
+ * | GEO_SEARCH_SHAPE        | GeoSearch                   | TrackViewerPart |
+ * |-------------------------+-----------------------------+-----------------|
  * | GEO_SEARCH_RESULTS      | GeoSearch                   | TrackList       |
  * |-------------------------+-----------------------------+-----------------|
  * | GEO_SEARCH_AREA         | TrackViewerPart             | GeoSearch       |
+ * |-------------------------+-----------------------------+-----------------|
+ * | DISCOVERY_PROGRESS      | TrackList                   | TrackList       |
+ * |-------------------------+-----------------------------+-----------------|
+ * | INDEXING_PROGRESS       | TrackList                   | TrackList       |
+ * |-------------------------+-----------------------------+-----------------|
+ * | TRACKS_CHANGED          | TrackList                   | TrackList       |
+ * |                         |                             | TrackViewerPart |
+ * |                         |                             | PermanentTracks |
  * +-------------------------+-----------------------------+-----------------+
  */
 public interface TrackExplorerEventConstants {
@@ -38,6 +48,10 @@ public interface TrackExplorerEventConstants {
 	final String DISABLE_GEO_SEARCH			= "DISABLE_GEO_SEARCH";
 	final String RESET_GEO_SEARCH			= "RESET_GEO_SEARCH";
 	final String REQUEST_GEO_SEARCH_AREA	= "REQUEST_GEO_SEARCH_AREA";
+	final String GEO_SEARCH_SHAPE			= "GEO_SEARCH_SHAPE";
 	final String GEO_SEARCH_AREA			= "GEO_SEARCH_AREA";
 	final String GEO_SEARCH_RESULTS			= "GEO_SEARCH_RESULTS";
+	final String DISCOVERY_PROGRESS			= "DISCOVERY_PROGRESS";
+	final String INDEXING_PROGRESS			= "INDEXING_PROGRESS";
+	final String TRACKS_CHANGED				= "TRACKS_CHANGED";
 }
\ No newline at end of file
@@ -33,6 +33,9 @@ public class PreferencePageHandler {
 	 	    
 	    // Set the preference store
 	    IPreferenceStore store = new ScopedPreferenceStore(InstanceScope.INSTANCE, PreferenceConstants.ROOT_NODE_LOCATIONS);	    
+	    store.setDefault(PreferenceConstants.NODE_INDEX_IN_BACKGROUND, true);
+	    store.setDefault(PreferenceConstants.NODE_WATCH_LOCATIONS, true);
+	    store.setDefault(PreferenceConstants.NODE_CORRIDOR_DISTANCE, 200);
 	    
 	    // Create the preferences dialog
 	    PreferenceDialog dlg = new PreferenceDialog(shell, mgr);
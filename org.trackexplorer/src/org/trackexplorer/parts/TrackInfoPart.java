@@ -5,6 +5,7 @@ import javax.inject.Inject;
 
 import org.eclipse.e4.core.di.annotations.Optional;
 import org.eclipse.e4.ui.di.UIEventTopic;
+import org.eclipse.e4.ui.di.UISynchronize;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.layout.RowData;
 import org.eclipse.swt.layout.RowLayout;
@@ -13,6 +14,7 @@ import org.eclipse.swt.widgets.Label;
 import org.trackexplorer.events.TrackExplorerEventConstants;
 import org.trackexplorer.model.ITrackService;
 import org.trackexplorer.model.TrackMetaInfo;
+import org.trackexplorer.model.TrackStats;
 
 /**
  * The TrackInfoPart is responsible for displaying 
@@ -20,10 +22,25 @@ import org.trackexplorer.model.TrackMetaInfo;
  * 
  * This information contains the name, total distance
  * and total elevation.
+ * 
+ * The values are computed in the background, the
+ * labels are updated once they are known.
  */
 public class TrackInfoPart {
 	@Inject
 	private ITrackService trackService;
+	
+	/**
+	 * Used to update the labels on the UI thread.
+	 */
+	@Inject
+	private UISynchronize sync;
+	
+	/**
+	 * The track currently displayed, values of other tracks which
+	 * arrive later are dropped. Only accessed from the UI thread.
+	 */
+	private String currentId;
 
 	private Label lblDataName;
 	private Label lblDataTotalDistance;
@@ -67,15 +84,25 @@ public class TrackInfoPart {
 	private void subscribeShowTrack(final @UIEventTopic(TrackExplorerEventConstants.SHOW_TRACK) TrackMetaInfo trackInfo) {
 		if(trackInfo != null) {
 			lblDataName.setText(trackInfo.getName());
+			lblDataTotalDistance.setText("-");
+			lblDataTotalElevation.setText("-");
 			
-			double totalDistance = trackService.getTotalDistanceInKilometer(trackInfo.getId());
-			String distanceString = String.format("%.2fkm", totalDistance);
-			lblDataTotalDistance.setText(distanceString);
-			
-			double totalElevation = trackService.getTotalElevation(trackInfo.getId());
-			String elevationString = String.format("%.2fm", totalElevation);
-			lblDataTotalElevation.setText(elevationString);
+			String id = trackInfo.getId();
+			currentId = id;
+			trackService.getStatsAsync(id).thenAccept(stats -> sync.asyncExec(() -> {
+				if(id.equals(currentId) && !lblDataName.isDisposed()) {
+					showStats(stats);
+				}
+			}));
 		}
 	}
+	
+	private void showStats(final TrackStats stats) {
+		String distanceString = String.format("%.2fkm", stats.getTotalDistanceInKilometer());
+		lblDataTotalDistance.setText(distanceString);
+		
+		String elevationString = String.format("%.2fm", stats.getTotalElevation());
+		lblDataTotalElevation.setText(elevationString);
+	}
 
 }
@@ -0,0 +1,54 @@
+package org.trackexplorer.parts;
+
+import org.trackexplorer.model.Bounds;
+import org.trackexplorer.model.EncodedPolyline;
+import org.trackexplorer.model.TrackGeometry;
+
+/**
+ * Creates the JavaScript calls which are executed in the browser
+ * of {@link TrackViewerPart}, see {@code pages/index.html}.
+ * 
+ * The functions do not access any UI elements, so they can be
+ * called from any thread.
+ */
+public class TrackScripts {
+	private TrackScripts() {
+	}
+	
+	/**
+	 * Shows the given track as the current track.
+	 */
+	public static String updatePath(final String color, final TrackGeometry geometry) {
+		return "updatePath(" +
+				"'" + color + "'" + "," + 
+				toJavaScriptString(geometry) + ");";
+	}
+	
+	/**
+	 * Adds the given track to the tracks which are displayed permanently.
+	 */
+	public static String addPermanentTrack(final String id, final String color, final TrackGeometry geometry) {
+		return "addPermanentTrack(" +
+				"'" + id + "'," +
+				"'" + color + "'" + "," + 
+				toJavaScriptString(geometry) + ");";
+	}
+	
+	/**
+	 * Centers the map around the given bounds.
+	 */
+	public static String fitBounds(final Bounds bounds) {
+		return "fitBounds([" + bounds.getSouthWest().toString() + "," + bounds.getNorthEast().toString() + "]);";
+	}
+	
+	/**
+	 * Transforms the track points into a JavaScript string containing
+	 * the points as encoded polyline, see {@link EncodedPolyline}.
+	 * 
+	 * The website decodes the string with the geometry library of Google Maps.
+	 */
+	public static String toJavaScriptString(final TrackGeometry geometry) {
+		// The backslash is the only character of the encoding which needs to be escaped
+		return "'" + EncodedPolyline.encode(geometry).replace("\\", "\\\\") + "'";
+	}
+}
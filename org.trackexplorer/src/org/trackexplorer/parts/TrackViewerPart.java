@@ -5,16 +5,25 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 
 import org.eclipse.core.runtime.FileLocator;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.e4.core.di.annotations.Optional;
+import org.eclipse.e4.core.di.extensions.Preference;
 import org.eclipse.e4.core.services.events.IEventBroker;
 import org.eclipse.e4.ui.di.UIEventTopic;
+import org.eclipse.e4.ui.di.UISynchronize;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.browser.Browser;
 import org.eclipse.swt.browser.BrowserFunction;
@@ -22,9 +31,15 @@ import org.eclipse.swt.layout.FillLayout;
 import org.eclipse.swt.widgets.Composite;
 import org.trackexplorer.events.TrackExplorerEventConstants;
 import org.trackexplorer.model.Bounds;
+import org.trackexplorer.model.Circle;
+import org.trackexplorer.model.Corridor;
+import org.trackexplorer.model.GeoArea;
 import org.trackexplorer.model.ITrackService;
-import org.trackexplorer.model.LatLng;
 import org.trackexplorer.model.DrawableTrackMetaInfo;
+import org.trackexplorer.model.LatLng;
+import org.trackexplorer.model.Polygon;
+import org.trackexplorer.model.TrackChanges;
+import org.trackexplorer.model.TrackGeometry;
 import org.trackexplorer.model.TrackMetaInfo;
 
 /**
@@ -34,8 +49,14 @@ import org.trackexplorer.model.TrackMetaInfo;
  * Google Maps. The website uses the Google Maps API for displaying
  * the tracks.
  *
- * Furthermore the website handles a rectangle which indicates the
- * area for the geo search.
+ * Furthermore the website handles the area for the geo search, a rectangle,
+ * polygon, circle or corridor which the user can move and reshape.
+ * 
+ * Tracks are loaded and transformed into JavaScript by background jobs,
+ * only the final call of the JavaScript function is done on the UI thread.
+ * Only a simplified version of a track which fits the current zoom
+ * level of the map is sent to the website. Whenever the zoom level changes,
+ * the displayed tracks are replaced by the matching versions.
  */
 public class TrackViewerPart {
 	
@@ -73,6 +94,113 @@ public class TrackViewerPart {
 			return null;
 		}
      }
+	
+	/**
+	 * A callback function which is invoked from JavaScript instead of
+	 * {@link BrowserBoundsCallback} if the area of the geo search is not a rectangle.
+	 * 
+	 * The arguments are the shape of the area, its points as alternating latitudes
+	 * and longitudes and the radius of a circle in meters. The area is sent with
+	 * the message {@code GEO_SEARCH_AREA} on the bus.
+	 */
+	private class BrowserAreaCallback extends BrowserFunction {
+		BrowserAreaCallback (Browser browser) {
+			super (browser, "AreaCallback");
+		}
+		
+		public Object function (Object[] arguments) {
+			String shape = (String) arguments[0];
+			Object[] coordinates = (Object[]) arguments[1];
+			List<LatLng> points = new ArrayList<>();
+			for(int idx = 0; idx + 1 < coordinates.length; idx += 2) {
+				points.add(new LatLng(((Double) coordinates[idx]).doubleValue(),
+						((Double) coordinates[idx + 1]).doubleValue()));
+			}
+			
+			GeoArea area = null;
+			if("circle".equals(shape) && points.size() == 1) {
+				area = new Circle(points.get(0), ((Double) arguments[2]).doubleValue());
+			}
+			else if("corridor".equals(shape) && !points.isEmpty()) {
+				area = new Corridor(points, getCorridorDistance());
+			}
+			else if("polygon".equals(shape) && points.size() >= 3) {
+				area = new Polygon(points);
+			}
+			
+			if(area != null) {
+				broker.post(TrackExplorerEventConstants.GEO_SEARCH_AREA, area);
+			}
+			return null;
+		}
+	}
+	
+	/**
+	 * A callback function which is invoked from JavaScript
+	 * whenever the zoom level of the map changes.
+	 */
+	private class BrowserZoomCallback extends BrowserFunction {
+		BrowserZoomCallback (Browser browser) {
+			super (browser, "ZoomCallback");
+		}
+		
+		public Object function (Object[] arguments) {
+			onZoomChanged(((Double) arguments[0]).intValue());
+			return null;
+		}
+	}
+	
+	/**
+	 * Loads a track in the background and creates the JavaScript to display it.
+	 * 
+	 * The JavaScript is executed on the UI thread by {@link display},
+	 * unless the job has been replaced by another job for the same track meanwhile.
+	 */
+	private class TrackJob extends Job {
+		private final DrawableTrackMetaInfo trackInfo;
+		private final boolean permanent;
+		private final boolean fit;
+		private final int zoom;
+		
+		/**
+		 * @param permanent Whether the track is a permanent track or the current track.
+		 * @param fit Whether the map shall be centered around the track.
+		 */
+		TrackJob(final DrawableTrackMetaInfo trackInfo, final boolean permanent, final boolean fit) {
+			super("Loading " + trackInfo.getName());
+			this.trackInfo = trackInfo;
+			this.permanent = permanent;
+			this.fit = fit;
+			this.zoom = TrackViewerPart.this.zoom;
+			setSystem(true);
+		}
+		
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			String id = trackInfo.getId();
+			TrackGeometry geometry = trackService.getSimplifiedTrackGeometry(id, zoom);
+			if(monitor.isCanceled()) {
+				return Status.CANCEL_STATUS;
+			}
+			
+			// The service returns the same instance if the level did not change
+			TrackGeometry displayed = permanent ? permanentTrackGeometries.get(id) : currentTrackGeometry;
+			if(!fit && geometry == displayed) {
+				return Status.OK_STATUS;
+			}
+			
+			String track = permanent ?
+					TrackScripts.addPermanentTrack(id, trackInfo.getColor(), geometry) :
+					TrackScripts.updatePath(trackInfo.getColor(), geometry);
+			// The simplified track might not contain the outermost points,
+			// the bounds of all points are kept by the service
+			Bounds bounds = fit ? trackService.getBounds(id) : null;
+			String fitBounds = (bounds != null) ? TrackScripts.fitBounds(bounds) : null;
+			
+			sync.asyncExec(() -> display(this, geometry, track, fitBounds));
+			return Status.OK_STATUS;
+		}
+	}
 
 	/**
 	 * Used for sending events on the event bus.
@@ -85,6 +213,65 @@ public class TrackViewerPart {
 	 */
 	@Inject
 	private ITrackService trackService;
+	
+	/**
+	 * Tracks are loaded asynchronously.
+	 * This class is used to execute the JavaScript on the UI thread.
+	 */
+	@Inject
+	private UISynchronize sync;
+	
+	/**
+	 * The distance in meters to the line of a corridor for the geo search.
+	 * {@link DEFAULT_CORRIDOR_DISTANCE} if not set.
+	 */
+	@Inject
+	@Preference(nodePath="org.trackexplorer",value="corridorDistance")
+	private String corridorDistance;
+	
+	private static final double DEFAULT_CORRIDOR_DISTANCE = 200.0;
+	
+	/**
+	 * The current zoom level of the map.
+	 * The initial value is the one set in {@code index.html}.
+	 * Only accessed from the UI thread.
+	 */
+	private int zoom = 3;
+	
+	/**
+	 * The track shown by {@link subscribeShowTrack}, null if none.
+	 * Only accessed from the UI thread.
+	 */
+	private DrawableTrackMetaInfo currentTrack;
+	
+	/**
+	 * The displayed points of the {@link currentTrack}.
+	 */
+	private volatile TrackGeometry currentTrackGeometry;
+	
+	/**
+	 * The job loading the {@link currentTrack}, null if none.
+	 * Only accessed from the UI thread.
+	 */
+	private TrackJob showTrackJob;
+	
+	/**
+	 * The tracks which are displayed permanently.
+	 * The {@code id} of the track is used as a key.
+	 * Only accessed from the UI thread.
+	 */
+	private Map<String, DrawableTrackMetaInfo> permanentTracks = new HashMap<>();
+	
+	/**
+	 * The displayed points of the {@link permanentTracks}.
+	 */
+	private Map<String, TrackGeometry> permanentTrackGeometries = new ConcurrentHashMap<>();
+	
+	/**
+	 * The jobs loading {@link permanentTracks} which have not been
+	 * displayed yet. Only accessed from the UI thread.
+	 */
+	private Map<String, TrackJob> permanentTrackJobs = new HashMap<>();
 
 	/**
 	 * UI element which contains the browser used to display Google Maps.
@@ -96,6 +283,16 @@ public class TrackViewerPart {
 	 */
 	private BrowserBoundsCallback browserCallback;
 	
+	/**
+	 * Callback function which is invoked from JavaScript for areas which are not rectangles. 
+	 */
+	private BrowserAreaCallback areaCallback;
+	
+	/**
+	 * Callback function which is invoked from JavaScript when the map is zoomed. 
+	 */
+	private BrowserZoomCallback zoomCallback;
+	
 	/**
 	 * Define HTML error page which should be displayed in case
 	 * index.html cannot be loaded.
@@ -137,6 +334,16 @@ public class TrackViewerPart {
 		
 		// Register browser callback
 		this.browserCallback = new BrowserBoundsCallback(browser);		
+		this.areaCallback = new BrowserAreaCallback(browser);
+		this.zoomCallback = new BrowserZoomCallback(browser);
+	}
+	
+	private double getCorridorDistance() {
+		try {
+			return (corridorDistance != null) ? Double.parseDouble(corridorDistance) : DEFAULT_CORRIDOR_DISTANCE;
+		} catch (NumberFormatException e) {
+			return DEFAULT_CORRIDOR_DISTANCE;
+		}
 	}
 	
 	/**
@@ -148,17 +355,8 @@ public class TrackViewerPart {
 	@Optional
 	private void subscribeShowTrack(final @UIEventTopic(TrackExplorerEventConstants.SHOW_TRACK) DrawableTrackMetaInfo trackInfo) {
 		if(trackInfo != null) {
-			List<LatLng> points = trackService.getTrackPoints(trackInfo.getId());	
-			String waypoints = points.stream()
-					.map(LatLng::toString)
-					.collect(Collectors.joining(","));
-			browser.execute("updatePath(" +
-					"'" + trackInfo.getColor() + "'" + "," + 
-					"[" + waypoints + "]);");
-			
-			Bounds bounds = new Bounds(points);
-			String s = "fitBounds([" + bounds.getSouthWest().toString() + "," + bounds.getNorthEast().toString() + "]);";
-			browser.execute(s);			
+			currentTrack = trackInfo;
+			showTrack(trackInfo, true);
 		}
 	}
 	
@@ -173,18 +371,8 @@ public class TrackViewerPart {
 	@Optional
 	private void subscribeAddTrackPermanently(final @UIEventTopic(TrackExplorerEventConstants.PERMANENT_TRACK_ADDED) DrawableTrackMetaInfo trackInfo) {
 		if(trackInfo != null) {
-			List<LatLng> points = trackService.getTrackPoints(trackInfo.getId());
-			String waypoints = points.stream()
-					.map(LatLng::toString)
-					.collect(Collectors.joining(","));
-						
-			browser.execute("addPermanentTrack(" +
-					"'" + trackInfo.getId() + "'," +
-					"'" + trackInfo.getColor() + "'" + "," + 
-					"[" + waypoints + "]);");			
-			Bounds bounds = new Bounds(points);
-			String s = "fitBounds([" + bounds.getSouthWest().toString() + "," + bounds.getNorthEast().toString() + "]);";
-			browser.execute(s);			
+			permanentTracks.put(trackInfo.getId(), trackInfo);
+			showPermanentTrack(trackInfo, true);
 		}
 	}
 	
@@ -194,45 +382,194 @@ public class TrackViewerPart {
 	@Inject
 	@Optional
 	private void subscribeRemovePermanentTrack(final @UIEventTopic(TrackExplorerEventConstants.PERMANENT_TRACK_REMOVED) TrackMetaInfo trackInfo) {
-		if(trackInfo != null) {			
-			browser.execute("removePermanentTrack(" +
-					"'" + trackInfo.getId() + "');");			
+		if(trackInfo != null) {
+			removePermanentTrack(trackInfo.getId());
+		}
+	}
+	
+	/**
+	 * Invoked whenever tracks have been added, removed or modified on disk.
+	 * 
+	 * A modified track gets a new id, it replaces the displayed track with the
+	 * same path and is loaded again. Tracks which were deleted are removed from the map.
+	 */
+	@Inject
+	@Optional
+	private void subscribeTracksChanged(final @UIEventTopic(TrackExplorerEventConstants.TRACKS_CHANGED) TrackChanges changes) {
+		if(changes == null || browser == null || browser.isDisposed()) {
+			return;
+		}
+		
+		for(TrackMetaInfo track : changes.getRemoved()) {
+			if(permanentTracks.containsKey(track.getId())) {
+				removePermanentTrack(track.getId());
+			}
+			if(currentTrack != null && currentTrack.getId().equals(track.getId())) {
+				if(showTrackJob != null) {
+					showTrackJob.cancel();
+					showTrackJob = null;
+				}
+				browser.execute(TrackScripts.updatePath(currentTrack.getColor(), TrackGeometry.EMPTY));
+				currentTrack = null;
+				currentTrackGeometry = null;
+			}
+		}
+		for(TrackMetaInfo track : changes.getUpdated()) {
+			for(DrawableTrackMetaInfo permanent : new ArrayList<>(permanentTracks.values())) {
+				if(permanent.getPath().equals(track.getPath())) {
+					removePermanentTrack(permanent.getId());
+					DrawableTrackMetaInfo replacement = new DrawableTrackMetaInfo(track, permanent.getColor());
+					permanentTracks.put(replacement.getId(), replacement);
+					showPermanentTrack(replacement, false);
+				}
+			}
+			if(currentTrack != null && currentTrack.getPath().equals(track.getPath())) {
+				currentTrack = new DrawableTrackMetaInfo(track, currentTrack.getColor());
+				showTrack(currentTrack, false);
+			}
+		}
+	}
+	
+	/**
+	 * Removes a permanent track from the map, a job which is still loading it is cancelled.
+	 */
+	private void removePermanentTrack(final String id) {
+		permanentTracks.remove(id);
+		permanentTrackGeometries.remove(id);
+		TrackJob permanentTrackJob = permanentTrackJobs.remove(id);
+		if(permanentTrackJob != null) {
+			permanentTrackJob.cancel();
+		}
+		browser.execute("removePermanentTrack(" +
+				"'" + id + "');");
+	}
+	
+	/**
+	 * Loads the current track in the background, replacing a job
+	 * which is still loading.
+	 */
+	private void showTrack(final DrawableTrackMetaInfo trackInfo, boolean fit) {
+		if(showTrackJob != null) {
+			showTrackJob.cancel();
+			// Do not lose a pending request to center the map
+			fit |= showTrackJob.fit && showTrackJob.trackInfo == trackInfo;
+		}
+		showTrackJob = new TrackJob(trackInfo, false, fit);
+		showTrackJob.schedule();
+	}
+	
+	/**
+	 * Loads a permanent track in the background, replacing a job
+	 * which is still loading.
+	 */
+	private void showPermanentTrack(final DrawableTrackMetaInfo trackInfo, boolean fit) {
+		TrackJob previous = permanentTrackJobs.get(trackInfo.getId());
+		if(previous != null) {
+			previous.cancel();
+			fit |= previous.fit;
+		}
+		TrackJob permanentTrackJob = new TrackJob(trackInfo, true, fit);
+		permanentTrackJobs.put(trackInfo.getId(), permanentTrackJob);
+		permanentTrackJob.schedule();
+	}
+	
+	/**
+	 * Executes the JavaScript created by a {@link TrackJob} on the UI thread.
+	 * 
+	 * Nothing is done if the job has been replaced meanwhile,
+	 * e.g. because another track was selected or the track was removed.
+	 */
+	private void display(final TrackJob job, final TrackGeometry geometry, final String track, final String fitBounds) {
+		if(browser.isDisposed()) {
+			return;
+		}
+		
+		String id = job.trackInfo.getId();
+		if(job.permanent) {
+			if(permanentTrackJobs.get(id) != job) {
+				return;
+			}
+			permanentTrackJobs.remove(id);
+			permanentTrackGeometries.put(id, geometry);
+		}
+		else {
+			if(showTrackJob != job) {
+				return;
+			}
+			showTrackJob = null;
+			currentTrackGeometry = geometry;
+		}
+		
+		browser.execute(track);
+		if(fitBounds != null) {
+			browser.execute(fitBounds);
+		}
+	}
+	
+	/**
+	 * Invoked by the {@link BrowserZoomCallback}.
+	 * 
+	 * Reloads all displayed tracks for the new zoom level. The jobs
+	 * skip tracks whose simplified version does not change.
+	 */
+	private void onZoomChanged(final int zoom) {
+		if(this.zoom == zoom) {
+			return;
+		}
+		this.zoom = zoom;
+		
+		if(currentTrack != null) {
+			showTrack(currentTrack, false);
+		}
+		for(DrawableTrackMetaInfo trackInfo : permanentTracks.values()) {
+			showPermanentTrack(trackInfo, false);
 		}
 	}
 	
 	/**
 	 * Invoked whenever the user enables the geo search functionality.
-	 * It calls a JavaScript function which displays a rectangular area on the map.
-	 * This rectangle indicates the area which shall be used in a geo search.
+	 * It calls a JavaScript function which displays an area on the map,
+	 * a rectangle unless another shape has been selected.
+	 * This area shall be used in a geo search.
 	 */
 	@Inject
 	@Optional
 	private void subscribeEnableGeoSearch(@UIEventTopic(TrackExplorerEventConstants.ENABLE_GEO_SEARCH) final Object data) {
 		// data should be null, only there to comply with syntax
-		browser.execute("showGeoSearchRectangle();");		
+		browser.execute("showGeoSearchArea();");		
 	}
 
 	/**
 	 * Invoked whenever the user disables the geo search functionality.
-	 * The "geo search rectangle" is removed from the map. 
+	 * The "geo search area" is removed from the map. 
 	 */
 	@Inject
 	@Optional
 	private void subscribeDisableGeoSearch(@UIEventTopic(TrackExplorerEventConstants.DISABLE_GEO_SEARCH) final Object data) {
 		// data should be null, only there to comply with syntax
-		browser.execute("hideGeoSearchRectangle();");
+		browser.execute("hideGeoSearchArea();");
 	}
 
 	/**
 	 * Invoked whenever the user resets the geo search functionality.
-	 * This causes the "geo search rectangle" to be centered around the current
+	 * This causes the "geo search area" to be centered around the current
 	 * position on the map. 
 	 */
 	@Inject
 	@Optional
 	private void subscribeResetGeoSearch(@UIEventTopic(TrackExplorerEventConstants.RESET_GEO_SEARCH) final Object data) {
 		// data should be null, only there to comply with syntax
-		browser.execute("resetGeoSearchRectangle();");
+		browser.execute("resetGeoSearchArea();");
+	}
+	
+	/**
+	 * Invoked whenever the user selects another shape for the geo search area.
+	 * A displayed area is replaced by one of the new shape.
+	 */
+	@Inject
+	@Optional
+	private void subscribeGeoSearchShape(@UIEventTopic(TrackExplorerEventConstants.GEO_SEARCH_SHAPE) final String shape) {
+		browser.execute("setGeoSearchShape('" + shape + "');");
 	}
 	
 	/**
@@ -246,7 +583,7 @@ public class TrackViewerPart {
 		// data should be null, only there to comply with syntax
 		
 		// This function will execute a JavaScript function which in turn will trigger
-		// the Java custom function {@link BrowserBoundsCallback}.
-		this.browser.execute("getBounds();");
+		// the Java custom function {@link BrowserBoundsCallback} or {@link BrowserAreaCallback}.
+		this.browser.execute("getGeoSearchArea();");
 	}	
 }
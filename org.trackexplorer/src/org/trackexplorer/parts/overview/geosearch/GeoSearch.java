@@ -6,6 +6,7 @@ import javax.inject.Inject;
 import javax.inject.Named;
 
 import org.eclipse.e4.core.di.annotations.Optional;
+import org.eclipse.e4.core.di.extensions.Preference;
 import org.eclipse.e4.core.services.events.IEventBroker;
 import org.eclipse.e4.ui.di.UIEventTopic;
 import org.eclipse.e4.ui.di.UISynchronize;
@@ -17,10 +18,12 @@ import org.eclipse.swt.events.SelectionAdapter;
 import org.eclipse.swt.events.SelectionEvent;
 import org.eclipse.swt.layout.RowLayout;
 import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Combo;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Shell;
 import org.trackexplorer.events.TrackExplorerEventConstants;
-import org.trackexplorer.model.Bounds;
+import org.trackexplorer.model.GeoArea;
+import org.trackexplorer.model.GeoSearchMode;
 import org.trackexplorer.model.IGeoSearchService;
 import org.trackexplorer.model.ITrackService;
 
@@ -30,8 +33,18 @@ import org.trackexplorer.model.ITrackService;
  * The geographical search can be enabled, disabled and reset.
  * Furthermore a geographical search can be carried out by using the
  * {@code IGeoSearchService}.
+ * 
+ * The area of the search is a rectangle, a polygon, a circle
+ * or a corridor along a line, see {@link SHAPES}.
  */
 public class GeoSearch {
+	/**
+	 * The shapes of the area as named by the JavaScript of the map,
+	 * in the order of {@link SHAPE_LABELS}.
+	 */
+	private static final String[] SHAPES = {"rectangle", "polygon", "circle", "corridor"};
+	private static final String[] SHAPE_LABELS = {"Rectangle", "Polygon", "Circle", "Corridor"};
+	
 	/**
 	 * Used for sending events on the event bus.
 	 */
@@ -56,6 +69,14 @@ public class GeoSearch {
 	 */
 	@Inject
 	private UISynchronize sync;
+	
+	/**
+	 * Whether tracks crossing the search area between two of their
+	 * points shall be found as well. Disabled if not set.
+	 */
+	@Inject
+	@Preference(nodePath="org.trackexplorer",value="searchSegments")
+	private String searchSegments;
 
 	public GeoSearch() {
 		
@@ -64,7 +85,7 @@ public class GeoSearch {
 	/**
 	 * Create the controls used for doing a geographical search.
 	 * 
-	 * The controls consist of three buttons:
+	 * The controls consist of three buttons and a selection of the shape:
 	 * One button enables the search after which the user can adjust the search area.
 	 * The other button executes the search while
 	 * the third button disables the search functionality.
@@ -84,6 +105,17 @@ public class GeoSearch {
 		Button btnGeoSearchToggle = new Button(compositeGeoSearch, SWT.FLAT | SWT.TOGGLE);
 		btnGeoSearchToggle.setText("Geo search");
 		
+		// Create selection of the shape of the search area
+		Combo comboShape = new Combo(compositeGeoSearch, SWT.READ_ONLY);
+		comboShape.setItems(SHAPE_LABELS);
+		comboShape.select(0);
+		comboShape.addSelectionListener(new SelectionAdapter() {
+			@Override
+			public void widgetSelected(SelectionEvent e) {
+				broker.post(TrackExplorerEventConstants.GEO_SEARCH_SHAPE, SHAPES[comboShape.getSelectionIndex()]);
+			}
+		});
+		
 		// Create button for executing the search
 		Button btnSearchGo = new Button(compositeGeoSearch, SWT.FLAT);
 		btnSearchGo.setEnabled(false);
@@ -128,16 +160,17 @@ public class GeoSearch {
 	
 	/**
 	 * This function is called whenever the user has requested a geographical search and
-	 * the {@code TrackViewerPart} sends the corresponding bounding box on the event bus. 
+	 * the {@code TrackViewerPart} sends the corresponding area on the event bus. 
 	 */
 	@Inject
 	@Optional
-	private void subscribeGeoSearchArea(final @UIEventTopic(TrackExplorerEventConstants.GEO_SEARCH_AREA) Bounds bounds,
+	private void subscribeGeoSearchArea(final @UIEventTopic(TrackExplorerEventConstants.GEO_SEARCH_AREA) GeoArea area,
 			@Named(IServiceConstants.ACTIVE_SHELL) Shell shell) {
-		if(bounds != null) {
+		if(area != null) {
 			try {
 				new ProgressMonitorDialog(shell).run(true, true,
-						new GeoSearchRunnable(bounds,
+						new GeoSearchRunnable(area,
+								Boolean.parseBoolean(searchSegments) ? GeoSearchMode.SEGMENTS : GeoSearchMode.POINTS,
 								searchService,
 								trackService,
 								(result) -> {
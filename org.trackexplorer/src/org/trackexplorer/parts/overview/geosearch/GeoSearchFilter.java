@@ -0,0 +1,30 @@
+package org.trackexplorer.parts.overview.geosearch;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.trackexplorer.model.TrackMetaInfo;
+
+/**
+ * Filter to determine whether a track
+ * was found during the geo search and shall
+ * be displayed.
+ */
+public class GeoSearchFilter implements Predicate<TrackMetaInfo> {
+	private Set<TrackMetaInfo> resultSet;
+	
+	public GeoSearchFilter(final Set<TrackMetaInfo> resultSet) {
+		if(resultSet == null) {
+			this.resultSet = new HashSet<>();
+		}
+		else {
+			this.resultSet = resultSet;
+		}
+	}
+	
+	@Override
+	public boolean test(final TrackMetaInfo trackInfo) {
+		return resultSet.contains(trackInfo);
+	}
+}
@@ -6,7 +6,8 @@ import java.util.function.Consumer;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.jface.operation.IRunnableWithProgress;
-import org.trackexplorer.model.Bounds;
+import org.trackexplorer.model.GeoArea;
+import org.trackexplorer.model.GeoSearchMode;
 import org.trackexplorer.model.IGeoSearchService;
 import org.trackexplorer.model.ITrackService;
 import org.trackexplorer.model.TrackMetaInfo;
@@ -19,24 +20,28 @@ import org.trackexplorer.model.TrackMetaInfo;
  * an {@code IRunnableWithProgress}.
  */
 public class GeoSearchRunnable implements IRunnableWithProgress{
-	private Bounds bounds;
+	private GeoArea area;
+	private GeoSearchMode mode;
 	private IGeoSearchService searchService;
 	private ITrackService trackService;
 	private Consumer<Set<TrackMetaInfo>> processResults;
 	
 
 	/**
-	 * @param bounds The bounds which shall be passed to the {@code searchService}.
+	 * @param area The area which shall be passed to the {@code searchService}.
+	 * @param mode How the {@code searchService} shall match the tracks.
 	 * @param searchService The geo search service which shall be used.
 	 * @param trackService The service to provide the tracks to the {@code searchService}.
 	 * @param processResults A callback which shall be called with the results of the geo search. Null is
 	 * passed if no results where found.
 	 */
-	public GeoSearchRunnable(Bounds bounds,
+	public GeoSearchRunnable(GeoArea area,
+			GeoSearchMode mode,
 			IGeoSearchService searchService,
 			ITrackService trackService,
 			Consumer<Set<TrackMetaInfo>> processResults) {
-		this.bounds = bounds;
+		this.area = area;
+		this.mode = mode;
 		this.searchService = searchService;
 		this.trackService = trackService;
 		this.processResults = processResults;
@@ -44,8 +49,9 @@ public class GeoSearchRunnable implements IRunnableWithProgress{
 	
 	@Override
 	public void run(IProgressMonitor monitor) throws InvocationTargetException {
-		monitor.beginTask("Searching", this.trackService.getAvailabeTracks().size());
-		Set<TrackMetaInfo> searchResult = this.searchService.search(bounds,
+		monitor.beginTask("Searching", this.trackService.getTrackCount());
+		Set<TrackMetaInfo> searchResult = this.searchService.search(area,
+				this.mode,
 				this.trackService,
 				amount -> monitor.worked(amount),
 				() -> monitor.isCanceled());
@@ -1,7 +1,10 @@
 package org.trackexplorer.parts.overview.permanenttracks;
 
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.CompletableFuture;
 
 import javax.inject.Inject;
 
@@ -11,6 +14,7 @@ import org.eclipse.e4.core.commands.EHandlerService;
 import org.eclipse.e4.core.contexts.IEclipseContext;
 import org.eclipse.e4.core.di.annotations.Optional;
 import org.eclipse.e4.ui.di.UIEventTopic;
+import org.eclipse.e4.ui.di.UISynchronize;
 import org.eclipse.e4.ui.services.EMenuService;
 import org.eclipse.e4.ui.workbench.modeling.ESelectionService;
 import org.eclipse.jface.viewers.ArrayContentProvider;
@@ -35,7 +39,9 @@ import org.trackexplorer.handlers.AddTrackPermanentlyHandler;
 import org.trackexplorer.handlers.RemovePermanentTrackHandler;
 import org.trackexplorer.model.DrawableTrackMetaInfo;
 import org.trackexplorer.model.ITrackService;
+import org.trackexplorer.model.TrackChanges;
 import org.trackexplorer.model.TrackMetaInfo;
+import org.trackexplorer.model.TrackStats;
 
 /**
  * This class provides the controls and functionality for listing
@@ -78,6 +84,13 @@ public class PermanentTracks {
 	 */
 	@Inject
 	private IEclipseContext context;
+	
+	/**
+	 * The distance and elevation are computed in the background.
+	 * This class is used to update the rows on the UI thread.
+	 */
+	@Inject
+	private UISynchronize sync;
 
 	/**
 	 * Main UI control to display the list of tracks which
@@ -153,9 +166,11 @@ public class PermanentTracks {
 		viewerColumnPermanentKm.setLabelProvider(new ColumnLabelProvider() {			
 			@Override
 			public String getText(Object element) {
-				TrackMetaInfo trackInfo = (TrackMetaInfo) element;
-				double totalDistance = trackService.getTotalDistanceInKilometer(trackInfo.getId());
-				String distanceString = String.format("%.2f", totalDistance);
+				TrackStats stats = getStats((TrackMetaInfo) element);
+				if(stats == null) {
+					return "-";
+				}
+				String distanceString = String.format("%.2f", stats.getTotalDistanceInKilometer());
 				return distanceString;
 			}
 		});
@@ -169,9 +184,11 @@ public class PermanentTracks {
 		viewerColumnPermanentHm.setLabelProvider(new ColumnLabelProvider() {
 			@Override
 			public String getText(Object element) {
-				TrackMetaInfo trackInfo = (TrackMetaInfo) element;
-				double totalElevation = trackService.getTotalElevation(trackInfo.getId());
-				String elevationString = String.format("%.2f", totalElevation);
+				TrackStats stats = getStats((TrackMetaInfo) element);
+				if(stats == null) {
+					return "-";
+				}
+				String elevationString = String.format("%.2f", stats.getTotalElevation());
 				return elevationString;
 			}
 		});
@@ -225,6 +242,27 @@ public class PermanentTracks {
 		menuService.registerContextMenu(tableViewerPermanentTracks.getControl(), "org.trackexplorer.trackoverview.popupmenu.permanenttracks");
 	}
 
+	/**
+	 * Returns the distance and elevation of a track if they are known.
+	 * 
+	 * Otherwise they are computed in the background and
+	 * the row of the track is updated afterwards.
+	 * 
+	 * @return The values or null if they are not known yet.
+	 */
+	private TrackStats getStats(final TrackMetaInfo trackInfo) {
+		CompletableFuture<TrackStats> stats = trackService.getStatsAsync(trackInfo.getId());
+		if(!stats.isDone()) {
+			stats.thenRun(() -> sync.asyncExec(() -> {
+				if(!tableViewerPermanentTracks.getTable().isDisposed()) {
+					tableViewerPermanentTracks.update(trackInfo, null);
+				}
+			}));
+			return null;
+		}
+		return stats.isCompletedExceptionally() ? null : stats.join();
+	}
+
 	/**
 	 * Invoked whenever a track is added for permanent display.
 	 */
@@ -233,6 +271,8 @@ public class PermanentTracks {
 	private void subscribeAddTrackPermanently(final @UIEventTopic(TrackExplorerEventConstants.PERMANENT_TRACK_ADDED) DrawableTrackMetaInfo trackInfo) {
 		if(trackInfo != null) {
 			if(! permanentTracks.contains(trackInfo)) {
+				// Permanent tracks are shown all the time, keep them in memory
+				trackService.pinTrack(trackInfo.getId());
 				permanentTracks.add(trackInfo);
 				tableViewerPermanentTracks.refresh();
 			}
@@ -247,9 +287,50 @@ public class PermanentTracks {
 	private void subscribeRemovePermanentTrack(final @UIEventTopic(TrackExplorerEventConstants.PERMANENT_TRACK_REMOVED) TrackMetaInfo trackInfo) {
 		if(trackInfo != null) {
 			if(permanentTracks.contains(trackInfo)) {
+				trackService.unpinTrack(trackInfo.getId());
 				permanentTracks.remove(trackInfo);
 				tableViewerPermanentTracks.refresh();
 			}
 		}
 	}
+	
+	/**
+	 * Invoked whenever tracks have been added, removed or modified on disk.
+	 * 
+	 * A modified track gets a new id, it replaces the permanent track with the same path.
+	 * The service keeps it pinned. Tracks which were deleted are dropped.
+	 */
+	@Inject
+	@Optional
+	private void subscribeTracksChanged(final @UIEventTopic(TrackExplorerEventConstants.TRACKS_CHANGED) TrackChanges changes) {
+		if(changes == null || permanentTracks.isEmpty()) {
+			return;
+		}
+		
+		boolean changed = false;
+		for(TrackMetaInfo track : changes.getRemoved()) {
+			Iterator<TrackMetaInfo> it = permanentTracks.iterator();
+			while(it.hasNext()) {
+				if(it.next().getId().equals(track.getId())) {
+					trackService.unpinTrack(track.getId());
+					it.remove();
+					changed = true;
+				}
+			}
+		}
+		for(TrackMetaInfo track : changes.getUpdated()) {
+			ListIterator<TrackMetaInfo> it = permanentTracks.listIterator();
+			while(it.hasNext()) {
+				TrackMetaInfo permanent = it.next();
+				if(permanent.getPath().equals(track.getPath())) {
+					it.set(new DrawableTrackMetaInfo(track, ((DrawableTrackMetaInfo) permanent).getColor()));
+					changed = true;
+				}
+			}
+		}
+		
+		if(changed && tableViewerPermanentTracks != null && !tableViewerPermanentTracks.getTable().isDisposed()) {
+			tableViewerPermanentTracks.refresh();
+		}
+	}
 }
@@ -3,18 +3,26 @@ package org.trackexplorer.parts.overview.tracklist;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Predicate;
 
 import javax.inject.Inject;
 
 import org.eclipse.core.commands.ParameterizedCommand;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.e4.core.commands.ECommandService;
 import org.eclipse.e4.core.commands.EHandlerService;
 import org.eclipse.e4.core.contexts.IEclipseContext;
 import org.eclipse.e4.core.di.annotations.Optional;
 import org.eclipse.e4.core.di.extensions.Preference;
+import org.eclipse.e4.core.services.events.IEventBroker;
 import org.eclipse.e4.ui.di.UIEventTopic;
+import org.eclipse.e4.ui.di.UISynchronize;
 import org.eclipse.e4.ui.services.EMenuService;
 import org.eclipse.e4.ui.workbench.modeling.ESelectionService;
 import org.eclipse.jface.viewers.ISelectionChangedListener;
@@ -22,9 +30,6 @@ import org.eclipse.jface.viewers.IStructuredSelection;
 import org.eclipse.jface.viewers.LabelProvider;
 import org.eclipse.jface.viewers.SelectionChangedEvent;
 import org.eclipse.jface.viewers.TreeViewer;
-import org.eclipse.jface.viewers.Viewer;
-import org.eclipse.jface.viewers.ViewerComparator;
-import org.eclipse.jface.viewers.ViewerFilter;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.events.ModifyEvent;
 import org.eclipse.swt.events.ModifyListener;
@@ -35,13 +40,18 @@ import org.eclipse.swt.layout.RowData;
 import org.eclipse.swt.layout.RowLayout;
 import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Label;
 import org.eclipse.swt.widgets.Text;
 import org.trackexplorer.events.TrackExplorerEventConstants;
 import org.trackexplorer.handlers.AddTrackPermanentlyHandler;
 import org.trackexplorer.handlers.RemovePermanentTrackHandler;
+import org.trackexplorer.model.DiscoveryProgress;
 import org.trackexplorer.model.ITrackService;
+import org.trackexplorer.model.IndexingProgress;
+import org.trackexplorer.model.NameMatch;
+import org.trackexplorer.model.TrackChanges;
 import org.trackexplorer.model.TrackMetaInfo;
-import org.trackexplorer.parts.overview.geosearch.GeoSearchViewerFilter;
+import org.trackexplorer.parts.overview.geosearch.GeoSearchFilter;
 import org.trackexplorer.parts.overview.tracklist.filehierarchy.GPXFileHierarchy;
 import org.trackexplorer.parts.overview.tracklist.filehierarchy.GPXFileHierarchyContentProvider;
 import org.trackexplorer.parts.overview.tracklist.filehierarchy.Tree;
@@ -50,17 +60,64 @@ import org.trackexplorer.parts.overview.tracklist.filehierarchy.Tree;
  * This class provides the controls and functionality for listing
  * the available tracks.
  * 
- * The tracks can be filter via a text search.
+ * The tracks can be filter via a text search. The search runs in the
+ * background using the name index of the {@code ITrackService}, it starts
+ * once the user stopped typing for {@link SEARCH_DELAY_MS}.
  * If a geographical search is carried out (see {@link GeoSearch}),
  * the track list is filtered according to the results.
  * 
+ * The tree is virtual, only the rows which are visible are created.
+ * The tracks are filtered by the {@link contentProvider}, the tree is
+ * sorted already, see {@link GPXFileHierarchy}.
+ * 
  * Furthermore it offers the functionality to select a track for
  * permanent display.
  * 
  * This class is also responsible for informing the {@code ITrackService}
- * in case new locations are added via preferences.
+ * in case new locations are added via preferences, for starting
+ * to index the tracks in the background and for watching the
+ * locations for changes. The locations are searched in the background,
+ * found tracks and changes are added to the tree in place.
  */
 public class TrackList {	
+	/**
+	 * Time to wait for further keystrokes before the tracks are searched by name.
+	 */
+	private static final long SEARCH_DELAY_MS = 150;
+	
+	/**
+	 * Searches the tracks matching the search string in the background.
+	 * 
+	 * The result is applied on the UI thread by {@link applyNameSearch},
+	 * unless the search string has been changed meanwhile. If no track
+	 * contains the search string, tracks with a similar name are shown.
+	 */
+	private class NameSearchJob extends Job {
+		private final String query;
+		
+		NameSearchJob(final String query) {
+			super("Searching " + query);
+			this.query = query;
+			setSystem(true);
+		}
+		
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			List<TrackMetaInfo> found = trackService.findTracksByName(query, NameMatch.SUBSTRING);
+			if(found.isEmpty() && !monitor.isCanceled()) {
+				// Most likely a typo
+				found = trackService.findTracksByName(query, NameMatch.FUZZY);
+			}
+			if(monitor.isCanceled()) {
+				return Status.CANCEL_STATUS;
+			}
+			
+			Set<TrackMetaInfo> result = new HashSet<>(found);
+			sync.asyncExec(() -> applyNameSearch(this, result));
+			return Status.OK_STATUS;
+		}
+	}
+	
 	/**
 	 * Provides the tracks which are available.
 	 */
@@ -73,6 +130,26 @@ public class TrackList {
 	@Inject
 	private ESelectionService selectionService;
 	
+	/**
+	 * Used for sending the progress of searching and indexing on the event bus.
+	 */
+	@Inject
+	private IEventBroker broker;
+	
+	/**
+	 * Used to apply the results of the {@link nameSearchJob} on the UI thread.
+	 */
+	@Inject
+	private UISynchronize sync;
+	
+	/**
+	 * Whether the tracks shall be indexed in the background
+	 * after the locations have changed. Enabled if not set.
+	 */
+	@Inject
+	@Preference(nodePath="org.trackexplorer",value="indexInBackground")
+	private String indexInBackground;
+	
 	/**
 	 * When the user does a right-click on a track of the
 	 * {@link treeViewerTracks},
@@ -99,13 +176,18 @@ public class TrackList {
 	 * Main UI control to display the available tracks.
 	 */
 	private TreeViewer treeViewerTracks;
+	
+	/**
+	 * Provides the rows of {@link treeViewerTracks} and filters the tracks.
+	 */
+	private GPXFileHierarchyContentProvider contentProvider;
 
 	/**
 	 * When the user has executed a geographical search, this
 	 * class helps in displaying only the resulting tracks in
 	 * the {@link treeViewerTracks}.
 	 */
-	private GeoSearchViewerFilter geoSearchViewerFilter = null;
+	private GeoSearchFilter geoSearchFilter = null;
 
 	/**
 	 * If a user wants to search for a track by name,
@@ -118,12 +200,30 @@ public class TrackList {
 	 */
 	private String searchString = "";
 	
+	/**
+	 * The job searching for the {@link searchString}, null if none.
+	 * Only accessed from the UI thread.
+	 */
+	private NameSearchJob nameSearchJob;
+	
+	/**
+	 * The tracks found by the last {@link nameSearchJob},
+	 * null if the {@link searchString} is empty.
+	 */
+	private Set<TrackMetaInfo> nameSearchResult;
+	
 	/**
 	 * Button which resets the content of {@link textSearchString}.
 	 * This is some kind of "forward" declaration, as the reference
 	 * to the button is needed before it is defined.
 	 */
 	private Button btnReset;
+	
+	/**
+	 * Shows the progress of searching and indexing the tracks in the background.
+	 * Only visible while searching or indexing.
+	 */
+	private Label labelProgress;
 
 	/**
 	 * Create the controls for displaying and searching the available tracks.
@@ -163,8 +263,7 @@ public class TrackList {
 					}
 				}
 				
-				// Trigger refresh
-				treeViewerTracks.refresh();		
+				searchByName();
 				
 			}			
 		});
@@ -180,8 +279,10 @@ public class TrackList {
 		btnReset.setText("Reset");
 		
 		 // Create table viewer
-		treeViewerTracks = new TreeViewer(parent, SWT.BORDER);
-		treeViewerTracks.setContentProvider(new GPXFileHierarchyContentProvider());
+		treeViewerTracks = new TreeViewer(parent, SWT.BORDER | SWT.VIRTUAL);
+		treeViewerTracks.setUseHashlookup(true);
+		contentProvider = new GPXFileHierarchyContentProvider();
+		treeViewerTracks.setContentProvider(contentProvider);
 		treeViewerTracks.setLabelProvider(new LabelProvider() {
 			@Override
 			public String getText(Object element) {
@@ -213,52 +314,8 @@ public class TrackList {
 			}
 		});
 		
-		// Only show tracks whose name contain the string entered by the user in {@link textSearchString}.
-		// Please note: The empty string matches all tracks.
-		treeViewerTracks.addFilter(new ViewerFilter() {			
-			@Override
-			public boolean select(Viewer viewer, Object parentElement, Object element) {
-				Tree.Node<?> node = (Tree.Node<?>) element;
-				// Only show folders if they have children
-				if(node.hasChildren()) {
-					return true;
-
-					// The commented code does not work reliably.
-					// Sometimes the same folder is shown twice.
-					// Stackoverflow mentions it as the correct answer:
-					//
-					//					StructuredViewer structuredViewer = (StructuredViewer) viewer;
-					//					ITreeContentProvider provider = (ITreeContentProvider) structuredViewer.getContentProvider();
-					//					// Test if any of the children would be shown
-					//					for (Object child: provider.getChildren(element)){
-					//						if (select(viewer, element, child)) {							
-					//							return true;
-					//						}
-					//					}				
-					//					return false;
-				}
-				else {
-					TrackMetaInfo trackInfo = (TrackMetaInfo) node.getData();
-					return trackInfo.getName().toLowerCase().contains(searchString.toLowerCase());	
-				}
-			}
-		});
-		
-		// Sort tracks by name
-		treeViewerTracks.setComparator(new ViewerComparator() {
-			public int compare(Viewer viewer, Object e1, Object e2) {
-				Tree.Node<?> node1 = (Tree.Node<?>) e1;
-				Tree.Node<?> node2 = (Tree.Node<?>) e2;
-				
-				TrackMetaInfo info1 = (TrackMetaInfo) node1.getData();
-				TrackMetaInfo info2 = (TrackMetaInfo) node2.getData();								
-
-				return info1.getName().compareToIgnoreCase(info2.getName());
-			}			
-		});
-		
 		treeViewerTracks.setInput(GPXFileHierarchy.Create(trackService.getAvailabeTracks()));
-		treeViewerTracks.expandAll();
+		expandFolders();
 				
 		org.eclipse.swt.widgets.Tree treeAllTracks = treeViewerTracks.getTree();
 		GridData gd_treeAllTracks = new GridData(SWT.FILL, SWT.FILL, true, true, 1, 1);
@@ -266,17 +323,107 @@ public class TrackList {
 		gd_treeAllTracks.minimumWidth = 300;
 		treeAllTracks.setLayoutData(gd_treeAllTracks);
 		
+		// Create label for the progress of searching and indexing
+		labelProgress = new Label(parent, SWT.NONE);
+		GridData gd_labelProgress = new GridData(SWT.FILL, SWT.CENTER, true, false, 1, 1);
+		gd_labelProgress.exclude = true;
+		labelProgress.setLayoutData(gd_labelProgress);
+		labelProgress.setVisible(false);
+		
 		// Register popup menus
 		menuService.registerContextMenu(treeViewerTracks.getControl(), "org.trackexplorer.trackoverview.popupmenu.tracklist");
 	}
 
 	/**
-	 * Removes the filter {@link geoSearchViewerFilter} from {@link treeViewerTracks} if present.
+	 * Removes the filter {@link geoSearchFilter} if present.
 	 */
 	private void clearGeoSearchFilterFromTreeViewer() {
-		if(this.geoSearchViewerFilter != null) {
-			this.treeViewerTracks.removeFilter(geoSearchViewerFilter);
+		if(this.geoSearchFilter != null) {
+			this.geoSearchFilter = null;
+			updateFilter();
+		}
+	}
+	
+	/**
+	 * Starts a {@link NameSearchJob} for the {@link searchString}, a pending
+	 * search is cancelled. The empty string matches all tracks right away.
+	 */
+	private void searchByName() {
+		if(nameSearchJob != null) {
+			nameSearchJob.cancel();
+			nameSearchJob = null;
+		}
+		if(searchString.trim().isEmpty()) {
+			if(nameSearchResult != null) {
+				nameSearchResult = null;
+				updateFilter();
+			}
+			return;
+		}
+		nameSearchJob = new NameSearchJob(searchString);
+		nameSearchJob.schedule(SEARCH_DELAY_MS);
+	}
+	
+	/**
+	 * Shows the tracks found by the given job, if it is still the current one.
+	 */
+	private void applyNameSearch(final NameSearchJob job, final Set<TrackMetaInfo> result) {
+		if(job != nameSearchJob || treeViewerTracks.getTree().isDisposed()) {
+			return;
+		}
+		nameSearchJob = null;
+		nameSearchResult = result;
+		updateFilter();
+	}
+	
+	/**
+	 * Only shows tracks which were found by the search for the string entered by
+	 * the user in {@link textSearchString} and by the geographical search, if any.
+	 */
+	private void updateFilter() {
+		Predicate<TrackMetaInfo> filter = trackInfo -> true;
+		if(nameSearchResult != null) {
+			filter = nameSearchResult::contains;
+		}
+		if(geoSearchFilter != null) {
+			filter = filter.and(geoSearchFilter);
 		}
+		refreshTracks(contentProvider.setFilter(filter));
+	}
+	
+	/**
+	 * Shows the tracks provided by the {@link contentProvider} after the tree or the filter changed.
+	 * 
+	 * @param changed The elements whose visible children changed, see
+	 * {@link GPXFileHierarchyContentProvider#update}. If the folders did not
+	 * change, only the changed folders are refreshed.
+	 */
+	private void refreshTracks(final Set<Object> changed) {
+		if(changed.isEmpty()) {
+			return;
+		}
+		treeViewerTracks.getTree().setRedraw(false);
+		try {
+			if(changed.contains(treeViewerTracks.getInput())) {
+				treeViewerTracks.refresh();
+			}
+			else {
+				for(Object folder : changed) {
+					treeViewerTracks.refresh(folder);
+				}
+			}
+			expandFolders();
+		} finally {
+			treeViewerTracks.getTree().setRedraw(true);
+		}
+	}
+	
+	/**
+	 * Expands all folders. Only the folders are created, the rows of
+	 * the tracks are created by the virtual tree once they are visible.
+	 */
+	private void expandFolders() {
+		treeViewerTracks.expandToLevel(2);
 	}
 
 	/**
@@ -284,17 +431,140 @@ public class TrackList {
 	 */
 	@Inject
 	private void onLocationChange(@Preference(nodePath="org.trackexplorer",value="locations") String locations) {
+		List<String> locs = new ArrayList<String>();
 		if(locations != null) {
-			List<String> locs = Arrays.asList(locations.split(File.pathSeparator));
-			trackService.setLocations(locs);
+			locs = Arrays.asList(locations.split(File.pathSeparator));
+		}
+		
+		// The callback is invoked from a background thread, posting is asynchronous
+		trackService.setLocations(locs, progress -> broker.post(TrackExplorerEventConstants.DISCOVERY_PROGRESS, progress));
+	}
+	
+	/**
+	 * Invoked whenever the user enables or disables watching the locations
+	 * for new, modified and deleted tracks via the preference page.
+	 * Enabled if not set.
+	 * 
+	 * The service keeps watching when the locations are set again.
+	 */
+	@Inject
+	private void onWatchLocationsChange(@Preference(nodePath="org.trackexplorer",value="watchLocations") String watchLocations) {
+		if(watchLocations == null || Boolean.parseBoolean(watchLocations)) {
+			// The callback is invoked from a background thread, posting is asynchronous
+			trackService.startWatching(trackChanges -> broker.post(TrackExplorerEventConstants.TRACKS_CHANGED, trackChanges));
 		}
 		else {
-			trackService.setLocations(new ArrayList<String>());
+			trackService.stopWatching();
 		}
-				
-		if(treeViewerTracks != null && (!treeViewerTracks.getTree().isDisposed())) {
-			treeViewerTracks.setInput(GPXFileHierarchy.Create(trackService.getAvailabeTracks()));
-			treeViewerTracks.expandAll();
+	}
+	
+	/**
+	 * Invoked whenever tracks have been added, removed or modified on disk.
+	 */
+	@Inject
+	@Optional
+	private void subscribeTracksChanged(final @UIEventTopic(TrackExplorerEventConstants.TRACKS_CHANGED) TrackChanges changes) {
+		if(changes != null && !changes.isEmpty()) {
+			applyTrackChanges(changes);
+			repeatNameSearch();
+		}
+	}
+	
+	/**
+	 * Updates the nodes of the changed tracks in the tree of {@link treeViewerTracks},
+	 * the tree is not created again.
+	 * 
+	 * Tracks which are already in the tree are not added again,
+	 * the tree might have been created after they were found.
+	 * 
+	 * The search by name is not repeated for every change, see {@link repeatNameSearch}.
+	 */
+	@SuppressWarnings("unchecked")
+	private void applyTrackChanges(final TrackChanges changes) {
+		if(treeViewerTracks == null || treeViewerTracks.getTree().isDisposed() || changes.isEmpty()) {
+			return;
+		}
+		
+		Tree<TrackMetaInfo> tree = (Tree<TrackMetaInfo>) treeViewerTracks.getInput();
+		for(TrackMetaInfo track : changes.getRemoved()) {
+			GPXFileHierarchy.remove(tree, track.getPath());
+		}
+		for(TrackMetaInfo track : changes.getUpdated()) {
+			GPXFileHierarchy.remove(tree, track.getPath());
+			GPXFileHierarchy.add(tree, track);
+		}
+		for(TrackMetaInfo track : changes.getAdded()) {
+			GPXFileHierarchy.add(tree, track);
+		}
+		refreshTracks(contentProvider.update());
+	}
+	
+	/**
+	 * Repeats the search by name, if any, as changed tracks might match the {@link searchString}.
+	 * 
+	 * Called once the tracks have been changed on disk or all locations have been searched,
+	 * not for every batch of tracks found, which would keep postponing the delayed search.
+	 * A search which is still pending finds the changed tracks anyway.
+	 */
+	private void repeatNameSearch() {
+		if(nameSearchResult != null && nameSearchJob == null) {
+			searchByName();
+		}
+	}
+	
+	/**
+	 * Invoked whenever some tracks have been found in the background.
+	 * The tracks are added to the tree. Once all locations have been
+	 * searched, the search by name is repeated and the tracks are indexed.
+	 */
+	@Inject
+	@Optional
+	private void subscribeDiscoveryProgress(final @UIEventTopic(TrackExplorerEventConstants.DISCOVERY_PROGRESS) DiscoveryProgress progress) {
+		if(progress == null) {
+			return;
+		}
+		applyTrackChanges(progress.getChanges());
+		if(progress.isCancelled()) {
+			// The locations were set again, searching continues
+			return;
+		}
+		
+		showProgress(String.format("Searching tracks: %d found (%.0f per second)",
+				progress.getTracks(), progress.getTracksPerSecond()), !progress.isFinished());
+		
+		if(progress.isFinished()) {
+			repeatNameSearch();
+		}
+		if(progress.isFinished() && (indexInBackground == null || Boolean.parseBoolean(indexInBackground))) {
+			// The callback is invoked from a background thread, posting is asynchronous
+			trackService.startIndexing(indexingProgress -> broker.post(TrackExplorerEventConstants.INDEXING_PROGRESS, indexingProgress));
+		}
+	}
+	
+	/**
+	 * Invoked whenever some tracks have been indexed in the background.
+	 * The label {@link labelProgress} is hidden when indexing has finished.
+	 */
+	@Inject
+	@Optional
+	private void subscribeIndexingProgress(final @UIEventTopic(TrackExplorerEventConstants.INDEXING_PROGRESS) IndexingProgress progress) {
+		if(progress != null) {
+			showProgress(String.format("Indexing tracks: %d of %d", progress.getIndexed(), progress.getTotal()),
+					!progress.isFinished());
+		}
+	}
+	
+	/**
+	 * Shows the given text in {@link labelProgress} or hides the label.
+	 */
+	private void showProgress(final String text, final boolean visible) {
+		if(labelProgress != null && !labelProgress.isDisposed()) {
+			labelProgress.setText(text);
+			if(labelProgress.getVisible() != visible) {
+				((GridData) labelProgress.getLayoutData()).exclude = !visible;
+				labelProgress.setVisible(visible);
+				labelProgress.getParent().layout();
+			}
 		}
 	}
 
@@ -306,11 +576,8 @@ public class TrackList {
 	@Optional
 	private void subscribeGeoSearchArea(final @UIEventTopic(TrackExplorerEventConstants.GEO_SEARCH_RESULTS) Set<TrackMetaInfo> searchResult) {
 		if(searchResult != null) {
-			if(this.geoSearchViewerFilter != null) {
-				this.treeViewerTracks.removeFilter(this.geoSearchViewerFilter);
-			}
-			this.geoSearchViewerFilter = new GeoSearchViewerFilter(searchResult);											
-			this.treeViewerTracks.addFilter(this.geoSearchViewerFilter);
+			this.geoSearchFilter = new GeoSearchFilter(searchResult);
+			updateFilter();
 		}
 	}
 
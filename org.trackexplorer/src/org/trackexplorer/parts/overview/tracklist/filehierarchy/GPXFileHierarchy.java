@@ -1,5 +1,8 @@
 package org.trackexplorer.parts.overview.tracklist.filehierarchy;
 
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -9,8 +12,29 @@ import org.trackexplorer.model.TrackMetaInfo;
 /**
  * A helper class to bundle the functionality for creating a
  * tree based representation out of the available tracks.
+ * 
+ * The tree can be updated in place when tracks are added or
+ * removed, see {@link add} and {@link remove}.
+ * 
+ * The folders and the tracks of each folder are sorted by name, see {@link ORDER},
+ * such that the tree can be shown without sorting it again.
  */
 public class GPXFileHierarchy {
+	/**
+	 * The order of the folders and of the tracks inside a folder: by name, ignoring
+	 * the case. Nodes with the same name are ordered by id, so no two nodes are equal.
+	 */
+	public static final Comparator<Tree.Node<TrackMetaInfo>> ORDER =
+			Comparator.<Tree.Node<TrackMetaInfo>, String>comparing(node -> node.getData().getName(), String.CASE_INSENSITIVE_ORDER)
+			.thenComparing(node -> node.getData().getName())
+			.thenComparing(node -> node.getData().getId());
+	
+	/**
+	 * The ids of the folders start with this prefix, such that
+	 * they neither match each other nor a track.
+	 */
+	private static final String FOLDER_ID_PREFIX = "folder:";
+	
 	/**
 	 * Creates a tree based representation of the available tracks.
 	 * Tracks are bundled according to the folders they are located in.
@@ -25,17 +49,18 @@ public class GPXFileHierarchy {
 				
 		//Group tracks by parent folder
 		Map<String, List<Tree.Node<TrackMetaInfo>>> tracksGroupedByFolder = tracks.stream().
-				collect(Collectors.groupingBy(element -> element.getPath().getParent().getFileName().toString(),
+				collect(Collectors.groupingBy(element -> folderName(element.getPath()),
 						Collectors.mapping(Tree.Node<TrackMetaInfo>::new, Collectors.toList())));
 		
 		// Convert tracks to tree nodes 
 		List<Tree.Node<TrackMetaInfo>> nodes = tracksGroupedByFolder.entrySet().stream().map( element -> {
 			// Create parent
-			Tree.Node<TrackMetaInfo> node = new Tree.Node<>(new TrackMetaInfo(null, element.getKey(), null));
+			Tree.Node<TrackMetaInfo> node = createFolder(element.getKey());
 			// Add children
+			element.getValue().sort(ORDER);
 			node.addChildren(element.getValue());
 			return node;
-		}).collect(Collectors.toList());
+		}).sorted(ORDER).collect(Collectors.toList());
 		
 		
 		// Create empty tree and attach root node
@@ -44,4 +69,72 @@ public class GPXFileHierarchy {
 		
 		return tree;		
 	}
+	
+	/**
+	 * Adds a track to the node of its folder, the folder is created if necessary.
+	 * Both are inserted at their position in the {@link ORDER}.
+	 * 
+	 * @return The node of the folder if it was created, otherwise the node of the track,
+	 * null if the track is already in the tree.
+	 */
+	public static Tree.Node<TrackMetaInfo> add(final Tree<TrackMetaInfo> tree, final TrackMetaInfo track) {
+		Tree.Node<TrackMetaInfo> node = new Tree.Node<>(track);
+		Tree.Node<TrackMetaInfo> folder = createFolder(folderName(track.getPath()));
+		int folderIndex = Collections.binarySearch(tree.getRoot().getChildren(), folder, ORDER);
+		if(folderIndex < 0) {
+			folder.addChild(node);
+			tree.getRoot().addChild(-folderIndex - 1, folder);
+			return folder;
+		}
+		
+		folder = tree.getRoot().getChildren().get(folderIndex);
+		int index = Collections.binarySearch(folder.getChildren(), node, ORDER);
+		if(index >= 0) {
+			return null;
+		}
+		folder.addChild(-index - 1, node);
+		return node;
+	}
+	
+	/**
+	 * Removes the track with the given path.
+	 * Folders without any tracks left are removed as well.
+	 * 
+	 * @return The node of the track or of its folder if the folder was removed,
+	 * null if there is no such track.
+	 */
+	public static Tree.Node<TrackMetaInfo> remove(final Tree<TrackMetaInfo> tree, final Path path) {
+		Tree.Node<TrackMetaInfo> folder = getFolder(tree, path);
+		if(folder == null) {
+			return null;
+		}
+		for(Tree.Node<TrackMetaInfo> node : folder.getChildren()) {
+			if(path.equals(node.getData().getPath())) {
+				folder.removeChild(node);
+				if(!folder.hasChildren()) {
+					tree.getRoot().removeChild(folder);
+					return folder;
+				}
+				return node;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * @return The node of the folder of the track with the given path or null.
+	 */
+	public static Tree.Node<TrackMetaInfo> getFolder(final Tree<TrackMetaInfo> tree, final Path path) {
+		List<Tree.Node<TrackMetaInfo>> folders = tree.getRoot().getChildren();
+		int index = Collections.binarySearch(folders, createFolder(folderName(path)), ORDER);
+		return (index >= 0) ? folders.get(index) : null;
+	}
+	
+	private static Tree.Node<TrackMetaInfo> createFolder(final String name) {
+		return new Tree.Node<>(new TrackMetaInfo(FOLDER_ID_PREFIX + name, name, null));
+	}
+	
+	private static String folderName(final Path path) {
+		return path.getParent().getFileName().toString();
+	}
 }
@@ -1,6 +1,16 @@
 package org.trackexplorer.parts.overview.tracklist.filehierarchy;
 
-import org.eclipse.jface.viewers.ITreeContentProvider;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.eclipse.jface.viewers.ILazyTreeContentProvider;
+import org.eclipse.jface.viewers.TreeViewer;
 import org.eclipse.jface.viewers.Viewer;
 import org.trackexplorer.model.TrackMetaInfo;
 
@@ -8,67 +18,138 @@ import org.trackexplorer.model.TrackMetaInfo;
  * A content provider for translating the tree hierarchy
  * created by {@link GPXFileHierarchy} to a format
  * which can be used by a JFace TreeViewer.
+ *
+ * The provider is lazy, it must be used with a viewer created with
+ * {@code SWT.VIRTUAL}. Only the nodes of the rows which are visible
+ * are passed to the viewer, see {@link updateElement}.
+ *
+ * As a lazy viewer neither filters nor sorts, the tracks are filtered
+ * by the provider, see {@link setFilter}, and the tree is already sorted.
+ * Folders without any tracks passing the filter are hidden.
+ *
+ * After the tree or the filter changed, only the elements whose visible
+ * children changed need to be refreshed, see {@link update}.
  */
-public class GPXFileHierarchyContentProvider implements ITreeContentProvider {
-	private static Object[] EMPTY_ARRAY = new Object[0];
+public class GPXFileHierarchyContentProvider implements ILazyTreeContentProvider {
+	private TreeViewer viewer;
+	private Tree<TrackMetaInfo> tree;
+	private Predicate<TrackMetaInfo> filter = track -> true;
+
+	/**
+	 * The folders shown, in the order of the tree.
+	 */
+	private List<Tree.Node<TrackMetaInfo>> visibleFolders = Collections.emptyList();
+
+	/**
+	 * The tracks shown for each folder of {@link visibleFolders}, in the order of the tree.
+	 */
+	private Map<Tree.Node<TrackMetaInfo>, List<Tree.Node<TrackMetaInfo>>> visibleTracks = new HashMap<>();
+
+	/**
+	 * The folder of each track in {@link visibleTracks}.
+	 */
+	private Map<Tree.Node<TrackMetaInfo>, Tree.Node<TrackMetaInfo>> folderOf = new HashMap<>();
 
-	public GPXFileHierarchyContentProvider() {		
+	public GPXFileHierarchyContentProvider() {
 	}
-	
+
 	@Override
 	public void dispose() {
-		// TODO Auto-generated method stub
-		
 	}
 
+	@SuppressWarnings("unchecked")
 	@Override
 	public void inputChanged(Viewer viewer, Object oldInput, Object newInput) {
-		// TODO Auto-generated method stub
-		
+		this.viewer = (TreeViewer) viewer;
+		this.tree = (Tree<TrackMetaInfo>) newInput;
+		update();
 	}
 
-	@Override
-	public Object[] getElements(Object inputElement) {
-		assert(inputElement instanceof Tree<?>);
-		
-		@SuppressWarnings("unchecked")
-		Tree<TrackMetaInfo> tree = (Tree<TrackMetaInfo>) inputElement;
-		Tree.Node<TrackMetaInfo> rootNode = tree.getRoot();
-		
-		if(rootNode.hasChildren()) {
-			return rootNode.getChildren().toArray();
+	/**
+	 * Only shows the tracks accepted by the given filter.
+	 *
+	 * @return The elements to refresh, see {@link update}.
+	 */
+	public Set<Object> setFilter(final Predicate<TrackMetaInfo> filter) {
+		this.filter = filter;
+		return update();
+	}
+
+	/**
+	 * Determines the nodes to show, needs to be called whenever the tree
+	 * was modified.
+	 *
+	 * @return The folders whose visible tracks changed, or the input of the
+	 * viewer if the visible folders changed. These elements have to be
+	 * refreshed in the viewer.
+	 */
+	public Set<Object> update() {
+		List<Tree.Node<TrackMetaInfo>> folders = new ArrayList<>();
+		Map<Tree.Node<TrackMetaInfo>, List<Tree.Node<TrackMetaInfo>>> tracks = new HashMap<>();
+		Map<Tree.Node<TrackMetaInfo>, Tree.Node<TrackMetaInfo>> parents = new HashMap<>();
+		if(tree != null) {
+			for(Tree.Node<TrackMetaInfo> folder : tree.getRoot().getChildren()) {
+				List<Tree.Node<TrackMetaInfo>> children = new ArrayList<>();
+				for(Tree.Node<TrackMetaInfo> track : folder.getChildren()) {
+					if(filter.test(track.getData())) {
+						children.add(track);
+						parents.put(track, folder);
+					}
+				}
+				if(!children.isEmpty()) {
+					folders.add(folder);
+					tracks.put(folder, children);
+				}
+			}
 		}
-		else {
-			return EMPTY_ARRAY;
+
+		Set<Object> changed = new HashSet<>();
+		if(!folders.equals(visibleFolders)) {
+			changed.add(tree);
+		}
+		for(Map.Entry<Tree.Node<TrackMetaInfo>, List<Tree.Node<TrackMetaInfo>>> folder : tracks.entrySet()) {
+			if(!folder.getValue().equals(visibleTracks.get(folder.getKey()))) {
+				changed.add(folder.getKey());
+			}
 		}
+		this.visibleFolders = folders;
+		this.visibleTracks = tracks;
+		this.folderOf = parents;
+		return changed;
 	}
 
 	@Override
-	public Object[] getChildren(Object parentElement) {
-		assert(parentElement instanceof Tree.Node<?>);
-		
-		@SuppressWarnings("unchecked")
-		Tree.Node<TrackMetaInfo> node = (Tree.Node<TrackMetaInfo>) parentElement;
-		if(node.hasChildren()) {
-			return node.getChildren().toArray();
+	public void updateElement(Object parent, int index) {
+		List<Tree.Node<TrackMetaInfo>> children = getVisibleChildren(parent);
+		if(index < children.size()) {
+			Tree.Node<TrackMetaInfo> child = children.get(index);
+			viewer.replace(parent, index, child);
+			viewer.setChildCount(child, getVisibleChildren(child).size());
 		}
-		else {
-			return EMPTY_ARRAY;
+	}
+
+	@Override
+	public void updateChildCount(Object element, int currentChildCount) {
+		int count = getVisibleChildren(element).size();
+		if(count != currentChildCount) {
+			viewer.setChildCount(element, count);
 		}
 	}
 
 	@Override
 	public Object getParent(Object element) {
-		// TODO Auto-generated method stub
+		if(element instanceof Tree.Node<?>) {
+			Tree.Node<?> folder = folderOf.get(element);
+			return (folder != null) ? folder : tree;
+		}
 		return null;
 	}
 
-	@Override
-	public boolean hasChildren(Object element) {
-		assert(element instanceof Tree.Node<?>);
-		
-		@SuppressWarnings("unchecked")
-		Tree.Node<TrackMetaInfo> node = (Tree.Node<TrackMetaInfo>) element;
-		return node.hasChildren();
+	private List<Tree.Node<TrackMetaInfo>> getVisibleChildren(final Object element) {
+		if(element == tree) {
+			return visibleFolders;
+		}
+		List<Tree.Node<TrackMetaInfo>> children = visibleTracks.get(element);
+		return (children != null) ? children : Collections.emptyList();
 	}
 }
@@ -61,6 +61,16 @@ public class Tree<T> {
         	children.add(child);
         }
         
+        /**
+         * Inserts the child at the given position.
+         */
+        public void addChild(int index, Node<T> child) {
+        	if(children == null) {
+        		children = new ArrayList<Node<T>>();
+        	}
+        	children.add(index, child);
+        }
+        
         public void addChildren(List<Node<T>> children) {
         	if(this.children == null) {
         		this.children = new ArrayList<Node<T>>();
@@ -70,6 +80,13 @@ public class Tree<T> {
         	}
         }
         
+        /**
+         * @return True if the child was found and removed.
+         */
+        public boolean removeChild(Node<T> child) {
+        	return (children != null) && children.remove(child);
+        }
+        
         public void merge(Node<T> node) {
         	addChildren(node.children);
         }
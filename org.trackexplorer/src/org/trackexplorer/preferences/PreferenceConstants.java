@@ -7,4 +7,8 @@ package org.trackexplorer.preferences;
 public interface PreferenceConstants {
 	public final String ROOT_NODE_LOCATIONS = "org.trackexplorer";
 	public final String NODE_LOCATIONS = "locations";
+	public final String NODE_INDEX_IN_BACKGROUND = "indexInBackground";
+	public final String NODE_WATCH_LOCATIONS = "watchLocations";
+	public final String NODE_SEARCH_SEGMENTS = "searchSegments";
+	public final String NODE_CORRIDOR_DISTANCE = "corridorDistance";
 }
@@ -1,6 +1,8 @@
 package org.trackexplorer.preferences;
 
+import org.eclipse.jface.preference.BooleanFieldEditor;
 import org.eclipse.jface.preference.FieldEditorPreferencePage;
+import org.eclipse.jface.preference.IntegerFieldEditor;
 import org.eclipse.jface.preference.PathEditor;
 
 /**
@@ -21,6 +23,27 @@ public class PreferencePagePathSelection extends FieldEditorPreferencePage{
 	    		"Choose path",
 	    		getFieldEditorParent());
 	    addField(pathFe);
+	    
+	    BooleanFieldEditor indexFe = new BooleanFieldEditor(PreferenceConstants.NODE_INDEX_IN_BACKGROUND,
+	    		"Index tracks in the background",
+	    		getFieldEditorParent());
+	    addField(indexFe);
+	    
+	    BooleanFieldEditor watchFe = new BooleanFieldEditor(PreferenceConstants.NODE_WATCH_LOCATIONS,
+	    		"Watch locations for changes",
+	    		getFieldEditorParent());
+	    addField(watchFe);
+	    
+	    BooleanFieldEditor segmentsFe = new BooleanFieldEditor(PreferenceConstants.NODE_SEARCH_SEGMENTS,
+	    		"Geo search also finds tracks crossing the area between two points",
+	    		getFieldEditorParent());
+	    addField(segmentsFe);
+	    
+	    IntegerFieldEditor corridorFe = new IntegerFieldEditor(PreferenceConstants.NODE_CORRIDOR_DISTANCE,
+	    		"Geo search distance to the line of a corridor in meters",
+	    		getFieldEditorParent());
+	    corridorFe.setValidRange(1, 100000);
+	    addField(corridorFe);
 	}
 
 }